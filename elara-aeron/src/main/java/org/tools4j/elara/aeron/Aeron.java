@@ -80,7 +80,9 @@ public class Aeron implements AutoCloseable {
     }
 
     public AeronSender senderFor(final Publication publication) {
-        return new AeronSender(publication, config);
+        return config.senderDirectClaimLength() > 0 ?
+                new AeronDirectSender(publication, config) :
+                new AeronSender(publication, config);
     }
 
     public AeronReceiver openReceiver(final String channel, final int streamId) {
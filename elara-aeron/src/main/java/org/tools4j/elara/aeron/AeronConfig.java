@@ -26,6 +26,7 @@ package org.tools4j.elara.aeron;
 public interface AeronConfig {
     int senderInitialBufferSize();
     int senderMaxRetriesAfterAdminAction();
+    int senderDirectClaimLength();
     int receiverFragmentLimit();
     int receiverFragmentAssemblerInitialBufferSize();
 
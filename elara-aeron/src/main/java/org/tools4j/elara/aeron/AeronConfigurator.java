@@ -26,6 +26,7 @@ package org.tools4j.elara.aeron;
 public interface AeronConfigurator extends AeronConfig {
     AeronConfigurator senderInitialBufferSize(int bytes);
     AeronConfigurator senderMaxRetriesAfterAdminAction(int maxRetries);
+    AeronConfigurator senderDirectClaimLength(int bytes);
     AeronConfigurator receiverFragmentLimit(int limit);
     AeronConfigurator receiverFragmentAssemblerInitialBufferSize(int bytes);
 
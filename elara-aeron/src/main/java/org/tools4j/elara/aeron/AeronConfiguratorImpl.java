@@ -26,6 +26,7 @@ package org.tools4j.elara.aeron;
 final class AeronConfiguratorImpl implements AeronConfigurator {
     private int senderInitialBufferSize = 4096;
     private int senderMaxRetriesAfterAdminAction = 3;
+    private int senderDirectClaimLength = 0;
     private int receiverFragmentLimit = 1;
     private int receiverFragmentAssemblerInitialBufferSize = 4096;
 
@@ -39,6 +40,11 @@ final class AeronConfiguratorImpl implements AeronConfigurator {
         return senderMaxRetriesAfterAdminAction;
     }
 
+    @Override
+    public int senderDirectClaimLength() {
+        return senderDirectClaimLength;
+    }
+
     @Override
     public int receiverFragmentLimit() {
         return receiverFragmentLimit;
@@ -64,6 +70,15 @@ final class AeronConfiguratorImpl implements AeronConfigurator {
         return this;
     }
 
+    @Override
+    public AeronConfigurator senderDirectClaimLength(final int bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Sender direct claim length cannot be negative: " + bytes);
+        }
+        this.senderDirectClaimLength = bytes;
+        return this;
+    }
+
     @Override
     public AeronConfigurator receiverFragmentLimit(final int limit) {
         if (limit < 1) {
@@ -87,6 +102,7 @@ final class AeronConfiguratorImpl implements AeronConfigurator {
         return "AeronContextImpl:" +
                 "senderInitialBufferSize=" + senderInitialBufferSize +
                 "|senderMaxRetriesAfterAdminAction=" + senderMaxRetriesAfterAdminAction +
+                "|senderDirectClaimLength=" + senderDirectClaimLength +
                 "|receiverFragmentLimit=" + receiverFragmentLimit +
                 "|receiverFragmentAssemblerInitialBufferSize=" + receiverFragmentAssemblerInitialBufferSize;
     }
@@ -0,0 +1,189 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.aeron;
+
+import io.aeron.Publication;
+import io.aeron.logbuffer.BufferClaim;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.tools4j.elara.stream.SendingResult;
+
+/**
+ * Aeron sender writing messages directly into the publication buffer via {@link Publication#tryClaim(int, BufferClaim)
+ * tryClaim(..)}.  This sender is used if a positive {@link AeronConfig#senderDirectClaimLength() direct claim length}
+ * is configured and works with concurrent and {@link io.aeron.ExclusivePublication exclusive} publications.
+ * <p>
+ * Messages sent via {@link #sendMessage(DirectBuffer, int, int) sendMessage(..)} have a known length and are copied
+ * into a claim of exactly that length.  Messages larger than the max payload length of the publication are sent with
+ * {@link Publication#offer(DirectBuffer, int, int) offer(..)} as done by {@link AeronSender}.
+ * <p>
+ * Messages encoded via {@link #sendingMessage()} must have exactly the configured claim length.  Their length is not
+ * known when the context is created, so the claim length is claimed and the message is encoded directly into the
+ * claim, which is committed when the message is sent.  This makes the sender zero-copy for fixed size messages,
+ * which is what this sender is meant for;  sending a message of another length from a sending context aborts the claim
+ * and fails with an {@link IllegalArgumentException}.  Variable length messages should use {@link AeronSender} or
+ * {@link #sendMessage(DirectBuffer, int, int) sendMessage(..)} instead.  If the publication cannot be claimed when the
+ * sending context is created, for instance due to back pressure, the message is encoded in an expandable buffer and
+ * claimed again when it is sent.
+ */
+public class AeronDirectSender extends AeronSender {
+
+    private final int claimLength;
+    private final int maxRetriesAfterAdminAction;
+    private final BufferClaim bufferClaim = new BufferClaim();
+    private final ClaimingBuffer buffer;
+    private final DirectSendingContext context = new DirectSendingContext();
+    private String name;
+
+    public AeronDirectSender(final Publication publication, final AeronConfig config) {
+        super(publication, config);
+        this.claimLength = claimLength(publication.maxPayloadLength(), config.senderDirectClaimLength());
+        this.maxRetriesAfterAdminAction = config.senderMaxRetriesAfterAdminAction();
+        this.buffer = new ClaimingBuffer(config.senderInitialBufferSize());
+    }
+
+    private static int claimLength(final int maxPayloadLength, final int directClaimLength) {
+        if (directClaimLength <= 0) {
+            throw new IllegalArgumentException("Direct claim length must be positive: " + directClaimLength);
+        }
+        return Math.min(directClaimLength, maxPayloadLength);
+    }
+
+    /**
+     * @return the length claimed in the publication buffer for every message sent via {@link #sendingMessage()}, and
+     *         hence the length that all messages sent from a sending context must have
+     */
+    public int claimLength() {
+        return claimLength;
+    }
+
+    @Override
+    public SendingResult sendMessage(final DirectBuffer buffer, final int offset, final int length) {
+        if (length > publication().maxPayloadLength()) {
+            return super.sendMessage(buffer, offset, length);
+        }
+        final long result = tryClaim(length);
+        if (result > 0) {
+            bufferClaim.putBytes(buffer, offset, length);
+            bufferClaim.commit();
+            return SendingResult.SENT;
+        }
+        return sendingResult(result);
+    }
+
+    private long tryClaim(final int length) {
+        long result = publication().tryClaim(length, bufferClaim);
+        for (int i = 0; i < maxRetriesAfterAdminAction && result == Publication.ADMIN_ACTION; i++) {
+            result = publication().tryClaim(length, bufferClaim);
+        }
+        return result;
+    }
+
+    @Override
+    public SendingContext sendingMessage() {
+        return context.init();
+    }
+
+    private final class DirectSendingContext implements SendingContext {
+        boolean claimed;
+        boolean closed = true;
+
+        DirectSendingContext init() {
+            if (!closed) {
+                abort();
+                throw new IllegalStateException("Sending context not closed");
+            }
+            claimed = tryClaim(claimLength) > 0;
+            if (claimed) {
+                buffer.wrap(bufferClaim.buffer(), bufferClaim.offset(), claimLength);
+            } else {
+                buffer.overflow();
+            }
+            closed = false;
+            return this;
+        }
+
+        void ensureNotClosed() {
+            if (closed) {
+                throw new IllegalStateException("Sending context is closed");
+            }
+        }
+
+        @Override
+        public MutableDirectBuffer buffer() {
+            ensureNotClosed();
+            return buffer;
+        }
+
+        @Override
+        public SendingResult send(final int length) {
+            ensureNotClosed();
+            if (length != claimLength) {
+                abort();
+                throw new IllegalArgumentException("Message length " + length +
+                        " does not match the direct claim length " + claimLength);
+            }
+            try {
+                if (claimed) {
+                    claimed = false;
+                    if (buffer.isOverflowed()) {
+                        bufferClaim.putBytes(buffer, 0, length);
+                    }
+                    bufferClaim.commit();
+                    return SendingResult.SENT;
+                }
+                return sendMessage(buffer, 0, length);
+            } finally {
+                close0();
+            }
+        }
+
+        @Override
+        public void abort() {
+            if (!closed) {
+                if (claimed) {
+                    bufferClaim.abort();
+                    claimed = false;
+                }
+                close0();
+            }
+        }
+
+        private void close0() {
+            buffer.unwrap();
+            closed = true;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name != null ? name : (name = "AeronDirectSender{" + publication().channel() + ":" +
+                publication().streamId() + "|claimLength=" + claimLength + '}');
+    }
+}
@@ -58,6 +58,10 @@ public class AeronSender extends MessageSender.Buffered {
         if (result == Publication.ADMIN_ACTION) {
             result = retryAfterAdminAction(buffer, offset, length);
         }
+        return sendingResult(result);
+    }
+
+    static SendingResult sendingResult(final long result) {
         switch ((int)result) {
             case (int)Publication.NOT_CONNECTED:
                 return SendingResult.DISCONNECTED;
@@ -0,0 +1,197 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.aeron;
+
+import org.agrona.AbstractMutableDirectBuffer;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.nio.ByteBuffer;
+
+import static org.agrona.BufferUtil.ARRAY_BASE_OFFSET;
+import static org.agrona.BufferUtil.address;
+import static org.agrona.BufferUtil.array;
+import static org.agrona.BufferUtil.arrayOffset;
+
+/**
+ * Buffer used by {@link AeronDirectSender} to encode messages directly into a claimed publication buffer.  The buffer
+ * wraps the claimed region like an {@link UnsafeBuffer}, but if encoding exceeds the wrapped length, the already
+ * encoded bytes are copied to an expandable overflow buffer and encoding continues there.
+ */
+final class ClaimingBuffer extends AbstractMutableDirectBuffer {
+
+    private final ExpandableDirectByteBuffer overflowBuffer;
+    private final UnsafeBuffer view = new UnsafeBuffer(0, 0);
+    private boolean overflowed;
+
+    ClaimingBuffer(final int initialOverflowCapacity) {
+        this.overflowBuffer = new ExpandableDirectByteBuffer(initialOverflowCapacity);
+    }
+
+    @Override
+    public void wrap(final byte[] buffer) {
+        wrap(buffer, 0, buffer.length);
+    }
+
+    @Override
+    public void wrap(final byte[] buffer, final int offset, final int length) {
+        wrap0(buffer, ARRAY_BASE_OFFSET + offset, length);
+    }
+
+    @Override
+    public void wrap(final ByteBuffer buffer) {
+        wrap(buffer, 0, buffer.capacity());
+    }
+
+    @Override
+    public void wrap(final ByteBuffer buffer, final int offset, final int length) {
+        if (buffer.isDirect()) {
+            wrap0(null, address(buffer) + offset, length);
+        } else {
+            wrap0(array(buffer), ARRAY_BASE_OFFSET + arrayOffset(buffer) + offset, length);
+        }
+    }
+
+    @Override
+    public void wrap(final DirectBuffer buffer) {
+        wrap(buffer, 0, buffer.capacity());
+    }
+
+    @Override
+    public void wrap(final DirectBuffer buffer, final int offset, final int length) {
+        wrap0(buffer.byteArray(), buffer.addressOffset() + offset, length);
+    }
+
+    @Override
+    public void wrap(final long address, final int length) {
+        wrap0(null, address, length);
+    }
+
+    private void wrap0(final byte[] byteArray, final long addressOffset, final int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length cannot be negative: " + length);
+        }
+        this.byteArray = byteArray;
+        this.addressOffset = addressOffset;
+        this.capacity = length;
+        this.overflowed = false;
+    }
+
+    /**
+     * Continues encoding in the overflow buffer;  bytes already encoded in the wrapped region are copied to the
+     * overflow buffer unless this buffer has overflowed before.
+     */
+    void overflow() {
+        if (!overflowed) {
+            overflowBuffer.checkLimit(capacity);
+            getBytes(0, overflowBuffer, 0, capacity);
+        }
+        byteArray = overflowBuffer.byteArray();
+        addressOffset = overflowBuffer.addressOffset();
+        capacity = overflowBuffer.capacity();
+        overflowed = true;
+    }
+
+    void unwrap() {
+        wrap0(null, 0, 0);
+    }
+
+    boolean isOverflowed() {
+        return overflowed;
+    }
+
+    @Override
+    protected void ensureCapacity(final int index, final int length) {
+        if (index < 0 || length < 0) {
+            throw new IndexOutOfBoundsException("negative value: index=" + index + " length=" + length);
+        }
+        final long limit = index + (long)length;
+        if (limit <= capacity) {
+            return;
+        }
+        if (limit > Integer.MAX_VALUE) {
+            throw new IndexOutOfBoundsException("index=" + index + " length=" + length + " exceeds max capacity");
+        }
+        overflowBuffer.checkLimit((int)limit);
+        overflow();
+    }
+
+    @Override
+    public void checkLimit(final int limit) {
+        ensureCapacity(0, limit);
+    }
+
+    @Override
+    public boolean isExpandable() {
+        return true;
+    }
+
+    @Override
+    public ByteBuffer byteBuffer() {
+        return null;
+    }
+
+    @Override
+    public int wrapAdjustment() {
+        return 0;
+    }
+
+    @Override
+    public void getBytes(final int index, final ByteBuffer dstBuffer, final int length) {
+        view().getBytes(index, dstBuffer, length);
+    }
+
+    @Override
+    public void getBytes(final int index, final ByteBuffer dstBuffer, final int dstOffset, final int length) {
+        view().getBytes(index, dstBuffer, dstOffset, length);
+    }
+
+    @Override
+    public void putBytes(final int index, final ByteBuffer srcBuffer, final int length) {
+        ensureCapacity(index, length);
+        view().putBytes(index, srcBuffer, length);
+    }
+
+    @Override
+    public void putBytes(final int index, final ByteBuffer srcBuffer, final int srcIndex, final int length) {
+        ensureCapacity(index, length);
+        view().putBytes(index, srcBuffer, srcIndex, length);
+    }
+
+    private MutableDirectBuffer view() {
+        if (byteArray != null) {
+            view.wrap(byteArray, (int)(addressOffset - ARRAY_BASE_OFFSET), capacity);
+        } else {
+            view.wrap(addressOffset, capacity);
+        }
+        return view;
+    }
+
+    @Override
+    public String toString() {
+        return "ClaimingBuffer:capacity=" + capacity + "|overflowed=" + overflowed;
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.aeron;
+
+import io.aeron.Publication;
+import io.aeron.logbuffer.BufferClaim;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.tools4j.elara.stream.MessageSender.SendingContext;
+import org.tools4j.elara.stream.SendingResult;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.aeron.logbuffer.FrameDescriptor.FRAME_ALIGNMENT;
+import static io.aeron.protocol.DataHeaderFlyweight.HEADER_LENGTH;
+import static io.aeron.protocol.HeaderFlyweight.FRAME_LENGTH_FIELD_OFFSET;
+import static io.aeron.protocol.HeaderFlyweight.HDR_TYPE_DATA;
+import static io.aeron.protocol.HeaderFlyweight.HDR_TYPE_PAD;
+import static io.aeron.protocol.HeaderFlyweight.TYPE_FIELD_OFFSET;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static org.agrona.BitUtil.align;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test for {@link AeronDirectSender} with a mocked publication claiming frames in a local term buffer.
+ */
+@ExtendWith(MockitoExtension.class)
+class AeronDirectSenderTest {
+
+    private static final int MAX_PAYLOAD_LENGTH = 1024;
+    private static final int CLAIM_LENGTH = 64;
+
+    @Mock
+    private Publication publication;
+
+    private final UnsafeBuffer termBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(64 * 1024));
+    private final List<Integer> frameOffsets = new ArrayList<>();
+    private int tail;
+
+    //under test
+    private AeronDirectSender sender;
+
+    @BeforeEach
+    void init() {
+        when(publication.maxPayloadLength()).thenReturn(MAX_PAYLOAD_LENGTH);
+        sender = new AeronDirectSender(publication, AeronConfig.configure()
+                .senderDirectClaimLength(CLAIM_LENGTH)
+                .senderMaxRetriesAfterAdminAction(2));
+    }
+
+    @Test
+    void sendMessageCommitsClaimOfExactLength() {
+        //given
+        final int length = 100;
+        final MutableDirectBuffer message = message(length);
+        when(publication.tryClaim(anyInt(), any(BufferClaim.class))).thenAnswer(this::claim);
+
+        //when
+        final SendingResult result = sender.sendMessage(message, 0, length);
+
+        //then
+        assertEquals(SendingResult.SENT, result);
+        assertEquals(1, frameOffsets.size());
+        assertCommitted(0, message, length);
+    }
+
+    @Test
+    void sendingContextCommitsClaimIfMessageHasClaimLength() {
+        //given
+        when(publication.tryClaim(anyInt(), any(BufferClaim.class))).thenAnswer(this::claim);
+        final SendingResult result;
+
+        //when
+        try (final SendingContext context = sender.sendingMessage()) {
+            encode(context.buffer(), CLAIM_LENGTH);
+            result = context.send(CLAIM_LENGTH);
+        }
+
+        //then
+        assertEquals(SendingResult.SENT, result);
+        assertEquals(1, frameOffsets.size());
+        assertCommitted(0, message(CLAIM_LENGTH), CLAIM_LENGTH);
+    }
+
+    @Test
+    void sendingContextRejectsMessageShorterThanClaimLength() {
+        //given
+        final int length = CLAIM_LENGTH - 10;
+        when(publication.tryClaim(anyInt(), any(BufferClaim.class))).thenAnswer(this::claim);
+
+        //when
+        try (final SendingContext context = sender.sendingMessage()) {
+            encode(context.buffer(), length);
+            assertThrows(IllegalArgumentException.class, () -> context.send(length));
+
+            //then
+            assertTrue(context.isClosed());
+        }
+        assertEquals(1, frameOffsets.size());
+        assertAborted(0, CLAIM_LENGTH);
+    }
+
+    @Test
+    void sendingContextRejectsMessageExceedingClaimLength() {
+        //given
+        final int length = 3 * CLAIM_LENGTH + 7;
+        when(publication.tryClaim(anyInt(), any(BufferClaim.class))).thenAnswer(this::claim);
+
+        //when
+        try (final SendingContext context = sender.sendingMessage()) {
+            encode(context.buffer(), length);
+            assertThrows(IllegalArgumentException.class, () -> context.send(length));
+
+            //then
+            assertTrue(context.isClosed());
+        }
+        assertEquals(1, frameOffsets.size());
+        assertAborted(0, CLAIM_LENGTH);
+    }
+
+    @Test
+    void sendingContextRetriesClaimAfterAdminAction() {
+        //given
+        when(publication.tryClaim(anyInt(), any(BufferClaim.class)))
+                .thenReturn(Publication.ADMIN_ACTION)
+                .thenAnswer(this::claim);
+        final SendingResult result;
+
+        //when
+        try (final SendingContext context = sender.sendingMessage()) {
+            encode(context.buffer(), CLAIM_LENGTH);
+            result = context.send(CLAIM_LENGTH);
+        }
+
+        //then
+        assertEquals(SendingResult.SENT, result);
+        verify(publication, times(2)).tryClaim(eq(CLAIM_LENGTH), any(BufferClaim.class));
+        assertEquals(1, frameOffsets.size());
+        assertCommitted(0, message(CLAIM_LENGTH), CLAIM_LENGTH);
+    }
+
+    @Test
+    void sendingContextAbortReleasesClaim() {
+        //given
+        when(publication.tryClaim(anyInt(), any(BufferClaim.class))).thenAnswer(this::claim);
+
+        //when
+        try (final SendingContext context = sender.sendingMessage()) {
+            encode(context.buffer(), CLAIM_LENGTH);
+            context.abort();
+            assertTrue(context.isClosed());
+        }
+
+        //then
+        assertEquals(1, frameOffsets.size());
+        assertAborted(0, CLAIM_LENGTH);
+    }
+
+    @Test
+    void sendingContextReturnsBackPressureIfClaimFails() {
+        //given
+        final int length = CLAIM_LENGTH;
+        when(publication.tryClaim(anyInt(), any(BufferClaim.class))).thenReturn(Publication.BACK_PRESSURED);
+        final SendingResult result;
+
+        //when
+        try (final SendingContext context = sender.sendingMessage()) {
+            encode(context.buffer(), length);
+            result = context.send(length);
+        }
+
+        //then
+        assertEquals(SendingResult.BACK_PRESSURED, result);
+        verify(publication, times(2)).tryClaim(eq(length), any(BufferClaim.class));
+        verify(publication, never()).offer(any(DirectBuffer.class), anyInt(), anyInt());
+    }
+
+    @Test
+    void sendingContextSendsMessageAfterClaimFailed() {
+        //given
+        final int length = CLAIM_LENGTH;
+        when(publication.tryClaim(anyInt(), any(BufferClaim.class)))
+                .thenReturn(Publication.BACK_PRESSURED)
+                .thenAnswer(this::claim);
+        final SendingResult result;
+
+        //when
+        try (final SendingContext context = sender.sendingMessage()) {
+            encode(context.buffer(), length);
+            result = context.send(length);
+        }
+
+        //then
+        assertEquals(SendingResult.SENT, result);
+        assertEquals(1, frameOffsets.size());
+        assertCommitted(0, message(length), length);
+    }
+
+    @Test
+    void sendMessageRetriesClaimAfterAdminAction() {
+        //given
+        final int length = 20;
+        final MutableDirectBuffer message = message(length);
+        when(publication.tryClaim(anyInt(), any(BufferClaim.class)))
+                .thenReturn(Publication.ADMIN_ACTION)
+                .thenReturn(Publication.ADMIN_ACTION)
+                .thenAnswer(this::claim);
+
+        //when
+        final SendingResult result = sender.sendMessage(message, 0, length);
+
+        //then
+        assertEquals(SendingResult.SENT, result);
+        verify(publication, times(3)).tryClaim(eq(length), any(BufferClaim.class));
+        assertCommitted(0, message, length);
+    }
+
+    @Test
+    void sendMessageOffersMessageExceedingMaxPayloadLength() {
+        //given
+        final int length = MAX_PAYLOAD_LENGTH + 1;
+        final MutableDirectBuffer message = message(length);
+        when(publication.offer(message, 0, length)).thenReturn(Publication.NOT_CONNECTED);
+
+        //when
+        final SendingResult result = sender.sendMessage(message, 0, length);
+
+        //then
+        assertEquals(SendingResult.DISCONNECTED, result);
+        verify(publication, never()).tryClaim(anyInt(), any(BufferClaim.class));
+    }
+
+    private long claim(final InvocationOnMock invocation) {
+        final int length = invocation.getArgument(0);
+        final BufferClaim bufferClaim = invocation.getArgument(1);
+        final int frameLength = HEADER_LENGTH + length;
+        termBuffer.putShort(tail + TYPE_FIELD_OFFSET, (short)HDR_TYPE_DATA, LITTLE_ENDIAN);
+        bufferClaim.wrap(termBuffer, tail, frameLength);
+        frameOffsets.add(tail);
+        tail += align(frameLength, FRAME_ALIGNMENT);
+        return tail;
+    }
+
+    private static MutableDirectBuffer message(final int length) {
+        final MutableDirectBuffer message = new UnsafeBuffer(new byte[length]);
+        encode(message, length);
+        return message;
+    }
+
+    private static void encode(final MutableDirectBuffer buffer, final int length) {
+        for (int i = 0; i < length; i++) {
+            buffer.putByte(i, (byte)(i * 7 + 1));
+        }
+    }
+
+    private void assertCommitted(final int frame, final DirectBuffer message, final int length) {
+        final int frameOffset = frameOffsets.get(frame);
+        assertEquals(HDR_TYPE_DATA, termBuffer.getShort(frameOffset + TYPE_FIELD_OFFSET, LITTLE_ENDIAN), "type");
+        assertEquals(HEADER_LENGTH + length, termBuffer.getInt(frameOffset + FRAME_LENGTH_FIELD_OFFSET, LITTLE_ENDIAN),
+                "frame length");
+        assertEquals(new UnsafeBuffer(message, 0, length),
+                new UnsafeBuffer(termBuffer, frameOffset + HEADER_LENGTH, length), "payload");
+    }
+
+    private void assertAborted(final int frame, final int length) {
+        final int frameOffset = frameOffsets.get(frame);
+        assertEquals(HDR_TYPE_PAD, termBuffer.getShort(frameOffset + TYPE_FIELD_OFFSET, LITTLE_ENDIAN), "type");
+        assertEquals(HEADER_LENGTH + length, termBuffer.getInt(frameOffset + FRAME_LENGTH_FIELD_OFFSET, LITTLE_ENDIAN),
+                "frame length");
+    }
+}
@@ -81,7 +81,9 @@ class AeronMessageStreamTest {
     static Arguments[] aeronSendersAndReceivers() {
         return new Arguments[]{
                 aeronIpcSenderAndReceiver(),
-                aeronUdpSenderAndReceiver()
+                aeronUdpSenderAndReceiver(),
+                aeronDirectIpcSenderAndReceiver(),
+                aeronDirectUdpSenderAndReceiver()
         };
     }
 
@@ -102,4 +104,24 @@ class AeronMessageStreamTest {
                 aeron.openReceiver(url, streamId, false)
         );
     }
-}
\ No newline at end of file
+
+    private static Arguments aeronDirectIpcSenderAndReceiver() {
+        final int streamId = 789;
+        final Aeron direct = Aeron.use(aeron.aeron(), AeronConfig.configure().senderDirectClaimLength(MESSAGE_BYTES));
+        return Arguments.of(
+                direct.openExclusiveSender("aeron:ipc", streamId),
+                aeron.openReceiver("aeron:ipc", streamId, false)
+        );
+    }
+
+    private static Arguments aeronDirectUdpSenderAndReceiver() {
+        final int port = Network.nextFreePort();
+        final int streamId = 1011;
+        final String url = "aeron:udp?endpoint=localhost:" + port;
+        final Aeron direct = Aeron.use(aeron.aeron(), AeronConfig.configure().senderDirectClaimLength(MESSAGE_BYTES));
+        return Arguments.of(
+                direct.openSender(url, streamId),
+                aeron.openReceiver(url, streamId, false)
+        );
+    }
+}
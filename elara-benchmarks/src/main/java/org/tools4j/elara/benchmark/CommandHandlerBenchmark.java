@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.benchmark;
+
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tools4j.elara.app.handler.CommandProcessor;
+import org.tools4j.elara.app.state.DefaultBaseState;
+import org.tools4j.elara.exception.DuplicateHandler;
+import org.tools4j.elara.exception.ExceptionHandler;
+import org.tools4j.elara.flyweight.FlyweightCommand;
+import org.tools4j.elara.flyweight.FlyweightEvent;
+import org.tools4j.elara.handler.CommandHandler;
+import org.tools4j.elara.handler.DeduplicatingCommandHandler;
+import org.tools4j.elara.handler.ProcessingCommandHandler;
+import org.tools4j.elara.route.DefaultEventRouter;
+import org.tools4j.elara.store.InMemoryStore;
+import org.tools4j.elara.store.MessageStore;
+import org.tools4j.elara.store.MessageStore.Handler;
+import org.tools4j.elara.store.MessageStore.Handler.Result;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link DeduplicatingCommandHandler} for new commands that are processed and routed, and for duplicate
+ * commands that are skipped.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandHandlerBenchmark {
+
+    private static final int SOURCE_ID = 42;
+    private static final int PAYLOAD_TYPE = 7;
+    private static final int PAYLOAD_BYTES = 100;
+
+    private final MutableDirectBuffer commandBuffer = new ExpandableDirectByteBuffer(4096);
+    private final MutableDirectBuffer payload = new ExpandableDirectByteBuffer(4096);
+    private final FlyweightCommand command = new FlyweightCommand();
+    private final Handler drainHandler = message -> Result.POLL;
+    private MessageStore.Poller eventPoller;
+    private CommandHandler commandHandler;
+    private long sourceSequence;
+
+    @Setup
+    public void setup() {
+        final DefaultBaseState baseState = new DefaultBaseState();
+        final MessageStore eventStore = new InMemoryStore(16, FlyweightEvent.HEADER_LENGTH + PAYLOAD_BYTES, true, true);
+        final DefaultEventRouter eventRouter = new DefaultEventRouter(System::nanoTime, baseState,
+                eventStore.appender(), baseState::onEvent);
+        eventPoller = eventStore.poller();
+        commandHandler = new DeduplicatingCommandHandler(baseState,
+                new ProcessingCommandHandler(eventRouter, CommandProcessor.ROUTE_EVENT_WITH_COMMAND_PAYLOAD),
+                ExceptionHandler.systemDefault(), DuplicateHandler.NOOP);
+        //process first command so that it is a duplicate from now on
+        sourceSequence = 1;
+        commandHandler.onCommand(command(sourceSequence));
+        drain();
+    }
+
+    private FlyweightCommand command(final long sequence) {
+        FlyweightCommand.writeHeaderAndPayload((short)0, SOURCE_ID, sequence, System.nanoTime(), PAYLOAD_TYPE,
+                payload, 0, PAYLOAD_BYTES, commandBuffer, 0);
+        return command.wrap(commandBuffer, 0);
+    }
+
+    private int drain() {
+        int drained = 0;
+        while (eventPoller.poll(drainHandler) > 0) {
+            drained++;
+        }
+        return drained;
+    }
+
+    @Benchmark
+    public int processNewCommand() {
+        commandHandler.onCommand(command(++sourceSequence));
+        return drain();
+    }
+
+    @Benchmark
+    public int skipDuplicateCommand() {
+        commandHandler.onCommand(command(1));
+        return drain();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.benchmark;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tools4j.elara.app.state.DefaultBaseState;
+import org.tools4j.elara.flyweight.FlyweightCommand;
+import org.tools4j.elara.flyweight.FlyweightEvent;
+import org.tools4j.elara.route.DefaultEventRouter;
+import org.tools4j.elara.route.EventRouter.RoutingContext;
+import org.tools4j.elara.store.InMemoryStore;
+import org.tools4j.elara.store.MessageStore;
+import org.tools4j.elara.store.MessageStore.Handler;
+import org.tools4j.elara.store.MessageStore.Handler.Result;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks event routing through {@link DefaultEventRouter} including event application to the base state.
+ * Routed events are appended to an {@link InMemoryStore} that removes events once they are polled so that the store
+ * size stays constant.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventRouterBenchmark {
+
+    private static final int SOURCE_ID = 42;
+    private static final int PAYLOAD_TYPE = 7;
+
+    @Param({"100"})
+    public int payloadBytes;
+
+    private final MutableDirectBuffer commandBuffer = new ExpandableDirectByteBuffer(4096);
+    private final MutableDirectBuffer payload = new ExpandableDirectByteBuffer(4096);
+    private final FlyweightCommand command = new FlyweightCommand();
+    private final Handler drainHandler = message -> Result.POLL;
+    private DefaultBaseState baseState;
+    private MessageStore eventStore;
+    private MessageStore.Poller eventPoller;
+    private DefaultEventRouter eventRouter;
+    private long sourceSequence;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < payloadBytes; i++) {
+            payload.putByte(i, (byte)i);
+        }
+        baseState = new DefaultBaseState();
+        eventStore = new InMemoryStore(16, FlyweightEvent.HEADER_LENGTH + payloadBytes, true, true);
+        eventPoller = eventStore.poller();
+        eventRouter = new DefaultEventRouter(System::nanoTime, baseState, eventStore.appender(), baseState::onEvent);
+    }
+
+    private FlyweightCommand nextCommand() {
+        sourceSequence++;
+        FlyweightCommand.writeHeaderAndPayload((short)0, SOURCE_ID, sourceSequence, System.nanoTime(),
+                PAYLOAD_TYPE, payload, 0, payloadBytes, commandBuffer, 0);
+        return command.wrap(commandBuffer, 0);
+    }
+
+    private int drain() {
+        int drained = 0;
+        while (eventPoller.poll(drainHandler) > 0) {
+            drained++;
+        }
+        return drained;
+    }
+
+    @Benchmark
+    public int autoCommit() {
+        eventRouter.start(nextCommand());
+        eventRouter.complete();
+        return drain();
+    }
+
+    @Benchmark
+    public int routeEventWithCommandPayload() {
+        eventRouter.start(nextCommand());
+        eventRouter.routeEventWithCommandPayload();
+        eventRouter.complete();
+        return drain();
+    }
+
+    @Benchmark
+    public int routeThreeEvents() {
+        eventRouter.start(nextCommand());
+        for (int i = 0; i < 3; i++) {
+            try (final RoutingContext context = eventRouter.routingEvent(PAYLOAD_TYPE)) {
+                final DirectBuffer commandPayload = command.payload();
+                context.buffer().putBytes(0, commandPayload, 0, commandPayload.capacity());
+                context.route(commandPayload.capacity());
+            }
+        }
+        eventRouter.complete();
+        return drain();
+    }
+
+    @Benchmark
+    public int skipCommand() {
+        eventRouter.start(nextCommand());
+        eventRouter.skipCommand();
+        eventRouter.complete();
+        return drain();
+    }
+}
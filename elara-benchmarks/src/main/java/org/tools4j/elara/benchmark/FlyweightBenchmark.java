@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.benchmark;
+
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.tools4j.elara.flyweight.EventType;
+import org.tools4j.elara.flyweight.FlyweightCommand;
+import org.tools4j.elara.flyweight.FlyweightEvent;
+import org.tools4j.elara.flyweight.FlyweightHeader;
+import org.tools4j.elara.flyweight.FrameDescriptor;
+import org.tools4j.elara.flyweight.FrameType;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks wrapping, reading and writing of {@link FlyweightCommand}, {@link FlyweightEvent} and
+ * {@link FlyweightHeader}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlyweightBenchmark {
+
+    private static final int PAYLOAD_BYTES = 100;
+
+    private final MutableDirectBuffer commandBuffer = new ExpandableDirectByteBuffer(4096);
+    private final MutableDirectBuffer eventBuffer = new ExpandableDirectByteBuffer(4096);
+    private final MutableDirectBuffer writeBuffer = new ExpandableDirectByteBuffer(4096);
+    private final MutableDirectBuffer payload = new ExpandableDirectByteBuffer(4096);
+    private final FlyweightCommand command = new FlyweightCommand();
+    private final FlyweightEvent event = new FlyweightEvent();
+    private final FlyweightHeader header = new FlyweightHeader(FrameDescriptor.HEADER_LENGTH);
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < PAYLOAD_BYTES; i++) {
+            payload.putByte(i, (byte)i);
+        }
+        FlyweightCommand.writeHeaderAndPayload((short)0, 1, 2, 3, 4, payload, 0, PAYLOAD_BYTES, commandBuffer, 0);
+        FlyweightEvent.writeHeader(EventType.APP_COMMIT, 1, 2, (short)0, 5, 6, 4, PAYLOAD_BYTES, eventBuffer, 0);
+        eventBuffer.putBytes(FlyweightEvent.HEADER_LENGTH, payload, 0, PAYLOAD_BYTES);
+    }
+
+    @Benchmark
+    public void commandWrapAndRead(final Blackhole blackhole) {
+        command.wrap(commandBuffer, 0);
+        blackhole.consume(command.sourceId());
+        blackhole.consume(command.sourceSequence());
+        blackhole.consume(command.commandTime());
+        blackhole.consume(command.payloadType());
+        blackhole.consume(command.payload().getByte(0));
+        command.reset();
+    }
+
+    @Benchmark
+    public int commandWrite() {
+        return FlyweightCommand.writeHeaderAndPayload((short)0, 1, 2, 3, 4, payload, 0, PAYLOAD_BYTES, writeBuffer, 0);
+    }
+
+    @Benchmark
+    public void eventWrapAndRead(final Blackhole blackhole) {
+        event.wrap(eventBuffer, 0);
+        blackhole.consume(event.eventType());
+        blackhole.consume(event.sourceId());
+        blackhole.consume(event.sourceSequence());
+        blackhole.consume(event.eventIndex());
+        blackhole.consume(event.eventSequence());
+        blackhole.consume(event.eventTime());
+        blackhole.consume(event.payloadType());
+        blackhole.consume(event.payload().getByte(0));
+        event.reset();
+    }
+
+    @Benchmark
+    public int eventWrite() {
+        return event.wrap(eventBuffer, 0).writeTo(writeBuffer, 0);
+    }
+
+    @Benchmark
+    public void headerWrapAndRead(final Blackhole blackhole) {
+        header.wrap(commandBuffer, 0);
+        blackhole.consume(header.version());
+        blackhole.consume(header.type());
+        blackhole.consume(header.reserved());
+        blackhole.consume(header.frameSize());
+        header.reset();
+    }
+
+    @Benchmark
+    public int headerWrite() {
+        return FlyweightHeader.write(FrameType.COMMAND_TYPE, (short)0, PAYLOAD_BYTES, writeBuffer, 0);
+    }
+}
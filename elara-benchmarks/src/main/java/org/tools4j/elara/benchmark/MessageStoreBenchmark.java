@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.benchmark;
+
+import org.agrona.DirectBuffer;
+import org.agrona.IoUtil;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.tools4j.elara.chronicle.ChronicleMessageStore;
+import org.tools4j.elara.store.InMemoryStore;
+import org.tools4j.elara.store.MessageStore;
+import org.tools4j.elara.store.MessageStore.AppendingContext;
+import org.tools4j.elara.store.MessageStore.Handler;
+import org.tools4j.elara.store.MessageStore.Handler.Result;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks append and poll operations of {@link InMemoryStore} and {@link ChronicleMessageStore}.
+ * <p>
+ * A new store is used for every iteration to keep the store size bounded, hence the short iteration time and the
+ * large heap for the in-memory store.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MessageStoreBenchmark {
+
+    private static final int REPLAY_MESSAGES = 100_000;
+
+    @Param({"in-memory", "chronicle"})
+    public String store;
+
+    @Param({"100"})
+    public int messageBytes;
+
+    private final MutableDirectBuffer message = new UnsafeBuffer(ByteBuffer.allocateDirect(4096));
+    private File directory;
+    private MessageStore messageStore;
+    private MessageStore.Appender appender;
+    private MessageStore.Poller tailPoller;
+    private MessageStore.Poller replayPoller;
+    private Blackhole blackhole;
+    private final Handler handler = this::onMessage;
+
+    @Setup(Level.Iteration)
+    public void setup(final Blackhole blackhole) throws Exception {
+        this.blackhole = blackhole;
+        for (int i = 0; i < messageBytes; i++) {
+            message.putByte(i, (byte)i);
+        }
+        switch (store) {
+            case "in-memory":
+                messageStore = new InMemoryStore(REPLAY_MESSAGES, messageBytes, false, true);
+                break;
+            case "chronicle":
+                directory = Files.createTempDirectory("elara-store-benchmark").toFile();
+                messageStore = new ChronicleMessageStore(directory);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid store: " + store);
+        }
+        appender = messageStore.appender();
+        for (int i = 0; i < REPLAY_MESSAGES; i++) {
+            appender.append(message, 0, messageBytes);
+        }
+        replayPoller = messageStore.poller();
+        tailPoller = messageStore.poller().moveToEnd();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        replayPoller.close();
+        tailPoller.close();
+        messageStore.close();
+        if (directory != null) {
+            IoUtil.delete(directory, true);
+            directory = null;
+        }
+    }
+
+    private Result onMessage(final DirectBuffer buffer) {
+        blackhole.consume(buffer.getByte(0));
+        return Result.POLL;
+    }
+
+    @Benchmark
+    public void append() {
+        appender.append(message, 0, messageBytes);
+    }
+
+    @Benchmark
+    public void appendWithContext() {
+        try (final AppendingContext context = appender.appending()) {
+            context.buffer().putBytes(0, message, 0, messageBytes);
+            context.commit(messageBytes);
+        }
+    }
+
+    @Benchmark
+    public int appendAndPoll() {
+        appender.append(message, 0, messageBytes);
+        return tailPoller.poll(handler);
+    }
+
+    @Benchmark
+    public int poll() {
+        final int polled = replayPoller.poll(handler);
+        if (polled == 0) {
+            replayPoller.moveToStart();
+        }
+        return polled;
+    }
+}
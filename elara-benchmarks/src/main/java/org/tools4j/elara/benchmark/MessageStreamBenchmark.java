@@ -0,0 +1,205 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.benchmark;
+
+import io.aeron.Aeron.Context;
+import io.aeron.driver.MediaDriver;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.IoUtil;
+import org.agrona.MutableDirectBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tools4j.elara.aeron.Aeron;
+import org.tools4j.elara.stream.MessageReceiver;
+import org.tools4j.elara.stream.MessageSender;
+import org.tools4j.elara.stream.SendingResult;
+import org.tools4j.elara.stream.ipc.AllocationStrategy;
+import org.tools4j.elara.stream.ipc.Ipc;
+import org.tools4j.elara.stream.ipc.IpcConfig;
+import org.tools4j.elara.stream.tcp.Tcp;
+import org.tools4j.elara.stream.tcp.config.TcpConfig;
+import org.tools4j.elara.stream.tcp.config.TcpConfigurator;
+import org.tools4j.elara.stream.udp.Udp;
+import org.tools4j.elara.stream.udp.config.UdpConfig;
+import org.tools4j.elara.stream.udp.config.UdpConfigurator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.tools4j.elara.stream.ipc.Cardinality.ONE;
+
+/**
+ * Benchmarks the round trip of a message sent through a {@link MessageSender} and received by the corresponding
+ * {@link MessageReceiver} on the same thread for IPC, TCP, UDP and Aeron (IPC and UDP) message streams.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageStreamBenchmark {
+
+    private static final long CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int IPC_LENGTH = 1 << 20;
+    private static final int AERON_STREAM_ID = 123;
+
+    @Param({"ipc", "tcp", "udp", "aeron-ipc", "aeron-udp"})
+    public String transport;
+
+    @Param({"100"})
+    public int messageBytes;
+
+    private final MutableDirectBuffer message = new ExpandableDirectByteBuffer(4096);
+    private final MessageReceiver.Handler handler = this::onMessage;
+    private File directory;
+    private MediaDriver mediaDriver;
+    private Aeron aeron;
+    private MessageSender sender;
+    private MessageReceiver receiver;
+    private long received;
+
+    @Setup
+    public void setup() throws Exception {
+        for (int i = 0; i < messageBytes; i++) {
+            message.putByte(i, (byte)i);
+        }
+        switch (transport) {
+            case "ipc":
+                directory = Files.createTempDirectory("elara-stream-benchmark").toFile();
+                final File file = new File(directory, "ipc.map");
+                final IpcConfig config = IpcConfig.configure()
+                        .senderCardinality(ONE)
+                        .senderInitialBufferSize(2 * messageBytes)
+                        .senderAllocationStrategy(AllocationStrategy.FIXED)
+                        .newFileDeleteIfPresent(true);
+                sender = Ipc.newSender(file, IPC_LENGTH, config);
+                receiver = Ipc.openReceiver(file, config);
+                break;
+            case "tcp":
+                final InetSocketAddress tcpAddress = new InetSocketAddress("localhost", freePort());
+                final TcpConfigurator tcpConfig = TcpConfig.configure()
+                        .bufferCapacity(Math.max(1 << 14, messageBytes << 1))
+                        .populateDefaults();
+                receiver = Tcp.bind(tcpAddress, tcpConfig).receiver();
+                sender = Tcp.connect(tcpAddress, tcpConfig).sender();
+                break;
+            case "udp":
+                final InetSocketAddress udpAddress = new InetSocketAddress("localhost", freePort());
+                final UdpConfigurator udpConfig = UdpConfig.configure()
+                        .bufferCapacity(Math.max(1 << 14, messageBytes << 1))
+                        .populateDefaults();
+                receiver = Udp.bind(udpAddress, udpConfig).receiver();
+                sender = Udp.connect(udpAddress, udpConfig).sender();
+                break;
+            case "aeron-ipc":
+                startAeron();
+                sender = aeron.openExclusiveSender("aeron:ipc", AERON_STREAM_ID);
+                receiver = aeron.openReceiver("aeron:ipc", AERON_STREAM_ID, false);
+                break;
+            case "aeron-udp":
+                startAeron();
+                final String channel = "aeron:udp?endpoint=localhost:" + freePort();
+                sender = aeron.openExclusiveSender(channel, AERON_STREAM_ID);
+                receiver = aeron.openReceiver(channel, AERON_STREAM_ID, false);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid transport: " + transport);
+        }
+        awaitConnected();
+    }
+
+    private void startAeron() {
+        mediaDriver = MediaDriver.launchEmbedded();
+        aeron = Aeron.connect(new Context().aeronDirectoryName(mediaDriver.aeronDirectoryName()));
+    }
+
+    private void awaitConnected() {
+        final long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        while (received == 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Not connected after " + CONNECT_TIMEOUT_MILLIS + "ms: " + sender +
+                        " --> " + receiver);
+            }
+            sender.sendMessage(message, 0, messageBytes);
+            receiver.poll(handler);
+        }
+        //drain messages sent before connection was established
+        while (receiver.poll(handler) > 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        CloseHelper.quietCloseAll(sender, receiver, aeron, mediaDriver);
+        if (directory != null) {
+            IoUtil.delete(directory, true);
+            directory = null;
+        }
+    }
+
+    private static int freePort() {
+        try (final ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void onMessage(final DirectBuffer buffer) {
+        received++;
+    }
+
+    @Benchmark
+    public long sendAndReceive() {
+        final long expected = received + 1;
+        SendingResult result;
+        while ((result = sender.sendMessage(message, 0, messageBytes)) != SendingResult.SENT) {
+            if (result == SendingResult.CLOSED || result == SendingResult.FAILED) {
+                throw new IllegalStateException("Sending failed with result " + result + ": " + sender);
+            }
+            receiver.poll(handler);
+        }
+        while (received < expected) {
+            receiver.poll(handler);
+        }
+        return received;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tools4j.elara.plugin.timer.DeadlineHeapTimerState;
+import org.tools4j.elara.plugin.timer.MutableTimerState;
+import org.tools4j.elara.plugin.timer.SimpleTimerState;
+import org.tools4j.elara.plugin.timer.Timer.Style;
+import org.tools4j.elara.plugin.timer.TimingWheelTimerState;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the timer state implementations with a given number of active timers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerStateBenchmark {
+
+    private static final int TIMER_TYPE = 1;
+    private static final long MAX_TIMEOUT = 10_000;
+
+    @Param({"simple", "deadline-heap", "timing-wheel"})
+    public String timerState;
+
+    @Param({"10", "1000", "100000"})
+    public int timers;
+
+    private final SplittableRandom random = new SplittableRandom(123);
+    private MutableTimerState state;
+    private long nextTimerId;
+    private long currentTime;
+
+    @Setup
+    public void setup() {
+        switch (timerState) {
+            case "simple":
+                state = new SimpleTimerState();
+                break;
+            case "deadline-heap":
+                state = new DeadlineHeapTimerState();
+                break;
+            case "timing-wheel":
+                state = new TimingWheelTimerState();
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid timer state: " + timerState);
+        }
+        for (int i = 0; i < timers; i++) {
+            addTimer(currentTime);
+        }
+    }
+
+    private boolean addTimer(final long startTime) {
+        final long timeout = 1 + random.nextLong(MAX_TIMEOUT);
+        return state.add(++nextTimerId, Style.TIMER, 0, startTime, timeout, TIMER_TYPE, 0);
+    }
+
+    @Benchmark
+    public boolean addAndRemove() {
+        addTimer(currentTime);
+        return state.removeById(nextTimerId);
+    }
+
+    @Benchmark
+    public int indexOfNextDeadline() {
+        return state.indexOfNextDeadline(currentTime);
+    }
+
+    @Benchmark
+    public boolean fireNextAndReschedule() {
+        final int index = state.indexOfNextDeadline(currentTime);
+        currentTime = Math.max(currentTime, state.deadline(index));
+        state.remove(index);
+        return addTimer(currentTime);
+    }
+}
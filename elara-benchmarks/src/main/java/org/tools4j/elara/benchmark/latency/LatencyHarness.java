@@ -0,0 +1,210 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.benchmark.latency;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+import static org.tools4j.elara.samples.hash.HashApplication.NULL_VALUE;
+
+/**
+ * End-to-end latency harness driving all {@link Topology topologies} with fixed rate, bursty and saturating load.
+ * Latencies are measured from the intended send time to the output to correct for coordinated omission.
+ * <p>
+ * Results are written to the output directory as HdrHistogram percentile distribution files (values in
+ * microseconds) per run, and as one summary line per run appended to {@code results.csv} for comparison across
+ * releases.
+ * <p>
+ * Usage:
+ * <pre>
+ *     LatencyHarness [outputDir [messagesPerSecond [messageCount [burstSize]]]]
+ * </pre>
+ */
+public class LatencyHarness {
+
+    public static final String DEFAULT_OUTPUT_DIR = "build/latency";
+    public static final long DEFAULT_MESSAGES_PER_SECOND = 100_000;
+    public static final int DEFAULT_MESSAGE_COUNT = 1_000_000;
+    public static final int DEFAULT_BURST_SIZE = 10;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 120_000;
+    public static final String RESULT_FILE = "results.csv";
+    public static final String RESULT_HEADER = "topology,profile,rate,messages,throughput,p50,p90,p99,p99.9,p99.99,max," +
+            "uncorrected-p50,uncorrected-p99,uncorrected-max";
+
+    private final File outputDir;
+    private final int messageCount;
+    private final int warmupCount;
+    private final long timeoutMillis;
+
+    public LatencyHarness(final File outputDir, final int messageCount) {
+        this(outputDir, messageCount, messageCount / 10, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    public LatencyHarness(final File outputDir, final int messageCount, final int warmupCount, final long timeoutMillis) {
+        if (messageCount <= 0 || warmupCount < 0 || warmupCount >= messageCount) {
+            throw new IllegalArgumentException("Invalid message count " + messageCount + " or warmup count " + warmupCount);
+        }
+        this.outputDir = requireNonNull(outputDir);
+        this.messageCount = messageCount;
+        this.warmupCount = warmupCount;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static void main(final String... args) {
+        final File outputDir = new File(args.length > 0 ? args[0] : DEFAULT_OUTPUT_DIR);
+        final long rate = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_MESSAGES_PER_SECOND;
+        final int count = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MESSAGE_COUNT;
+        final int burstSize = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_BURST_SIZE;
+        final LatencyHarness harness = new LatencyHarness(outputDir, count);
+        for (final Topology topology : Topology.values()) {
+            harness.runAndLogFailure(topology, "fixed-rate", rate, LoadProfile.fixedRate(rate));
+            harness.runAndLogFailure(topology, "bursty-" + burstSize, rate, LoadProfile.bursty(rate, burstSize));
+            harness.runAndLogFailure(topology, "saturation", 0, LoadProfile.SATURATION);
+        }
+    }
+
+    private void runAndLogFailure(final Topology topology,
+                                  final String profileName,
+                                  final long rate,
+                                  final LoadProfile loadProfile) {
+        try {
+            run(topology, profileName, rate, loadProfile);
+        } catch (final Exception e) {
+            System.err.println("Run " + topology + " with profile " + profileName + " failed: " + e);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Runs the given topology with the specified load profile and writes the results to the output directory.
+     *
+     * @param topology      the app topology to run
+     * @param profileName   the profile name used in results and file names
+     * @param rate          the (average) message rate of the profile, zero for saturation
+     * @param loadProfile   the load profile defining intended send times
+     * @return the latency recorder with the results
+     * @throws Exception if starting or stopping the apps fails, or if not all messages have been received in time
+     */
+    public LatencyRecorder run(final Topology topology,
+                               final String profileName,
+                               final long rate,
+                               final LoadProfile loadProfile) throws Exception {
+        final AtomicLong input = new AtomicLong(NULL_VALUE);
+        final LatencyRecorder recorder = new LatencyRecorder(loadProfile, warmupCount, messageCount);
+        final String name = topology.name().toLowerCase(Locale.ROOT) + "-" + profileName;
+        try (final AutoCloseable ignored = topology.start("latency-" + name, input, recorder)) {
+            generateLoad(input, recorder);
+            awaitReceived(recorder);
+        }
+        writeResults(name, topology, profileName, rate, recorder);
+        return recorder;
+    }
+
+    private void generateLoad(final AtomicLong input, final LatencyRecorder recorder) {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        recorder.start(System.nanoTime());
+        for (int i = 0; i < messageCount; i++) {
+            final long intendedSendTime = recorder.intendedSendTime(i);
+            while (System.nanoTime() - intendedSendTime < 0) {
+                //busy spin until intended send time
+            }
+            recorder.sent(i, System.nanoTime());
+            while (!input.compareAndSet(NULL_VALUE, i)) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("Input not consumed, sent only " + i + " of " + messageCount +
+                            " messages after " + timeoutMillis + "ms");
+                }
+                recorder.sent(i, System.nanoTime());
+            }
+        }
+    }
+
+    private void awaitReceived(final LatencyRecorder recorder) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (recorder.received() < messageCount) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Received only " + recorder.received() + " of " + messageCount +
+                        " messages after " + timeoutMillis + "ms");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private void writeResults(final String name,
+                              final Topology topology,
+                              final String profileName,
+                              final long rate,
+                              final LatencyRecorder recorder) throws FileNotFoundException {
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IllegalStateException("Cannot create output directory " + outputDir.getAbsolutePath());
+        }
+        writeHistogram(new File(outputDir, name + ".hgrm"), recorder.corrected());
+        writeHistogram(new File(outputDir, name + "-uncorrected.hgrm"), recorder.uncorrected());
+        final File resultFile = new File(outputDir, RESULT_FILE);
+        final boolean header = !resultFile.exists();
+        try (final PrintStream out = new PrintStream(new FileOutputStream(resultFile, true))) {
+            if (header) {
+                out.println(RESULT_HEADER);
+            }
+            final Histogram corrected = recorder.corrected();
+            final Histogram uncorrected = recorder.uncorrected();
+            final long measured = messageCount - warmupCount;
+            final double throughput = measured * 1e9 / Math.max(1, recorder.lastReceiveTime() - recorder.firstSendTime());
+            final String line = String.format(Locale.ROOT, "%s,%s,%d,%d,%.0f,%d,%d,%d,%d,%d,%d,%d,%d,%d",
+                    topology.name(), profileName, rate, measured, throughput,
+                    micros(corrected.getValueAtPercentile(50)), micros(corrected.getValueAtPercentile(90)),
+                    micros(corrected.getValueAtPercentile(99)), micros(corrected.getValueAtPercentile(99.9)),
+                    micros(corrected.getValueAtPercentile(99.99)), micros(corrected.getMaxValue()),
+                    micros(uncorrected.getValueAtPercentile(50)), micros(uncorrected.getValueAtPercentile(99)),
+                    micros(uncorrected.getMaxValue()));
+            out.println(line);
+            System.out.println(RESULT_HEADER);
+            System.out.println(line);
+        }
+    }
+
+    private static long micros(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private static void writeHistogram(final File file, final Histogram histogram) throws FileNotFoundException {
+        try (final PrintStream out = new PrintStream(new FileOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHarness:output-dir=" + outputDir + "|message-count=" + messageCount +
+                "|warmup-count=" + warmupCount + "|timeout-millis=" + timeoutMillis;
+    }
+}
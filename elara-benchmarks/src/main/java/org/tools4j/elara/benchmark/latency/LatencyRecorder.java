@@ -0,0 +1,164 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.benchmark.latency;
+
+import org.HdrHistogram.Histogram;
+import org.tools4j.elara.app.message.Event;
+import org.tools4j.elara.output.Output;
+import org.tools4j.elara.samples.hash.HashApplication.DefaultState;
+import org.tools4j.elara.samples.hash.HashApplication.ModifiableState;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Records end-to-end latencies of hash app messages when they reach the output, either through {@link Output} or
+ * through the {@link ModifiableState} updated by publishing or feedback apps.
+ * <p>
+ * Message values are the message index, or its bitwise inverse as the hash apps sometimes invert values.  Two
+ * histograms are recorded:  the corrected histogram measures from the intended send time as per {@link LoadProfile},
+ * the uncorrected histogram from the time the message was actually handed to the input.
+ */
+public class LatencyRecorder implements ModifiableState, Output {
+
+    public static final long HIGHEST_TRACKABLE_VALUE = TimeUnit.MINUTES.toNanos(1);
+    public static final int SIGNIFICANT_DIGITS = 3;
+
+    private final LoadProfile loadProfile;
+    private final int warmupCount;
+    private final long[] sendTimes;
+    private final ModifiableState state = new DefaultState();
+    private final Histogram corrected = new Histogram(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+    private final Histogram uncorrected = new Histogram(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+    private final AtomicLong received = new AtomicLong();
+    private long startTime;
+    private volatile long firstReceiveTime;
+    private volatile long lastReceiveTime;
+
+    public LatencyRecorder(final LoadProfile loadProfile, final int warmupCount, final int messageCount) {
+        if (warmupCount < 0 || warmupCount >= messageCount) {
+            throw new IllegalArgumentException("Invalid warmup count " + warmupCount + " for message count " + messageCount);
+        }
+        this.loadProfile = requireNonNull(loadProfile);
+        this.warmupCount = warmupCount;
+        this.sendTimes = new long[messageCount];
+    }
+
+    public void start(final long startTime) {
+        this.startTime = startTime;
+    }
+
+    public long startTime() {
+        return startTime;
+    }
+
+    public long intendedSendTime(final long index) {
+        return startTime + loadProfile.intendedSendTimeOffset(index);
+    }
+
+    public void sent(final int index, final long sendTime) {
+        sendTimes[index] = sendTime;
+    }
+
+    public int messageCount() {
+        return sendTimes.length;
+    }
+
+    public int warmupCount() {
+        return warmupCount;
+    }
+
+    public long received() {
+        return received.get();
+    }
+
+    /**
+     * @return the receive time of the first message after warmup, or 0 if no such message has been received yet
+     */
+    public long firstReceiveTime() {
+        return firstReceiveTime;
+    }
+
+    public long lastReceiveTime() {
+        return lastReceiveTime;
+    }
+
+    public long firstSendTime() {
+        return sendTimes[warmupCount];
+    }
+
+    public Histogram corrected() {
+        return corrected;
+    }
+
+    public Histogram uncorrected() {
+        return uncorrected;
+    }
+
+    @Override
+    public Ack publish(final Event event, final boolean replay, final int retry) {
+        if (!replay && event.isApplication()) {
+            record(event.payload().getLong(0));
+        }
+        return Ack.COMMIT;
+    }
+
+    @Override
+    public void update(final long add) {
+        state.update(add);
+        record(add);
+    }
+
+    @Override
+    public long hash() {
+        return state.hash();
+    }
+
+    @Override
+    public long count() {
+        return state.count();
+    }
+
+    private void record(final long value) {
+        final long time = System.nanoTime();
+        final int index = (int)(value >= 0 ? value : ~value);
+        if (index >= warmupCount) {
+            corrected.recordValue(Math.min(time - intendedSendTime(index), HIGHEST_TRACKABLE_VALUE));
+            uncorrected.recordValue(Math.min(time - sendTimes[index], HIGHEST_TRACKABLE_VALUE));
+            if (index == warmupCount) {
+                firstReceiveTime = time;
+            }
+            lastReceiveTime = time;
+        }
+        received.lazySet(received.get() + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyRecorder:message-count=" + sendTimes.length + "|warmup-count=" + warmupCount +
+                "|received=" + received.get();
+    }
+}
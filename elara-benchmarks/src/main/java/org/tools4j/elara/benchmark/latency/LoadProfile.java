@@ -0,0 +1,73 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.benchmark.latency;
+
+/**
+ * Defines the intended send time of every message relative to the start of the run.  Latency is measured from the
+ * intended send time and not from the actual send time so that results are not distorted by coordinated omission:  if
+ * the system under test stalls, messages that should have been sent during the stall are still accounted for with the
+ * full waiting time.
+ */
+@FunctionalInterface
+public interface LoadProfile {
+    /**
+     * Returns the intended send time of the message with the given index in nanoseconds relative to the run start.
+     *
+     * @param index the zero based message index
+     * @return the intended send time offset in nanoseconds, non-decreasing with increasing index
+     */
+    long intendedSendTimeOffset(long index);
+
+    /** Sends messages as fast as possible, used to measure throughput at saturation */
+    LoadProfile SATURATION = index -> 0;
+
+    /**
+     * Returns a profile sending messages at a fixed rate.
+     *
+     * @param messagesPerSecond the message rate, must be positive
+     * @return a fixed rate profile
+     */
+    static LoadProfile fixedRate(final long messagesPerSecond) {
+        return bursty(messagesPerSecond, 1);
+    }
+
+    /**
+     * Returns a profile sending bursts of messages back to back, with bursts paced so that the average rate is equal
+     * to the given rate.
+     *
+     * @param messagesPerSecond the average message rate, must be positive
+     * @param burstSize         the number of messages per burst, must be positive
+     * @return a bursty profile
+     */
+    static LoadProfile bursty(final long messagesPerSecond, final int burstSize) {
+        if (messagesPerSecond <= 0) {
+            throw new IllegalArgumentException("Message rate must be positive: " + messagesPerSecond);
+        }
+        if (burstSize <= 0) {
+            throw new IllegalArgumentException("Burst size must be positive: " + burstSize);
+        }
+        final double nanosPerMessage = 1e9 / messagesPerSecond;
+        return index -> (long)((index - (index % burstSize)) * nanosPerMessage);
+    }
+}
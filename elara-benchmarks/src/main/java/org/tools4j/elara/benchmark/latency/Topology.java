@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.benchmark.latency;
+
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.wire.WireType;
+import org.agrona.CloseHelper;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.tools4j.elara.app.message.Event;
+import org.tools4j.elara.chronicle.ChronicleMessageStore;
+import org.tools4j.elara.output.Output;
+import org.tools4j.elara.run.ElaraRunner;
+import org.tools4j.elara.samples.hash.HashApplication;
+import org.tools4j.elara.samples.hash.HashApplication.DefaultState;
+import org.tools4j.elara.samples.hash.HashFeedbackApplication;
+import org.tools4j.elara.samples.hash.HashPassthroughApplication;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+import static org.tools4j.elara.samples.hash.HashApplication.DEFAULT_SOURCE_ID;
+
+/**
+ * App topologies driven by the latency harness, all based on the hash sample apps.  Input is passed to the apps
+ * through an atomic long as in the hash apps, and latencies are recorded by the {@link LatencyRecorder} at the output.
+ */
+public enum Topology {
+    /** {@link HashApplication} as all-in-one app with chronicle queue stores, latency is recorded by the output */
+    ALL_IN_ONE {
+        @Override
+        public AutoCloseable start(final String folder, final AtomicLong input, final LatencyRecorder recorder) {
+            final String path = "build/chronicle/" + folder;
+            IoUtil.delete(new File(path), true);
+            return new RecordingHashApplication(recorder).launch(config -> config
+                    .input(DEFAULT_SOURCE_ID, HashApplication.inputPoller(input))
+                    .commandStore(new ChronicleMessageStore(queue(path + "/cmd.cq4")))
+                    .eventStore(new ChronicleMessageStore(queue(path + "/evt.cq4")))
+                    .idleStrategy(BusySpinIdleStrategy.INSTANCE)
+            );
+        }
+    },
+    /**
+     * {@link HashPassthroughApplication} receiving commands via IPC from a {@link HashFeedbackApplication};  latency
+     * is recorded when the feedback app receives the event
+     */
+    PASSTHROUGH_FEEDBACK {
+        @Override
+        public AutoCloseable start(final String folder, final AtomicLong input, final LatencyRecorder recorder) {
+            IoUtil.deleteIfExists(HashFeedbackApplication.feedbackIpcFile(folder));
+            final ElaraRunner passthrough = HashFeedbackApplication.passthroughAppWithChronicleQueueAndMetrics(folder, false);
+            final ElaraRunner feedback = HashFeedbackApplication.feedbackApp(folder, input, recorder);
+            return () -> CloseHelper.closeAll(feedback, passthrough);
+        }
+    },
+    /**
+     * {@link HashPassthroughApplication} polling input directly with a publisher app consuming the event store;
+     * latency is recorded when the publisher publishes the event
+     */
+    PASSTHROUGH_PUBLISHER {
+        @Override
+        public AutoCloseable start(final String folder, final AtomicLong input, final LatencyRecorder recorder) {
+            final ElaraRunner passthrough = HashPassthroughApplication.chronicleQueueWithFreqMetrics(folder, input);
+            final ElaraRunner publisher = HashPassthroughApplication.publisherWithState(folder, recorder);
+            return () -> CloseHelper.closeAll(publisher, passthrough);
+        }
+    };
+
+    /**
+     * Starts the apps of this topology.
+     *
+     * @param folder    the folder name for queue and IPC files
+     * @param input     the input value passed to the apps, {@link HashApplication#NULL_VALUE} if none is available
+     * @param recorder  the latency recorder to invoke when a message reaches the output
+     * @return a closeable to stop the apps
+     */
+    public abstract AutoCloseable start(String folder, AtomicLong input, LatencyRecorder recorder);
+
+    /** Hash application with output, the app itself is used as output by all-in-one apps */
+    private static final class RecordingHashApplication extends HashApplication implements Output {
+        private final Output output;
+
+        RecordingHashApplication(final Output output) {
+            super(new DefaultState());
+            this.output = requireNonNull(output);
+        }
+
+        @Override
+        public Ack publish(final Event event, final boolean replay, final int retry) {
+            return output.publish(event, replay, retry);
+        }
+    }
+
+    private static ChronicleQueue queue(final String path) {
+        return ChronicleQueue.singleBuilder()
+                .path(path)
+                .wireType(WireType.BINARY_LIGHT)
+                .build();
+    }
+}
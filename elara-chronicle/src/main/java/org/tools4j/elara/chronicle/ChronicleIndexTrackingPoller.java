@@ -0,0 +1,188 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.chronicle;
+
+import net.openhft.chronicle.queue.RollCycle;
+import net.openhft.chronicle.queue.TailerDirection;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+import org.tools4j.elara.store.IndexTrackingPoller;
+import org.tools4j.elara.store.MessageStore.Handler;
+import org.tools4j.elara.store.MessageStore.Poller;
+
+import java.text.ParseException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Index tracking poller for a {@link SingleChronicleQueue} that moves to an index or entry ID using the number of
+ * excerpts per cycle, that is, without visiting the entries between the current and the target position.  Moving
+ * takes time proportional to the number of cycles in the queue and not to the number of entries.
+ */
+public class ChronicleIndexTrackingPoller implements IndexTrackingPoller {
+
+    private static final long NOT_FOUND = -1;
+
+    private final SingleChronicleQueue queue;
+    private final RollCycle rollCycle;
+    private final ChroniclePoller poller;
+    private long index;
+
+    public ChronicleIndexTrackingPoller(final SingleChronicleQueue queue) {
+        this.queue = requireNonNull(queue);
+        this.rollCycle = queue.rollCycle();
+        this.poller = new ChroniclePoller(queue);
+        moveToStart();
+    }
+
+    @Override
+    public long index() {
+        return index;
+    }
+
+    @Override
+    public long entryId() {
+        return poller.entryId();
+    }
+
+    @Override
+    public boolean moveTo(final long entryId) {
+        if (poller.entryId() == entryId) {
+            return true;
+        }
+        final long index = indexOf(entryId);
+        if (index == NOT_FOUND || !poller.moveTo(entryId)) {
+            return false;
+        }
+        this.index = index;
+        return true;
+    }
+
+    @Override
+    public boolean moveToIndex(final long index) {
+        if (this.index == index) {
+            return true;
+        }
+        if (index < 0) {
+            return false;
+        }
+        int cycle = queue.firstCycle();
+        final int lastCycle = queue.lastCycle();
+        long remaining = index;
+        while (cycle != NOT_FOUND && cycle <= lastCycle) {
+            final long excerpts = queue.exceptsPerCycle(cycle);
+            if (remaining < excerpts) {
+                if (!poller.moveTo(rollCycle.toIndex(cycle, remaining))) {
+                    return false;
+                }
+                this.index = index;
+                return true;
+            }
+            remaining -= excerpts;
+            cycle = nextCycle(cycle);
+        }
+        if (remaining == 0) {
+            poller.moveToEnd();
+            this.index = index;
+            return true;
+        }
+        return false;
+    }
+
+    private long indexOf(final long entryId) {
+        final int entryCycle = rollCycle.toCycle(entryId);
+        final long sequence = rollCycle.toSequenceNumber(entryId);
+        int cycle = queue.firstCycle();
+        long index = 0;
+        while (cycle != NOT_FOUND && cycle < entryCycle) {
+            index += queue.exceptsPerCycle(cycle);
+            cycle = nextCycle(cycle);
+        }
+        return cycle == entryCycle ? index + sequence : NOT_FOUND;
+    }
+
+    private int nextCycle(final int cycle) {
+        try {
+            return queue.nextCycle(cycle, TailerDirection.FORWARD);
+        } catch (final ParseException e) {
+            throw new IllegalStateException("Cannot determine next cycle after " + cycle + " in queue " + queue, e);
+        }
+    }
+
+    @Override
+    public boolean moveToNext() {
+        if (poller.moveToNext()) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean moveToPrevious() {
+        if (index > 0 && poller.moveToPrevious()) {
+            index--;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public ChronicleIndexTrackingPoller moveToStart() {
+        poller.moveToStart();
+        index = 0;
+        return this;
+    }
+
+    @Override
+    public Poller moveToEnd() {
+        poller.moveToEnd();
+        index = queue.entryCount();
+        return this;
+    }
+
+    @Override
+    public int poll(final Handler handler) {
+        final int polled = poller.poll(handler);
+        if (polled > 0) {
+            index++;
+            return 1;
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return poller.isClosed();
+    }
+
+    @Override
+    public void close() {
+        poller.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ChronicleIndexTrackingPoller:index=" + index + "|poller=" + poller;
+    }
+}
@@ -24,14 +24,17 @@
 package org.tools4j.elara.chronicle;
 
 import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
 import net.openhft.chronicle.wire.WireType;
-import org.tools4j.elara.store.MessageStore;
+import org.tools4j.elara.store.DefaultIndexTrackingPoller;
+import org.tools4j.elara.store.IndexTrackingPoller;
+import org.tools4j.elara.store.IndexedMessageStore;
 
 import java.io.File;
 
 import static java.util.Objects.requireNonNull;
 
-public class ChronicleMessageStore implements MessageStore {
+public class ChronicleMessageStore implements IndexedMessageStore {
 
     private final ChronicleQueue queue;
     private final ThreadLocal<ChronicleAppender> appender;
@@ -67,6 +70,13 @@ public class ChronicleMessageStore implements MessageStore {
         return new ChroniclePoller(id, queue);
     }
 
+    @Override
+    public IndexTrackingPoller indexTrackingPoller() {
+        return queue instanceof SingleChronicleQueue
+                ? new ChronicleIndexTrackingPoller((SingleChronicleQueue)queue)
+                : new DefaultIndexTrackingPoller(this);
+    }
+
     @Override
     public boolean isClosed() {
         return queue.isClosed();
@@ -23,13 +23,16 @@
  */
 package org.tools4j.elara.chronicle;
 
+import net.openhft.chronicle.core.time.SetTimeProvider;
 import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.RollCycles;
 import net.openhft.chronicle.wire.WireType;
 import org.agrona.DirectBuffer;
 import org.agrona.ExpandableArrayBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
+import org.tools4j.elara.store.IndexTrackingPoller;
 import org.tools4j.elara.store.MessageStore;
 import org.tools4j.elara.store.MessageStore.Appender;
 import org.tools4j.elara.store.MessageStore.AppendingContext;
@@ -278,6 +281,55 @@ class MessageStoreTest {
         assertNull(messageCaptor.get(), "polled message");
     }
 
+    @Test
+    public void indexTrackingPollerAcrossCycles(final TestInfo testInfo) {
+        //given
+        final int cycles = 3;
+        final int messagesPerCycle = 5;
+        final int total = cycles * messagesPerCycle;
+        final String path = "build/chronicle/" + testInfo.getTestClass().get().getSimpleName() + "_" +
+                testInfo.getTestMethod().get().getName() + ".cq4";
+        delete(path);
+        final SetTimeProvider timeProvider = new SetTimeProvider(System.currentTimeMillis() * 1_000_000);
+        final ChronicleMessageStore messageStore = new ChronicleMessageStore(ChronicleQueue.singleBuilder()
+                .path(path)
+                .wireType(WireType.BINARY_LIGHT)
+                .rollCycle(RollCycles.TEST_SECONDLY)
+                .timeProvider(timeProvider)
+                .build());
+        final MutableDirectBuffer message = new ExpandableArrayBuffer(Long.BYTES);
+        for (int i = 0; i < total; i++) {
+            if (i > 0 && i % messagesPerCycle == 0) {
+                timeProvider.advanceMillis(1000);
+            }
+            message.putLong(0, i);
+            messageStore.appender().append(message, 0, Long.BYTES);
+        }
+        final IndexTrackingPoller poller = messageStore.indexTrackingPoller();
+        final long[] polled = {-1};
+        final Handler handler = msg -> {
+            polled[0] = msg.getLong(0);
+            return POLL;
+        };
+
+        //when + then
+        assertTrue(poller instanceof ChronicleIndexTrackingPoller, "poller instanceof ChronicleIndexTrackingPoller");
+        for (final int index : new int[] {7, 2, 14, 0, 11, 5, 10, 9}) {
+            assertTrue(poller.moveToIndex(index), "moveToIndex(" + index + ")");
+            assertEquals(index, poller.index(), "index");
+            final long entryId = poller.entryId();
+            assertEquals(1, poller.poll(handler), "polled");
+            assertEquals(index, polled[0], "polled[0]");
+            assertEquals(index + 1, poller.index(), "index after poll");
+            assertTrue(poller.moveTo(entryId), "moveTo(" + entryId + ")");
+            assertEquals(index, poller.index(), "index after moveTo");
+        }
+        assertTrue(poller.moveToIndex(total), "moveToIndex(" + total + ")");
+        assertEquals(0, poller.poll(handler), "polled at end");
+        assertFalse(poller.moveToIndex(total + 1), "moveToIndex(" + (total + 1) + ")");
+        assertEquals(total, poller.index(), "index");
+    }
+
     private ChronicleMessageStore chronicleMessageStore(final TestInfo testInfo) {
         final String fileName = testInfo.getTestClass().get().getSimpleName() + "_" + testInfo.getTestMethod().get().getName();
         final String path = "build/chronicle/" + fileName + ".cq4";
@@ -24,7 +24,9 @@
 package org.tools4j.elara.app.config;
 
 import org.tools4j.elara.output.Output;
+import org.tools4j.elara.output.OutputCheckpoint;
 
 public interface OutputConfigurator extends OutputConfig {
     OutputConfigurator output(Output output);
+    OutputConfigurator outputCheckpoint(OutputCheckpoint checkpoint);
 }
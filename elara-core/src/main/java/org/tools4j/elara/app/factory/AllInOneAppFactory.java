@@ -74,7 +74,7 @@ public class AllInOneAppFactory implements AppFactory {
                 Singletons::create
         ));
         this.publisherSingletons = interceptor.publisherFactory(singletonsSupplier(
-                (PublisherFactory)new StorePublisherFactory(config, config, bootstrap.baseState(), this::publisherSingletons, this::outputSingletons),
+                (PublisherFactory)new StorePublisherFactory(config, config, config, bootstrap.baseState(), this::publisherSingletons, this::outputSingletons),
                 Singletons::create
         ));
         this.agentStepSingletons = interceptor.agentStepFactory(singletonsSupplier(
@@ -50,69 +50,86 @@ enum Interceptors {
                 return () -> singletons;
             }
 
+            private <T> T nextOrIntercepted(final T nextIntercepted, final T intercepted) {
+                return nextIntercepted != null ? nextIntercepted : intercepted;
+            }
+
             @Override
             public AppFactory appFactory(final Supplier<? extends AppFactory> singletons) {
-                return next.appFactory(singletonOrIntercepted(singletons, first.appFactory(singletons), Singletons::create));
+                final AppFactory intercepted = first.appFactory(singletons);
+                return nextOrIntercepted(next.appFactory(singletonOrIntercepted(singletons, intercepted, Singletons::create)), intercepted);
             }
 
             @Override
             public StateFactory stateFactory(final Supplier<? extends StateFactory> singletons) {
-                return next.stateFactory(singletonOrIntercepted(singletons, first.stateFactory(singletons), Singletons::create));
+                final StateFactory intercepted = first.stateFactory(singletons);
+                return nextOrIntercepted(next.stateFactory(singletonOrIntercepted(singletons, intercepted, Singletons::create)), intercepted);
             }
 
             @Override
             public AgentStepFactory agentStepFactory(final Supplier<? extends AgentStepFactory> singletons) {
-                return next.agentStepFactory(singletonOrIntercepted(singletons, first.agentStepFactory(singletons), Singletons::create));
+                final AgentStepFactory intercepted = first.agentStepFactory(singletons);
+                return nextOrIntercepted(next.agentStepFactory(singletonOrIntercepted(singletons, intercepted, Singletons::create)), intercepted);
             }
 
             @Override
             public SequencerFactory sequencerFactory(final Supplier<? extends SequencerFactory> singletons) {
-                return next.sequencerFactory(singletonOrIntercepted(singletons, first.sequencerFactory(singletons), Singletons::create));
+                final SequencerFactory intercepted = first.sequencerFactory(singletons);
+                return nextOrIntercepted(next.sequencerFactory(singletonOrIntercepted(singletons, intercepted, Singletons::create)), intercepted);
             }
 
             @Override
             public CommandPollerFactory commandPollerFactory(final Supplier<? extends CommandPollerFactory> singletons) {
-                return next.commandPollerFactory(singletonOrIntercepted(singletons, first.commandPollerFactory(singletons), Singletons::create));
+                final CommandPollerFactory intercepted = first.commandPollerFactory(singletons);
+                return nextOrIntercepted(next.commandPollerFactory(singletonOrIntercepted(singletons, intercepted, Singletons::create)), intercepted);
             }
 
             @Override
             public CommandProcessorFactory commandProcessorFactory(final Supplier<? extends CommandProcessorFactory> singletons) {
-                return next.commandProcessorFactory(singletonOrIntercepted(singletons, first.commandProcessorFactory(singletons), Singletons::create));
+                final CommandProcessorFactory intercepted = first.commandProcessorFactory(singletons);
+                return nextOrIntercepted(next.commandProcessorFactory(singletonOrIntercepted(singletons, intercepted, Singletons::create)), intercepted);
             }
 
             @Override
             public ApplierFactory applierFactory(final Supplier<? extends ApplierFactory> singletons) {
-                return next.applierFactory(singletonOrIntercepted(singletons, first.applierFactory(singletons), Singletons::create));
+                final ApplierFactory intercepted = first.applierFactory(singletons);
+                return nextOrIntercepted(next.applierFactory(singletonOrIntercepted(singletons, intercepted, Singletons::create)), intercepted);
             }
 
             @Override
             public InputFactory inputFactory(final Supplier<? extends InputFactory> singletons) {
-                return next.inputFactory(singletonOrIntercepted(singletons, first.inputFactory(singletons), Singletons::create));
+                final InputFactory intercepted = first.inputFactory(singletons);
+                return nextOrIntercepted(next.inputFactory(singletonOrIntercepted(singletons, intercepted, Singletons::create)), intercepted);
             }
 
             @Override
             public OutputFactory outputFactory(final Supplier<? extends OutputFactory> singletons) {
-                return next.outputFactory(singletonOrIntercepted(singletons, first.outputFactory(singletons), Singletons::create));
+                final OutputFactory intercepted = first.outputFactory(singletons);
+                return nextOrIntercepted(next.outputFactory(singletonOrIntercepted(singletons, intercepted, Singletons::create)), intercepted);
             }
 
             @Override
             public PublisherFactory publisherFactory(final Supplier<? extends PublisherFactory> singletons) {
-                return next.publisherFactory(singletonOrIntercepted(singletons, first.publisherFactory(singletons), Singletons::create));
+                final PublisherFactory intercepted = first.publisherFactory(singletons);
+                return nextOrIntercepted(next.publisherFactory(singletonOrIntercepted(singletons, intercepted, Singletons::create)), intercepted);
             }
 
             @Override
             public CommandSenderFactory commandSenderFactory(final Supplier<? extends CommandSenderFactory> singletons) {
-                return next.commandSenderFactory(singletonOrIntercepted(singletons, first.commandSenderFactory(singletons), Singletons::create));
+                final CommandSenderFactory intercepted = first.commandSenderFactory(singletons);
+                return nextOrIntercepted(next.commandSenderFactory(singletonOrIntercepted(singletons, intercepted, Singletons::create)), intercepted);
             }
 
             @Override
             public EventSubscriberFactory eventSubscriberFactory(final Supplier<? extends EventSubscriberFactory> singletons) {
-                return next.eventSubscriberFactory(singletonOrIntercepted(singletons, first.eventSubscriberFactory(singletons), Singletons::create));
+                final EventSubscriberFactory intercepted = first.eventSubscriberFactory(singletons);
+                return nextOrIntercepted(next.eventSubscriberFactory(singletonOrIntercepted(singletons, intercepted, Singletons::create)), intercepted);
             }
 
             @Override
             public EventProcessorFactory eventProcessorFactory(final Supplier<? extends EventProcessorFactory> singletons) {
-                return next.eventProcessorFactory(singletonOrIntercepted(singletons, first.eventProcessorFactory(singletons), Singletons::create));
+                final EventProcessorFactory intercepted = first.eventProcessorFactory(singletons);
+                return nextOrIntercepted(next.eventProcessorFactory(singletonOrIntercepted(singletons, intercepted, Singletons::create)), intercepted);
             }
         };
     }
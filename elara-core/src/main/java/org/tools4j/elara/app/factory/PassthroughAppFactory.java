@@ -66,7 +66,7 @@ public class PassthroughAppFactory implements AppFactory {
                 Singletons::create
         ));
         this.publisherSingletons = interceptor.publisherFactory(singletonsSupplier(
-                (PublisherFactory)new StorePublisherFactory(config, config, bootstrap.baseState(), this::publisherSingletons, this::outputSingletons),
+                (PublisherFactory)new StorePublisherFactory(config, config, config, bootstrap.baseState(), this::publisherSingletons, this::outputSingletons),
                 Singletons::create
         ));
         this.agentStepSingletons = interceptor.agentStepFactory(singletonsSupplier(
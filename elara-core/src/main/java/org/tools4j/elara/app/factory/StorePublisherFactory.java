@@ -25,11 +25,14 @@ package org.tools4j.elara.app.factory;
 
 import org.tools4j.elara.app.config.AppConfig;
 import org.tools4j.elara.app.config.EventStoreConfig;
+import org.tools4j.elara.app.config.OutputConfig;
 import org.tools4j.elara.app.state.BaseState;
 import org.tools4j.elara.app.state.SingleEventBaseState;
 import org.tools4j.elara.handler.DefaultOutputHandler;
 import org.tools4j.elara.handler.OutputHandler;
+import org.tools4j.elara.output.BatchOutput;
 import org.tools4j.elara.output.Output;
+import org.tools4j.elara.output.OutputCheckpoint;
 import org.tools4j.elara.step.AgentStep;
 import org.tools4j.elara.step.PollerPublisherStep;
 import org.tools4j.elara.store.MessageStore;
@@ -42,17 +45,20 @@ import static org.tools4j.elara.step.AgentStep.NOOP;
 public class StorePublisherFactory implements PublisherFactory {
     private final AppConfig appConfig;
     private final EventStoreConfig eventStoreConfig;
+    private final OutputConfig outputConfig;
     private final BaseState baseState;
     private final Supplier<? extends PublisherFactory> publisherSingletons;
     private final Supplier<? extends OutputFactory> outputSingletons;
 
     public StorePublisherFactory(final AppConfig appConfig,
                                  final EventStoreConfig eventStoreConfig,
+                                 final OutputConfig outputConfig,
                                  final BaseState baseState,
                                  final Supplier<? extends PublisherFactory> publisherSingletons,
                                  final Supplier<? extends OutputFactory> outputSingletons) {
         this.appConfig = requireNonNull(appConfig);
         this.eventStoreConfig = requireNonNull(eventStoreConfig);
+        this.outputConfig = requireNonNull(outputConfig);
         this.baseState = requireNonNull(baseState);
         this.publisherSingletons = requireNonNull(publisherSingletons);
         this.outputSingletons = requireNonNull(outputSingletons);
@@ -71,9 +77,16 @@ public class StorePublisherFactory implements PublisherFactory {
             return NOOP;
         }
         final MessageStore eventStore = eventStoreConfig.eventStore();
+        final int maxBatchSize = BatchOutput.maxBatchSize(outputSingletons.get().output());
+        final OutputCheckpoint checkpoint = outputConfig.outputCheckpoint();
+        if (checkpoint != null) {
+            return baseState instanceof SingleEventBaseState
+                    ? PollerPublisherStep.allEventsPoller(outputHandler, eventStore, checkpoint, maxBatchSize)
+                    : PollerPublisherStep.committedEventsPoller(outputHandler, eventStore, checkpoint, maxBatchSize);
+        }
         if (baseState instanceof SingleEventBaseState) {
-            return PollerPublisherStep.allEventsPoller(outputHandler, eventStore);
+            return PollerPublisherStep.allEventsPoller(outputHandler, eventStore, maxBatchSize);
         }
-        return PollerPublisherStep.committedEventsPoller(outputHandler, eventStore);
+        return PollerPublisherStep.committedEventsPoller(outputHandler, eventStore, maxBatchSize);
     }
 }
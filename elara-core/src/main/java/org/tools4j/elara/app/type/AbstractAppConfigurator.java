@@ -42,6 +42,7 @@ import org.tools4j.elara.input.MultiSourceInput;
 import org.tools4j.elara.input.SingleSourceInput;
 import org.tools4j.elara.logging.Logger.Factory;
 import org.tools4j.elara.output.Output;
+import org.tools4j.elara.output.OutputCheckpoint;
 import org.tools4j.elara.plugin.api.Plugin;
 import org.tools4j.elara.plugin.api.PluginSpecification.Installer;
 import org.tools4j.elara.plugin.boot.BootCommandInputPoller;
@@ -66,6 +67,7 @@ abstract class AbstractAppConfigurator<T extends AbstractAppConfigurator<T>> imp
     private BaseStateProvider baseStateProvider;
     private Input input = Input.NOOP;
     private Output output = Output.NOOP;
+    private OutputCheckpoint outputCheckpoint;
     private TimeSource timeSource;
     private ExceptionHandler exceptionHandler = ExceptionHandler.systemDefault();
     private Factory loggerFactory = SYSTEM_FACTORY;
@@ -125,6 +127,15 @@ abstract class AbstractAppConfigurator<T extends AbstractAppConfigurator<T>> imp
         return self();
     }
 
+    public OutputCheckpoint outputCheckpoint() {
+        return outputCheckpoint;
+    }
+
+    public T outputCheckpoint(final OutputCheckpoint checkpoint) {
+        this.outputCheckpoint = checkpoint;//null allowed here
+        return self();
+    }
+
     @Override
     public TimeSource timeSource() {
         return timeSource;
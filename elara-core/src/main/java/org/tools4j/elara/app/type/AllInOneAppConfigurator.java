@@ -45,6 +45,7 @@ import org.tools4j.elara.input.MultiSourceInput;
 import org.tools4j.elara.input.SingleSourceInput;
 import org.tools4j.elara.logging.Logger;
 import org.tools4j.elara.output.Output;
+import org.tools4j.elara.output.OutputCheckpoint;
 import org.tools4j.elara.plugin.api.Plugin;
 import org.tools4j.elara.step.AgentStep;
 import org.tools4j.elara.store.MessageStore;
@@ -69,6 +70,8 @@ public interface AllInOneAppConfigurator extends AllInOneAppConfig, AppConfigura
     @Override
     AllInOneAppConfigurator output(Output output);
     @Override
+    AllInOneAppConfigurator outputCheckpoint(OutputCheckpoint checkpoint);
+    @Override
     AllInOneAppConfigurator commandProcessor(CommandProcessor commandProcessor);
     @Override
     AllInOneAppConfigurator eventApplier(EventApplier eventApplier);
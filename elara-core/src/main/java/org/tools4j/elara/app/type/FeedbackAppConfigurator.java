@@ -41,6 +41,7 @@ import org.tools4j.elara.input.MultiSourceInput;
 import org.tools4j.elara.input.SingleSourceInput;
 import org.tools4j.elara.logging.Logger;
 import org.tools4j.elara.output.Output;
+import org.tools4j.elara.output.OutputCheckpoint;
 import org.tools4j.elara.plugin.api.Plugin;
 import org.tools4j.elara.step.AgentStep;
 import org.tools4j.elara.store.MessageStore;
@@ -81,6 +82,8 @@ public interface FeedbackAppConfigurator extends FeedbackAppConfig, AppConfigura
     FeedbackAppConfigurator input(int sourceId, InputPoller inputPoller);
     @Override
     FeedbackAppConfigurator output(Output output);
+    @Override
+    FeedbackAppConfigurator outputCheckpoint(OutputCheckpoint checkpoint);
 
     @Override
     FeedbackAppConfigurator timeSource(TimeSource timeSource);
@@ -38,6 +38,7 @@ import org.tools4j.elara.input.MultiSourceInput;
 import org.tools4j.elara.input.SingleSourceInput;
 import org.tools4j.elara.logging.Logger;
 import org.tools4j.elara.output.Output;
+import org.tools4j.elara.output.OutputCheckpoint;
 import org.tools4j.elara.plugin.api.Plugin;
 import org.tools4j.elara.step.AgentStep;
 import org.tools4j.elara.store.MessageStore;
@@ -61,6 +62,8 @@ public interface PassthroughAppConfigurator extends PassthroughAppConfig, AppCon
     @Override
     PassthroughAppConfigurator output(Output output);
     @Override
+    PassthroughAppConfigurator outputCheckpoint(OutputCheckpoint checkpoint);
+    @Override
     PassthroughAppConfigurator eventStore(MessageStore eventStore);
     @Override
     PassthroughAppConfigurator timeSource(TimeSource timeSource);
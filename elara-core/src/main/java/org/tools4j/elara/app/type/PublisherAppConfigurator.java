@@ -33,6 +33,7 @@ import org.tools4j.elara.app.state.BaseStateProvider;
 import org.tools4j.elara.exception.ExceptionHandler;
 import org.tools4j.elara.logging.Logger;
 import org.tools4j.elara.output.Output;
+import org.tools4j.elara.output.OutputCheckpoint;
 import org.tools4j.elara.plugin.api.Plugin;
 import org.tools4j.elara.step.AgentStep;
 import org.tools4j.elara.store.MessageStore;
@@ -57,6 +58,8 @@ public interface PublisherAppConfigurator extends PublisherAppConfig, AppConfigu
     @Override
     PublisherAppConfigurator output(Output output);
     @Override
+    PublisherAppConfigurator outputCheckpoint(OutputCheckpoint checkpoint);
+    @Override
     PublisherAppConfigurator timeSource(TimeSource timeSource);
 
     @Override
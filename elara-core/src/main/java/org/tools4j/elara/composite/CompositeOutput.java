@@ -25,6 +25,7 @@ package org.tools4j.elara.composite;
 
 import org.tools4j.elara.app.message.Event;
 import org.tools4j.elara.exception.ExceptionHandler;
+import org.tools4j.elara.output.BatchOutput;
 import org.tools4j.elara.output.Output;
 
 import static java.util.Objects.requireNonNull;
@@ -61,6 +62,58 @@ public class CompositeOutput implements Output {
     public static Output create(final Output[] outputs, final ExceptionHandler exceptionHandler) {
         requireNonNull(outputs);
         requireNonNull(exceptionHandler);
-        return Composites.composite(outputs, NOOP, Output[]::new, outs -> new CompositeOutput(outs, exceptionHandler));
+        boolean anyBatch = false;
+        for (final Output output : outputs) {
+            anyBatch |= output instanceof BatchOutput;
+        }
+        return anyBatch
+                ? Composites.composite(outputs, NOOP, Output[]::new, outs -> new CompositeBatchOutput(outs, exceptionHandler))
+                : Composites.composite(outputs, NOOP, Output[]::new, outs -> new CompositeOutput(outs, exceptionHandler));
+    }
+
+    private static final class CompositeBatchOutput extends CompositeOutput implements BatchOutput {
+        private final BatchOutput[] batchOutputs;
+        private final int maxBatchSize;
+        private final ExceptionHandler exceptionHandler;
+
+        private CompositeBatchOutput(final Output[] outputs, final ExceptionHandler exceptionHandler) {
+            super(outputs, exceptionHandler);
+            this.exceptionHandler = exceptionHandler;
+            int count = 0;
+            int maxSize = 1;
+            for (final Output output : outputs) {
+                if (output instanceof BatchOutput) {
+                    count++;
+                    maxSize = Math.max(maxSize, ((BatchOutput)output).maxBatchSize());
+                }
+            }
+            this.batchOutputs = new BatchOutput[count];
+            this.maxBatchSize = maxSize;
+            int index = 0;
+            for (final Output output : outputs) {
+                if (output instanceof BatchOutput) {
+                    batchOutputs[index++] = (BatchOutput)output;
+                }
+            }
+        }
+
+        @Override
+        public void onBatchStart() {
+            for (final BatchOutput output : batchOutputs) {
+                BatchOutput.notifyBatchStart(output, exceptionHandler);
+            }
+        }
+
+        @Override
+        public void onBatchEnd(final int batchSize) {
+            for (final BatchOutput output : batchOutputs) {
+                BatchOutput.notifyBatchEnd(output, batchSize, exceptionHandler);
+            }
+        }
+
+        @Override
+        public int maxBatchSize() {
+            return maxBatchSize;
+        }
     }
 }
@@ -0,0 +1,286 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.flyweight;
+
+import org.HdrHistogram.Histogram;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.tools4j.elara.plugin.metrics.LatencyMetric;
+import org.tools4j.elara.plugin.metrics.Metric;
+import org.tools4j.elara.plugin.metrics.MetricType;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static org.tools4j.elara.flyweight.HistogramMetricsDescriptor.FLAGS_OFFSET;
+import static org.tools4j.elara.flyweight.HistogramMetricsDescriptor.FLAG_PAYLOAD_TYPE;
+import static org.tools4j.elara.flyweight.HistogramMetricsDescriptor.HEADER_LENGTH;
+import static org.tools4j.elara.flyweight.HistogramMetricsDescriptor.INTERVAL_OFFSET;
+import static org.tools4j.elara.flyweight.HistogramMetricsDescriptor.ITERATION_OFFSET;
+import static org.tools4j.elara.flyweight.HistogramMetricsDescriptor.LATENCY_METRIC_OFFSET;
+import static org.tools4j.elara.flyweight.HistogramMetricsDescriptor.METRIC_TIME_OFFSET;
+import static org.tools4j.elara.flyweight.HistogramMetricsDescriptor.PAYLOAD_OFFSET;
+import static org.tools4j.elara.flyweight.HistogramMetricsDescriptor.PAYLOAD_TYPE_OFFSET;
+import static org.tools4j.elara.flyweight.HistogramMetricsDescriptor.START_TIME_OFFSET;
+
+/**
+ * A flyweight frame for reading and writing histogram metrics data laid out as per {@link HistogramMetricsDescriptor}.
+ */
+public class FlyweightHistogramMetrics implements HistogramMetricsFrame, Flyweight<FlyweightHistogramMetrics>, Writable {
+
+    private final FlyweightHeader header = new FlyweightHeader(HEADER_LENGTH);
+    private final MutableDirectBuffer payload = new UnsafeBuffer(0, 0);
+
+    @Override
+    public FlyweightHistogramMetrics wrap(final DirectBuffer buffer, final int offset) {
+        header.wrap(buffer, offset);
+        FrameType.validateHistogramMetricsType(header.type());
+        return wrapPayload(buffer, offset);
+    }
+
+    public FlyweightHistogramMetrics wrapSilently(final DirectBuffer buffer, final int offset) {
+        header.wrapSilently(buffer, offset);
+        return wrapPayload(buffer, offset);
+    }
+
+    private FlyweightHistogramMetrics wrapPayload(final DirectBuffer buffer, final int offset) {
+        final int frameSize = header.frameSize();
+        payload.wrap(buffer, offset + HEADER_LENGTH, frameSize - HEADER_LENGTH);
+        return this;
+    }
+
+    @Override
+    public boolean valid() {
+        return header.valid() && FrameType.isHistogramMetricsType(header.type());
+    }
+
+    @Override
+    public FlyweightHistogramMetrics reset() {
+        header.reset();
+        payload.wrap(0, 0);
+        return this;
+    }
+
+    @Override
+    public Header header() {
+        return header;
+    }
+
+    @Override
+    public int headerLength() {
+        return HEADER_LENGTH;
+    }
+
+    @Override
+    public MetricType metricType() {
+        return MetricType.HISTOGRAM;
+    }
+
+    @Override
+    public LatencyMetric latencyMetric() {
+        return latencyMetric(header.buffer());
+    }
+
+    public static LatencyMetric latencyMetric(final DirectBuffer buffer) {
+        return LatencyMetric.byOrdinal(buffer.getShort(LATENCY_METRIC_OFFSET, LITTLE_ENDIAN));
+    }
+
+    @Override
+    public boolean hasPayloadType() {
+        return hasPayloadType(header.buffer());
+    }
+
+    public static boolean hasPayloadType(final DirectBuffer buffer) {
+        return (buffer.getInt(FLAGS_OFFSET, LITTLE_ENDIAN) & FLAG_PAYLOAD_TYPE) != 0;
+    }
+
+    @Override
+    public int payloadType() {
+        return payloadType(header.buffer());
+    }
+
+    public static int payloadType(final DirectBuffer buffer) {
+        return buffer.getInt(PAYLOAD_TYPE_OFFSET, LITTLE_ENDIAN);
+    }
+
+    @Override
+    public long iteration() {
+        return iteration(header.buffer());
+    }
+
+    public static long iteration(final DirectBuffer buffer) {
+        return buffer.getLong(ITERATION_OFFSET, LITTLE_ENDIAN);
+    }
+
+    @Override
+    public long interval() {
+        return interval(header.buffer());
+    }
+
+    public static long interval(final DirectBuffer buffer) {
+        return buffer.getLong(INTERVAL_OFFSET, LITTLE_ENDIAN);
+    }
+
+    @Override
+    public long startTime() {
+        return startTime(header.buffer());
+    }
+
+    public static long startTime(final DirectBuffer buffer) {
+        return buffer.getLong(START_TIME_OFFSET, LITTLE_ENDIAN);
+    }
+
+    @Override
+    public long metricTime() {
+        return metricTime(header.buffer());
+    }
+
+    public static long metricTime(final DirectBuffer buffer) {
+        return buffer.getLong(METRIC_TIME_OFFSET, LITTLE_ENDIAN);
+    }
+
+    @Override
+    public boolean hasMetric(final Metric metric) {
+        return metric == latencyMetric();
+    }
+
+    @Override
+    public DirectBuffer histogramData() {
+        return payload;
+    }
+
+    @Override
+    public Histogram decodeHistogram() {
+        final byte[] data = new byte[payload.capacity()];
+        payload.getBytes(0, data);
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(data), 0);
+        } catch (final DataFormatException e) {
+            throw new IllegalStateException("Invalid histogram data in " + this, e);
+        }
+    }
+
+    @Override
+    public int writeTo(final MutableDirectBuffer dst, final int dstOffset) {
+        final int payloadSize = header().frameSize() - HEADER_LENGTH;
+        writeHeader(iteration(), interval(), latencyMetric(), hasPayloadType(), payloadType(), startTime(),
+                metricTime(), payloadSize, dst, dstOffset);
+        dst.putBytes(dstOffset + PAYLOAD_OFFSET, payload, 0, payloadSize);
+        return HEADER_LENGTH + payloadSize;
+    }
+
+    public static int writeHeader(final long iteration,
+                                  final long interval,
+                                  final LatencyMetric latencyMetric,
+                                  final boolean hasPayloadType,
+                                  final int payloadType,
+                                  final long startTime,
+                                  final long metricTime,
+                                  final int histogramDataLength,
+                                  final MutableDirectBuffer dst,
+                                  final int dstOffset) {
+        final int frameSize = HEADER_LENGTH + histogramDataLength;
+        FlyweightHeader.write(FrameType.HISTOGRAM_METRICS_TYPE, (short)latencyMetric.ordinal(), frameSize, dst,
+                dstOffset);
+        dst.putLong(dstOffset + ITERATION_OFFSET, iteration, LITTLE_ENDIAN);
+        dst.putLong(dstOffset + INTERVAL_OFFSET, interval, LITTLE_ENDIAN);
+        dst.putLong(dstOffset + START_TIME_OFFSET, startTime, LITTLE_ENDIAN);
+        dst.putLong(dstOffset + METRIC_TIME_OFFSET, metricTime, LITTLE_ENDIAN);
+        dst.putInt(dstOffset + PAYLOAD_TYPE_OFFSET, hasPayloadType ? payloadType : PayloadType.DEFAULT, LITTLE_ENDIAN);
+        dst.putInt(dstOffset + FLAGS_OFFSET, hasPayloadType ? FLAG_PAYLOAD_TYPE : 0, LITTLE_ENDIAN);
+        return HEADER_LENGTH;
+    }
+
+    /**
+     * Writes the frame header followed by the given histogram encoded in compressed format.  The histogram is first
+     * encoded into the provided scratch buffer which must have at least a capacity of
+     * {@link Histogram#getNeededByteBufferCapacity()}.
+     *
+     * @param iteration     the iteration, starting at zero for the first interval
+     * @param interval      the configured interval length
+     * @param latencyMetric the latency metric recorded by the histogram
+     * @param hasPayloadType true if the histogram is for a single payload type
+     * @param payloadType   the payload type, ignored if hasPayloadType is false
+     * @param startTime     the start time of the interval
+     * @param metricTime    the end time of the interval
+     * @param histogram     the histogram to encode
+     * @param scratch       scratch buffer for histogram encoding
+     * @param dst           the destination buffer
+     * @param dstOffset     the offset in the destination buffer
+     * @return the number of bytes written, that is, the frame size
+     */
+    public static int write(final long iteration,
+                            final long interval,
+                            final LatencyMetric latencyMetric,
+                            final boolean hasPayloadType,
+                            final int payloadType,
+                            final long startTime,
+                            final long metricTime,
+                            final Histogram histogram,
+                            final ByteBuffer scratch,
+                            final MutableDirectBuffer dst,
+                            final int dstOffset) {
+        scratch.clear();
+        final int dataLength = histogram.encodeIntoCompressedByteBuffer(scratch);
+        writeHeader(iteration, interval, latencyMetric, hasPayloadType, payloadType, startTime, metricTime, dataLength,
+                dst, dstOffset);
+        dst.putBytes(dstOffset + PAYLOAD_OFFSET, scratch, 0, dataLength);
+        return HEADER_LENGTH + dataLength;
+    }
+
+    @Override
+    public void accept(final FrameVisitor visitor) {
+        visitor.histogramMetricsFrame(this);
+    }
+
+    @Override
+    public StringBuilder printTo(final StringBuilder dst) {
+        dst.append("FlyweightHistogramMetrics");
+        if (valid()) {
+            final Header header = header();
+            dst.append(":version=").append(header.version());
+            dst.append("|frame-size=").append(frameSize());
+            dst.append("|metric-type=").append(metricType());
+            dst.append("|latency-metric=").append(latencyMetric());
+            if (hasPayloadType()) {
+                dst.append("|payload-type=").append(payloadType());
+            }
+            dst.append("|iteration=").append(iteration());
+            dst.append("|interval=").append(interval());
+            dst.append("|start-time=").append(startTime());
+            dst.append("|metric-time=").append(metricTime());
+            dst.append("|data-length=").append(payload.capacity());
+        } else {
+            dst.append(":???");
+        }
+        return dst;
+    }
+
+    @Override
+    public String toString() {
+        return printTo(new StringBuilder(256)).toString();
+    }
+}
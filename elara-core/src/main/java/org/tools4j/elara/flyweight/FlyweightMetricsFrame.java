@@ -29,32 +29,37 @@ import org.tools4j.elara.plugin.metrics.Metric;
 import org.tools4j.elara.plugin.metrics.MetricType;
 
 /**
- * A flyweight frame for reading and either a {@link TimeMetricsFrame} or a {@link FrequencyMetricsFrame}.
+ * A flyweight frame for reading either a {@link TimeMetricsFrame}, a {@link FrequencyMetricsFrame} or a
+ * {@link HistogramMetricsFrame}.
  */
 public class FlyweightMetricsFrame implements MetricsFrame, Flyweight<FlyweightMetricsFrame> {
 
     private final FlyweightHeader header = new FlyweightHeader(FrameDescriptor.HEADER_LENGTH);
     private final FlyweightTimeMetrics timeMetrics = new FlyweightTimeMetrics();
     private final FlyweightFrequencyMetrics frequencyMetrics = new FlyweightFrequencyMetrics();
+    private final FlyweightHistogramMetrics histogramMetrics = new FlyweightHistogramMetrics();
 
     @Override
     public FlyweightMetricsFrame wrap(final DirectBuffer buffer, final int offset) {
         header.wrap(buffer, offset);
         final byte type = header.type();
         FrameType.validateMetricsType(type);
+        timeMetrics.reset();
+        frequencyMetrics.reset();
+        histogramMetrics.reset();
         if (type == FrameType.TIME_METRICS_TYPE) {
             timeMetrics.wrap(buffer, offset);
-            frequencyMetrics.reset();
-        } else {
+        } else if (type == FrameType.FREQUENCY_METRICS_TYPE) {
             frequencyMetrics.wrap(buffer, offset);
-            timeMetrics.reset();
+        } else {
+            histogramMetrics.wrap(buffer, offset);
         }
         return this;
     }
 
     @Override
     public boolean valid() {
-         return timeMetrics.valid() || frequencyMetrics.valid();
+         return timeMetrics.valid() || frequencyMetrics.valid() || histogramMetrics.valid();
     }
 
     @Override
@@ -62,66 +67,76 @@ public class FlyweightMetricsFrame implements MetricsFrame, Flyweight<FlyweightM
         header.reset();
         timeMetrics.reset();
         frequencyMetrics.reset();
+        histogramMetrics.reset();
         return this;
     }
 
+    private MetricsFrame frame() {
+        return timeMetrics.valid() ? timeMetrics : frequencyMetrics.valid() ? frequencyMetrics :
+                histogramMetrics.valid() ? histogramMetrics : null;
+    }
+
     @Override
     public Header header() {
-        return timeMetrics.valid() ? timeMetrics.header() : frequencyMetrics.valid() ? frequencyMetrics.header() : header;
+        final MetricsFrame frame = frame();
+        return frame != null ? frame.header() : header;
     }
 
     @Override
     public int headerLength() {
-        return timeMetrics.valid() ? timeMetrics.headerLength() : frequencyMetrics.valid() ? frequencyMetrics.headerLength() : header.headerLength();
+        final MetricsFrame frame = frame();
+        return frame != null ? frame.headerLength() : header.headerLength();
     }
 
     @Override
     public MetricType metricType() {
-        return timeMetrics.valid() ? timeMetrics.metricType() : frequencyMetrics.valid() ? frequencyMetrics.metricType() : null;
+        final MetricsFrame frame = frame();
+        return frame != null ? frame.metricType() : null;
     }
 
     @Override
     public long metricTime() {
-        return timeMetrics.valid() ? timeMetrics.metricTime() : frequencyMetrics.valid() ? frequencyMetrics.metricTime() : 0;
+        final MetricsFrame frame = frame();
+        return frame != null ? frame.metricTime() : 0;
     }
 
     @Override
     public int valueCount() {
-        return timeMetrics.valid() ? timeMetrics.valueCount() : frequencyMetrics.valid() ? frequencyMetrics.valueCount() : 0;
+        final MetricsFrame frame = frame();
+        return frame != null ? frame.valueCount() : 0;
     }
 
     @Override
     public boolean hasMetric(final Metric metric) {
-        return timeMetrics.valid() && timeMetrics.hasMetric(metric) || frequencyMetrics.valid() && frequencyMetrics.hasMetric(metric);
+        final MetricsFrame frame = frame();
+        return frame != null && frame.hasMetric(metric);
     }
 
     @Override
     public Metric metric(final int valueIndex) {
-        return timeMetrics.valid() ? timeMetrics.timeMetric(valueIndex) : frequencyMetrics.valid() ? frequencyMetrics.frequencyMetric(valueIndex) : null;
+        final MetricsFrame frame = frame();
+        return frame != null ? frame.metric(valueIndex) : null;
     }
 
     @Override
     public int writeTo(final MutableDirectBuffer dst, final int dstOffset) {
-        return timeMetrics.valid() ? timeMetrics.writeTo(dst, dstOffset) :
-                frequencyMetrics.valid() ? frequencyMetrics.writeTo(dst, dstOffset) : null ;
+        final MetricsFrame frame = frame();
+        return frame != null ? frame.writeTo(dst, dstOffset) : 0;
     }
 
     @Override
     public void accept(final FrameVisitor visitor) {
-        if (timeMetrics.valid()) {
-            timeMetrics.accept(visitor);
-        } else if (frequencyMetrics.valid()) {
-            frequencyMetrics.accept(visitor);
+        final MetricsFrame frame = frame();
+        if (frame != null) {
+            frame.accept(visitor);
         }
     }
 
     @Override
     public StringBuilder printTo(final StringBuilder dst) {
-        if (timeMetrics.valid()) {
-            return timeMetrics.printTo(dst);
-        }
-        if (frequencyMetrics.valid()) {
-            return frequencyMetrics.printTo(dst);
+        final MetricsFrame frame = frame();
+        if (frame != null) {
+            return frame.printTo(dst);
         }
         return dst.append("FlyweightMetricsFrame:???");
     }
@@ -50,6 +50,9 @@ public class FlyweightTimeMetrics implements TimeMetricsFrame, Flyweight<Flyweig
 
     private static final int EVENT_FLAG = 0x80000000;
     private static final int OUTPUT_FLAG = 0x40000000;
+    private static final int PAYLOAD_TYPE_FLAG = 0x20000000;
+    private static final int PAYLOAD_TYPE_SHIFT = 8;
+    private static final int PAYLOAD_TYPE_MASK = 0xffff << PAYLOAD_TYPE_SHIFT;
     private final FlyweightHeader header = new FlyweightHeader(HEADER_LENGTH);
     private final MutableDirectBuffer payload = new UnsafeBuffer(0, 0);
 
@@ -177,6 +180,38 @@ public class FlyweightTimeMetrics implements TimeMetricsFrame, Flyweight<Flyweig
         return metricTypes;
     }
 
+    /**
+     * Returns the given metric types with the payload type encoded in it.
+     *
+     * @param metricTypes   metric types as returned by {@link #metricTypes(Target, Set)}
+     * @param payloadType   the payload type, must be in the short value range
+     * @return the metric types including payload type
+     */
+    public static int metricTypes(final int metricTypes, final int payloadType) {
+        assert payloadType >= Short.MIN_VALUE && payloadType <= Short.MAX_VALUE;
+        return (metricTypes & ~PAYLOAD_TYPE_MASK) | PAYLOAD_TYPE_FLAG |
+                ((0xffff & payloadType) << PAYLOAD_TYPE_SHIFT);
+    }
+
+    @Override
+    public boolean hasPayloadType() {
+        return hasPayloadType(metricTypes());
+    }
+
+    public static boolean hasPayloadType(final int metricTypes) {
+        return (metricTypes & PAYLOAD_TYPE_FLAG) != 0;
+    }
+
+    @Override
+    public int payloadType() {
+        return payloadType(metricTypes());
+    }
+
+    public static int payloadType(final int metricTypes) {
+        return hasPayloadType(metricTypes) ?
+                (short)((metricTypes & PAYLOAD_TYPE_MASK) >>> PAYLOAD_TYPE_SHIFT) : PayloadType.DEFAULT;
+    }
+
     public static byte metricTypesFlags(final DirectBuffer buffer) {
         return metricTypesFlags(metricTypes(buffer));
     }
@@ -236,7 +271,7 @@ public class FlyweightTimeMetrics implements TimeMetricsFrame, Flyweight<Flyweig
                                   final int valueCount,
                                   final MutableDirectBuffer dst,
                                   final int dstOffset) {
-        assert (metricTypes & (EVENT_FLAG | OUTPUT_FLAG)) == 0;
+        assert target(metricTypes) == Target.COMMAND;
         return writeHeader(sourceId, sourceSequence, (short)0, 0L, metricTypes, metricTime, valueCount,
                 dst, dstOffset);
     }
@@ -284,6 +319,9 @@ public class FlyweightTimeMetrics implements TimeMetricsFrame, Flyweight<Flyweig
             dst.append("|frame-size=").append(frameSize());
             dst.append("|metric-type=").append(sourceId());
             dst.append("|target=").append(target());
+            if (hasPayloadType()) {
+                dst.append("|payload-type=").append(payloadType());
+            }
             dst.append("|source-id=").append(sourceId());
             dst.append("|source-seq=").append(sourceSequence());
             dst.append("|event-index=").append(eventIndex());
@@ -48,6 +48,8 @@ public enum FrameType {
     public static final byte TIME_METRICS_TYPE = 0x7;
     /** Type for a frame that contains frequency metrics data */
     public static final byte FREQUENCY_METRICS_TYPE = 0x8;
+    /** Type for a frame that contains histogram metrics data */
+    public static final byte HISTOGRAM_METRICS_TYPE = 0x9;
 
     public static boolean isCommandType(final byte frameType) {
         return frameType == COMMAND_TYPE;
@@ -81,6 +83,10 @@ public enum FrameType {
         return frameType == FREQUENCY_METRICS_TYPE;
     }
 
+    public static boolean isHistogramMetricsType(final byte frameType) {
+        return frameType == HISTOGRAM_METRICS_TYPE;
+    }
+
     public static void validateCommandType(final byte frameType) {
         if (!isCommandType(frameType)) {
             throw new IllegalArgumentException("Frame type " + frameType + " is not valid for a command frame");
@@ -117,8 +123,14 @@ public enum FrameType {
         }
     }
 
+    public static void validateHistogramMetricsType(final byte frameType) {
+        if (!isHistogramMetricsType(frameType)) {
+            throw new IllegalArgumentException("Frame type " + frameType + " is not valid for a histogram metrics frame");
+        }
+    }
+
     public static void validateMetricsType(final byte frameType) {
-        if (!(isTimeMetricsType(frameType) || isFrequencyMetricsType(frameType))) {
+        if (!(isTimeMetricsType(frameType) || isFrequencyMetricsType(frameType) || isHistogramMetricsType(frameType))) {
             throw new IllegalArgumentException("Frame type " + frameType + " is not valid for a metrics frame");
         }
     }
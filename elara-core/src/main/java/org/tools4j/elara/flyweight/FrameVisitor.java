@@ -29,4 +29,5 @@ public interface FrameVisitor {
     default void playbackFrame(PlaybackFrame frame) {}
     default void timeMetricsFrame(TimeMetricsFrame frame) {}
     default void frequencyMetricsFrame(FrequencyMetricsFrame frame) {}
+    default void histogramMetricsFrame(HistogramMetricsFrame frame) {}
 }
@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.flyweight;
+
+/**
+ * Descriptor of frame layout for histogram metrics.  The histogram data contains a histogram of latency values recorded
+ * during one interval, encoded in compressed HdrHistogram format.
+ * <pre>
+
+    0         1         2         3         4         5         6
+    0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2 4
+    +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+    |Version|Type=09|Latency Metric |          Frame Size           |
+    +-------+-------+-------+-------+-------+-------+-------+-------+
+    |                           Iteration                           |
+    +-------+-------+-------+-------+-------+-------+-------+-------+
+    |                           Interval                            |
+    +-------+-------+-------+-------+-------+-------+-------+-------+
+    |                          Start Time                           |
+    +-------+-------+-------+-------+-------+-------+-------+-------+
+    |                          Metric Time                          |
+    +-------+-------+-------+-------+-------+-------+-------+-------+
+    |         Payload Type          |             Flags             |
+    +-------+-------+-------+-------+-------+-------+-------+-------+
+    |                        Histogram Data                         |
+    |                             ...                               |
+
+    Flags: bit 0 set if the histogram is for the given payload type only, otherwise it is for all payload types or
+           all payload types that are not explicitly broken down
+ * </pre>
+ *
+ * @see FrequencyMetricsDescriptor
+ * @see FrameDescriptor
+ */
+public enum HistogramMetricsDescriptor {
+    ;
+
+    public static final int LATENCY_METRIC_OFFSET = FrameDescriptor.RESERVED_OFFSET;
+    public static final int LATENCY_METRIC_LENGTH = FrameDescriptor.RESERVED_LENGTH;
+    public static final int ITERATION_OFFSET = FrameDescriptor.HEADER_LENGTH;
+    public static final int ITERATION_LENGTH = Long.BYTES;
+    public static final int INTERVAL_OFFSET = ITERATION_OFFSET + ITERATION_LENGTH;
+    public static final int INTERVAL_LENGTH = Long.BYTES;
+    public static final int START_TIME_OFFSET = INTERVAL_OFFSET + INTERVAL_LENGTH;
+    public static final int START_TIME_LENGTH = Long.BYTES;
+    public static final int METRIC_TIME_OFFSET = START_TIME_OFFSET + START_TIME_LENGTH;
+    public static final int METRIC_TIME_LENGTH = Long.BYTES;
+    public static final int PAYLOAD_TYPE_OFFSET = METRIC_TIME_OFFSET + METRIC_TIME_LENGTH;
+    public static final int PAYLOAD_TYPE_LENGTH = Integer.BYTES;
+    public static final int FLAGS_OFFSET = PAYLOAD_TYPE_OFFSET + PAYLOAD_TYPE_LENGTH;
+    public static final int FLAGS_LENGTH = Integer.BYTES;
+
+    public static final int FLAG_PAYLOAD_TYPE = 0x1;
+
+    public static final int HEADER_OFFSET = FrameDescriptor.HEADER_OFFSET;
+    public static final int HEADER_LENGTH = FLAGS_OFFSET + FLAGS_LENGTH;
+
+    public static final int PAYLOAD_OFFSET = HEADER_OFFSET + HEADER_LENGTH;
+
+}
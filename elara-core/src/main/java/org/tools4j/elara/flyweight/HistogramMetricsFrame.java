@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.flyweight;
+
+import org.HdrHistogram.Histogram;
+import org.agrona.DirectBuffer;
+import org.tools4j.elara.plugin.metrics.LatencyMetric;
+import org.tools4j.elara.plugin.metrics.Metric;
+
+/**
+ * A frame holding a latency histogram recorded over one interval as described by {@link HistogramMetricsDescriptor}.
+ */
+public interface HistogramMetricsFrame extends MetricsFrame {
+
+    long iteration();
+
+    long interval();
+
+    long startTime();
+
+    LatencyMetric latencyMetric();
+
+    /**
+     * Returns true if the histogram contains latencies for commands or events of {@link #payloadType()} only, and
+     * false if it contains latencies of all payload types that are not broken down separately.
+     *
+     * @return true if the histogram is for a single payload type
+     */
+    boolean hasPayloadType();
+
+    /**
+     * Returns the payload type if {@link #hasPayloadType() available}, and {@link PayloadType#DEFAULT} otherwise.
+     *
+     * @return the payload type of the histogram's commands or events
+     */
+    int payloadType();
+
+    /**
+     * Returns the histogram data in compressed HdrHistogram format.
+     *
+     * @return the encoded histogram data
+     */
+    DirectBuffer histogramData();
+
+    /**
+     * Decodes and returns the histogram from {@link #histogramData()};  note that this method allocates a new
+     * histogram object and is intended for tools and not for use on the latency sensitive path.
+     *
+     * @return a newly allocated histogram decoded from the histogram data
+     */
+    Histogram decodeHistogram();
+
+    @Override
+    default int valueCount() {
+        return 1;
+    }
+
+    @Override
+    default Metric metric(final int valueIndex) {
+        if (valueIndex != 0) {
+            throw new IndexOutOfBoundsException("Invalid value index " + valueIndex + " for histogram metrics frame");
+        }
+        return latencyMetric();
+    }
+}
@@ -32,7 +32,7 @@ package org.tools4j.elara.flyweight;
     +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
     |Version|Type=08|  Event Index  |          Frame Size           |
     +-------+-------+-------+-------+-------+-------+-------+-------+
-    |           Source ID           |EO      Metric Types           |
+    |           Source ID           |EOP    Payload Type    |Metrics|
     +-------+-------+-------+-------+-------+-------+-------+-------+
     |                        Source Sequence                        |
     +-------+-------+-------+-------+-------+-------+-------+-------+
@@ -45,6 +45,7 @@ package org.tools4j.elara.flyweight;
     |                             ...                               |
 
     E = Event Flag, O = Output Flag, Target: COMMAND(00), EVENT(10), OUTPUT(11)
+    P = Payload Type Flag, set if the 16 bit payload type of the command or event is present
 
  * </pre>
  *
@@ -39,6 +39,22 @@ public interface TimeMetricsFrame extends MetricsFrame {
     int eventIndex();
     Target target();
 
+    /**
+     * Returns true if the metrics are broken down by payload type and the frame's command or event has one of the
+     * pre-registered payload types.
+     *
+     * @return true if {@link #payloadType()} is available
+     */
+    boolean hasPayloadType();
+
+    /**
+     * Returns the payload type of the command or event if {@link #hasPayloadType() available}, and
+     * {@link org.tools4j.elara.flyweight.PayloadType#DEFAULT DEFAULT} otherwise.
+     *
+     * @return the payload type of the command or event
+     */
+    int payloadType();
+
     @Override
     int valueCount();
     TimeMetric timeMetric(int valueIndex);
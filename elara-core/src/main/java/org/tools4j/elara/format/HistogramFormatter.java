@@ -32,6 +32,8 @@ import org.tools4j.elara.plugin.metrics.MetricType;
 
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static java.util.Objects.requireNonNull;
@@ -57,6 +59,8 @@ public interface HistogramFormatter extends LatencyFormatter {
     }
 
     ThreadLocal<HistogramValues[]> latencyHistograms = ThreadLocal.withInitial(() -> new HistogramValues[LatencyMetric.count()]);
+    /** Latency histograms for frames with payload type, keyed by payload type */
+    ThreadLocal<Map<Integer, HistogramValues[]>> payloadTypeLatencyHistograms = ThreadLocal.withInitial(HashMap::new);
 
     /** Placeholder in format string for iteration value */
     String ITERATION = "{iteration}";
@@ -162,10 +166,13 @@ public interface HistogramFormatter extends LatencyFormatter {
     }
 
     default HistogramValues histogramValue(final long line, final long entryId, final TimeMetricsFrame frame, final LatencyMetric metric) {
-        HistogramValues histogram = latencyHistograms.get()[metric.ordinal()];
+        final HistogramValues[] histograms = frame.hasPayloadType() ?
+                payloadTypeLatencyHistograms.get().computeIfAbsent(frame.payloadType(), type -> new HistogramValues[LatencyMetric.count()]) :
+                latencyHistograms.get();
+        HistogramValues histogram = histograms[metric.ordinal()];
         if (histogram == null) {
             histogram = new DefaultHistogramValues(frame, metric, timeFormatter());
-            latencyHistograms.get()[metric.ordinal()] = histogram;
+            histograms[metric.ordinal()] = histogram;
         }
         return histogram;
     }
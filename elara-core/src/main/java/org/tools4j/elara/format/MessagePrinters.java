@@ -27,7 +27,9 @@ import org.tools4j.elara.flyweight.CommandFrame;
 import org.tools4j.elara.flyweight.DataFrame;
 import org.tools4j.elara.flyweight.EventFrame;
 import org.tools4j.elara.flyweight.FrameVisitor;
+import org.HdrHistogram.Histogram;
 import org.tools4j.elara.flyweight.FrequencyMetricsFrame;
+import org.tools4j.elara.flyweight.HistogramMetricsFrame;
 import org.tools4j.elara.flyweight.MetricsFrame;
 import org.tools4j.elara.flyweight.TimeMetricsFrame;
 
@@ -78,8 +80,15 @@ public interface MessagePrinters {
 
     default MessagePrinter<MetricsFrame> metrics(final MessagePrinter<TimeMetricsFrame> timeMetricsPrinter,
                                                  final MessagePrinter<FrequencyMetricsFrame> frequencyMetricsPrinter) {
+        return metrics(timeMetricsPrinter, frequencyMetricsPrinter, histogramMetrics());
+    }
+
+    default MessagePrinter<MetricsFrame> metrics(final MessagePrinter<TimeMetricsFrame> timeMetricsPrinter,
+                                                 final MessagePrinter<FrequencyMetricsFrame> frequencyMetricsPrinter,
+                                                 final MessagePrinter<HistogramMetricsFrame> histogramMetricsPrinter) {
         requireNonNull(timeMetricsPrinter);
         requireNonNull(frequencyMetricsPrinter);
+        requireNonNull(histogramMetricsPrinter);
         return (line, entryId, frame, writer) -> frame.accept(new FrameVisitor() {
             @Override
             public void timeMetricsFrame(final TimeMetricsFrame frame) {
@@ -89,9 +98,33 @@ public interface MessagePrinters {
             public void frequencyMetricsFrame(final FrequencyMetricsFrame frame) {
                 frequencyMetricsPrinter.print(line, entryId, frame, writer);
             }
+            @Override
+            public void histogramMetricsFrame(final HistogramMetricsFrame frame) {
+                histogramMetricsPrinter.print(line, entryId, frame, writer);
+            }
         });
     }
 
+    default MessagePrinter<HistogramMetricsFrame> histogramMetrics() {
+        return (line, entryId, frame, writer) -> {
+            final Histogram histogram = frame.decodeHistogram();
+            writer.append(String.valueOf(frame.metricTime())).append(" | ").append(String.valueOf(line))
+                    .append(" - ").append(frame.metricType().name().toLowerCase())
+                    .append(" indx=").append(String.valueOf(frame.iteration()))
+                    .append(", intvl=").append(String.valueOf(frame.interval()))
+                    .append(" | ").append(frame.latencyMetric().displayName())
+                    .append(frame.hasPayloadType() ? "[" + frame.payloadType() + "]" : "")
+                    .append(" - n=").append(String.valueOf(histogram.getTotalCount()))
+                    .append(", min=").append(String.valueOf(histogram.getMinValue()))
+                    .append(", p50=").append(String.valueOf(histogram.getValueAtPercentile(50)))
+                    .append(", p90=").append(String.valueOf(histogram.getValueAtPercentile(90)))
+                    .append(", p99=").append(String.valueOf(histogram.getValueAtPercentile(99)))
+                    .append(", p99.9=").append(String.valueOf(histogram.getValueAtPercentile(99.9)))
+                    .append(", max=").append(String.valueOf(histogram.getMaxValue()))
+                    .println();
+        };
+    }
+
     MessagePrinter<CommandFrame> command();
     MessagePrinter<EventFrame> event();
     MessagePrinter<FrequencyMetricsFrame> frequencyMetrics();
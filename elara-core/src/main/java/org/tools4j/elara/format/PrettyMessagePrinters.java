@@ -57,7 +57,7 @@ public class PrettyMessagePrinters implements MessagePrinters {
     public static final String METRICS_VALUE_FORMAT = "{sep}{metric-name}={metric-value}";
     public static final String LATENCY_VALUE_FORMAT = "{sep}{metric-name}={metric-value}{time-unit}";
     public static final String HISTOGRAM_FORMAT = "{histogram-values}";
-    public static final String HISTOGRAM_VALUE_FORMAT = "{metric-time} | {line} - {metric-type} indx={iteration}, intvl={interval}{time-unit} | {metric-name} - n={value-count}, {bucket-values}{nl}";
+    public static final String HISTOGRAM_VALUE_FORMAT = "{metric-time} | {line} - {metric-type} indx={iteration}, intvl={interval}{time-unit} | {metric-name}{payload-type-tag} - n={value-count}, {bucket-values}{nl}";
     public static final String HISTOGRAM_BUCKET_VALUE = "{sep}{bucket-name}={bucket-value}{time-unit}";
     private final CommandFormatter commandFormatter;
     private final EventFormatter eventFormatter;
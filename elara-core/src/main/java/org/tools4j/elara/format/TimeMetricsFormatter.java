@@ -55,6 +55,10 @@ public interface TimeMetricsFormatter extends MetricsFormatter<TimeMetricsFrame>
     String EVENT_SEQUENCE = "{event-sequence}";
     /** Placeholder in format string for event index value */
     String EVENT_INDEX = "{event-index}";
+    /** Placeholder in format string for payload type value, or '*' if the frame has no payload type */
+    String PAYLOAD_TYPE = "{payload-type}";
+    /** Placeholder in format string for payload type in square brackets, or empty if the frame has no payload type */
+    String PAYLOAD_TYPE_TAG = "{payload-type-tag}";
 
     default Object target(long line, long entryId, TimeMetricsFrame frame) {
         return frame.target();
@@ -74,6 +78,12 @@ public interface TimeMetricsFormatter extends MetricsFormatter<TimeMetricsFrame>
     default Object eventIndex(long line, long entryId, TimeMetricsFrame frame) {
         return frame.eventIndex();
     }
+    default Object payloadType(long line, long entryId, TimeMetricsFrame frame) {
+        return frame.hasPayloadType() ? frame.payloadType() : "*";
+    }
+    default Object payloadTypeTag(long line, long entryId, TimeMetricsFrame frame) {
+        return frame.hasPayloadType() ? "[" + frame.payloadType() + "]" : "";
+    }
 
     @Override
     default Object value(final String placeholder, final long line, final long entryId, final TimeMetricsFrame frame) {
@@ -83,6 +93,8 @@ public interface TimeMetricsFormatter extends MetricsFormatter<TimeMetricsFrame>
             case SOURCE_SEQUENCE: return sourceSequence(entryId, entryId, frame);
             case EVENT_SEQUENCE: return eventSequence(entryId, entryId, frame);
             case EVENT_INDEX: return eventIndex(entryId, entryId, frame);
+            case PAYLOAD_TYPE: return payloadType(entryId, entryId, frame);
+            case PAYLOAD_TYPE_TAG: return payloadTypeTag(entryId, entryId, frame);
             default: return MetricsFormatter.super.value(placeholder, line, entryId, frame);
         }
     }
@@ -25,6 +25,7 @@ package org.tools4j.elara.handler;
 
 import org.tools4j.elara.app.message.Event;
 import org.tools4j.elara.exception.ExceptionHandler;
+import org.tools4j.elara.output.BatchOutput;
 import org.tools4j.elara.output.Output;
 import org.tools4j.elara.output.Output.Ack;
 
@@ -49,4 +50,14 @@ public class DefaultOutputHandler implements OutputHandler {
             return Ack.COMMIT;//to retry handle exception and be explicit
         }
     }
+
+    @Override
+    public void onBatchStart() {
+        BatchOutput.notifyBatchStart(output, exceptionHandler);
+    }
+
+    @Override
+    public void onBatchEnd(final int batchSize) {
+        BatchOutput.notifyBatchEnd(output, batchSize, exceptionHandler);
+    }
 }
@@ -30,4 +30,20 @@ public interface OutputHandler {
     OutputHandler NOOP = (event, replay, retry) -> Ack.IGNORED;
     Ack publish(Event event, boolean replay, int retry);
 
+    /**
+     * Invoked by the publisher before the first event of a batch is published.
+     */
+    default void onBatchStart() {
+        //no-op
+    }
+
+    /**
+     * Invoked by the publisher after the last event of a batch has been published.
+     *
+     * @param batchSize the number of events published in the batch without requesting a retry, zero if the only
+     *                  publish invocation of the batch requested a retry
+     */
+    default void onBatchEnd(final int batchSize) {
+        //no-op
+    }
 }
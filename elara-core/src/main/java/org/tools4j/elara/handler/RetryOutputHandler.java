@@ -25,6 +25,7 @@ package org.tools4j.elara.handler;
 
 import org.tools4j.elara.app.message.Event;
 import org.tools4j.elara.exception.ExceptionHandler;
+import org.tools4j.elara.output.BatchOutput;
 import org.tools4j.elara.output.Output;
 import org.tools4j.elara.output.Output.Ack;
 
@@ -74,4 +75,14 @@ public class RetryOutputHandler implements OutputHandler {
         }
         return Ack.COMMIT;
     }
+
+    @Override
+    public void onBatchStart() {
+        BatchOutput.notifyBatchStart(output, exceptionHandler);
+    }
+
+    @Override
+    public void onBatchEnd(final int batchSize) {
+        BatchOutput.notifyBatchEnd(output, batchSize, exceptionHandler);
+    }
 }
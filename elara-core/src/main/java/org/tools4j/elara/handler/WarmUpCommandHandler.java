@@ -0,0 +1,171 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.handler;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.tools4j.elara.app.handler.CommandProcessor;
+import org.tools4j.elara.app.message.Command;
+import org.tools4j.elara.app.message.Event;
+import org.tools4j.elara.app.state.BaseState;
+import org.tools4j.elara.exception.ExceptionHandler;
+import org.tools4j.elara.flyweight.FlyweightCommand;
+import org.tools4j.elara.route.DefaultEventRouter;
+import org.tools4j.elara.route.EventRouter;
+import org.tools4j.elara.store.BufferingAppender;
+import org.tools4j.elara.time.TimeSource;
+
+import static java.util.Objects.requireNonNull;
+import static org.tools4j.elara.flyweight.CommandDescriptor.HEADER_LENGTH;
+import static org.tools4j.elara.flyweight.CommandDescriptor.HEADER_OFFSET;
+
+/**
+ * Command handler that passes commands to a {@link CommandProcessor} only to warm up the JIT compiler and CPU caches,
+ * for instance in a passive application instance or at startup before the application goes live.  Events routed by
+ * the processor are encoded into a scratch buffer and discarded;  they are neither appended to the event store nor
+ * applied and the application state is therefore not affected.
+ * <p>
+ * Commands can be real commands passed to {@link #onCommand(Command)} or synthetic commands passed to one of the
+ * {@link #processCommand(int, DirectBuffer, int, int) processCommand(..)} methods.  Exceptions thrown by the command
+ * processor are passed to the exception handler.
+ */
+public class WarmUpCommandHandler implements CommandHandler {
+
+    public static final int DEFAULT_SOURCE_ID = Integer.MIN_VALUE;
+    private static final int INITIAL_BUFFER_CAPACITY = 4096;
+
+    private final TimeSource timeSource;
+    private final CommandProcessor commandProcessor;
+    private final ExceptionHandler exceptionHandler;
+    private final DefaultEventRouter eventRouter;
+    private final MutableDirectBuffer header = new ExpandableDirectByteBuffer(HEADER_LENGTH);
+    private final FlyweightCommand command = new FlyweightCommand();
+    private long nextSequence;
+    private long commandCount;
+    private long eventCount;
+
+    public WarmUpCommandHandler(final TimeSource timeSource,
+                                final BaseState baseState,
+                                final CommandProcessor commandProcessor,
+                                final ExceptionHandler exceptionHandler) {
+        this.timeSource = requireNonNull(timeSource);
+        this.commandProcessor = requireNonNull(commandProcessor);
+        this.exceptionHandler = requireNonNull(exceptionHandler);
+        this.eventRouter = new DefaultEventRouter(timeSource, baseState, new ScratchAppender(), this::onEvent);
+    }
+
+    @Override
+    public void onCommand(final Command command) {
+        final EventRouter router = eventRouter.start(command);
+        try {
+            commandProcessor.onCommand(command, router);
+        } catch (final Exception e) {
+            exceptionHandler.handleException("Unhandled exception when processing warm-up command", command, e);
+        } finally {
+            eventRouter.complete();
+            commandCount++;
+        }
+    }
+
+    /**
+     * Processes a synthetic command with {@link #DEFAULT_SOURCE_ID default source ID}.
+     *
+     * @param payloadType   the command payload type
+     * @param payload       the buffer with the command payload
+     * @param offset        offset of the payload in {@code payload}
+     * @param length        the payload length
+     */
+    public void processCommand(final int payloadType, final DirectBuffer payload, final int offset, final int length) {
+        processCommand(DEFAULT_SOURCE_ID, payloadType, payload, offset, length);
+    }
+
+    /**
+     * Processes a synthetic command;  source sequences of synthetic commands are assigned in ascending order.
+     *
+     * @param sourceId      the command source ID
+     * @param payloadType   the command payload type
+     * @param payload       the buffer with the command payload
+     * @param offset        offset of the payload in {@code payload}
+     * @param length        the payload length
+     */
+    public void processCommand(final int sourceId,
+                               final int payloadType,
+                               final DirectBuffer payload,
+                               final int offset,
+                               final int length) {
+        FlyweightCommand.writeHeader(sourceId, nextSequence++, timeSource.currentTime(), payloadType, length,
+                header, HEADER_OFFSET);
+        command.wrapSilently(header, HEADER_OFFSET, payload, offset);
+        try {
+            onCommand(command);
+        } finally {
+            command.reset();
+        }
+    }
+
+    /**
+     * @return the number of commands processed by this handler
+     */
+    public long commandCount() {
+        return commandCount;
+    }
+
+    /**
+     * @return the number of events routed and discarded by this handler
+     */
+    public long eventCount() {
+        return eventCount;
+    }
+
+    private void onEvent(final Event event) {
+        eventCount++;
+    }
+
+    @Override
+    public String toString() {
+        return "WarmUpCommandHandler:commandCount=" + commandCount + "|eventCount=" + eventCount;
+    }
+
+    private static final class ScratchAppender extends BufferingAppender {
+        ScratchAppender() {
+            super(INITIAL_BUFFER_CAPACITY);
+        }
+
+        @Override
+        public void append(final DirectBuffer buffer, final int offset, final int length) {
+            //discard
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            //no-op
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.input;
+
+import org.tools4j.elara.send.BatchingCommandSender;
+import org.tools4j.elara.send.CommandContext;
+import org.tools4j.elara.send.CommandSender;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Batch-aware variant of {@link InputPoller} that sends many commands per poll, for instance to drain a deep upstream
+ * buffer such as an IPC ring in a single duty cycle.
+ * <p>
+ * When used via {@link Input#batch(int, int, BatchInputPoller) Input.batch(..)}, commands are claimed consecutively in
+ * a {@link BatchingCommandSender batch} and sent together after the poll.
+ */
+@FunctionalInterface
+public interface BatchInputPoller {
+    /**
+     * Polls up to {@code maxMessages} messages and sends a command for each of them.
+     *
+     * @param commandContext    the command context with access to command sources and in-flight state
+     * @param commandSender     the command sender to send commands
+     * @param maxMessages       the message budget for this poll, a positive value
+     * @return the number of messages polled, zero if no messages were available
+     */
+    int poll(CommandContext commandContext, CommandSender commandSender, int maxMessages);
+
+    /**
+     * Returns a batch input poller that repeatedly invokes the given input poller until it returns zero or until the
+     * message budget is exhausted.
+     *
+     * @param inputPoller the input poller to invoke repeatedly
+     * @return a batch input poller repeatedly invoking {@code inputPoller}
+     */
+    static BatchInputPoller repeat(final InputPoller inputPoller) {
+        requireNonNull(inputPoller);
+        return (commandContext, commandSender, maxMessages) -> {
+            int count = 0;
+            for (int i = 0; i < maxMessages; i++) {
+                final int polled = inputPoller.poll(commandContext, commandSender);
+                if (polled <= 0) {
+                    break;
+                }
+                count += polled;
+            }
+            return count;
+        };
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.input;
+
+import org.agrona.BufferUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Hashing;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.tools4j.elara.send.CommandContext;
+import org.tools4j.elara.send.CommandSender;
+import org.tools4j.elara.source.CommandSource;
+import org.tools4j.elara.stream.SendingResult;
+
+import static java.util.Objects.requireNonNull;
+import static org.agrona.BitUtil.CACHE_LINE_LENGTH;
+import static org.agrona.BitUtil.align;
+import static org.agrona.BitUtil.findNextPositivePowerOfTwo;
+
+/**
+ * An input poller for last-value-wins sources that conflates commands by key before they are sent.
+ * <p>
+ * Commands sent by the upstream poller are not sent directly but buffered in an off-heap slot table, where a newer
+ * command replaces a still pending command with the same {@link KeyExtractor key}.  When this poller is invoked, it
+ * first drains the upstream poller and then sends the most recent value per key through the real command sender.
+ * Conflated commands are sent in the order in which their key first appeared since the last time all pending
+ * commands were sent.
+ * <p>
+ * If the slot table is full, commands with a new key are rejected with {@link SendingResult#BACK_PRESSURED} and the
+ * upstream poller is not polled again until pending commands have been sent.
+ */
+public class ConflatingInputPoller implements InputPoller {
+
+    public static final int DEFAULT_MAX_UPSTREAM_POLLS = 64;
+
+    private static final int KEY_OFFSET = 0;
+    private static final int GENERATION_OFFSET = KEY_OFFSET + Long.BYTES;
+    private static final int STATE_OFFSET = GENERATION_OFFSET + Integer.BYTES;
+    private static final int PAYLOAD_TYPE_OFFSET = STATE_OFFSET + Integer.BYTES;
+    private static final int PAYLOAD_LENGTH_OFFSET = PAYLOAD_TYPE_OFFSET + Integer.BYTES;
+    private static final int PAYLOAD_OFFSET = align(PAYLOAD_LENGTH_OFFSET + Integer.BYTES, Long.BYTES);
+
+    private static final int STATE_SENT = 0;
+    private static final int STATE_PENDING = 1;
+
+    /**
+     * Extracts the conflation key from a command payload;  commands with the same key are conflated.
+     */
+    @FunctionalInterface
+    public interface KeyExtractor {
+        /**
+         * Returns the conflation key for the given command payload.
+         *
+         * @param payloadType   the payload type of the command
+         * @param buffer        the buffer containing the command payload
+         * @param offset        the offset of the payload in {@code buffer}
+         * @param length        the payload length in bytes
+         * @return the key used to conflate commands
+         */
+        long conflationKey(int payloadType, DirectBuffer buffer, int offset, int length);
+    }
+
+    private final InputPoller upstreamPoller;
+    private final KeyExtractor keyExtractor;
+    private final int maxKeys;
+    private final int maxPayloadLength;
+    private final int maxUpstreamPolls;
+    private final int slotLength;
+    private final int mask;
+    private final UnsafeBuffer slots;
+    private final int[] pending;
+    private final ConflatingSender conflatingSender;
+
+    private int generation = 1;
+    private int occupied;
+    private int pendingStart;
+    private int pendingEnd;
+
+    private long messagesReceived;
+    private long messagesConflated;
+    private long commandsSent;
+
+    public ConflatingInputPoller(final InputPoller upstreamPoller,
+                                 final KeyExtractor keyExtractor,
+                                 final int maxKeys,
+                                 final int maxPayloadLength) {
+        this(upstreamPoller, keyExtractor, maxKeys, maxPayloadLength, DEFAULT_MAX_UPSTREAM_POLLS);
+    }
+
+    public ConflatingInputPoller(final InputPoller upstreamPoller,
+                                 final KeyExtractor keyExtractor,
+                                 final int maxKeys,
+                                 final int maxPayloadLength,
+                                 final int maxUpstreamPolls) {
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("Max keys must be positive: " + maxKeys);
+        }
+        if (maxPayloadLength < 0) {
+            throw new IllegalArgumentException("Max payload length cannot be negative: " + maxPayloadLength);
+        }
+        if (maxUpstreamPolls <= 0) {
+            throw new IllegalArgumentException("Max upstream polls must be positive: " + maxUpstreamPolls);
+        }
+        this.upstreamPoller = requireNonNull(upstreamPoller);
+        this.keyExtractor = requireNonNull(keyExtractor);
+        this.maxKeys = maxKeys;
+        this.maxPayloadLength = maxPayloadLength;
+        this.maxUpstreamPolls = maxUpstreamPolls;
+        this.slotLength = align(PAYLOAD_OFFSET + maxPayloadLength, Long.BYTES);
+        final int slotCount = findNextPositivePowerOfTwo(2 * maxKeys);
+        this.mask = slotCount - 1;
+        this.slots = new UnsafeBuffer(BufferUtil.allocateDirectAligned(slotCount * slotLength, CACHE_LINE_LENGTH));
+        this.pending = new int[maxKeys];
+        this.conflatingSender = new ConflatingSender(maxPayloadLength);
+    }
+
+    /** @return the number of messages received from the upstream poller */
+    public long messagesReceived() {
+        return messagesReceived;
+    }
+
+    /** @return the number of messages that replaced a pending message with the same key */
+    public long messagesConflated() {
+        return messagesConflated;
+    }
+
+    /** @return the number of conflated commands sent through the command sender */
+    public long commandsSent() {
+        return commandsSent;
+    }
+
+    /** @return the number of conflated commands currently waiting to be sent */
+    public int pendingCommands() {
+        return pendingEnd - pendingStart;
+    }
+
+    @Override
+    public int poll(final CommandContext commandContext, final CommandSender commandSender) {
+        int workCount = 0;
+        conflatingSender.init(commandSender);
+        try {
+            for (int i = 0; i < maxUpstreamPolls && !conflatingSender.backPressured; i++) {
+                final int polled = upstreamPoller.poll(commandContext, conflatingSender);
+                if (polled <= 0) {
+                    break;
+                }
+                workCount += polled;
+            }
+        } finally {
+            conflatingSender.reset();
+        }
+        return workCount + sendPending(commandSender);
+    }
+
+    private int sendPending(final CommandSender commandSender) {
+        int sent = 0;
+        while (pendingStart < pendingEnd) {
+            final int offset = pending[pendingStart] * slotLength;
+            final SendingResult result = commandSender.sendCommand(
+                    slots.getInt(offset + PAYLOAD_TYPE_OFFSET),
+                    slots, offset + PAYLOAD_OFFSET,
+                    slots.getInt(offset + PAYLOAD_LENGTH_OFFSET));
+            if (result != SendingResult.SENT) {
+                break;
+            }
+            slots.putInt(offset + STATE_OFFSET, STATE_SENT);
+            pendingStart++;
+            sent++;
+        }
+        commandsSent += sent;
+        if (pendingStart == pendingEnd && occupied > 0) {
+            clearSlots();
+        }
+        return sent;
+    }
+
+    private void clearSlots() {
+        occupied = 0;
+        pendingStart = 0;
+        pendingEnd = 0;
+        generation++;
+        if (generation == 0) {
+            //NOTE: generation wrapped, we need to actually clear the slots now
+            slots.setMemory(0, slots.capacity(), (byte)0);
+            generation = 1;
+        }
+    }
+
+    private int slotIndex(final long key) {
+        int index = Hashing.hash(key, mask);
+        while (true) {
+            final int offset = index * slotLength;
+            if (slots.getInt(offset + GENERATION_OFFSET) != generation ||
+                    slots.getLong(offset + KEY_OFFSET) == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void addPending(final int slotIndex) {
+        if (pendingEnd == pending.length) {
+            final int count = pendingEnd - pendingStart;
+            System.arraycopy(pending, pendingStart, pending, 0, count);
+            pendingStart = 0;
+            pendingEnd = count;
+        }
+        pending[pendingEnd] = slotIndex;
+        pendingEnd++;
+    }
+
+    private SendingResult offer(final int payloadType, final DirectBuffer buffer, final int offset, final int length) {
+        if (length > maxPayloadLength) {
+            throw new IllegalArgumentException("Payload length " + length + " exceeds max payload length " +
+                    maxPayloadLength);
+        }
+        final long key = keyExtractor.conflationKey(payloadType, buffer, offset, length);
+        final int slotIndex = slotIndex(key);
+        final int slotOffset = slotIndex * slotLength;
+        if (slots.getInt(slotOffset + GENERATION_OFFSET) != generation) {
+            if (occupied >= maxKeys) {
+                return SendingResult.BACK_PRESSURED;
+            }
+            occupied++;
+            slots.putLong(slotOffset + KEY_OFFSET, key);
+            slots.putInt(slotOffset + GENERATION_OFFSET, generation);
+            addPending(slotIndex);
+        } else if (slots.getInt(slotOffset + STATE_OFFSET) == STATE_PENDING) {
+            messagesConflated++;
+        } else {
+            addPending(slotIndex);
+        }
+        slots.putInt(slotOffset + STATE_OFFSET, STATE_PENDING);
+        slots.putInt(slotOffset + PAYLOAD_TYPE_OFFSET, payloadType);
+        slots.putInt(slotOffset + PAYLOAD_LENGTH_OFFSET, length);
+        slots.putBytes(slotOffset + PAYLOAD_OFFSET, buffer, offset, length);
+        messagesReceived++;
+        return SendingResult.SENT;
+    }
+
+    private final class ConflatingSender implements CommandSender.Default {
+        final SendingContext sendingContext;
+        CommandSender commandSender;
+        boolean backPressured;
+
+        ConflatingSender(final int maxPayloadLength) {
+            this.sendingContext = new SendingContext(maxPayloadLength);
+        }
+
+        void init(final CommandSender commandSender) {
+            this.commandSender = requireNonNull(commandSender);
+            this.backPressured = false;
+        }
+
+        void reset() {
+            sendingContext.abort();
+            commandSender = null;
+        }
+
+        CommandSender unclosedSender() {
+            if (commandSender != null) {
+                return commandSender;
+            }
+            throw new IllegalStateException("Conflating sender can only be used when polling");
+        }
+
+        @Override
+        public CommandSource source() {
+            return unclosedSender().source();
+        }
+
+        @Override
+        public int sourceId() {
+            return unclosedSender().sourceId();
+        }
+
+        @Override
+        public long nextCommandSequence() {
+            return unclosedSender().nextCommandSequence();
+        }
+
+        @Override
+        public CommandSender.SendingContext sendingCommand(final int payloadType) {
+            return sendingContext.init(payloadType);
+        }
+
+        @Override
+        public SendingResult sendCommand(final int payloadType, final DirectBuffer buffer, final int offset, final int length) {
+            //noinspection ResultOfMethodCallIgnored
+            unclosedSender();
+            return onResult(offer(payloadType, buffer, offset, length));
+        }
+
+        SendingResult onResult(final SendingResult result) {
+            if (result == SendingResult.BACK_PRESSURED) {
+                backPressured = true;
+            }
+            return result;
+        }
+
+        final class SendingContext implements CommandSender.SendingContext {
+            final MutableDirectBuffer buffer;
+            int payloadType;
+            boolean closed = true;
+
+            SendingContext(final int maxPayloadLength) {
+                this.buffer = new UnsafeBuffer(BufferUtil.allocateDirectAligned(
+                        align(Math.max(maxPayloadLength, 1), CACHE_LINE_LENGTH), CACHE_LINE_LENGTH));
+            }
+
+            SendingContext init(final int payloadType) {
+                //noinspection ResultOfMethodCallIgnored
+                unclosedSender();
+                if (!closed) {
+                    abort();
+                    throw new IllegalStateException("Sending context not closed");
+                }
+                this.payloadType = payloadType;
+                this.closed = false;
+                return this;
+            }
+
+            void ensureNotClosed() {
+                if (closed) {
+                    throw new IllegalStateException("Sending context is closed");
+                }
+            }
+
+            @Override
+            public int sourceId() {
+                ensureNotClosed();
+                return ConflatingSender.this.sourceId();
+            }
+
+            /**
+             * Returns the sequence the command would get if it was sent now;  the actual sequence is only assigned
+             * when the conflated command is sent.
+             * @return the next command sequence of the underlying command sender
+             */
+            @Override
+            public long sourceSequence() {
+                ensureNotClosed();
+                return nextCommandSequence();
+            }
+
+            @Override
+            public MutableDirectBuffer buffer() {
+                ensureNotClosed();
+                return buffer;
+            }
+
+            @Override
+            public SendingResult send(final int length) {
+                ensureNotClosed();
+                if (length < 0) {
+                    throw new IllegalArgumentException("Length cannot be negative: " + length);
+                }
+                try {
+                    return onResult(offer(payloadType, buffer, 0, length));
+                } finally {
+                    closed = true;
+                }
+            }
+
+            @Override
+            public void abort() {
+                closed = true;
+            }
+
+            @Override
+            public boolean isClosed() {
+                return closed;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConflatingInputPoller" +
+                ":max-keys=" + maxKeys +
+                "|max-payload-length=" + maxPayloadLength +
+                "|messages-received=" + messagesReceived +
+                "|messages-conflated=" + messagesConflated +
+                "|commands-sent=" + commandsSent +
+                "|pending-commands=" + pendingCommands();
+    }
+}
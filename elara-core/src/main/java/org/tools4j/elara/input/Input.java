@@ -23,6 +23,7 @@
  */
 package org.tools4j.elara.input;
 
+import org.tools4j.elara.send.BatchingCommandSender;
 import org.tools4j.elara.send.CommandContext;
 import org.tools4j.elara.source.CommandSource;
 import org.tools4j.elara.step.AgentStep;
@@ -59,6 +60,30 @@ public interface Input {
         };
     }
 
+    static Input batch(final int sourceId, final int maxBatchSize, final BatchInputPoller inputPoller) {
+        requireNonNull(inputPoller);
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive: " + maxBatchSize);
+        }
+        return commandContext -> {
+            final CommandSource commandSource = commandContext.commandSources().sourceById(sourceId);
+            final BatchingCommandSender batchingSender = new BatchingCommandSender(commandSource);
+            return () -> {
+                final int budget = maxBatchSize - batchingSender.pendingCommands();
+                final int polled = budget > 0 ? inputPoller.poll(commandContext, batchingSender, budget) : 0;
+                return polled + batchingSender.flush();
+            };
+        };
+    }
+
+    static Input conflating(final int sourceId,
+                            final InputPoller inputPoller,
+                            final ConflatingInputPoller.KeyExtractor keyExtractor,
+                            final int maxKeys,
+                            final int maxPayloadLength) {
+        return single(sourceId, new ConflatingInputPoller(inputPoller, keyExtractor, maxKeys, maxPayloadLength));
+    }
+
     static Input multi(final MultiSourceInput input) {
         requireNonNull(input);
         return commandContext -> () -> input.poll(commandContext, commandContext.commandSources());
@@ -0,0 +1,239 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.output;
+
+import org.tools4j.elara.app.message.Event;
+import org.tools4j.elara.exception.ExceptionHandler;
+import org.tools4j.elara.handler.OutputHandler;
+import org.tools4j.elara.output.Output.Ack;
+import org.tools4j.elara.step.AgentStep;
+import org.tools4j.elara.step.PollerPublisherStep;
+import org.tools4j.elara.store.MessageStore;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+import static org.tools4j.elara.sequence.SequenceSupplier.NIL_SEQUENCE;
+
+/**
+ * Publishes events to an {@link Output} independently of the engine, typically on a dedicated thread or on a thread
+ * shared with other async outputs;  see {@link AsyncOutputs}.
+ * <p>
+ * Events are polled from the event store through a named tracking poller so that every async output maintains its own
+ * durable position.  Event stores without tracking poller support require an {@link OutputCheckpoint} instead;
+ * construction fails with an {@link IllegalArgumentException} otherwise.  If the output returns {@link Ack#RETRY RETRY}, the event is
+ * retried after an exponentially increasing backoff period, and other outputs as well as the engine are not affected.
+ * <p>
+ * If the output is a {@link BatchOutput}, up to {@link BatchOutput#maxBatchSize() maxBatchSize} events are published
+ * per invocation and the output is notified about batch boundaries.
+ * <p>
+ * An {@link OutputCheckpoint} can be provided to persist the position of the output independently of the store;
+ * the output then resumes publishing after the checkpointed event on restart.
+ * <p>
+ * The position of the output is available through {@link #publishedEventSequence()}.  To track the lag behind the
+ * engine, the output is grouped in {@link AsyncOutputs} whose {@link AsyncOutputs#engineOutput() engine output} must be
+ * configured as output of the elara application;  see {@link AsyncOutputs} for an example.
+ */
+public class AsyncOutput implements AgentStep {
+
+    public static final String POLLER_ID_PREFIX = "elara-async-output-";
+    public static final long DEFAULT_INITIAL_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    public static final long DEFAULT_MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+    public static final int DEFAULT_MAX_RETRIES = Integer.MAX_VALUE;
+
+    private final String name;
+    private final Output output;
+    private final ExceptionHandler exceptionHandler;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final int maxRetries;
+    private final Exception outputRetriesFailed;
+    private final AgentStep publisherStep;
+    private final AtomicLong publishedEventSequence = new AtomicLong(NIL_SEQUENCE);
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private long backoffNanos;
+    private long retryTimeNanos;
+
+    public AsyncOutput(final String name,
+                       final Output output,
+                       final MessageStore eventStore,
+                       final ExceptionHandler exceptionHandler) {
+        this(name, output, eventStore, exceptionHandler,
+                DEFAULT_INITIAL_BACKOFF_NANOS, DEFAULT_MAX_BACKOFF_NANOS, DEFAULT_MAX_RETRIES);
+    }
+
+    public AsyncOutput(final String name,
+                       final Output output,
+                       final MessageStore eventStore,
+                       final OutputCheckpoint checkpoint,
+                       final ExceptionHandler exceptionHandler) {
+        this(name, output, eventStore, checkpoint, exceptionHandler,
+                DEFAULT_INITIAL_BACKOFF_NANOS, DEFAULT_MAX_BACKOFF_NANOS, DEFAULT_MAX_RETRIES);
+    }
+
+    public AsyncOutput(final String name,
+                       final Output output,
+                       final MessageStore eventStore,
+                       final ExceptionHandler exceptionHandler,
+                       final long initialBackoffNanos,
+                       final long maxBackoffNanos,
+                       final int maxRetries) {
+        this(name, output, eventStore, null, exceptionHandler, initialBackoffNanos, maxBackoffNanos, maxRetries);
+    }
+
+    public AsyncOutput(final String name,
+                       final Output output,
+                       final MessageStore eventStore,
+                       final OutputCheckpoint checkpoint,
+                       final ExceptionHandler exceptionHandler,
+                       final long initialBackoffNanos,
+                       final long maxBackoffNanos,
+                       final int maxRetries) {
+        if (initialBackoffNanos <= 0 || maxBackoffNanos < initialBackoffNanos) {
+            throw new IllegalArgumentException("Invalid backoff nanos: initial=" + initialBackoffNanos +
+                    ", max=" + maxBackoffNanos);
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Max retries cannot be negative: " + maxRetries);
+        }
+        this.name = requireNonNull(name);
+        this.output = requireNonNull(output);
+        this.exceptionHandler = requireNonNull(exceptionHandler);
+        this.initialBackoffNanos = initialBackoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+        this.maxRetries = maxRetries;
+        this.outputRetriesFailed = new IllegalStateException("Event output " + name + " failed after " + maxRetries +
+                " retry attempts");
+        this.publisherStep = publisherStep(POLLER_ID_PREFIX + name, eventStore, checkpoint);
+    }
+
+    private AgentStep publisherStep(final String pollerId,
+                                    final MessageStore eventStore,
+                                    final OutputCheckpoint checkpoint) {
+        if (checkpoint != null) {
+            return PollerPublisherStep.committedEventsPoller(outputHandler(), eventStore, checkpoint,
+                    BatchOutput.maxBatchSize(output));
+        }
+        try {
+            return PollerPublisherStep.committedEventsPoller(outputHandler(), eventStore, pollerId,
+                    BatchOutput.maxBatchSize(output));
+        } catch (final UnsupportedOperationException e) {
+            throw new IllegalArgumentException("Event store does not support tracking pollers, async output " + name +
+                    " requires an output checkpoint to maintain its position", e);
+        }
+    }
+
+    private OutputHandler outputHandler() {
+        if (!(output instanceof BatchOutput)) {
+            return this::publish;
+        }
+        final BatchOutput batchOutput = (BatchOutput)output;
+        return new OutputHandler() {
+            @Override
+            public Ack publish(final Event event, final boolean replay, final int retry) {
+                return AsyncOutput.this.publish(event, replay, retry);
+            }
+
+            @Override
+            public void onBatchStart() {
+                BatchOutput.notifyBatchStart(batchOutput, exceptionHandler);
+            }
+
+            @Override
+            public void onBatchEnd(final int batchSize) {
+                BatchOutput.notifyBatchEnd(batchOutput, batchSize, exceptionHandler);
+            }
+        };
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the sequence of the event last published through this output;  safe to be invoked from any thread.
+     * @return the sequence of the last published event, or {@link org.tools4j.elara.sequence.SequenceSupplier#NIL_SEQUENCE NIL_SEQUENCE} if none
+     */
+    public long publishedEventSequence() {
+        return publishedEventSequence.get();
+    }
+
+    /** @return the number of retries so far; safe to be invoked from any thread */
+    public long retryCount() {
+        return retryCount.get();
+    }
+
+    /** @return the number of events that failed to publish so far; safe to be invoked from any thread */
+    public long failureCount() {
+        return failureCount.get();
+    }
+
+    @Override
+    public int doWork() {
+        if (backoffNanos > 0 && System.nanoTime() - retryTimeNanos < 0) {
+            return 0;
+        }
+        return publisherStep.doWork();
+    }
+
+    private Ack publish(final Event event, final boolean replay, final int retry) {
+        try {
+            final Ack ack = output.publish(event, replay, retry);
+            if (ack == Ack.RETRY) {
+                if (retry < maxRetries) {
+                    backoffNanos = backoffNanos == 0 ? initialBackoffNanos : Math.min(2 * backoffNanos, maxBackoffNanos);
+                    retryTimeNanos = System.nanoTime() + backoffNanos;
+                    retryCount.lazySet(retryCount.get() + 1);
+                    return Ack.RETRY;
+                }
+                onFailure(event, outputRetriesFailed);
+                return Ack.COMMIT;
+            }
+            backoffNanos = 0;
+            publishedEventSequence.lazySet(event.eventSequence());
+            return ack;
+        } catch (final Throwable t) {
+            onFailure(event, t);
+            return Ack.COMMIT;
+        }
+    }
+
+    private void onFailure(final Event event, final Throwable t) {
+        backoffNanos = 0;
+        failureCount.lazySet(failureCount.get() + 1);
+        publishedEventSequence.lazySet(event.eventSequence());
+        exceptionHandler.handleEventOutputException(event, t);
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncOutput" +
+                ":name=" + name +
+                "|published-evt-seq=" + publishedEventSequence() +
+                "|retry-count=" + retryCount() +
+                "|failure-count=" + failureCount();
+    }
+}
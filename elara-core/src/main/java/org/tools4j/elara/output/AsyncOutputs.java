@@ -0,0 +1,177 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.output;
+
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.IdleStrategy;
+import org.tools4j.elara.app.message.Event;
+import org.tools4j.elara.exception.ExceptionHandler;
+import org.tools4j.elara.output.Output.Ack;
+import org.tools4j.elara.run.ElaraRunner;
+import org.tools4j.elara.step.AgentStep;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+import static org.tools4j.elara.sequence.SequenceSupplier.NIL_SEQUENCE;
+
+/**
+ * A group of {@link AsyncOutput async outputs} that publish events independently of the engine, either each on its
+ * own thread or all on a shared output thread.
+ * <p>
+ * The {@link #engineOutput() engine output} is configured as output of the elara application and records the
+ * sequence of the latest event available in the engine.  It never blocks and never retries, hence slow or failing
+ * downstream systems do not stall command processing.  The engine sequence is used to derive the
+ * {@link #lag(int) lag} of every async output.
+ * <p>
+ * The engine output is not wired automatically and must be passed to the app configuration, for instance:
+ * <pre>
+ *     final AsyncOutputs asyncOutputs = new AsyncOutputs(
+ *             new AsyncOutput("downstream", downstreamOutput, eventStore, exceptionHandler));
+ *     final ElaraRunner engine = app.launch(config -&gt; config
+ *             .eventStore(eventStore)
+ *             .output(asyncOutputs.engineOutput()));
+ *     final ElaraRunner outputs = asyncOutputs.launchShared(idleStrategy, exceptionHandler);
+ * </pre>
+ * The async outputs publish events without the engine output, but {@link #engineEventSequence()} then remains
+ * {@link org.tools4j.elara.sequence.SequenceSupplier#NIL_SEQUENCE NIL_SEQUENCE} and {@link #lag(int) lag} is always
+ * zero.
+ */
+public class AsyncOutputs {
+
+    public static final String ROLE_NAME_PREFIX = "elara-async-out-";
+
+    private final AsyncOutput[] outputs;
+    private final AtomicLong engineEventSequence = new AtomicLong(NIL_SEQUENCE);
+    private final Output engineOutput = this::onEngineEvent;
+
+    public AsyncOutputs(final AsyncOutput... outputs) {
+        this.outputs = requireNonNull(outputs);
+        for (final AsyncOutput output : outputs) {
+            requireNonNull(output);
+        }
+    }
+
+    private Ack onEngineEvent(final Event event, final boolean replay, final int retry) {
+        engineEventSequence.lazySet(event.eventSequence());
+        return Ack.IGNORED;
+    }
+
+    /**
+     * Returns the output to be configured in the elara application.
+     * @return an output that records the sequence of the latest event available in the engine
+     */
+    public Output engineOutput() {
+        return engineOutput;
+    }
+
+    public int count() {
+        return outputs.length;
+    }
+
+    public AsyncOutput output(final int index) {
+        return outputs[index];
+    }
+
+    /**
+     * Returns the sequence of the latest event passed to the {@link #engineOutput() engine output}; safe to be invoked
+     * from any thread.
+     * @return the sequence of the latest event seen by the engine output
+     */
+    public long engineEventSequence() {
+        return engineEventSequence.get();
+    }
+
+    /**
+     * Returns the number of events that are available in the engine but have not yet been published by the output at
+     * the given index;  safe to be invoked from any thread.
+     *
+     * @param index the output index, a value in {@code [0..(count-1)]}
+     * @return the number of events the output is lagging behind the engine, zero if it is up-to-date
+     */
+    public long lag(final int index) {
+        final long engineSeq = engineEventSequence();
+        final long publishedSeq = outputs[index].publishedEventSequence();
+        return Math.max(0, engineSeq - publishedSeq);
+    }
+
+    /**
+     * Starts every async output on its own thread.
+     *
+     * @param idleStrategySupplier  supplier for the idle strategy of each output thread
+     * @param exceptionHandler      the handler for unhandled exceptions
+     * @return the runners for the started output threads, one per output
+     */
+    public ElaraRunner[] launchDedicated(final Supplier<? extends IdleStrategy> idleStrategySupplier,
+                                         final ExceptionHandler exceptionHandler) {
+        requireNonNull(idleStrategySupplier);
+        requireNonNull(exceptionHandler);
+        final ElaraRunner[] runners = new ElaraRunner[outputs.length];
+        for (int i = 0; i < outputs.length; i++) {
+            runners[i] = launch(ROLE_NAME_PREFIX + outputs[i].name(), outputs[i], idleStrategySupplier.get(),
+                    exceptionHandler);
+        }
+        return runners;
+    }
+
+    /**
+     * Starts all async outputs on a single shared output thread.
+     *
+     * @param idleStrategy      the idle strategy for the output thread
+     * @param exceptionHandler  the handler for unhandled exceptions
+     * @return the runner for the started output thread
+     */
+    public ElaraRunner launchShared(final IdleStrategy idleStrategy, final ExceptionHandler exceptionHandler) {
+        final AgentStep sharedStep = AgentStep.composite(Arrays.copyOf(outputs, outputs.length, AgentStep[].class));
+        return launch(ROLE_NAME_PREFIX + "shared", sharedStep, idleStrategy, exceptionHandler);
+    }
+
+    private static ElaraRunner launch(final String roleName,
+                                      final AgentStep step,
+                                      final IdleStrategy idleStrategy,
+                                      final ExceptionHandler exceptionHandler) {
+        final Agent agent = new Agent() {
+            @Override
+            public int doWork() {
+                return step.doWork();
+            }
+
+            @Override
+            public String roleName() {
+                return roleName;
+            }
+        };
+        return ElaraRunner.startOnThread(new AgentRunner(idleStrategy, exceptionHandler, null, agent));
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncOutputs" +
+                ":engine-evt-seq=" + engineEventSequence() +
+                "|outputs=" + Arrays.toString(outputs);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.output;
+
+import org.tools4j.elara.app.message.Event;
+import org.tools4j.elara.exception.ExceptionHandler;
+
+/**
+ * An {@link Output} that is notified about the start and the end of every batch of events published through a single
+ * invocation of the publisher step.  Outputs writing to sockets or messaging systems can use the batch boundaries to
+ * coalesce individual writes and flush them all at once when the batch ends.
+ * <p>
+ * A batch ends when no more events are available, when {@link #maxBatchSize()} events have been published or when an
+ * event is to be retried after {@link Ack#RETRY RETRY} was returned.
+ */
+public interface BatchOutput extends Output {
+    int DEFAULT_MAX_BATCH_SIZE = 64;
+
+    /**
+     * Invoked before the first event of a batch is {@link #publish(Event, boolean, int) published}.
+     */
+    void onBatchStart();
+
+    /**
+     * Invoked after the last event of a batch has been {@link #publish(Event, boolean, int) published}.
+     *
+     * @param batchSize the number of events published in this batch without requesting a retry, zero if the only
+     *                  publish invocation of the batch requested a retry
+     */
+    void onBatchEnd(int batchSize);
+
+    /**
+     * Returns the maximum number of events published in a single batch.
+     * @return the max batch size, a positive value
+     */
+    default int maxBatchSize() {
+        return DEFAULT_MAX_BATCH_SIZE;
+    }
+
+    /**
+     * Returns the max batch size for the given output.
+     * @param output the output
+     * @return the output's {@link #maxBatchSize()} if it is a batch output, and one otherwise
+     */
+    static int maxBatchSize(final Output output) {
+        return output instanceof BatchOutput ? ((BatchOutput)output).maxBatchSize() : 1;
+    }
+
+    /**
+     * Invokes {@link #onBatchStart()} if the given output is a batch output;  exceptions are passed to the exception
+     * handler.
+     *
+     * @param output            the output, a batch output or any other output in which case the call is ignored
+     * @param exceptionHandler  the handler for exceptions thrown by the output
+     */
+    static void notifyBatchStart(final Output output, final ExceptionHandler exceptionHandler) {
+        if (output instanceof BatchOutput) {
+            try {
+                ((BatchOutput)output).onBatchStart();
+            } catch (final Throwable t) {
+                exceptionHandler.handleException("Unhandled exception when starting output batch", output, t);
+            }
+        }
+    }
+
+    /**
+     * Invokes {@link #onBatchEnd(int)} if the given output is a batch output;  exceptions are passed to the exception
+     * handler.
+     *
+     * @param output            the output, a batch output or any other output in which case the call is ignored
+     * @param batchSize         the number of publish invocations in the batch
+     * @param exceptionHandler  the handler for exceptions thrown by the output
+     */
+    static void notifyBatchEnd(final Output output, final int batchSize, final ExceptionHandler exceptionHandler) {
+        if (output instanceof BatchOutput) {
+            try {
+                ((BatchOutput)output).onBatchEnd(batchSize);
+            } catch (final Throwable t) {
+                exceptionHandler.handleException("Unhandled exception when ending output batch", output, t);
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.output;
+
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.util.Objects.requireNonNull;
+import static org.tools4j.elara.sequence.SequenceSupplier.NIL_SEQUENCE;
+
+/**
+ * An {@link OutputCheckpoint} persisted in a small memory mapped file.
+ * <p>
+ * Updates are plain ordered writes to the mapped memory which are flushed to disk asynchronously by the operating
+ * system;  the publisher is never blocked by file I/O.  Updates survive a crash of the process, and {@link #force()}
+ * can be used to explicitly flush the checkpoint if it should also survive a crash of the operating system.
+ * <p>
+ * File layout:
+ * <pre>
+ *   0: int   magic number
+ *   4: int   version
+ *   8: long  entry ID of last published event
+ *  16: long  sequence of last published event
+ * </pre>
+ */
+public class MappedOutputCheckpoint implements OutputCheckpoint {
+
+    public static final int MAGIC = 0xE1A4C0C9;
+    public static final int VERSION = 1;
+    public static final int MAGIC_OFFSET = 0;
+    public static final int VERSION_OFFSET = MAGIC_OFFSET + Integer.BYTES;
+    public static final int ENTRY_ID_OFFSET = VERSION_OFFSET + Integer.BYTES;
+    public static final int EVENT_SEQUENCE_OFFSET = ENTRY_ID_OFFSET + Long.BYTES;
+    public static final int FILE_LENGTH = 64;
+
+    private final File file;
+    private final MappedByteBuffer mappedBuffer;
+    private final UnsafeBuffer buffer;
+    private boolean closed;
+
+    private MappedOutputCheckpoint(final File file, final MappedByteBuffer mappedBuffer) {
+        this.file = requireNonNull(file);
+        this.mappedBuffer = requireNonNull(mappedBuffer);
+        this.buffer = new UnsafeBuffer(mappedBuffer);
+    }
+
+    public static MappedOutputCheckpoint open(final File file) {
+        requireNonNull(file);
+        if (file.exists()) {
+            if (file.length() < FILE_LENGTH) {
+                throw new IllegalStateException("Invalid checkpoint file length " + file.length() + ": " + file);
+            }
+            final MappedOutputCheckpoint checkpoint = new MappedOutputCheckpoint(file,
+                    IoUtil.mapExistingFile(file, FileChannel.MapMode.READ_WRITE, file.getAbsolutePath(), 0, FILE_LENGTH));
+            final int magic = checkpoint.buffer.getIntVolatile(MAGIC_OFFSET);
+            final int version = checkpoint.buffer.getInt(VERSION_OFFSET);
+            if (magic != MAGIC || version != VERSION) {
+                checkpoint.close();
+                throw new IllegalStateException("Invalid checkpoint file with magic=" + Integer.toHexString(magic) +
+                        " and version=" + version + ": " + file);
+            }
+            return checkpoint;
+        }
+        final MappedOutputCheckpoint checkpoint = new MappedOutputCheckpoint(file, IoUtil.mapNewFile(file, FILE_LENGTH));
+        checkpoint.buffer.putLong(ENTRY_ID_OFFSET, NIL_SEQUENCE);
+        checkpoint.buffer.putLong(EVENT_SEQUENCE_OFFSET, NIL_SEQUENCE);
+        checkpoint.buffer.putInt(VERSION_OFFSET, VERSION);
+        checkpoint.buffer.putIntOrdered(MAGIC_OFFSET, MAGIC);
+        return checkpoint;
+    }
+
+    public File file() {
+        return file;
+    }
+
+    @Override
+    public long eventSequence() {
+        return buffer.getLongVolatile(EVENT_SEQUENCE_OFFSET);
+    }
+
+    @Override
+    public long entryId() {
+        return buffer.getLongVolatile(ENTRY_ID_OFFSET);
+    }
+
+    @Override
+    public void update(final long entryId, final long eventSequence) {
+        //NOTE: a crash between the two writes leaves an entry ID not matching the sequence, the sequence is then used
+        //      to seek to the event and the entry ID is ignored
+        buffer.putLongOrdered(ENTRY_ID_OFFSET, entryId);
+        buffer.putLongOrdered(EVENT_SEQUENCE_OFFSET, eventSequence);
+    }
+
+    /**
+     * Synchronously flushes the checkpoint to disk.
+     */
+    public void force() {
+        mappedBuffer.force();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            IoUtil.unmap(mappedBuffer);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MappedOutputCheckpoint" +
+                ":file=" + file +
+                "|evt-seq=" + (closed ? "?" : String.valueOf(eventSequence())) +
+                "|entry-id=" + (closed ? "?" : String.valueOf(entryId()));
+    }
+}
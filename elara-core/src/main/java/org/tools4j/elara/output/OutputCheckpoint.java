@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.output;
+
+import java.io.File;
+
+/**
+ * Checkpoint with the last event published through an output.  A publisher with a checkpoint seeks directly to the
+ * checkpointed event on start and continues publishing with the next event;  events up to and including the
+ * checkpointed event are not re-published.
+ * <p>
+ * The checkpoint records the store entry ID and the sequence of the last published event.  The entry ID is used to
+ * position the publisher in constant time, and the event sequence is used to validate the position and to seek by
+ * sequence if the entry ID cannot be found in the event store.
+ */
+public interface OutputCheckpoint extends AutoCloseable {
+    /**
+     * @return the sequence of the last published event, or {@link org.tools4j.elara.sequence.SequenceSupplier#NIL_SEQUENCE NIL_SEQUENCE} if no
+     *         event has been published yet
+     */
+    long eventSequence();
+
+    /**
+     * @return the store entry ID of the last published event, only valid if {@link #eventSequence()} is not nil
+     */
+    long entryId();
+
+    /**
+     * Updates the checkpoint after publishing an event.
+     *
+     * @param entryId       the store entry ID of the published event
+     * @param eventSequence the sequence of the published event
+     */
+    void update(long entryId, long eventSequence);
+
+    boolean isClosed();
+
+    @Override
+    void close();
+
+    /**
+     * Opens or creates a checkpoint persisted in a memory mapped file.
+     *
+     * @param file the checkpoint file, created if it does not exist
+     * @return the checkpoint mapped to the given file
+     */
+    static OutputCheckpoint mapped(final File file) {
+        return MappedOutputCheckpoint.open(file);
+    }
+}
@@ -37,15 +37,18 @@ final class ActivationCommandPollerHandler implements Handler {
     private final ActivationPlugin plugin;
     private final EventApplicationState eventApplicationState;
     private final CommandHandler commandHandler;
+    private final CommandHandler passiveCommandHandler;
     private final FlyweightCommand flyweightCommand = new FlyweightCommand();
 
     public ActivationCommandPollerHandler(final ActivationPlugin plugin,
                                           final BaseState baseState,
-                                          final CommandHandler commandHandler) {
+                                          final CommandHandler commandHandler,
+                                          final CommandHandler passiveCommandHandler) {
         this.mode = plugin.config().commandCachingMode();
         this.plugin = requireNonNull(plugin);
         this.eventApplicationState = EventApplicationState.create(baseState);
         this.commandHandler = requireNonNull(commandHandler);
+        this.passiveCommandHandler = requireNonNull(passiveCommandHandler);
         if (mode == CommandCachingMode.REJECT) {
             throw new IllegalArgumentException("Command caching mode cannot be " + mode);
         }
@@ -61,6 +64,7 @@ final class ActivationCommandPollerHandler implements Handler {
             }
             if (mode == CommandCachingMode.DISCARD || //NOTE: REJECT mode not supported
                     eventApplicationState.allEventsAppliedFor(flyweightCommand)) {
+                passiveCommandHandler.onCommand(flyweightCommand);
                 return Result.POLL;
             }
             return Result.PEEK;
@@ -31,6 +31,11 @@ public interface ActivationConfig {
     CommandCachingMode commandCachingMode();
     MessageSender commandCacheSender();
     MessageReceiver commandCacheReceiver();
+    CommandCache commandCache();
+    int commandCacheDrainBatchSize();
+    CommandWarmUp commandWarmUp();
+    long warmUpIntervalNanos();
+    boolean warmUpWithShadowCommands();
     void validate(AppConfig appConfig);
 
     static ActivationConfigurator configure() {
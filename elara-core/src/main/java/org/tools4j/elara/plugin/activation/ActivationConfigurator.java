@@ -32,6 +32,11 @@ public interface ActivationConfigurator extends ActivationConfig {
     ActivationConfigurator commandCachingMode(CommandCachingMode mode);
     ActivationConfigurator commandCache(MessageStore commandStore);
     ActivationConfigurator commandCache(SharedBuffer commandBuffer);
+    ActivationConfigurator commandCache(CommandCache commandCache);
+    ActivationConfigurator commandCacheDrainBatchSize(int batchSize);
+    ActivationConfigurator commandWarmUp(CommandWarmUp warmUp);
+    ActivationConfigurator warmUpIntervalNanos(long intervalNanos);
+    ActivationConfigurator warmUpWithShadowCommands(boolean shadowCommands);
     ActivationConfigurator commandCacheSender(MessageSender sender);
     ActivationConfigurator commandCacheReceiver(MessageReceiver receiver);
     static ActivationConfigurator create() {
@@ -32,13 +32,23 @@ import org.tools4j.elara.stream.MessageReceiver;
 import org.tools4j.elara.stream.MessageSender;
 import org.tools4j.elara.stream.ipc.SharedBuffer;
 
+import java.util.concurrent.TimeUnit;
+
 import static java.util.Objects.requireNonNull;
 
 public class ActivationConfiguratorImpl implements ActivationConfigurator {
 
+    public static final int DEFAULT_COMMAND_CACHE_DRAIN_BATCH_SIZE = 64;
+    public static final long DEFAULT_WARM_UP_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
     private CommandCachingMode commandCachingMode = CommandCachingMode.DISCARD;
     private MessageSender commandCacheSender;
     private MessageReceiver commandCacheReceiver;
+    private CommandCache commandCache;
+    private int commandCacheDrainBatchSize = DEFAULT_COMMAND_CACHE_DRAIN_BATCH_SIZE;
+    private CommandWarmUp commandWarmUp = CommandWarmUp.NONE;
+    private long warmUpIntervalNanos = DEFAULT_WARM_UP_INTERVAL_NANOS;
+    private boolean warmUpWithShadowCommands;
 
     @Override
     public CommandCachingMode commandCachingMode() {
@@ -61,8 +71,19 @@ public class ActivationConfiguratorImpl implements ActivationConfigurator {
         return commandCacheReceiver;
     }
 
+    @Override
+    public CommandCache commandCache() {
+        return commandCache;
+    }
+
+    @Override
+    public int commandCacheDrainBatchSize() {
+        return commandCacheDrainBatchSize;
+    }
+
     @Override
     public ActivationConfigurator commandCache(final MessageStore commandStore) {
+        commandCache = null;
         commandCacheSender = new StoreAppendingMessageSender(commandStore);
         commandCacheReceiver = new StorePollingMessageReceiver(commandStore);
         return this;
@@ -70,20 +91,76 @@ public class ActivationConfiguratorImpl implements ActivationConfigurator {
 
     @Override
     public ActivationConfigurator commandCache(final SharedBuffer commandBuffer) {
+        commandCache = null;
         commandCacheSender = commandBuffer.sender();
         commandCacheReceiver = commandBuffer.receiver();
         return this;
     }
 
+    @Override
+    public ActivationConfigurator commandCache(final CommandCache commandCache) {
+        this.commandCache = requireNonNull(commandCache);
+        this.commandCacheSender = commandCache.sender();
+        this.commandCacheReceiver = commandCache.receiver();
+        return this;
+    }
+
+    @Override
+    public ActivationConfigurator commandCacheDrainBatchSize(final int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Command cache drain batch size must be positive: " + batchSize);
+        }
+        this.commandCacheDrainBatchSize = batchSize;
+        return this;
+    }
+
+    @Override
+    public CommandWarmUp commandWarmUp() {
+        return commandWarmUp;
+    }
+
+    @Override
+    public ActivationConfigurator commandWarmUp(final CommandWarmUp warmUp) {
+        this.commandWarmUp = requireNonNull(warmUp);
+        return this;
+    }
+
+    @Override
+    public long warmUpIntervalNanos() {
+        return warmUpIntervalNanos;
+    }
+
+    @Override
+    public ActivationConfigurator warmUpIntervalNanos(final long intervalNanos) {
+        if (intervalNanos < 0) {
+            throw new IllegalArgumentException("Warm-up interval cannot be negative: " + intervalNanos);
+        }
+        this.warmUpIntervalNanos = intervalNanos;
+        return this;
+    }
+
+    @Override
+    public boolean warmUpWithShadowCommands() {
+        return warmUpWithShadowCommands;
+    }
+
+    @Override
+    public ActivationConfigurator warmUpWithShadowCommands(final boolean shadowCommands) {
+        this.warmUpWithShadowCommands = shadowCommands;
+        return this;
+    }
+
     @Override
     public ActivationConfigurator commandCacheSender(final MessageSender sender) {
         this.commandCacheSender = requireNonNull(sender);
+        this.commandCache = null;
         return this;
     }
 
     @Override
     public ActivationConfigurator commandCacheReceiver(final MessageReceiver receiver) {
         this.commandCacheReceiver = requireNonNull(receiver);
+        this.commandCache = null;
         return this;
     }
 
@@ -109,5 +186,9 @@ public class ActivationConfiguratorImpl implements ActivationConfigurator {
                         mode + " mode is set");
             }
         }
+        if ((commandWarmUp != CommandWarmUp.NONE || warmUpWithShadowCommands) && !appType.isProcessorApp()) {
+            throw new IllegalArgumentException("Command warm-up is only supported for processor apps but app type is " +
+                    appType);
+        }
     }
 }
@@ -33,6 +33,7 @@ import org.tools4j.elara.app.factory.StateFactory;
 import org.tools4j.elara.app.handler.CommandProcessor;
 import org.tools4j.elara.app.state.MutableInFlightState;
 import org.tools4j.elara.handler.CommandHandler;
+import org.tools4j.elara.handler.WarmUpCommandHandler;
 import org.tools4j.elara.route.CommandTransaction;
 import org.tools4j.elara.send.CommandContext;
 import org.tools4j.elara.send.SenderSupplier;
@@ -52,6 +53,7 @@ final class ActivationPluginInterceptor implements Interceptor {
     private final StateFactory stateFactory;
 
     private Supplier<? extends CommandProcessorFactory> processorSingletons;
+    private WarmUpCommandHandler warmUpCommandHandler;
 
     public ActivationPluginInterceptor(final AppConfig appConfig,
                                        final ActivationPlugin plugin,
@@ -126,8 +128,8 @@ final class ActivationPluginInterceptor implements Interceptor {
 
     @Override
     public CommandProcessorFactory commandProcessorFactory(final Supplier<? extends CommandProcessorFactory> singletons) {
+        this.processorSingletons = requireNonNull(singletons);
         if (hasCommandStore(appConfig)) {
-            this.processorSingletons = requireNonNull(singletons);
             return null;//no interception required in this case
         }
         return new CommandProcessorFactory() {
@@ -144,9 +146,12 @@ final class ActivationPluginInterceptor implements Interceptor {
             @Override
             public CommandHandler commandHandler() {
                 final CommandHandler handler = singletons.get().commandHandler();
+                final CommandHandler passiveHandler = passiveCommandHandler();
                 return command -> {
                     if (plugin.isActive()) {
                         handler.onCommand(command);
+                    } else {
+                        passiveHandler.onCommand(command);
                     }
                 };
             }
@@ -168,7 +173,7 @@ final class ActivationPluginInterceptor implements Interceptor {
             public Handler commandMessageHandler() {
                 requireNonNull(processorSingletons);
                 return new ActivationCommandPollerHandler(plugin, stateFactory.baseState(),
-                        processorSingletons.get().commandHandler());
+                        processorSingletons.get().commandHandler(), passiveCommandHandler());
             }
 
             @Override
@@ -178,6 +183,21 @@ final class ActivationPluginInterceptor implements Interceptor {
         };
     }
 
+    private CommandHandler passiveCommandHandler() {
+        return plugin.config().warmUpWithShadowCommands() ? warmUpCommandHandler() : command -> {};
+    }
+
+    WarmUpCommandHandler warmUpCommandHandler() {
+        if (warmUpCommandHandler == null) {
+            if (processorSingletons == null) {
+                throw new IllegalStateException("Command warm-up requires a command processor");
+            }
+            warmUpCommandHandler = new WarmUpCommandHandler(appConfig.timeSource(), stateFactory.baseState(),
+                    processorSingletons.get().commandProcessor(), appConfig.exceptionHandler());
+        }
+        return warmUpCommandHandler;
+    }
+
     private static boolean hasCommandStore(final AppConfig appConfig) {
         return appConfig.appType().hasCommandStore(appConfig);
     }
@@ -25,6 +25,7 @@ package org.tools4j.elara.plugin.activation;
 
 import org.tools4j.elara.app.config.AppConfig;
 import org.tools4j.elara.app.config.CommandSenderConfig;
+import org.tools4j.elara.app.config.ExecutionType;
 import org.tools4j.elara.app.factory.Interceptor;
 import org.tools4j.elara.app.factory.StateFactory;
 import org.tools4j.elara.app.state.BaseState;
@@ -32,6 +33,7 @@ import org.tools4j.elara.input.Input;
 import org.tools4j.elara.plugin.api.PluginStateProvider;
 import org.tools4j.elara.plugin.api.ReservedPayloadType;
 import org.tools4j.elara.plugin.api.SystemPlugin.SystemPluginSpecification;
+import org.tools4j.elara.step.AgentStep;
 
 import static java.util.Objects.requireNonNull;
 
@@ -57,6 +59,18 @@ final class ActivationPluginSpecification implements SystemPluginSpecification<A
         plugin.config().validate(appConfig);
         plugin.init(activationState);
         return new Installer.Default() {
+            ActivationPluginInterceptor interceptor;
+
+            @Override
+            public AgentStep step(final BaseState baseState, final ExecutionType executionType) {
+                if (executionType == ExecutionType.ALWAYS_WHEN_EVENTS_APPLIED &&
+                        plugin.config().commandWarmUp() != CommandWarmUp.NONE) {
+                    requireNonNull(interceptor, "interceptor");
+                    return new WarmUpStep(plugin, interceptor::warmUpCommandHandler);
+                }
+                return AgentStep.NOOP;
+            }
+
             @Override
             public Input input(final BaseState baseState) {
                 if (appConfig instanceof CommandSenderConfig) {
@@ -69,7 +83,8 @@ final class ActivationPluginSpecification implements SystemPluginSpecification<A
 
             @Override
             public Interceptor interceptor(final StateFactory stateFactory) {
-                return new ActivationPluginInterceptor(appConfig, plugin, stateFactory);
+                interceptor = new ActivationPluginInterceptor(appConfig, plugin, stateFactory);
+                return interceptor;
             }
         };
     }
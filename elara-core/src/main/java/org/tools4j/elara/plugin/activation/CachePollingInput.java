@@ -44,9 +44,12 @@ final class CachePollingInput implements MultiSourceInput {
     private final ActivationPlugin plugin;
     private final EventApplicationState eventApplicationState;
     private final MessageReceiver messageReceiver;
+    private final CommandCache offHeapCache;
+    private final int drainBatchSize;
     private final ExceptionHandler exceptionHandler;
     private final MutableDirectBuffer commandCache;
     private final Handler handler = this::onMessage;
+    private final CommandCache.Handler offHeapCacheHandler = this::onCachedMessage;
     private final FlyweightCommand command = new FlyweightCommand();
 
     private CommandSourceProvider commandSourceProvider;
@@ -55,20 +58,37 @@ final class CachePollingInput implements MultiSourceInput {
         this.plugin = requireNonNull(plugin);
         this.eventApplicationState = EventApplicationState.create(baseState);
         this.messageReceiver = requireNonNull(plugin.config().commandCacheReceiver());
+        this.offHeapCache = plugin.config().commandCache();
+        this.drainBatchSize = plugin.config().commandCacheDrainBatchSize();
         this.exceptionHandler = requireNonNull(exceptionHandler);
         this.commandCache = new ExpandableDirectByteBuffer(DEFAULT_INITIAL_COMMAND_CACHE_CAPACITY);
     }
 
     @Override
     public int poll(final CommandContext commandContext, final CommandSourceProvider commandSourceProvider) {
-        requireNonNull(this.commandSourceProvider);
+        requireNonNull(commandSourceProvider);
         if (this.commandSourceProvider != commandSourceProvider) {
             this.commandSourceProvider = commandSourceProvider;
         }
-        if (command.valid()) {
-            return handleCachedCommand() ? 1 : 0;
+        if (offHeapCache != null) {
+            return offHeapCache.poll(offHeapCacheHandler, drainBatchSize);
         }
-        return messageReceiver.poll(handler);
+        int count = 0;
+        while (count < drainBatchSize) {
+            if (command.valid()) {
+                if (!handleCachedCommand()) {
+                    break;
+                }
+                count++;
+            } else {
+                final int polled = messageReceiver.poll(handler);
+                if (polled == 0) {
+                    break;
+                }
+                count += polled;
+            }
+        }
+        return count;
     }
 
     private boolean handleCachedCommand() {
@@ -91,6 +111,19 @@ final class CachePollingInput implements MultiSourceInput {
             }
         } catch (final Exception e) {
             exceptionHandler.handleException("Unhandled exception when receiving command input message", command, e);
+            command.reset();
+        }
+    }
+
+    private boolean onCachedMessage(final DirectBuffer message) {
+        try {
+            command.wrap(message, 0);
+            return handleCommand(command);
+        } catch (final Exception e) {
+            exceptionHandler.handleException("Unhandled exception when receiving command input message", command, e);
+            return true;
+        } finally {
+            command.reset();
         }
     }
 
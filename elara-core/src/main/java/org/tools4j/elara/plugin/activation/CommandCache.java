@@ -0,0 +1,374 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.activation;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.tools4j.elara.stream.MessageReceiver;
+import org.tools4j.elara.stream.MessageSender;
+import org.tools4j.elara.stream.SendingResult;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A bounded off-heap command cache used by passive application instances in {@link CommandCachingMode#REPLAY REPLAY}
+ * mode.  Commands are stored in a ring buffer of fixed capacity, either in a memory mapped file or in a direct byte
+ * buffer.  If the cache is full, the {@link OverflowPolicy overflow policy} decides whether the oldest commands are
+ * overwritten or whether the new command is rejected.
+ * <p>
+ * Cached commands can be inspected before they are consumed;  this allows the activation plugin to drain commands in
+ * batches and to leave commands in the cache that cannot be sent yet while the application is passive.
+ * <p>
+ * Note that the cache is not thread safe; sending and polling is expected to be performed by the elara agent thread.
+ */
+public final class CommandCache implements AutoCloseable {
+
+    /** Policy applied when a command is added to a full cache */
+    public enum OverflowPolicy {
+        /** The oldest cached commands are discarded to make room for the new command */
+        OVERWRITE,
+        /** The new command is rejected and sending returns {@link SendingResult#BACK_PRESSURED BACK_PRESSURED} */
+        REJECT
+    }
+
+    /**
+     * Handler invoked with cached commands when {@link #poll(Handler, int) polling} the cache.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * Invoked with a cached command message.
+         *
+         * @param message the command message
+         * @return true if the message was consumed and can be removed from the cache, and false to keep the message in
+         *         the cache and stop polling
+         */
+        boolean onMessage(DirectBuffer message);
+    }
+
+    public static final int HEAD_POSITION_OFFSET = 0;
+    public static final int TAIL_POSITION_OFFSET = HEAD_POSITION_OFFSET + Long.BYTES;
+    public static final int HEADER_LENGTH = 64;
+    public static final int RECORD_ALIGNMENT = Long.BYTES;
+    public static final int LENGTH_OFFSET = 0;
+    public static final int MESSAGE_OFFSET = LENGTH_OFFSET + Integer.BYTES;
+    private static final int PADDING_LENGTH = -1;
+
+    private final File file;
+    private final ByteBuffer byteBuffer;
+    private final UnsafeBuffer buffer;
+    private final OverflowPolicy overflowPolicy;
+    private final int capacity;
+    private final int mask;
+    private final UnsafeBuffer message = new UnsafeBuffer(0, 0);
+    private final MessageSender sender = new Sender();
+    private final MessageReceiver receiver = new Receiver();
+    private long overwrittenCount;
+    private long rejectedCount;
+    private boolean closed;
+
+    private CommandCache(final File file, final ByteBuffer byteBuffer, final int capacity,
+                         final OverflowPolicy overflowPolicy) {
+        this.file = file;
+        this.byteBuffer = requireNonNull(byteBuffer);
+        this.buffer = new UnsafeBuffer(byteBuffer);
+        this.overflowPolicy = requireNonNull(overflowPolicy);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        buffer.putLong(HEAD_POSITION_OFFSET, 0);
+        buffer.putLong(TAIL_POSITION_OFFSET, 0);
+    }
+
+    /**
+     * Creates a command cache in a new memory mapped file;  an existing file is deleted first.
+     *
+     * @param file              the file to map
+     * @param capacity          the cache capacity in bytes, must be a power of two
+     * @param overflowPolicy    the policy applied when adding commands to a full cache
+     * @return a new command cache
+     */
+    public static CommandCache map(final File file, final int capacity, final OverflowPolicy overflowPolicy) {
+        requireNonNull(file);
+        validateCapacity(capacity);
+        if (file.exists() && !file.delete()) {
+            throw new IllegalStateException("Could not delete existing command cache file: " + file);
+        }
+        return new CommandCache(file, IoUtil.mapNewFile(file, HEADER_LENGTH + capacity), capacity, overflowPolicy);
+    }
+
+    /**
+     * Creates a command cache in a direct byte buffer.
+     *
+     * @param capacity          the cache capacity in bytes, must be a power of two
+     * @param overflowPolicy    the policy applied when adding commands to a full cache
+     * @return a new command cache
+     */
+    public static CommandCache allocate(final int capacity, final OverflowPolicy overflowPolicy) {
+        validateCapacity(capacity);
+        return new CommandCache(null, ByteBuffer.allocateDirect(HEADER_LENGTH + capacity), capacity, overflowPolicy);
+    }
+
+    private static void validateCapacity(final int capacity) {
+        if (capacity < RECORD_ALIGNMENT || !BitUtil.isPowerOfTwo(capacity)) {
+            throw new IllegalArgumentException("Capacity must be a power of two and at least " + RECORD_ALIGNMENT +
+                    ": " + capacity);
+        }
+    }
+
+    public File file() {
+        return file;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy overflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int maxMessageLength() {
+        return capacity - MESSAGE_OFFSET;
+    }
+
+    public int size() {
+        return (int)(tail() - head());
+    }
+
+    public boolean isEmpty() {
+        return head() == tail();
+    }
+
+    public long overwrittenCount() {
+        return overwrittenCount;
+    }
+
+    public long rejectedCount() {
+        return rejectedCount;
+    }
+
+    public MessageSender sender() {
+        return closed ? MessageSender.CLOSED : sender;
+    }
+
+    public MessageReceiver receiver() {
+        return closed ? MessageReceiver.CLOSED : receiver;
+    }
+
+    private long head() {
+        return buffer.getLong(HEAD_POSITION_OFFSET);
+    }
+
+    private long tail() {
+        return buffer.getLong(TAIL_POSITION_OFFSET);
+    }
+
+    /**
+     * Adds a command message to the cache.
+     *
+     * @param source    the buffer containing the message
+     * @param offset    offset of the message in {@code source}
+     * @param length    the message length
+     * @return true if the message was added, and false if it was rejected or the cache is closed
+     * @throws IllegalArgumentException if length exceeds the {@link #maxMessageLength() max message length}
+     */
+    public boolean write(final DirectBuffer source, final int offset, final int length) {
+        if (closed) {
+            return false;
+        }
+        if (length > maxMessageLength()) {
+            throw new IllegalArgumentException("Message length " + length + " exceeds max command cache message length " +
+                    maxMessageLength());
+        }
+        final int recordLength = BitUtil.align(MESSAGE_OFFSET + length, RECORD_ALIGNMENT);
+        long tail = tail();
+        long head = head();
+        final int tailIndex = (int)(tail & mask);
+        int padding = tailIndex + recordLength > capacity ? capacity - tailIndex : 0;
+        int required = padding + recordLength;
+        while (capacity - (int)(tail - head) < required) {
+            if (head == tail) {
+                //empty but no room before wrapping: skip to start of buffer without padding record
+                tail += padding;
+                head = tail;
+                required = recordLength;
+                padding = 0;
+                break;
+            }
+            if (overflowPolicy == OverflowPolicy.REJECT) {
+                rejectedCount++;
+                return false;
+            }
+            final int headIndex = (int)(head & mask);
+            final int headLength = buffer.getInt(HEADER_LENGTH + headIndex + LENGTH_OFFSET);
+            if (headLength == PADDING_LENGTH) {
+                head += capacity - headIndex;
+            } else {
+                head += BitUtil.align(MESSAGE_OFFSET + headLength, RECORD_ALIGNMENT);
+                overwrittenCount++;
+            }
+        }
+        buffer.putLong(HEAD_POSITION_OFFSET, head);
+        int index = (int)(tail & mask);
+        if (padding > 0) {
+            buffer.putInt(HEADER_LENGTH + index + LENGTH_OFFSET, PADDING_LENGTH);
+            index = 0;
+        }
+        buffer.putBytes(HEADER_LENGTH + index + MESSAGE_OFFSET, source, offset, length);
+        buffer.putInt(HEADER_LENGTH + index + LENGTH_OFFSET, length);
+        buffer.putLongOrdered(TAIL_POSITION_OFFSET, tail + required);
+        return true;
+    }
+
+    /**
+     * Polls up to {@code limit} cached messages in the order they were added.  Messages consumed by the handler are
+     * removed from the cache;  polling stops when the handler returns false for a message that is then retained.
+     *
+     * @param handler   the handler invoked with cached messages
+     * @param limit     the maximum number of messages to poll
+     * @return the number of messages consumed
+     */
+    public int poll(final Handler handler, final int limit) {
+        requireNonNull(handler);
+        if (closed) {
+            return 0;
+        }
+        final long tail = tail();
+        long head = head();
+        int count = 0;
+        while (head < tail && count < limit) {
+            final int headIndex = (int)(head & mask);
+            final int length = buffer.getInt(HEADER_LENGTH + headIndex + LENGTH_OFFSET);
+            if (length == PADDING_LENGTH) {
+                head += capacity - headIndex;
+                continue;
+            }
+            message.wrap(buffer, HEADER_LENGTH + headIndex + MESSAGE_OFFSET, length);
+            try {
+                if (!handler.onMessage(message)) {
+                    break;
+                }
+            } finally {
+                message.wrap(0, 0);
+            }
+            head += BitUtil.align(MESSAGE_OFFSET + length, RECORD_ALIGNMENT);
+            count++;
+        }
+        buffer.putLongOrdered(HEAD_POSITION_OFFSET, head);
+        return count;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            if (byteBuffer instanceof MappedByteBuffer) {
+                IoUtil.unmap(byteBuffer);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CommandCache:file=" + file +
+                "|capacity=" + capacity +
+                "|overflowPolicy=" + overflowPolicy +
+                "|size=" + (closed ? 0 : size()) +
+                "|overwritten=" + overwrittenCount +
+                "|rejected=" + rejectedCount +
+                "|closed=" + closed;
+    }
+
+    private final class Sender extends MessageSender.Buffered {
+        Sender() {
+            super(1024);
+        }
+
+        @Override
+        public SendingResult sendMessage(final DirectBuffer buffer, final int offset, final int length) {
+            if (write(buffer, offset, length)) {
+                return SendingResult.SENT;
+            }
+            return closed ? SendingResult.CLOSED : SendingResult.BACK_PRESSURED;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            CommandCache.this.close();
+        }
+
+        @Override
+        public String toString() {
+            return "CommandCache.Sender";
+        }
+    }
+
+    private final class Receiver implements MessageReceiver {
+        private MessageReceiver.Handler handler;
+        private final CommandCache.Handler consumer = message -> {
+            handler.onMessage(message);
+            return true;
+        };
+
+        @Override
+        public int poll(final MessageReceiver.Handler handler) {
+            this.handler = requireNonNull(handler);
+            try {
+                return CommandCache.this.poll(consumer, Integer.MAX_VALUE);
+            } finally {
+                this.handler = null;
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            CommandCache.this.close();
+        }
+
+        @Override
+        public String toString() {
+            return "CommandCache.Receiver";
+        }
+    }
+}
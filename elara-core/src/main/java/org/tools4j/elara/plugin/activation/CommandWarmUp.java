@@ -0,0 +1,44 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.activation;
+
+import org.tools4j.elara.handler.WarmUpCommandHandler;
+
+/**
+ * Warm-up invoked periodically while the application is passive to keep the command processor code paths hot;  the
+ * warm-up processes synthetic commands through the {@link WarmUpCommandHandler} which discards all routed events.
+ */
+@FunctionalInterface
+public interface CommandWarmUp {
+    /**
+     * Invoked to process synthetic warm-up commands through the given handler.
+     *
+     * @param handler the handler to process synthetic commands
+     * @return the number of warm-up commands processed
+     */
+    int warmUp(WarmUpCommandHandler handler);
+
+    /** Constant for no warm-up */
+    CommandWarmUp NONE = handler -> 0;
+}
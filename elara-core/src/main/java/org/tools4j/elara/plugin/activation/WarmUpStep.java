@@ -0,0 +1,73 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.activation;
+
+import org.tools4j.elara.handler.WarmUpCommandHandler;
+import org.tools4j.elara.step.AgentStep;
+
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Step invoking the {@link ActivationConfig#commandWarmUp() command warm-up} every
+ * {@link ActivationConfig#warmUpIntervalNanos() warm-up interval} while the application is passive.  The first warm-up
+ * is performed in the first invocation so that the warm-up also takes effect at startup.
+ */
+final class WarmUpStep implements AgentStep {
+
+    private final ActivationPlugin plugin;
+    private final CommandWarmUp commandWarmUp;
+    private final long intervalNanos;
+    private final Supplier<? extends WarmUpCommandHandler> handlerSupplier;
+    private WarmUpCommandHandler handler;
+    private long nextWarmUpTime;
+
+    WarmUpStep(final ActivationPlugin plugin, final Supplier<? extends WarmUpCommandHandler> handlerSupplier) {
+        this.plugin = requireNonNull(plugin);
+        this.commandWarmUp = plugin.config().commandWarmUp();
+        this.intervalNanos = plugin.config().warmUpIntervalNanos();
+        this.handlerSupplier = requireNonNull(handlerSupplier);
+    }
+
+    @Override
+    public int doWork() {
+        if (plugin.isActive()) {
+            return 0;
+        }
+        final long time = System.nanoTime();
+        if (handler == null) {
+            handler = requireNonNull(handlerSupplier.get());
+        } else if (time - nextWarmUpTime < 0) {
+            return 0;
+        }
+        nextWarmUpTime = time + intervalNanos;
+        return commandWarmUp.warmUp(handler);
+    }
+
+    @Override
+    public String toString() {
+        return "WarmUpStep:intervalNanos=" + intervalNanos + "|handler=" + handler;
+    }
+}
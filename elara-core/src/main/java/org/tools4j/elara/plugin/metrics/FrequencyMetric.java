@@ -46,13 +46,14 @@ public enum FrequencyMetric implements Metric {
     INPUT_RECEIVED_FREQUENCY("inp-rcv"),
     COMMAND_PROCESSED_FREQUENCY("cmd-prc"),
     EVENT_POLLED_FREQUENCY("evt-pol"),
-    OUTPUT_POLLED_FREQUENCY("out-pol"),
+    OUTPUT_POLLED_FREQUENCY("out-pol"),//events polled by publisher, out-pol / out-bat yields the average batch size
     EXTRA_STEP_PERFORMED_FREQUENCY("xtr-prf"),
 
     /* some other special ones*/
     EVENT_APPLIED_FREQUENCY("evt-apy"),
     OUTPUT_PUBLISHED_FREQUENCY("out-pub"),//only those where Output did not return IGNORED
-    STEP_ERROR_FREQUENCY("stp-err");
+    STEP_ERROR_FREQUENCY("stp-err"),
+    OUTPUT_BATCH_FREQUENCY("out-bat");//output batches with at least one event
 
     private final String displayName;
 
@@ -71,8 +72,9 @@ public enum FrequencyMetric implements Metric {
     }
 
     private static final FrequencyMetric[] VALUES = values();
-    private static final short ALL_FLAGS = (short)((1 << VALUES.length) - 1);
+    private static final int ALL_FLAGS = (1 << VALUES.length) - 1;
     static {
+        assert VALUES.length <= Short.SIZE;
         assert VALUES.length == Integer.bitCount(ALL_FLAGS);
     }
 
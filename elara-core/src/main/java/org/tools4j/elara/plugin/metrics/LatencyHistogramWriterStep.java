@@ -0,0 +1,108 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.tools4j.elara.flyweight.FlyweightHistogramMetrics;
+import org.tools4j.elara.flyweight.PayloadType;
+import org.tools4j.elara.step.AgentStep;
+import org.tools4j.elara.store.MessageStore.Appender;
+import org.tools4j.elara.store.MessageStore.AppendingContext;
+import org.tools4j.elara.time.TimeSource;
+
+import java.nio.ByteBuffer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Step writing non-empty {@link LatencyHistograms} to the time metrics store once per interval, and resetting the
+ * histograms afterwards.  One frame is written per latency metric and payload type slot.
+ */
+public class LatencyHistogramWriterStep implements AgentStep {
+
+    private final TimeSource timeSource;
+    private final long interval;
+    private final LatencyHistograms histograms;
+    private final Appender appender;
+    private final ByteBuffer scratch;
+    private long iteration;
+    private long startTime;
+    private boolean started;
+
+    public LatencyHistogramWriterStep(final TimeSource timeSource,
+                                      final MetricsConfig configuration,
+                                      final LatencyHistograms histograms) {
+        this.timeSource = requireNonNull(timeSource);
+        this.interval = configuration.latencyHistogramInterval();
+        this.histograms = requireNonNull(histograms);
+        if (interval <= 0) {
+            throw new IllegalArgumentException("configuration.latencyHistogramInterval() must be positive: " + interval);
+        }
+        this.appender = requireNonNull(configuration.timeMetricsStore(), "configuration.timeMetricsStore()")
+                .appender();
+        this.scratch = ByteBuffer.allocate(histograms.maxEncodedLength());
+    }
+
+    @Override
+    public int doWork() {
+        final long time = timeSource.currentTime();
+        if (!started) {
+            histograms.reset();
+            startTime = time;
+            started = true;
+            return 1;
+        }
+        if (time - startTime >= interval) {
+            writeHistograms(time);
+            histograms.reset();
+            startTime = time;
+            iteration++;
+            return 1;
+        }
+        //NOTE: - we always perform some work by checking the time
+        //      - returning always true would essentially enforce busy spinning and disable any idle strategy
+        //      - a reasonably configured idle strategy should never cause any serious metrics logging problems
+        return 0;
+    }
+
+    private void writeHistograms(final long time) {
+        final PayloadTypeSlots slots = histograms.payloadTypeSlots();
+        for (int slot = 0; slot < slots.count(); slot++) {
+            final boolean hasPayloadType = !slots.isOther(slot);
+            final int payloadType = hasPayloadType ? slots.payloadType(slot) : PayloadType.DEFAULT;
+            for (int i = 0; i < histograms.count(); i++) {
+                final LatencyMetric metric = histograms.metric(i);
+                final Histogram histogram = histograms.histogram(slot, metric);
+                if (histogram.getTotalCount() > 0) {
+                    try (final AppendingContext context = appender.appending()) {
+                        final int length = FlyweightHistogramMetrics.write(iteration, interval, metric,
+                                hasPayloadType, payloadType, startTime, time, histogram, scratch,
+                                context.buffer(), 0);
+                        context.commit(length);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.tools4j.elara.plugin.metrics.TimeMetric.Target;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Pre-allocated histograms to record latency metrics in process.  Latencies are derived from start and end time
+ * metrics captured in {@link MetricsState} for the same target, that is, the same latency metrics that are available
+ * when formatting time metrics frames of a command, event or output.
+ * <p>
+ * Latencies are recorded by {@link TimeMetricsWriter} instead of writing time metrics frames, and the histograms are
+ * written to the time metrics store and reset once per interval by {@link LatencyHistogramWriterStep}.
+ * <p>
+ * If {@link PayloadTypeSlots} with registered payload types are provided, a separate histogram is recorded for every
+ * registered payload type and one for all other payload types.
+ */
+public class LatencyHistograms {
+
+    /** Default highest trackable value, one minute if time values are in nanoseconds */
+    public static final long DEFAULT_HIGHEST_TRACKABLE_VALUE = TimeUnit.MINUTES.toNanos(1);
+    public static final int DEFAULT_SIGNIFICANT_DIGITS = 3;
+
+    private final MetricsState state;
+    private final long highestTrackableValue;
+    private final LatencyMetric[] metrics;
+    private final LatencyMetric[][] metricsByTargetOrdinal;
+    private final PayloadTypeSlots payloadTypeSlots;
+    private final Histogram[][] histogramsBySlotAndLatencyOrdinal;
+
+    public LatencyHistograms(final MetricsConfig configuration, final MetricsState state) {
+        this(configuration.timeMetrics(), configuration.latencyHistogramHighestTrackableValue(),
+                configuration.latencyHistogramSignificantDigits(), configuration.payloadTypeSlots(), state);
+    }
+
+    public LatencyHistograms(final Set<TimeMetric> timeMetrics,
+                             final long highestTrackableValue,
+                             final int significantDigits,
+                             final MetricsState state) {
+        this(timeMetrics, highestTrackableValue, significantDigits, PayloadTypeSlots.NONE, state);
+    }
+
+    public LatencyHistograms(final Set<TimeMetric> timeMetrics,
+                             final long highestTrackableValue,
+                             final int significantDigits,
+                             final PayloadTypeSlots payloadTypeSlots,
+                             final MetricsState state) {
+        this.state = requireNonNull(state);
+        this.highestTrackableValue = highestTrackableValue;
+        this.payloadTypeSlots = requireNonNull(payloadTypeSlots);
+        this.metricsByTargetOrdinal = new LatencyMetric[Target.length()][];
+        this.histogramsBySlotAndLatencyOrdinal = new Histogram[payloadTypeSlots.count()][LatencyMetric.count()];
+        int count = 0;
+        for (int ordinal = 0; ordinal < Target.length(); ordinal++) {
+            metricsByTargetOrdinal[ordinal] = latencyMetrics(Target.byOrdinal(ordinal), timeMetrics);
+            for (final LatencyMetric metric : metricsByTargetOrdinal[ordinal]) {
+                if (histogramsBySlotAndLatencyOrdinal[0][metric.ordinal()] == null) {
+                    for (int slot = 0; slot < payloadTypeSlots.count(); slot++) {
+                        histogramsBySlotAndLatencyOrdinal[slot][metric.ordinal()] = new Histogram(
+                                highestTrackableValue, significantDigits);
+                    }
+                    count++;
+                }
+            }
+        }
+        if (count == 0) {
+            throw new IllegalArgumentException("No latency metrics can be derived from time metrics " + timeMetrics);
+        }
+        this.metrics = new LatencyMetric[count];
+        count = 0;
+        for (int ordinal = 0; ordinal < LatencyMetric.count(); ordinal++) {
+            if (histogramsBySlotAndLatencyOrdinal[0][ordinal] != null) {
+                metrics[count++] = LatencyMetric.byOrdinal(ordinal);
+            }
+        }
+    }
+
+    private static LatencyMetric[] latencyMetrics(final Target target, final Set<TimeMetric> timeMetrics) {
+        int count = 0;
+        final LatencyMetric[] metrics = new LatencyMetric[LatencyMetric.count()];
+        for (int ordinal = 0; ordinal < LatencyMetric.count(); ordinal++) {
+            final LatencyMetric metric = LatencyMetric.byOrdinal(ordinal);
+            if (target.isMetric(metric.start()) && target.isMetric(metric.end()) &&
+                    timeMetrics.contains(metric.start()) && timeMetrics.contains(metric.end())) {
+                metrics[count++] = metric;
+            }
+        }
+        final LatencyMetric[] result = new LatencyMetric[count];
+        System.arraycopy(metrics, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Records the latencies derived from time metrics currently captured in the metrics state for the given target
+     * in the histograms for other payload types.  Latency metrics are skipped if the start or end time has not been
+     * captured.
+     *
+     * @param target the target whose latencies to record
+     * @return the number of latency values recorded
+     */
+    public int record(final Target target) {
+        return recordInSlot(target, payloadTypeSlots.otherSlot());
+    }
+
+    /**
+     * Records the latencies derived from time metrics currently captured in the metrics state for the given target
+     * in the histograms for the given payload type.  Latency metrics are skipped if the start or end time has not been
+     * captured.
+     *
+     * @param target        the target whose latencies to record
+     * @param payloadType   the payload type of the command or event
+     * @return the number of latency values recorded
+     */
+    public int record(final Target target, final int payloadType) {
+        return recordInSlot(target, payloadTypeSlots.slot(payloadType));
+    }
+
+    private int recordInSlot(final Target target, final int slot) {
+        final Histogram[] histograms = histogramsBySlotAndLatencyOrdinal[slot];
+        final LatencyMetric[] targetMetrics = metricsByTargetOrdinal[target.ordinal()];
+        int recorded = 0;
+        for (int i = 0; i < targetMetrics.length; i++) {
+            final LatencyMetric metric = targetMetrics[i];
+            final long start = state.time(metric.start());
+            final long end = state.time(metric.end());
+            if (start != 0 && end != 0) {
+                final long latency = Math.max(0, Math.min(end - start, highestTrackableValue));
+                histograms[metric.ordinal()].recordValue(latency);
+                recorded++;
+            }
+        }
+        return recorded;
+    }
+
+    public int count() {
+        return metrics.length;
+    }
+
+    public LatencyMetric metric(final int index) {
+        return metrics[index];
+    }
+
+    public PayloadTypeSlots payloadTypeSlots() {
+        return payloadTypeSlots;
+    }
+
+    /**
+     * Returns the histogram for the given latency metric and other payload types, or null if the latency metric is not
+     * recorded.
+     *
+     * @param metric the latency metric
+     * @return the histogram, or null if the metric is not recorded
+     */
+    public Histogram histogram(final LatencyMetric metric) {
+        return histogram(payloadTypeSlots.otherSlot(), metric);
+    }
+
+    /**
+     * Returns the histogram for the given payload type slot and latency metric, or null if the latency metric is not
+     * recorded.
+     *
+     * @param slot      the payload type slot
+     * @param metric    the latency metric
+     * @return the histogram, or null if the metric is not recorded
+     * @see PayloadTypeSlots#slot(int)
+     */
+    public Histogram histogram(final int slot, final LatencyMetric metric) {
+        return histogramsBySlotAndLatencyOrdinal[slot][metric.ordinal()];
+    }
+
+    public int maxEncodedLength() {
+        int max = 0;
+        for (int slot = 0; slot < payloadTypeSlots.count(); slot++) {
+            for (final LatencyMetric metric : metrics) {
+                max = Math.max(max, histogram(slot, metric).getNeededByteBufferCapacity());
+            }
+        }
+        return max;
+    }
+
+    public void reset() {
+        for (int slot = 0; slot < payloadTypeSlots.count(); slot++) {
+            for (final LatencyMetric metric : metrics) {
+                histogram(slot, metric).reset();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(64 + 16 * metrics.length * payloadTypeSlots.count());
+        sb.append("LatencyHistograms:highest-trackable-value=").append(highestTrackableValue);
+        for (int slot = 0; slot < payloadTypeSlots.count(); slot++) {
+            for (final LatencyMetric metric : metrics) {
+                sb.append('|').append(metric.displayName());
+                if (!payloadTypeSlots.isOther(slot)) {
+                    sb.append('[').append(payloadTypeSlots.payloadType(slot)).append(']');
+                }
+                sb.append('=').append(histogram(slot, metric).getTotalCount());
+            }
+        }
+        return sb.toString();
+    }
+}
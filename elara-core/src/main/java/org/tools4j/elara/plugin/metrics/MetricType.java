@@ -27,7 +27,8 @@ import org.tools4j.elara.flyweight.FrameType;
 
 public enum MetricType {
     TIME(FrameType.TIME_METRICS_TYPE),
-    FREQUENCY(FrameType.FREQUENCY_METRICS_TYPE);
+    FREQUENCY(FrameType.FREQUENCY_METRICS_TYPE),
+    HISTOGRAM(FrameType.HISTOGRAM_METRICS_TYPE);
 
     private final byte frameType;
 
@@ -53,12 +54,21 @@ public enum MetricType {
         return this == FREQUENCY;
     }
 
+    /**
+     * @return true if this {@link #HISTOGRAM}
+     */
+    public boolean isHistogram() {
+        return this == HISTOGRAM;
+    }
+
     public static MetricType valueByFrameType(final byte frameType) {
         switch (frameType) {
             case FrameType.TIME_METRICS_TYPE:
                 return TIME;
             case FrameType.FREQUENCY_METRICS_TYPE:
                 return FREQUENCY;
+            case FrameType.HISTOGRAM_METRICS_TYPE:
+                return HISTOGRAM;
             default:
                 throw new IllegalArgumentException("Not a valid metric frame type: " + frameType);
         }
@@ -68,6 +78,7 @@ public enum MetricType {
         switch (frameType) {
             case FrameType.TIME_METRICS_TYPE:
             case FrameType.FREQUENCY_METRICS_TYPE:
+            case FrameType.HISTOGRAM_METRICS_TYPE:
                 return true;
             default:
                 return false;
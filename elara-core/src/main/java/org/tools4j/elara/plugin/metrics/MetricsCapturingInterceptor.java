@@ -39,11 +39,13 @@ import org.tools4j.elara.app.factory.SequencerFactory;
 import org.tools4j.elara.app.handler.CommandProcessor;
 import org.tools4j.elara.app.handler.EventApplier;
 import org.tools4j.elara.app.message.Command;
+import org.tools4j.elara.app.message.Event;
 import org.tools4j.elara.app.state.ThinEventApplier;
 import org.tools4j.elara.flyweight.PayloadType;
 import org.tools4j.elara.handler.CommandHandler;
 import org.tools4j.elara.handler.EventHandler;
 import org.tools4j.elara.handler.OutputHandler;
+import org.tools4j.elara.output.BatchOutput;
 import org.tools4j.elara.output.Output;
 import org.tools4j.elara.output.Output.Ack;
 import org.tools4j.elara.plugin.metrics.TimeMetric.Target;
@@ -76,6 +78,8 @@ import static org.tools4j.elara.plugin.metrics.FrequencyMetric.EXTRA_STEP_INVOCA
 import static org.tools4j.elara.plugin.metrics.FrequencyMetric.EXTRA_STEP_PERFORMED_FREQUENCY;
 import static org.tools4j.elara.plugin.metrics.FrequencyMetric.INPUTS_POLL_FREQUENCY;
 import static org.tools4j.elara.plugin.metrics.FrequencyMetric.INPUT_RECEIVED_FREQUENCY;
+import static org.tools4j.elara.plugin.metrics.FrequencyMetric.OUTPUT_BATCH_FREQUENCY;
+import static org.tools4j.elara.plugin.metrics.FrequencyMetric.OUTPUT_POLLED_FREQUENCY;
 import static org.tools4j.elara.plugin.metrics.FrequencyMetric.OUTPUT_POLL_FREQUENCY;
 import static org.tools4j.elara.plugin.metrics.FrequencyMetric.OUTPUT_PUBLISHED_FREQUENCY;
 import static org.tools4j.elara.plugin.metrics.FrequencyMetric.STEP_ERROR_FREQUENCY;
@@ -103,14 +107,35 @@ public class MetricsCapturingInterceptor implements Interceptor {
     private final MetricsConfig configuration;
     private final MetricsState state;
     private final TimeMetricsWriter timeMetricsWriter;
+    private final MetricsCounters counters;
+    private final TimeMetricsSampler sampler;
+    private boolean sampled = true;
 
     public MetricsCapturingInterceptor(final TimeSource timeSource,
                                        final MetricsConfig configuration,
                                        final MetricsState state) {
+        this(timeSource, configuration, state, null);
+    }
+
+    public MetricsCapturingInterceptor(final TimeSource timeSource,
+                                       final MetricsConfig configuration,
+                                       final MetricsState state,
+                                       final LatencyHistograms latencyHistograms) {
+        this(timeSource, configuration, state, latencyHistograms, null);
+    }
+
+    public MetricsCapturingInterceptor(final TimeSource timeSource,
+                                       final MetricsConfig configuration,
+                                       final MetricsState state,
+                                       final LatencyHistograms latencyHistograms,
+                                       final MetricsCounters counters) {
         this.timeSource = requireNonNull(timeSource);
         this.configuration = requireNonNull(configuration);
         this.state = requireNonNull(state);
-        this.timeMetricsWriter = configuration.timeMetrics().isEmpty() ? null : new TimeMetricsWriter(timeSource, configuration, state);
+        this.timeMetricsWriter = configuration.timeMetrics().isEmpty() ? null :
+                new TimeMetricsWriter(timeSource, configuration, state, latencyHistograms);
+        this.counters = counters;
+        this.sampler = requireNonNull(configuration.timeMetricsSampler(), "configuration.timeMetricsSampler()");
     }
 
     private boolean shouldCapture(final TimeMetric metric) {
@@ -125,9 +150,17 @@ public class MetricsCapturingInterceptor implements Interceptor {
         return target.anyOf(configuration.timeMetrics());
     }
 
+    /**
+     * Makes the sampling decision for the command chain identified by source ID and sequence;  time metrics are only
+     * captured and written until the next decision if the command is sampled.
+     */
+    private void sample(final int sourceId, final long sourceSeq) {
+        sampled = sampler.sample(sourceId, sourceSeq);
+    }
+
     private void captureInputSendingTime(final int sourceId, final long sourceSeq, final int type,
                                          final DirectBuffer buffer, final int offset, final int length) {
-        if (shouldCapture(INPUT_SENDING_TIME)) {
+        if (sampled && shouldCapture(INPUT_SENDING_TIME)) {
             final long sendingTime = configuration.inputSendingTimeExtractor().sendingTime(sourceId, sourceSeq, type,
                     buffer, offset, length);
             state.time(INPUT_SENDING_TIME, sendingTime);
@@ -135,14 +168,30 @@ public class MetricsCapturingInterceptor implements Interceptor {
     }
 
     private void captureTime(final TimeMetric metric) {
-        if (shouldCapture(metric)) {
+        if (sampled && shouldCapture(metric)) {
             state.time(metric, timeSource.currentTime());
         }
     }
 
     private void captureCount(final FrequencyMetric metric) {
+        captureCount(metric, 1);
+    }
+
+    private void captureCount(final FrequencyMetric metric, final int count) {
+        if (shouldCapture(metric)) {
+            state.counter(metric, count);
+            if (counters != null) {
+                counters.count(metric, count);
+            }
+        }
+    }
+
+    private void captureMessageCount(final FrequencyMetric metric, final int payloadType) {
         if (shouldCapture(metric)) {
             state.counter(metric, 1);
+            if (counters != null) {
+                counters.count(metric, payloadType, 1);
+            }
         }
     }
 
@@ -231,18 +280,57 @@ public class MetricsCapturingInterceptor implements Interceptor {
     @Override
     public AppFactory appFactory(final Supplier<? extends AppFactory> singletons) {
         requireNonNull(singletons);
-        if (shouldCapture(DUTY_CYCLE_FREQUENCY) || shouldCapture(DUTY_CYCLE_PERFORMED_FREQUENCY)) {
+        if (counters != null || shouldCapture(DUTY_CYCLE_FREQUENCY) || shouldCapture(DUTY_CYCLE_PERFORMED_FREQUENCY)) {
             //noinspection Convert2Lambda
             return new AppFactory() {
                 @Override
                 public Agent agent() {
-                    return counterAgent(DUTY_CYCLE_FREQUENCY, DUTY_CYCLE_PERFORMED_FREQUENCY, singletons.get().agent());
+                    return countersClosingAgent(
+                            counterAgent(DUTY_CYCLE_FREQUENCY, DUTY_CYCLE_PERFORMED_FREQUENCY, singletons.get().agent())
+                    );
                 }
             };
         }
         return null;
     }
 
+    /**
+     * Returns an agent that closes the counters file when the agent is closed, or the agent itself if no counters file
+     * is used.  Counters are only written by the agent thread, hence it is safe to unmap the file after the agent has
+     * been closed.
+     */
+    private Agent countersClosingAgent(final Agent agent) {
+        requireNonNull(agent);
+        if (counters == null) {
+            return agent;
+        }
+        return new Agent() {
+            @Override
+            public void onStart() {
+                agent.onStart();
+            }
+
+            @Override
+            public int doWork() throws Exception {
+                return agent.doWork();
+            }
+
+            @Override
+            public void onClose() {
+                try {
+                    agent.onClose();
+                } finally {
+                    counters.close();
+                }
+            }
+
+            @Override
+            public String roleName() {
+                return agent.roleName();
+            }
+        };
+    }
+
     @Override
     public AgentStepFactory agentStepFactory(final Supplier<? extends AgentStepFactory> singletons) {
         requireNonNull(singletons);
@@ -342,7 +430,7 @@ public class MetricsCapturingInterceptor implements Interceptor {
                             final EventRouter eventRouter = timedEventRouter != null ? timedEventRouter.init(router) : router;
                             captureTime(PROCESSING_START_TIME);
                             commandProcessor.onCommand(command, eventRouter);
-                            captureCount(COMMAND_PROCESSED_FREQUENCY);
+                            captureMessageCount(COMMAND_PROCESSED_FREQUENCY, command.payloadType());
                             //PROCESSING_END_TIME is measured in CommandHandler
                         };
                     }
@@ -359,10 +447,13 @@ public class MetricsCapturingInterceptor implements Interceptor {
                     final CommandHandler commandHandler = singletons.get().commandHandler();
                     if (shouldCaptureAnyOf(COMMAND)) {//includes COMMAND_POLLING_TIME and PROCESSING_END_TIME
                         return command -> {
+                            sample(command.sourceId(), command.sourceSequence());
                             captureTime(COMMAND_POLLING_TIME);
                             commandHandler.onCommand(command);
                             captureTime(PROCESSING_END_TIME);
-                            timeMetricsWriter.writeMetrics(command);
+                            if (sampled) {
+                                timeMetricsWriter.writeMetrics(command);
+                            }
                         };
                     }
                     return commandHandler;
@@ -387,21 +478,23 @@ public class MetricsCapturingInterceptor implements Interceptor {
                         if (eventApplier instanceof ThinEventApplier) {
                             final ThinEventApplier passthroughApplier = (ThinEventApplier)eventApplier;
                             return (ThinEventApplier)(srcId, srcSeq, evtSeq, evtIndex, evtType, evtTime, plType, plSize) -> {
+                                sample(srcId, srcSeq);
                                 captureTime(APPLYING_START_TIME);
                                 passthroughApplier.onEvent(srcId, srcSeq, evtSeq, evtIndex, evtType, evtTime, plType, plSize);
                                 captureTime(APPLYING_END_TIME);
-                                captureCount(EVENT_APPLIED_FREQUENCY);
-                                if (timeMetricsWriter != null) {
-                                    timeMetricsWriter.writeMetrics(EVENT, srcId, srcSeq, (short)evtIndex, evtSeq);
+                                captureMessageCount(EVENT_APPLIED_FREQUENCY, plType);
+                                if (timeMetricsWriter != null && sampled) {
+                                    timeMetricsWriter.writeMetrics(EVENT, srcId, srcSeq, (short)evtIndex, evtSeq, plType);
                                 }
                             };
                         }
                         return event -> {
+                            sample(event.sourceId(), event.sourceSequence());
                             captureTime(APPLYING_START_TIME);
                             eventApplier.onEvent(event);
                             captureTime(APPLYING_END_TIME);
-                            captureCount(EVENT_APPLIED_FREQUENCY);
-                            if (timeMetricsWriter != null) {
+                            captureMessageCount(EVENT_APPLIED_FREQUENCY, event.payloadType());
+                            if (timeMetricsWriter != null && sampled) {
                                 timeMetricsWriter.writeMetrics(EVENT, event);
                             }
                         };
@@ -414,6 +507,7 @@ public class MetricsCapturingInterceptor implements Interceptor {
                     final EventHandler eventHandler = singletons.get().eventHandler();
                     if (shouldCapture(EVENT_POLLING_TIME)) {
                         return event -> {
+                            sample(event.sourceId(), event.sourceSequence());
                             captureTime(EVENT_POLLING_TIME);
                             eventHandler.onEvent(event);
                         };
@@ -440,20 +534,31 @@ public class MetricsCapturingInterceptor implements Interceptor {
                     return output;
                 }
                 if (shouldCapture(OUTPUT_PUBLISHED_FREQUENCY) || shouldCaptureAnyOf(OUTPUT)) {
-                    return (event, replay, retry) -> {
-                        captureTime(OUTPUT_START_TIME);
-                        final Ack ack = output.publish(event, replay, retry);
-                        if (ack == Ack.IGNORED) {
-                            state.clear(OUTPUT_START_TIME);
-                        } else {
-                            captureTime(OUTPUT_END_TIME);
-                            captureCount(OUTPUT_PUBLISHED_FREQUENCY);
-                            if (timeMetricsWriter != null) {
-                                timeMetricsWriter.writeMetrics(OUTPUT, event);
+                    if (output instanceof BatchOutput) {
+                        final BatchOutput batchOutput = (BatchOutput)output;
+                        return new BatchOutput() {
+                            @Override
+                            public Ack publish(final Event event, final boolean replay, final int retry) {
+                                return publishTimed(batchOutput, event, replay, retry);
                             }
-                        }
-                        return ack;
-                    };
+
+                            @Override
+                            public void onBatchStart() {
+                                batchOutput.onBatchStart();
+                            }
+
+                            @Override
+                            public void onBatchEnd(final int batchSize) {
+                                batchOutput.onBatchEnd(batchSize);
+                            }
+
+                            @Override
+                            public int maxBatchSize() {
+                                return batchOutput.maxBatchSize();
+                            }
+                        };
+                    }
+                    return (event, replay, retry) -> publishTimed(output, event, replay, retry);
                 }
                 return output;
             };
@@ -461,20 +566,54 @@ public class MetricsCapturingInterceptor implements Interceptor {
         return null;
     }
 
+    private Ack publishTimed(final Output output, final Event event, final boolean replay, final int retry) {
+        sample(event.sourceId(), event.sourceSequence());
+        captureTime(OUTPUT_START_TIME);
+        final Ack ack = output.publish(event, replay, retry);
+        if (ack == Ack.IGNORED) {
+            state.clear(OUTPUT_START_TIME);
+        } else {
+            captureTime(OUTPUT_END_TIME);
+            captureMessageCount(OUTPUT_PUBLISHED_FREQUENCY, event.payloadType());
+            if (timeMetricsWriter != null && sampled) {
+                timeMetricsWriter.writeMetrics(OUTPUT, event);
+            }
+        }
+        return ack;
+    }
+
     @Override
     public PublisherFactory publisherFactory(final Supplier<? extends PublisherFactory> singletons) {
         requireNonNull(singletons);
         if (shouldCapture(STEP_ERROR_FREQUENCY) ||
                 shouldCapture(OUTPUT_POLLING_TIME) ||
-                shouldCapture(OUTPUT_POLL_FREQUENCY)) {
+                shouldCapture(OUTPUT_POLL_FREQUENCY) ||
+                shouldCapture(OUTPUT_POLLED_FREQUENCY) || shouldCapture(OUTPUT_BATCH_FREQUENCY)) {
             return new PublisherFactory() {
                 @Override
                 public OutputHandler outputHandler() {
                     final OutputHandler outputHandler = singletons.get().outputHandler();
-                    if (shouldCapture(OUTPUT_POLLING_TIME)) {
-                        return (event, replay, retry) -> {
-                            captureTime(OUTPUT_POLLING_TIME);
-                            return outputHandler.publish(event, replay, retry);
+                    if (outputHandler != OutputHandler.NOOP && (shouldCapture(OUTPUT_POLLING_TIME) ||
+                            shouldCapture(OUTPUT_POLLED_FREQUENCY) || shouldCapture(OUTPUT_BATCH_FREQUENCY))) {
+                        return new OutputHandler() {
+                            @Override
+                            public Ack publish(final Event event, final boolean replay, final int retry) {
+                                sample(event.sourceId(), event.sourceSequence());
+                                captureTime(OUTPUT_POLLING_TIME);
+                                return outputHandler.publish(event, replay, retry);
+                            }
+
+                            @Override
+                            public void onBatchStart() {
+                                outputHandler.onBatchStart();
+                            }
+
+                            @Override
+                            public void onBatchEnd(final int batchSize) {
+                                outputHandler.onBatchEnd(batchSize);
+                                captureCount(OUTPUT_BATCH_FREQUENCY);
+                                captureCount(OUTPUT_POLLED_FREQUENCY, batchSize);
+                            }
                         };
                     }
                     return outputHandler;
@@ -612,18 +751,21 @@ public class MetricsCapturingInterceptor implements Interceptor {
 
         @Override
         public SendingContext sendingCommand() {
+            sample(sender.sourceId(), sender.nextCommandSequence());
             captureTime(INPUT_POLLING_TIME);
             return sendingContext(PayloadType.DEFAULT, sender.sendingCommand());
         }
 
         @Override
         public SendingContext sendingCommand(final int payloadType) {
+            sample(sender.sourceId(), sender.nextCommandSequence());
             captureTime(INPUT_POLLING_TIME);
             return sendingContext(payloadType, sender.sendingCommand(payloadType));
         }
 
         @Override
         public SendingResult sendCommand(final DirectBuffer buffer, final int offset, final int length) {
+            sample(sender.sourceId(), sender.nextCommandSequence());
             captureTime(INPUT_POLLING_TIME);
             captureInputSendingTime(sender.sourceId(), sender.nextCommandSequence(), PayloadType.DEFAULT, buffer, offset, length);
             final SendingResult result = sender.sendCommand(buffer, offset, length);
@@ -633,6 +775,7 @@ public class MetricsCapturingInterceptor implements Interceptor {
 
         @Override
         public SendingResult sendCommand(final int payloadType, final DirectBuffer buffer, final int offset, final int length) {
+            sample(sender.sourceId(), sender.nextCommandSequence());
             captureTime(INPUT_POLLING_TIME);
             captureInputSendingTime(sender.sourceId(), sender.nextCommandSequence(), payloadType, buffer, offset, length);
             final SendingResult result = sender.sendCommand(payloadType, buffer, offset, length);
@@ -642,6 +785,7 @@ public class MetricsCapturingInterceptor implements Interceptor {
 
         @Override
         public SendingResult sendCommandWithoutPayload(final int payloadType) {
+            sample(sender.sourceId(), sender.nextCommandSequence());
             captureTime(INPUT_POLLING_TIME);
             captureInputSendingTime(sender.sourceId(), sender.nextCommandSequence(), payloadType, unwrap(empty), 0, 0);
             unwrap(empty);//just in case somebody wraps our buffer
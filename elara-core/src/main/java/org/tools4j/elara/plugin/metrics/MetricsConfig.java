@@ -25,15 +25,47 @@ package org.tools4j.elara.plugin.metrics;
 
 import org.tools4j.elara.store.MessageStore;
 
+import java.io.File;
 import java.util.Set;
 
 public interface MetricsConfig {
     Set<TimeMetric> timeMetrics();
     Set<FrequencyMetric> frequencyMetrics();
     InputSendingTimeExtractor inputSendingTimeExtractor();
+    /**
+     * Returns the sampler deciding for which commands and resulting events and outputs time metrics are captured.
+     *
+     * @return the time metrics sampler, {@link TimeMetricsSampler#ALL} to capture time metrics for every command
+     */
+    TimeMetricsSampler timeMetricsSampler();
+    /**
+     * Returns the payload types by which latency histograms, time metrics frames and per-message counters are broken
+     * down;  metrics of all other payload types are recorded in a shared "other" bucket.
+     *
+     * @return the pre-registered payload types, empty if metrics are not broken down by payload type
+     */
+    PayloadTypeSlots payloadTypeSlots();
     long frequencyMetricInterval();
+    /**
+     * Returns the interval for latency histograms, or zero if time metrics are written to the time metrics store for
+     * every command, event and output.  If positive, latencies are recorded in process into histograms which are
+     * written to the time metrics store once per interval.
+     *
+     * @return the latency histogram interval in time source units, zero if latency histograms are disabled
+     */
+    long latencyHistogramInterval();
+    long latencyHistogramHighestTrackableValue();
+    int latencyHistogramSignificantDigits();
     MessageStore timeMetricsStore();
     MessageStore frequencyMetricsStore();
+    /**
+     * Returns the counters file exposing frequency metrics and engine gauges as live {@link MetricsCounters}, or null
+     * if no counters file is used.  Frequency metrics are only written to the frequency metrics store if a frequency
+     * metric interval is configured when a counters file is used.
+     *
+     * @return the counters file, or null if unavailable
+     */
+    File countersFile();
 
     static MetricsConfigurator configure() {
         return MetricsConfigurator.create();
@@ -25,6 +25,7 @@ package org.tools4j.elara.plugin.metrics;
 
 import org.tools4j.elara.store.MessageStore;
 
+import java.io.File;
 import java.util.Set;
 
 public interface MetricsConfigurator extends MetricsConfig {
@@ -38,10 +39,16 @@ public interface MetricsConfigurator extends MetricsConfig {
     MetricsConfigurator latencyMetrics(LatencyMetric... metrics);
     MetricsConfigurator latencyMetrics(Set<? extends LatencyMetric> metrics);
     MetricsConfigurator inputSendingTimeExtractor(InputSendingTimeExtractor sendingTimeExtractor);
+    MetricsConfigurator timeMetricsSampler(TimeMetricsSampler sampler);
+    MetricsConfigurator payloadTypes(int... payloadTypes);
     MetricsConfigurator frequencyMetricInterval(long timeInterval);
+    MetricsConfigurator latencyHistograms(long timeInterval);
+    MetricsConfigurator latencyHistograms(long timeInterval, long highestTrackableValue, int significantDigits);
     MetricsConfigurator metricsStore(MessageStore metricStore);
     MetricsConfigurator timeMetricsStore(MessageStore metricStore);
     MetricsConfigurator frequencyMetricsStore(MessageStore metricStore);
+    MetricsConfigurator countersFile(String countersFile);
+    MetricsConfigurator countersFile(File countersFile);
 
     static MetricsConfigurator create() {
         return new MetricsConfiguratorImpl();
@@ -25,6 +25,7 @@ package org.tools4j.elara.plugin.metrics;
 
 import org.tools4j.elara.store.MessageStore;
 
+import java.io.File;
 import java.util.EnumSet;
 import java.util.Set;
 
@@ -36,9 +37,15 @@ public class MetricsConfiguratorImpl implements MetricsConfigurator {
     private final Set<TimeMetric> timeMetrics = EnumSet.noneOf(TimeMetric.class);
     private final Set<FrequencyMetric> frequencyMetrics = EnumSet.noneOf(FrequencyMetric.class);
     private InputSendingTimeExtractor inputSendingTimeExtractor;
+    private TimeMetricsSampler timeMetricsSampler = TimeMetricsSampler.ALL;
+    private PayloadTypeSlots payloadTypeSlots = PayloadTypeSlots.NONE;
     private long frequencyMetricInterval;
+    private long latencyHistogramInterval;
+    private long latencyHistogramHighestTrackableValue = LatencyHistograms.DEFAULT_HIGHEST_TRACKABLE_VALUE;
+    private int latencyHistogramSignificantDigits = LatencyHistograms.DEFAULT_SIGNIFICANT_DIGITS;
     private MessageStore timeMetricsStore;
     private MessageStore frequencyMetricsStore;
+    private File countersFile;
 
     @Override
     public Set<TimeMetric> timeMetrics() {
@@ -55,11 +62,36 @@ public class MetricsConfiguratorImpl implements MetricsConfigurator {
         return inputSendingTimeExtractor;
     }
 
+    @Override
+    public TimeMetricsSampler timeMetricsSampler() {
+        return timeMetricsSampler;
+    }
+
+    @Override
+    public PayloadTypeSlots payloadTypeSlots() {
+        return payloadTypeSlots;
+    }
+
     @Override
     public long frequencyMetricInterval() {
         return frequencyMetricInterval;
     }
 
+    @Override
+    public long latencyHistogramInterval() {
+        return latencyHistogramInterval;
+    }
+
+    @Override
+    public long latencyHistogramHighestTrackableValue() {
+        return latencyHistogramHighestTrackableValue;
+    }
+
+    @Override
+    public int latencyHistogramSignificantDigits() {
+        return latencyHistogramSignificantDigits;
+    }
+
     @Override
     public MessageStore timeMetricsStore() {
         return timeMetricsStore;
@@ -70,6 +102,11 @@ public class MetricsConfiguratorImpl implements MetricsConfigurator {
         return frequencyMetricsStore;
     }
 
+    @Override
+    public File countersFile() {
+        return countersFile;
+    }
+
     @Override
     public MetricsConfigurator timeMetric(final TimeMetric metric) {
         timeMetrics.add(metric);
@@ -135,6 +172,18 @@ public class MetricsConfiguratorImpl implements MetricsConfigurator {
         return this;
     }
 
+    @Override
+    public MetricsConfigurator timeMetricsSampler(final TimeMetricsSampler sampler) {
+        this.timeMetricsSampler = requireNonNull(sampler);
+        return this;
+    }
+
+    @Override
+    public MetricsConfigurator payloadTypes(final int... payloadTypes) {
+        this.payloadTypeSlots = payloadTypes.length == 0 ? PayloadTypeSlots.NONE : new PayloadTypeSlots(payloadTypes);
+        return this;
+    }
+
     @Override
     public MetricsConfigurator frequencyMetricInterval(final long timeInterval) {
         if (timeInterval <= 0) {
@@ -144,6 +193,30 @@ public class MetricsConfiguratorImpl implements MetricsConfigurator {
         return this;
     }
 
+    @Override
+    public MetricsConfigurator latencyHistograms(final long timeInterval) {
+        return latencyHistograms(timeInterval, latencyHistogramHighestTrackableValue, latencyHistogramSignificantDigits);
+    }
+
+    @Override
+    public MetricsConfigurator latencyHistograms(final long timeInterval,
+                                                 final long highestTrackableValue,
+                                                 final int significantDigits) {
+        if (timeInterval <= 0) {
+            throw new IllegalArgumentException("time interval must be positive: " + timeInterval);
+        }
+        if (highestTrackableValue < 2) {
+            throw new IllegalArgumentException("highest trackable value must be at least 2: " + highestTrackableValue);
+        }
+        if (significantDigits < 0 || significantDigits > 5) {
+            throw new IllegalArgumentException("significant digits must be in [0..5]: " + significantDigits);
+        }
+        this.latencyHistogramInterval = timeInterval;
+        this.latencyHistogramHighestTrackableValue = highestTrackableValue;
+        this.latencyHistogramSignificantDigits = significantDigits;
+        return this;
+    }
+
     @Override
     public MetricsConfigurator metricsStore(final MessageStore metricsStore) {
         requireNonNull(metricsStore);
@@ -164,21 +237,35 @@ public class MetricsConfiguratorImpl implements MetricsConfigurator {
         return this;
     }
 
+    @Override
+    public MetricsConfigurator countersFile(final String countersFile) {
+        return countersFile(new File(countersFile));
+    }
+
+    @Override
+    public MetricsConfigurator countersFile(final File countersFile) {
+        this.countersFile = requireNonNull(countersFile);
+        return this;
+    }
+
     static MetricsConfig validate(final MetricsConfig configuration) {
-        if (configuration.timeMetrics().isEmpty() && configuration.frequencyMetrics().isEmpty()) {
-            throw new IllegalArgumentException("No time or frequency metrics are specified in the metrics plugin configuration");
+        if (configuration.timeMetrics().isEmpty() && configuration.frequencyMetrics().isEmpty() && null == configuration.countersFile()) {
+            throw new IllegalArgumentException("No time or frequency metrics and no counters file are specified in the metrics plugin configuration");
         }
         if (configuration.timeMetrics().contains(INPUT_SENDING_TIME) && null == configuration.inputSendingTimeExtractor()) {
             throw new IllegalArgumentException("Metrics configuration specifies to capture " + INPUT_SENDING_TIME +
                     " but no " + InputSendingTimeExtractor.class.getSimpleName() + " is configured");
         }
-        if (!configuration.frequencyMetrics().isEmpty() && 0 == configuration.frequencyMetricInterval()) {
+        if (!configuration.frequencyMetrics().isEmpty() && 0 == configuration.frequencyMetricInterval() && null == configuration.countersFile()) {
             throw new IllegalArgumentException("Metrics configuration specifies at least one frequency metric but no frequency store interval is configured");
         }
+        if (0 != configuration.latencyHistogramInterval() && configuration.timeMetrics().isEmpty()) {
+            throw new IllegalArgumentException("Metrics configuration specifies a latency histogram interval but no latency or time metrics");
+        }
         if (!configuration.timeMetrics().isEmpty() && null == configuration.timeMetricsStore()) {
             throw new IllegalArgumentException("Metrics configuration specifies at least one time metric but no time metric store is configured");
         }
-        if (!configuration.frequencyMetrics().isEmpty() && null == configuration.frequencyMetricsStore()) {
+        if (!configuration.frequencyMetrics().isEmpty() && 0 != configuration.frequencyMetricInterval() && null == configuration.frequencyMetricsStore()) {
             throw new IllegalArgumentException("Metrics configuration specifies at least one frequency metric but no frequency metric store is configured");
         }
         return configuration;
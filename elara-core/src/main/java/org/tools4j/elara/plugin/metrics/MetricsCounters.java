@@ -0,0 +1,349 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.metrics;
+
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.agrona.concurrent.status.CountersManager;
+import org.agrona.concurrent.status.CountersReader;
+import org.tools4j.elara.app.state.BaseState;
+import org.tools4j.elara.app.state.EventProcessingState;
+import org.tools4j.elara.app.state.TransientEngineState;
+import org.tools4j.elara.app.state.TransientInFlightState;
+import org.tools4j.elara.time.TimeSource;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+import static org.agrona.concurrent.status.CountersReader.COUNTER_LENGTH;
+import static org.agrona.concurrent.status.CountersReader.METADATA_LENGTH;
+import static org.tools4j.elara.app.state.BaseState.NIL_SEQUENCE;
+
+/**
+ * Live engine counters in a memory mapped file that can be sampled by other processes while the application is
+ * running, for instance with {@link MetricsCountersReader}.
+ * <p>
+ * The file contains one cumulative counter for every configured {@link FrequencyMetric} and one counter for every
+ * {@link Gauge}.  If payload types are registered via {@link PayloadTypeSlots}, per-message frequency metrics such as
+ * processed commands, applied events and published outputs are additionally counted per payload type, with one more
+ * counter for all other payload types.  Counters are standard agrona counters managed by a {@link CountersManager} and are updated with
+ * ordered writes without allocation.
+ * <p>
+ * File layout:
+ * <pre>
+ *   0: int   magic number
+ *   4: int   version
+ *   8: int   metadata buffer length
+ *  12: int   values buffer length
+ *  64: byte[] metadata buffer
+ *   *: byte[] values buffer
+ * </pre>
+ */
+public class MetricsCounters implements AutoCloseable {
+
+    public static final int MAGIC = 0xE1A4C047;
+    public static final int VERSION = 1;
+    public static final int MAGIC_OFFSET = 0;
+    public static final int VERSION_OFFSET = MAGIC_OFFSET + Integer.BYTES;
+    public static final int METADATA_LENGTH_OFFSET = VERSION_OFFSET + Integer.BYTES;
+    public static final int VALUES_LENGTH_OFFSET = METADATA_LENGTH_OFFSET + Integer.BYTES;
+    public static final int HEADER_LENGTH = 64;
+
+    public static final int FREQUENCY_COUNTER_TYPE_ID = 1;
+    public static final int GAUGE_COUNTER_TYPE_ID = 2;
+
+    /**
+     * Counters reflecting the current value of some engine state.
+     */
+    public enum Gauge {
+        LAST_APPLIED_EVENT_SEQUENCE("evt-apy-seq"),
+        MAX_AVAILABLE_EVENT_SEQUENCE("evt-max-seq"),
+        NEWEST_EVENT_TIME("evt-max-tim"),
+        IN_FLIGHT_COMMANDS("inf-cmd"),
+        IN_FLIGHT_BYTES("inf-byt");
+
+        private final String displayName;
+
+        Gauge(final String displayName) {
+            this.displayName = requireNonNull(displayName);
+        }
+
+        public String displayName() {
+            return displayName;
+        }
+
+        private static final Gauge[] VALUES = values();
+
+        public static int length() {
+            return VALUES.length;
+        }
+
+        public static Gauge byOrdinal(final int ordinal) {
+            return VALUES[ordinal];
+        }
+    }
+
+    private final File file;
+    private final MappedByteBuffer mappedBuffer;
+    private final AtomicCounter[] frequencyCounters = new AtomicCounter[FrequencyMetric.length()];
+    private final AtomicCounter[] gauges = new AtomicCounter[Gauge.length()];
+    private final PayloadTypeSlots payloadTypeSlots;
+    private final AtomicCounter[][] payloadTypeCounters = new AtomicCounter[FrequencyMetric.length()][];
+    private boolean closed;
+
+    private MetricsCounters(final File file,
+                            final MappedByteBuffer mappedBuffer,
+                            final Set<FrequencyMetric> metrics,
+                            final PayloadTypeSlots payloadTypeSlots) {
+        this.file = requireNonNull(file);
+        this.mappedBuffer = requireNonNull(mappedBuffer);
+        this.payloadTypeSlots = requireNonNull(payloadTypeSlots);
+        final int counterCount = counterCount(payloadTypeSlots);
+        final int valuesLength = counterCount * COUNTER_LENGTH;
+        final int metadataLength = counterCount * METADATA_LENGTH;
+        final UnsafeBuffer header = new UnsafeBuffer(mappedBuffer, 0, HEADER_LENGTH);
+        final CountersManager countersManager = new CountersManager(
+                new UnsafeBuffer(mappedBuffer, HEADER_LENGTH, metadataLength),
+                new UnsafeBuffer(mappedBuffer, HEADER_LENGTH + metadataLength, valuesLength)
+        );
+        for (int ordinal = 0; ordinal < FrequencyMetric.length(); ordinal++) {
+            final FrequencyMetric metric = FrequencyMetric.byOrdinal(ordinal);
+            if (metrics.contains(metric)) {
+                frequencyCounters[ordinal] = countersManager.newCounter(metric.displayName(), FREQUENCY_COUNTER_TYPE_ID);
+                if (isPerPayloadType(metric, payloadTypeSlots)) {
+                    payloadTypeCounters[ordinal] = new AtomicCounter[payloadTypeSlots.count()];
+                    for (int slot = 0; slot < payloadTypeSlots.count(); slot++) {
+                        payloadTypeCounters[ordinal][slot] = countersManager.newCounter(
+                                metric.displayName() + "[" + (payloadTypeSlots.isOther(slot) ? "other" :
+                                        String.valueOf(payloadTypeSlots.payloadType(slot))) + "]",
+                                FREQUENCY_COUNTER_TYPE_ID);
+                    }
+                }
+            }
+        }
+        for (int ordinal = 0; ordinal < Gauge.length(); ordinal++) {
+            gauges[ordinal] = countersManager.newCounter(Gauge.byOrdinal(ordinal).displayName(), GAUGE_COUNTER_TYPE_ID);
+        }
+        gauge(Gauge.LAST_APPLIED_EVENT_SEQUENCE, NIL_SEQUENCE);
+        gauge(Gauge.MAX_AVAILABLE_EVENT_SEQUENCE, NIL_SEQUENCE);
+        gauge(Gauge.NEWEST_EVENT_TIME, TimeSource.MIN_VALUE);
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putInt(METADATA_LENGTH_OFFSET, metadataLength);
+        header.putInt(VALUES_LENGTH_OFFSET, valuesLength);
+        header.putIntOrdered(MAGIC_OFFSET, MAGIC);
+    }
+
+    private static boolean isPerPayloadType(final FrequencyMetric metric, final PayloadTypeSlots payloadTypeSlots) {
+        if (payloadTypeSlots.count() <= 1) {
+            return false;
+        }
+        switch (metric) {
+            case COMMAND_PROCESSED_FREQUENCY:
+            case EVENT_APPLIED_FREQUENCY:
+            case OUTPUT_PUBLISHED_FREQUENCY:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static int counterCount(final PayloadTypeSlots payloadTypeSlots) {
+        int perPayloadType = 0;
+        for (int ordinal = 0; ordinal < FrequencyMetric.length(); ordinal++) {
+            if (isPerPayloadType(FrequencyMetric.byOrdinal(ordinal), payloadTypeSlots)) {
+                perPayloadType++;
+            }
+        }
+        return FrequencyMetric.length() + Gauge.length() + perPayloadType * payloadTypeSlots.count();
+    }
+
+    public static int fileLength(final PayloadTypeSlots payloadTypeSlots) {
+        final int counterCount = counterCount(payloadTypeSlots);
+        return HEADER_LENGTH + counterCount * (METADATA_LENGTH + COUNTER_LENGTH);
+    }
+
+    /**
+     * Creates a new counters file replacing any existing file with the same name.
+     *
+     * @param file      the counters file
+     * @param metrics   the frequency metrics for which counters are created
+     * @return the counters
+     */
+    public static MetricsCounters create(final File file, final Set<FrequencyMetric> metrics) {
+        return create(file, metrics, PayloadTypeSlots.NONE);
+    }
+
+    /**
+     * Creates a new counters file replacing any existing file with the same name.
+     *
+     * @param file              the counters file
+     * @param metrics           the frequency metrics for which counters are created
+     * @param payloadTypeSlots  payload types for which per-message frequency metrics are counted separately
+     * @return the counters
+     */
+    public static MetricsCounters create(final File file,
+                                         final Set<FrequencyMetric> metrics,
+                                         final PayloadTypeSlots payloadTypeSlots) {
+        requireNonNull(file);
+        requireNonNull(metrics);
+        requireNonNull(payloadTypeSlots);
+        if (file.exists() && !file.delete()) {
+            throw new IllegalStateException("Could not delete existing counters file: " + file);
+        }
+        return new MetricsCounters(file, IoUtil.mapNewFile(file, fileLength(payloadTypeSlots)), metrics,
+                payloadTypeSlots);
+    }
+
+    /**
+     * Maps an existing counters file read-only and returns a reader for it.  The mapped memory is released when the
+     * reader becomes unreachable.
+     *
+     * @param file the counters file
+     * @return a reader for the counters in the file
+     * @throws IllegalStateException if the file is not a valid counters file
+     */
+    public static CountersReader reader(final File file) {
+        requireNonNull(file);
+        if (file.length() < HEADER_LENGTH) {
+            throw new IllegalStateException("Invalid counters file length " + file.length() + ": " + file);
+        }
+        final MappedByteBuffer mappedBuffer = IoUtil.mapExistingFile(file, FileChannel.MapMode.READ_ONLY,
+                file.getAbsolutePath());
+        final UnsafeBuffer header = new UnsafeBuffer(mappedBuffer, 0, HEADER_LENGTH);
+        final int magic = header.getIntVolatile(MAGIC_OFFSET);
+        final int version = header.getInt(VERSION_OFFSET);
+        final int metadataLength = header.getInt(METADATA_LENGTH_OFFSET);
+        final int valuesLength = header.getInt(VALUES_LENGTH_OFFSET);
+        if (magic != MAGIC || version != VERSION ||
+                HEADER_LENGTH + (long)metadataLength + valuesLength > mappedBuffer.capacity()) {
+            IoUtil.unmap(mappedBuffer);
+            throw new IllegalStateException("Invalid counters file with magic=" + Integer.toHexString(magic) +
+                    " and version=" + version + ": " + file);
+        }
+        return new CountersReader(
+                new UnsafeBuffer(mappedBuffer, HEADER_LENGTH, metadataLength),
+                new UnsafeBuffer(mappedBuffer, HEADER_LENGTH + metadataLength, valuesLength)
+        );
+    }
+
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Adds the given value to the counter of the specified metric if such a counter exists.
+     *
+     * @param metric    the frequency metric
+     * @param add       the value to add
+     */
+    public void count(final FrequencyMetric metric, final long add) {
+        final AtomicCounter counter = frequencyCounters[metric.ordinal()];
+        if (counter != null) {
+            counter.getAndAddOrdered(add);
+        }
+    }
+
+    /**
+     * Adds the given value to the counter of the specified metric, and to the counter for the payload type if the
+     * metric is counted per payload type.
+     *
+     * @param metric        the frequency metric
+     * @param payloadType   the payload type of the command or event
+     * @param add           the value to add
+     */
+    public void count(final FrequencyMetric metric, final int payloadType, final long add) {
+        count(metric, add);
+        final AtomicCounter[] counters = payloadTypeCounters[metric.ordinal()];
+        if (counters != null) {
+            counters[payloadTypeSlots.slot(payloadType)].getAndAddOrdered(add);
+        }
+    }
+
+    public long counter(final FrequencyMetric metric) {
+        final AtomicCounter counter = frequencyCounters[metric.ordinal()];
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * Returns the counter value of the specified metric and payload type slot, or zero if the metric is not counted
+     * per payload type.
+     *
+     * @param metric    the frequency metric
+     * @param slot      the payload type slot
+     * @return the counter value
+     * @see PayloadTypeSlots#slot(int)
+     */
+    public long counter(final FrequencyMetric metric, final int slot) {
+        final AtomicCounter[] counters = payloadTypeCounters[metric.ordinal()];
+        return counters == null ? 0 : counters[slot].get();
+    }
+
+    public void gauge(final Gauge gauge, final long value) {
+        gauges[gauge.ordinal()].setOrdered(value);
+    }
+
+    public long gauge(final Gauge gauge) {
+        return gauges[gauge.ordinal()].get();
+    }
+
+    /**
+     * Updates all gauges from the given state;  transient in-flight and engine information is only available if the
+     * state is an {@link EventProcessingState}.
+     *
+     * @param baseState the application base state
+     */
+    public void update(final BaseState baseState) {
+        gauge(Gauge.LAST_APPLIED_EVENT_SEQUENCE, baseState.lastAppliedEventSequence());
+        if (baseState instanceof EventProcessingState) {
+            final EventProcessingState state = (EventProcessingState)baseState;
+            final TransientEngineState engineState = state.transientEngineState();
+            final TransientInFlightState inFlightState = state.transientInFlightState();
+            gauge(Gauge.MAX_AVAILABLE_EVENT_SEQUENCE, engineState.maxAvailableEventSequence());
+            gauge(Gauge.NEWEST_EVENT_TIME, engineState.newestEventTime());
+            gauge(Gauge.IN_FLIGHT_COMMANDS, inFlightState.inFlightCommands());
+            gauge(Gauge.IN_FLIGHT_BYTES, inFlightState.inFlightBytes());
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            IoUtil.unmap(mappedBuffer);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsCounters:file=" + file + "|closed=" + closed;
+    }
+}
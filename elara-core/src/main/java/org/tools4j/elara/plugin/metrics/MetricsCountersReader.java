@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.metrics;
+
+import org.agrona.concurrent.status.CountersReader;
+
+import java.io.File;
+import java.io.PrintStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Command line tool sampling and printing the counters of a {@link MetricsCounters} file.
+ * <p>
+ * Usage: {@code MetricsCountersReader <file> [<interval-millis> [<samples>]]}.  Without interval the counters are
+ * printed once, otherwise they are printed every interval until the specified number of samples (default unlimited)
+ * have been printed.
+ */
+public class MetricsCountersReader {
+
+    private final CountersReader reader;
+    private final PrintStream out;
+
+    public MetricsCountersReader(final CountersReader reader, final PrintStream out) {
+        this.reader = requireNonNull(reader);
+        this.out = requireNonNull(out);
+    }
+
+    public void print(final long sample) {
+        final StringBuilder line = new StringBuilder(256);
+        line.append("sample=").append(sample);
+        reader.forEach((value, counterId, label) -> line.append('|').append(label).append('=').append(value));
+        out.println(line);
+    }
+
+    private static final int ERR_SYNTAX = 1;
+    private static final int ERR_FILE = 2;
+
+    public static void main(final String... args) throws InterruptedException {
+        if (args.length < 1 || args.length > 3) {
+            printHelp();
+            System.exit(ERR_SYNTAX);
+        }
+        final long interval;
+        final long samples;
+        try {
+            interval = args.length > 1 ? Long.parseLong(args[1]) : 0;
+            samples = args.length > 2 ? Long.parseLong(args[2]) : (interval > 0 ? Long.MAX_VALUE : 1);
+        } catch (final NumberFormatException e) {
+            printHelp();
+            System.exit(ERR_SYNTAX);
+            return;
+        }
+        final CountersReader countersReader;
+        try {
+            countersReader = MetricsCounters.reader(new File(args[0]));
+        } catch (final Exception e) {
+            System.err.println("ERROR: cannot open counters file " + args[0] + " [error=" + e + "]");
+            System.exit(ERR_FILE);
+            return;
+        }
+        final MetricsCountersReader reader = new MetricsCountersReader(countersReader, System.out);
+        for (long sample = 0; sample < samples; sample++) {
+            if (sample > 0) {
+                Thread.sleep(interval);
+            }
+            reader.print(sample);
+        }
+    }
+
+    private static void printHelp() {
+        System.err.println("usage: " + MetricsCountersReader.class.getSimpleName() +
+                " <file> [<interval-millis> [<samples>]]");
+    }
+}
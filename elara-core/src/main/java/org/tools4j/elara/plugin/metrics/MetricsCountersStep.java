@@ -0,0 +1,50 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.metrics;
+
+import org.tools4j.elara.app.state.BaseState;
+import org.tools4j.elara.step.AgentStep;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Step updating the {@link MetricsCounters.Gauge gauges} of the counters file in every duty cycle.
+ */
+public class MetricsCountersStep implements AgentStep {
+
+    private final BaseState baseState;
+    private final MetricsCounters counters;
+
+    public MetricsCountersStep(final BaseState baseState, final MetricsCounters counters) {
+        this.baseState = requireNonNull(baseState);
+        this.counters = requireNonNull(counters);
+    }
+
+    @Override
+    public int doWork() {
+        counters.update(baseState);
+        //NOTE: updating gauges is not considered work as it would otherwise disable any idle strategy
+        return 0;
+    }
+}
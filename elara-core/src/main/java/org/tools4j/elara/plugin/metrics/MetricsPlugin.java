@@ -76,18 +76,31 @@ public class MetricsPlugin implements SystemPlugin<MetricsState> {
         public Installer installer(final AppConfig appConfig, final MetricsState pluginState) {
             requireNonNull(appConfig);
             requireNonNull(pluginState);
+            final LatencyHistograms latencyHistograms = config.latencyHistogramInterval() > 0 ?
+                    new LatencyHistograms(config, pluginState) : null;
+            final MetricsCounters counters = config.countersFile() == null ? null :
+                    MetricsCounters.create(config.countersFile(), config.frequencyMetrics(),
+                            config.payloadTypeSlots());
             return new Installer.Default() {
                 @Override
                 public AgentStep step(final BaseState baseState, final ExecutionType executionType) {
-                    if (config.frequencyMetrics().isEmpty() || executionType != ExecutionType.ALWAYS) {
+                    if (executionType != ExecutionType.ALWAYS) {
                         return AgentStep.NOOP;
                     }
-                    return new FrequencyMetricsWriterStep(appConfig.timeSource(), config, pluginState);
+                    final AgentStep frequencyStep = config.frequencyMetrics().isEmpty() ||
+                            config.frequencyMetricInterval() == 0 ? AgentStep.NOOP :
+                            new FrequencyMetricsWriterStep(appConfig.timeSource(), config, pluginState);
+                    final AgentStep histogramStep = latencyHistograms == null ? AgentStep.NOOP :
+                            new LatencyHistogramWriterStep(appConfig.timeSource(), config, latencyHistograms);
+                    final AgentStep countersStep = counters == null ? AgentStep.NOOP :
+                            new MetricsCountersStep(baseState, counters);
+                    return AgentStep.composite(frequencyStep, histogramStep, countersStep);
                 }
 
                 @Override
                 public Interceptor interceptor(final StateFactory stateFactory) {
-                    return new MetricsCapturingInterceptor(appConfig.timeSource(), config, pluginState);
+                    return new MetricsCapturingInterceptor(appConfig.timeSource(), config, pluginState,
+                            latencyHistograms, counters);
                 }
             };
         }
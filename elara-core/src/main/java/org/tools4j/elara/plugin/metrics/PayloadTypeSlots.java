@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.metrics;
+
+import org.agrona.collections.Int2IntHashMap;
+
+/**
+ * Maps a bounded set of pre-registered payload types to slot indices used to key metrics by payload type.  All other
+ * payload types share the last slot, the {@link #otherSlot() other} slot.
+ * <p>
+ * Registered payload types must be in the range of a short value so that they can be encoded in time metrics frames.
+ */
+public final class PayloadTypeSlots {
+
+    /** Slots without payload types, all metrics are recorded in the other slot */
+    public static final PayloadTypeSlots NONE = new PayloadTypeSlots();
+
+    private static final int MISSING = -1;
+
+    private final int[] payloadTypes;
+    private final Int2IntHashMap slotByPayloadType;
+
+    public PayloadTypeSlots(final int... payloadTypes) {
+        this.payloadTypes = validate(payloadTypes).clone();
+        this.slotByPayloadType = new Int2IntHashMap(Math.max(8, 2 * payloadTypes.length), 0.5f, MISSING);
+        for (int slot = 0; slot < payloadTypes.length; slot++) {
+            slotByPayloadType.put(payloadTypes[slot], slot);
+        }
+    }
+
+    private static int[] validate(final int... payloadTypes) {
+        for (int i = 0; i < payloadTypes.length; i++) {
+            final int payloadType = payloadTypes[i];
+            if (payloadType < Short.MIN_VALUE || payloadType > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Payload type " + payloadType + " is not in short value range");
+            }
+            for (int j = 0; j < i; j++) {
+                if (payloadTypes[j] == payloadType) {
+                    throw new IllegalArgumentException("Duplicate payload type " + payloadType);
+                }
+            }
+        }
+        return payloadTypes;
+    }
+
+    /**
+     * Returns the number of slots including the other slot.
+     *
+     * @return the number of registered payload types plus one
+     */
+    public int count() {
+        return payloadTypes.length + 1;
+    }
+
+    public int otherSlot() {
+        return payloadTypes.length;
+    }
+
+    public boolean isOther(final int slot) {
+        return slot == payloadTypes.length;
+    }
+
+    public int slot(final int payloadType) {
+        final int slot = slotByPayloadType.get(payloadType);
+        return slot == MISSING ? payloadTypes.length : slot;
+    }
+
+    /**
+     * Returns the payload type registered for the given slot.
+     *
+     * @param slot the slot index
+     * @return the payload type for the slot
+     * @throws IndexOutOfBoundsException if slot is the other slot or invalid
+     */
+    public int payloadType(final int slot) {
+        return payloadTypes[slot];
+    }
+
+    public boolean isRegistered(final int payloadType) {
+        return slotByPayloadType.get(payloadType) != MISSING;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(32 + 8 * payloadTypes.length);
+        sb.append("PayloadTypeSlots:payload-types=[");
+        for (int slot = 0; slot < payloadTypes.length; slot++) {
+            sb.append(slot == 0 ? "" : ",").append(payloadTypes[slot]);
+        }
+        return sb.append("]").toString();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.metrics;
+
+import org.agrona.collections.Long2LongHashMap;
+import org.tools4j.elara.time.TimeSource;
+
+import static java.util.Objects.requireNonNull;
+import static org.tools4j.elara.app.state.BaseState.NIL_SEQUENCE;
+
+/**
+ * Sampler capturing at most a fixed number of commands per time interval.
+ * <p>
+ * The decision is taken when a command is seen for the first time.  Sampled commands are remembered in a small ring so
+ * that later stages of the same command chain such as events and outputs are sampled, too.  Commands seen before but
+ * not sampled are recognised through the highest decided sequence per source, which assumes that source sequences are
+ * increasing.  Outputs of a sampled command that is evicted from the ring before the output is published are not
+ * sampled.
+ */
+public class TimeBudgetedSampler implements TimeMetricsSampler {
+
+    public static final int DEFAULT_RING_CAPACITY = 64;
+
+    private final TimeSource timeSource;
+    private final long interval;
+    private final int maxSamples;
+    private final Long2LongHashMap decidedSequenceBySourceId = new Long2LongHashMap(NIL_SEQUENCE);
+    private final int[] sampledSourceIds;
+    private final long[] sampledSourceSequences;
+    private int ringIndex;
+    private long intervalStartTime;
+    private int intervalSamples;
+    private boolean started;
+
+    public TimeBudgetedSampler(final TimeSource timeSource, final long interval, final int maxSamples) {
+        this(timeSource, interval, maxSamples, DEFAULT_RING_CAPACITY);
+    }
+
+    public TimeBudgetedSampler(final TimeSource timeSource,
+                               final long interval,
+                               final int maxSamples,
+                               final int ringCapacity) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive: " + interval);
+        }
+        if (maxSamples <= 0) {
+            throw new IllegalArgumentException("maxSamples must be positive: " + maxSamples);
+        }
+        if (ringCapacity <= 0) {
+            throw new IllegalArgumentException("ringCapacity must be positive: " + ringCapacity);
+        }
+        this.timeSource = requireNonNull(timeSource);
+        this.interval = interval;
+        this.maxSamples = maxSamples;
+        this.sampledSourceIds = new int[ringCapacity];
+        this.sampledSourceSequences = new long[ringCapacity];
+        for (int i = 0; i < ringCapacity; i++) {
+            sampledSourceSequences[i] = NIL_SEQUENCE;
+        }
+    }
+
+    @Override
+    public boolean sample(final int sourceId, final long sourceSequence) {
+        if (isSampled(sourceId, sourceSequence)) {
+            return true;
+        }
+        final long decidedSequence = decidedSequenceBySourceId.get(sourceId);
+        if (decidedSequence != NIL_SEQUENCE && sourceSequence <= decidedSequence) {
+            return false;
+        }
+        decidedSequenceBySourceId.put(sourceId, sourceSequence);
+        if (!withinBudget()) {
+            return false;
+        }
+        sampledSourceIds[ringIndex] = sourceId;
+        sampledSourceSequences[ringIndex] = sourceSequence;
+        ringIndex = ringIndex + 1 == sampledSourceIds.length ? 0 : ringIndex + 1;
+        return true;
+    }
+
+    private boolean isSampled(final int sourceId, final long sourceSequence) {
+        for (int i = 0; i < sampledSourceIds.length; i++) {
+            if (sampledSourceSequences[i] == sourceSequence && sampledSourceIds[i] == sourceId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean withinBudget() {
+        final long time = timeSource.currentTime();
+        if (!started || time - intervalStartTime >= interval) {
+            started = true;
+            intervalStartTime = time;
+            intervalSamples = 0;
+        }
+        if (intervalSamples < maxSamples) {
+            intervalSamples++;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "TimeBudgetedSampler" +
+                ":interval=" + interval +
+                "|max-samples=" + maxSamples +
+                "|ring-capacity=" + sampledSourceIds.length;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.metrics;
+
+import org.tools4j.elara.time.TimeSource;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sampling policy deciding whether time metrics are captured for a command and all events and outputs resulting from
+ * it.  The decision is made per command source ID and sequence, and is requested again at every stage of the chain;
+ * implementations must therefore return the same decision for the same command every time so that latencies can still
+ * be reconstructed from sampled commands, events and outputs.
+ */
+@FunctionalInterface
+public interface TimeMetricsSampler {
+    /** Sampler capturing time metrics for every command, event and output */
+    TimeMetricsSampler ALL = (sourceId, sourceSequence) -> true;
+
+    /**
+     * Returns true if time metrics should be captured for the command with the given source ID and sequence, and for
+     * all events and outputs resulting from it.
+     *
+     * @param sourceId          the command source ID
+     * @param sourceSequence    the command source sequence
+     * @return true if time metrics are captured for the command and its events and outputs
+     */
+    boolean sample(int sourceId, long sourceSequence);
+
+    /**
+     * Returns a sampler that samples only if this and the other sampler sample;  the other sampler is only invoked
+     * if this sampler samples.
+     *
+     * @param other the other sampler
+     * @return a sampler combining this and the other sampler
+     */
+    default TimeMetricsSampler and(final TimeMetricsSampler other) {
+        requireNonNull(other);
+        return (sourceId, sourceSequence) -> sample(sourceId, sourceSequence) && other.sample(sourceId, sourceSequence);
+    }
+
+    /**
+     * Returns a stateless sampler sampling approximately one in {@code n} commands.  The decision is a hash of source
+     * ID and sequence and is hence consistent across stages and processes.
+     *
+     * @param n the sampling ratio denominator, one samples every command
+     * @return a sampler for one in n commands
+     */
+    static TimeMetricsSampler oneIn(final int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive: " + n);
+        }
+        if (n == 1) {
+            return ALL;
+        }
+        return (sourceId, sourceSequence) -> Long.remainderUnsigned(mix(sourceId, sourceSequence), n) == 0;
+    }
+
+    /**
+     * Returns a stateless sampler sampling all commands from the given sources.
+     *
+     * @param sourceIds the IDs of the sources whose commands are sampled
+     * @return a sampler for commands from the given sources
+     */
+    static TimeMetricsSampler sources(final int... sourceIds) {
+        final int[] ids = sourceIds.clone();
+        return (sourceId, sourceSequence) -> {
+            for (final int id : ids) {
+                if (id == sourceId) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * Returns a sampler capturing at most {@code maxSamples} commands per time interval.
+     *
+     * @param timeSource    the time source
+     * @param interval      the time interval in time source units
+     * @param maxSamples    the maximum number of commands sampled per interval
+     * @return a time budgeted sampler
+     * @see TimeBudgetedSampler
+     */
+    static TimeMetricsSampler budgeted(final TimeSource timeSource, final long interval, final int maxSamples) {
+        return new TimeBudgetedSampler(timeSource, interval, maxSamples);
+    }
+
+    static long mix(final int sourceId, final long sourceSequence) {
+        long hash = sourceSequence * 0x9e3779b97f4a7c15L + sourceId;
+        hash ^= (hash >>> 32);
+        hash *= 0xd6e8feb86659fd93L;
+        hash ^= (hash >>> 32);
+        return hash;
+    }
+}
@@ -36,11 +36,17 @@ import static java.util.Objects.requireNonNull;
 import static org.tools4j.elara.plugin.metrics.TimeMetric.METRIC_APPENDING_TIME;
 import static org.tools4j.elara.plugin.metrics.TimeMetric.Target.COMMAND;
 
+/**
+ * Writes time metrics frames to the time metrics store, or records latencies into {@link LatencyHistograms} instead if
+ * histograms are provided.
+ */
 public class TimeMetricsWriter {
 
     private final TimeSource timeSource;
     private final MetricsConfig configuration;
     private final MetricsState state;
+    private final LatencyHistograms latencyHistograms;
+    private final PayloadTypeSlots payloadTypeSlots;
     private final Appender appender;
     private final int[] metricTypesByTargetOrdinal;
     private final TimeMetric[][] metricsByTargetOrdinal;
@@ -48,14 +54,32 @@ public class TimeMetricsWriter {
     public TimeMetricsWriter(final TimeSource timeSource,
                              final MetricsConfig configuration,
                              final MetricsState state) {
+        this(timeSource, configuration, state, null);
+    }
+
+    /**
+     * Constructor for time metrics writer.
+     *
+     * @param timeSource        the time source
+     * @param configuration     the metrics configuration
+     * @param state             the metrics state with captured time metrics
+     * @param latencyHistograms histograms to record latencies instead of writing time metrics frames, or null to write
+     *                          time metrics frames to the time metrics store
+     */
+    public TimeMetricsWriter(final TimeSource timeSource,
+                             final MetricsConfig configuration,
+                             final MetricsState state,
+                             final LatencyHistograms latencyHistograms) {
         this.timeSource = requireNonNull(timeSource);
         this.configuration = requireNonNull(configuration);
         this.state = requireNonNull(state);
+        this.latencyHistograms = latencyHistograms;
+        this.payloadTypeSlots = requireNonNull(configuration.payloadTypeSlots(), "configuration.payloadTypeSlots()");
         if (configuration.timeMetrics().isEmpty()) {
             throw new IllegalArgumentException("Configuration contains no time metrics");
         }
-        this.appender = requireNonNull(configuration.timeMetricsStore(), "configuration.timeMetricsStore()")
-                .appender();
+        this.appender = latencyHistograms != null ? null :
+                requireNonNull(configuration.timeMetricsStore(), "configuration.timeMetricsStore()").appender();
         metricTypesByTargetOrdinal = new int[Target.length()];
         metricsByTargetOrdinal = new TimeMetric[Target.length()][];
         for (int ordinal = 0; ordinal < Target.length(); ordinal++) {
@@ -77,10 +101,14 @@ public class TimeMetricsWriter {
         if (metrics.length == 0) {
             return 0;
         }
+        if (latencyHistograms != null) {
+            return recordLatencies(COMMAND, command.payloadType(), metrics);
+        }
         try (final AppendingContext context = appender.appending()) {
             final MutableDirectBuffer buffer = context.buffer();
             int length = FlyweightTimeMetrics.writeHeader(command.sourceId(), command.sourceSequence(),
-                    metricTypes, timeSource.currentTime(), metrics.length, buffer, 0);
+                    metricTypes(metricTypes, command.payloadType()), timeSource.currentTime(), metrics.length,
+                    buffer, 0);
             length += writeTimeValues(metrics, buffer, 0);
             context.commit(length);
         }
@@ -89,14 +117,15 @@ public class TimeMetricsWriter {
 
     public int writeMetrics(final Target target, final Event event) {
         return writeMetrics(target, event.sourceId(), event.sourceSequence(), (short)event.eventIndex(),
-                event.eventSequence());
+                event.eventSequence(), event.payloadType());
     }
 
     public int writeMetrics(final Target target,
                             final int sourceId,
                             final long sourceSequence,
                             final short eventIndex,
-                            final long eventSequence) {
+                            final long eventSequence,
+                            final int payloadType) {
         if (target == COMMAND) {
             throw new IllegalArgumentException("Command target not applicable for events");
         }
@@ -105,10 +134,13 @@ public class TimeMetricsWriter {
         if (metrics.length == 0) {
             return 0;
         }
+        if (latencyHistograms != null) {
+            return recordLatencies(target, payloadType, metrics);
+        }
         try (final AppendingContext context = appender.appending()) {
             final MutableDirectBuffer buffer = context.buffer();
             int length = FlyweightTimeMetrics.writeHeader(sourceId, sourceSequence, eventIndex, eventSequence,
-                    metricTypes, timeSource.currentTime(),
+                    metricTypes(metricTypes, payloadType), timeSource.currentTime(),
                     metrics.length, buffer, 0);
             length += writeTimeValues(metrics, buffer, 0);
             context.commit(length);
@@ -116,6 +148,19 @@ public class TimeMetricsWriter {
         return 1;
     }
 
+    private int metricTypes(final int metricTypes, final int payloadType) {
+        return payloadTypeSlots.isRegistered(payloadType) ?
+                FlyweightTimeMetrics.metricTypes(metricTypes, payloadType) : metricTypes;
+    }
+
+    private int recordLatencies(final Target target, final int payloadType, final TimeMetric[] metrics) {
+        final int recorded = latencyHistograms.record(target, payloadType);
+        for (int i = 0; i < metrics.length; i++) {
+            state.clear(metrics[i]);
+        }
+        return recorded;
+    }
+
     private int writeTimeValues(final TimeMetric[] metrics, final MutableDirectBuffer buffer, final int offset) {
         int length = 0;
         for (int i = 0; i < metrics.length; i++) {
@@ -25,6 +25,8 @@ package org.tools4j.elara.plugin.replication;
 
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.AgentTerminationException;
+import org.agrona.concurrent.NanoClock;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.tools4j.elara.app.state.BaseState;
 import org.tools4j.elara.flyweight.FlyweightEvent;
@@ -32,16 +34,25 @@ import org.tools4j.elara.logging.ElaraLogger;
 import org.tools4j.elara.logging.Logger;
 import org.tools4j.elara.logging.Logger.Level;
 import org.tools4j.elara.plugin.replication.Connection.Publisher;
+import org.tools4j.elara.store.IndexTrackingPoller;
+import org.tools4j.elara.store.MessageStore;
 import org.tools4j.elara.store.MessageStore.Appender;
+import org.tools4j.elara.store.MessageStore.Handler;
+import org.tools4j.elara.store.MessageStore.Handler.Result;
 
 import java.nio.ByteBuffer;
 
 import static java.util.Objects.requireNonNull;
+import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.EVENT_OFFSET;
 import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.HEADER_LENGTH;
 import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.PAYLOAD_OFFSET;
 import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.VERSION;
 import static org.tools4j.elara.plugin.replication.ReplicationMessages.APPEND_REQUEST;
 import static org.tools4j.elara.plugin.replication.ReplicationMessages.APPEND_RESPONSE;
+import static org.tools4j.elara.plugin.replication.ReplicationMessages.VOTE_REQUEST;
+import static org.tools4j.elara.plugin.replication.ReplicationMessages.VOTE_RESPONSE;
+import static org.tools4j.elara.plugin.replication.ReplicationMessages.committedStoreIndex;
+import static org.tools4j.elara.plugin.replication.ReplicationMessages.eventLength;
 import static org.tools4j.elara.plugin.replication.ReplicationMessages.payloadSize;
 import static org.tools4j.elara.plugin.replication.ReplicationMessages.storeIndex;
 import static org.tools4j.elara.plugin.replication.ReplicationMessages.term;
@@ -51,30 +62,46 @@ import static org.tools4j.elara.plugin.replication.ReplicationMessages.version;
 final class ConnectionHandler implements Connection.Handler {
 
     public static final long RESPONSE_DELAY_NANOS = 60;
-    public static final long RESEND_DELAY_NANOS = 10_000;
+    private static final int NO_TERM = -1;
 
     private final ElaraLogger logger;
     private final int serverId;
     private final BaseState baseState;
     private final ReplicationState.Volatile state;
+    private final NanoClock clock;
     private final Appender eventStoreAppender;
+    private final IndexTrackingPoller eventStorePoller;
     private final Publisher responseSender;
+    private final LeaderElection leaderElection;
+    private final DefaultReplicationMetrics metrics;
     private final FlyweightEvent flyweightEvent = new FlyweightEvent();
     private final UnsafeBuffer bufferView = new UnsafeBuffer(0, 0);
+    private final UnsafeBuffer receivedEvent = new UnsafeBuffer(0, 0);
+    private final Handler storedEventMatcher = this::matchStoredEvent;
     private final MutableDirectBuffer sendBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(HEADER_LENGTH));
+    private int verifiedTerm = NO_TERM;
+    private long verifiedEventStoreSize;
+    private boolean storedEventMatched;
 
     ConnectionHandler(final Logger.Factory loggerFactory,
                       final ReplicationConfig configuration,
                       final BaseState baseState,
                       final ReplicationState.Volatile state,
+                      final MessageStore eventStore,
                       final Appender eventStoreAppender,
-                      final Publisher responseSender) {
+                      final Publisher responseSender,
+                      final LeaderElection leaderElection,
+                      final DefaultReplicationMetrics metrics) {
         this.logger = ElaraLogger.create(loggerFactory, getClass());
         this.serverId = configuration.serverId();
         this.baseState = requireNonNull(baseState);
         this.state = requireNonNull(state);
+        this.clock = configuration.nanoClock();
         this.eventStoreAppender = requireNonNull(eventStoreAppender);
+        this.eventStorePoller = IndexTrackingPoller.create(eventStore);
         this.responseSender = requireNonNull(responseSender);
+        this.leaderElection = requireNonNull(leaderElection);
+        this.metrics = requireNonNull(metrics);
     }
 
     @Override
@@ -88,6 +115,16 @@ final class ConnectionHandler implements Connection.Handler {
                         .replace(serverId).replace(type).replace(senderServerId).replace(version).replace(VERSION).format();
                 return;
             }
+            final long nanoTime = clock.nanoTime();
+            metrics.received(senderServerId, nanoTime);
+            if (type == VOTE_REQUEST) {
+                leaderElection.onVoteRequest(senderServerId, bufferView, nanoTime);
+                return;
+            }
+            if (type == VOTE_RESPONSE) {
+                leaderElection.onVoteResponse(senderServerId, bufferView);
+                return;
+            }
             if (isLeader()) {
                 if (type != APPEND_RESPONSE) {
                     logger.warn("Server {}: Ignoring message of type {} from sender {} in leader mode")
@@ -115,56 +152,142 @@ final class ConnectionHandler implements Connection.Handler {
 
     private void handleAppendRequest(final int senderServerId, final DirectBuffer buffer) {
         final int senderTerm = term(buffer);
-        final int currentTerm = state.term();
+        final int currentTerm = Math.max(state.term(), state.electionTerm());
         if (senderTerm < currentTerm) {
             logger.warn("Server {}: Ignoring append-request message in follower mode: term {} of sender {} is lower than current term {}")
                     .replace(serverId).replace(senderTerm).replace(senderServerId).replace(currentTerm).format();
             return;
         }
         final int leaderId = state.leaderId();
-        if (senderTerm == currentTerm && senderServerId != state.leaderId()) {
+        if (senderTerm == state.term() && senderServerId != leaderId) {
             logger.warn("Server {}: Ignoring append-request message in follower mode: leader is {} in term {} but message received from sender {}")
-                    .replace(serverId).replace(leaderId).replace(currentTerm).replace(senderServerId).format();
+                    .replace(serverId).replace(leaderId).replace(senderTerm).replace(senderServerId).format();
             return;
         }
+        final long nanoTime = clock.nanoTime();
+        leaderElection.onLeaderContact(senderServerId, senderTerm, nanoTime);
         final long storeIndex = storeIndex(buffer);
-        long nextEventStoreIndex = state.eventStoreSize();
-        if (storeIndex == nextEventStoreIndex) {
-            final int payloadSize = payloadSize(buffer);
-            if (payloadSize < FlyweightEvent.HEADER_LENGTH) {
-                logger.warn("Server {}: Ignoring append-request message in follower mode: payload size {} is smaller than frame header length {}")
-                        .replace(serverId).replace(payloadSize).replace(FlyweightEvent.HEADER_LENGTH).format();
-                return;
-            }
-            flyweightEvent.wrap(buffer, PAYLOAD_OFFSET);
-            if (baseState.eventApplied(flyweightEvent.eventSequence())) {
-                logger.warn("Server {}: Ignoring append-request message in follower mode: event {}:{}.{} has already been applied")
-                        .replace(serverId).replace(flyweightEvent.sourceId()).replace(flyweightEvent.sourceSequence()).replace(flyweightEvent.eventIndex()).format();
-                return;
+        final int dataSize = payloadSize(buffer);
+        final int dataEnd = PAYLOAD_OFFSET + dataSize;
+        if (dataSize < 0 || dataEnd > buffer.capacity()) {
+            logger.warn("Server {}: Ignoring append-request message in follower mode: data size {} exceeds message length {}")
+                    .replace(serverId).replace(dataSize).replace(buffer.capacity()).format();
+            return;
+        }
+        if (senderTerm != verifiedTerm) {
+            //events up to the committed index are identical on all servers, also after a restart or if this server was
+            //leader before;  events after the committed index may have been appended by a deposed leader and must be
+            //verified again
+            verifiedTerm = senderTerm;
+            verifiedEventStoreSize = Math.min(state.committedEventStoreIndex() + 1, state.appendedEventStoreSize());
+        }
+        long nextEventStoreIndex = state.appendedEventStoreSize();
+        final boolean accepted = storeIndex <= verifiedEventStoreSize;
+        boolean success = accepted;
+        if (accepted) {
+            long eventStoreIndex = storeIndex;
+            int entryOffset = PAYLOAD_OFFSET;
+            while (entryOffset < dataEnd) {
+                final int eventLength = eventLength(buffer, entryOffset);
+                final int eventOffset = entryOffset + EVENT_OFFSET;
+                if (eventLength < FlyweightEvent.HEADER_LENGTH || eventOffset + eventLength > dataEnd) {
+                    logger.warn("Server {}: Ignoring remaining events of append-request message in follower mode: event length {} at store index {} is invalid")
+                            .replace(serverId).replace(eventLength).replace(eventStoreIndex).format();
+                    break;
+                }
+                if (eventStoreIndex < nextEventStoreIndex) {
+                    if (!isStoredEvent(eventStoreIndex, buffer, eventOffset, eventLength)) {
+                        throw divergence(senderServerId, senderTerm, eventStoreIndex);
+                    }
+                } else {
+                    flyweightEvent.wrap(buffer, eventOffset);
+                    if (baseState.eventApplied(flyweightEvent.eventSequence())) {
+                        logger.warn("Server {}: Ignoring remaining events of append-request message in follower mode: event {}:{}.{} at store index {} has already been applied")
+                                .replace(serverId).replace(flyweightEvent.sourceId()).replace(flyweightEvent.sourceSequence()).replace(flyweightEvent.eventIndex()).replace(eventStoreIndex).format();
+                        flyweightEvent.reset();
+                        success = false;
+                        break;
+                    }
+                    flyweightEvent.reset();
+                    eventStoreAppender.append(buffer, eventOffset, eventLength);
+                    nextEventStoreIndex++;
+                }
+                eventStoreIndex++;
+                entryOffset = eventOffset + eventLength;
             }
-            eventStoreAppender.append(buffer, PAYLOAD_OFFSET, payloadSize);
+            verifiedEventStoreSize = Math.max(verifiedEventStoreSize, eventStoreIndex);
+        }
+        if (nextEventStoreIndex > state.appendedEventStoreSize()) {
+            state.appendedEventStoreSize(nextEventStoreIndex);
             if (logger.isEnabled(Level.DEBUG)) {
-                logger.debug("Server {}: Processed append-request message {} in follower mode")
+                logger.debug("Server {}: Processed append-request message in follower mode, next event store index is {}")
                         .replace(serverId).replace(nextEventStoreIndex).format();
             }
-            nextEventStoreIndex++;
         }
-        final boolean success = storeIndex <= nextEventStoreIndex;
+        if (accepted) {
+            updateCommittedEventStoreIndex(committedStoreIndex(buffer), verifiedEventStoreSize);
+        }
         if (!success && logger.isEnabled(Level.DEBUG)) {
-            logger.debug("Server {}: Ignoring append-request message in follower mode: expected event store index {} but received {}")
-                    .replace(serverId).replace(nextEventStoreIndex).replace(storeIndex).format();
+            logger.debug("Server {}: Rejecting append-request message in follower mode: expected event store index {} but received {}")
+                    .replace(serverId).replace(verifiedEventStoreSize).replace(storeIndex).format();
         }
         final long nextSendingTime = success ? 0 : state.nextNotBefore(senderServerId);
-        if (nextSendingTime == 0 || System.nanoTime() - nextSendingTime >= 0) {
-            final boolean sent = sendAppendResponse(senderServerId, nextEventStoreIndex, success);
+        if (nextSendingTime == 0 || nanoTime - nextSendingTime >= 0) {
+            final boolean sent = sendAppendResponse(senderServerId, verifiedEventStoreSize, success);
             if (success) {
                 state.nextNotBefore(senderServerId, 0);
             } else if (sent) {
-                state.nextNotBefore(senderServerId, System.nanoTime() + RESPONSE_DELAY_NANOS);
+                state.nextNotBefore(senderServerId, nanoTime + RESPONSE_DELAY_NANOS);
             }
         }
     }
 
+    /**
+     * Returns true if the event at the given index in the event store is identical to the event received from the
+     * leader.  Events carry no term, but an event appended by a deposed leader differs from the leader's event at the
+     * same index in source, sequence or time, or in the payload of the leader elected event.
+     */
+    private boolean isStoredEvent(final long eventStoreIndex,
+                                  final DirectBuffer buffer,
+                                  final int eventOffset,
+                                  final int eventLength) {
+        if (eventStorePoller.index() != eventStoreIndex && !eventStorePoller.moveToIndex(eventStoreIndex)) {
+            return false;
+        }
+        receivedEvent.wrap(buffer, eventOffset, eventLength);
+        storedEventMatched = false;
+        eventStorePoller.poll(storedEventMatcher);
+        receivedEvent.wrap(0, 0);
+        return storedEventMatched;
+    }
+
+    private Result matchStoredEvent(final DirectBuffer storedEvent) {
+        storedEventMatched = storedEvent.compareTo(receivedEvent) == 0;
+        return Result.POLL;
+    }
+
+    /**
+     * Returns the exception thrown if the event store contains an event that differs from the leader's event at the same index, which
+     * happens if events were appended by a deposed leader and not replicated before the leader change.  The event
+     * store is append-only and cannot be truncated, and accepting further events would leave this server with a state
+     * that differs from the leader;  the returned exception terminates the agent running this server.
+     */
+    private AgentTerminationException divergence(final int senderServerId, final int senderTerm, final long eventStoreIndex) {
+        logger.error("Server {}: Event store diverged from leader {} in term {} at event store index {}, terminating server")
+                .replace(serverId).replace(senderServerId).replace(senderTerm).replace(eventStoreIndex).format();
+        return new AgentTerminationException("Server " + serverId + ": event store diverged from leader " +
+                senderServerId + " in term " + senderTerm + " at event store index " + eventStoreIndex +
+                "; the event store cannot be truncated, replace it with a copy of the leader's event store and " +
+                "restart the server");
+    }
+
+    private void updateCommittedEventStoreIndex(final long leaderCommittedIndex, final long nextEventStoreIndex) {
+        final long committedIndex = Math.min(leaderCommittedIndex, nextEventStoreIndex - 1);
+        if (committedIndex > state.committedEventStoreIndex()) {
+            state.committedEventStoreIndex(committedIndex);
+        }
+    }
+
     private boolean sendAppendResponse(final int targetServerId,
                                        final long nextEventStoreIndex,
                                        final boolean success) {
@@ -181,7 +304,7 @@ final class ConnectionHandler implements Connection.Handler {
     private void handleAppendResponse(final int senderServerId, final DirectBuffer buffer) {
         final boolean appendSuccessful = ReplicationMessages.isAppendSuccess(buffer);
         final long nextEventStoreIndex = storeIndex(buffer);
-        if (appendSuccessful && nextEventStoreIndex > 0) {
+        if (appendSuccessful && nextEventStoreIndex - 1 > state.confirmedEventStoreIndex(senderServerId)) {
             state.confirmedEventStoreIndex(senderServerId, nextEventStoreIndex - 1);
         }
         if (!appendSuccessful || nextEventStoreIndex > state.nextEventStoreIndex(senderServerId)) {
@@ -196,7 +319,7 @@ final class ConnectionHandler implements Connection.Handler {
     }
 
     private boolean isLeader() {
-        return serverId == state.leaderId();
+        return state.isLeader(serverId);
     }
 
 }
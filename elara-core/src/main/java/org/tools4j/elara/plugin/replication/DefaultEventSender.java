@@ -27,75 +27,185 @@ import org.agrona.DirectBuffer;
 import org.agrona.ExpandableDirectByteBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.agrona.collections.Int2ObjectHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.tools4j.elara.flyweight.FrameDescriptor;
 import org.tools4j.elara.plugin.replication.Connection.Publisher;
 import org.tools4j.elara.store.IndexTrackingPoller;
 import org.tools4j.elara.store.MessageStore;
 import org.tools4j.elara.store.MessageStore.Handler;
 
+import java.nio.ByteBuffer;
+
 import static java.util.Objects.requireNonNull;
-import static org.tools4j.elara.plugin.replication.ReplicationState.NULL_SERVER;
+import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.HEADER_LENGTH;
+import static org.tools4j.elara.plugin.replication.ReplicationMessages.appendRequestEventEntryLength;
 
 final class DefaultEventSender implements EventSender {
 
-    private final ReplicationState state;
+    private final ReplicationState.Volatile state;
     private final Publisher publisher;
-    private final MutableDirectBuffer sendBuffer;
-    private final Int2ObjectHashMap<IndexTrackingPoller> pollerByServerId = new Int2ObjectHashMap<>();
-    private final PublishingHandler publishingHandler = new PublishingHandler();
+    private final int maxBatchSize;
+    private final long bytesPerSecond;
+    private final MutableDirectBuffer heartbeatBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(HEADER_LENGTH));
+    private final Int2ObjectHashMap<Batch> batchByServerId = new Int2ObjectHashMap<>();
 
     DefaultEventSender(final ReplicationConfig configuration,
-                       final ReplicationState state,
+                       final ReplicationState.Volatile state,
                        final MessageStore messageStore,
-                       final Publisher publisher) {
+                       final Publisher publisher,
+                       final DefaultReplicationMetrics metrics) {
+        this(configuration, state, messageStore, publisher, metrics, configuration.maxBatchSize(), 0);
+    }
+
+    /**
+     * Constructor for an event sender with the given batch size, throttled to the specified number of bytes per second
+     * per target server, or unthrottled if bytesPerSecond is zero.
+     */
+    DefaultEventSender(final ReplicationConfig configuration,
+                       final ReplicationState.Volatile state,
+                       final MessageStore messageStore,
+                       final Publisher publisher,
+                       final DefaultReplicationMetrics metrics,
+                       final int maxBatchSize,
+                       final long bytesPerSecond) {
         requireNonNull(configuration);
         this.state = requireNonNull(state);
         requireNonNull(messageStore);
         this.publisher = requireNonNull(publisher);
-        this.sendBuffer = new ExpandableDirectByteBuffer(Math.max(FrameDescriptor.HEADER_LENGTH, configuration.initialSendBufferCapacity()));
+        requireNonNull(metrics);
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive: " + maxBatchSize);
+        }
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("Bytes per second cannot be negative: " + bytesPerSecond);
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.bytesPerSecond = bytesPerSecond;
+        final int initialCapacity = Math.max(HEADER_LENGTH + FrameDescriptor.HEADER_LENGTH,
+                configuration.initialSendBufferCapacity());
         final int currentServerId = configuration.serverId();
         for (final int serverId : configuration.serverIds()) {
             if (serverId != currentServerId) {
-                pollerByServerId.put(serverId, IndexTrackingPoller.create(messageStore));
+                batchByServerId.put(serverId, new Batch(serverId, IndexTrackingPoller.create(messageStore),
+                        metrics.follower(serverId), initialCapacity));
             }
         }
     }
 
     @Override
-    public boolean sendEvent(final int targetServerId, final long eventStoreIndex) {
-        final IndexTrackingPoller poller = pollerByServerId.get(targetServerId);
-        if (poller == null) {
+    public long sendEvents(final int targetServerId, final long eventStoreIndex, final long eventStoreLimit) {
+        final Batch batch = batchByServerId.get(targetServerId);
+        if (batch == null) {
             throw new NullPointerException("No poller found for target server " + targetServerId);
         }
-        final long index = poller.index();
-        if (index == eventStoreIndex) {
-            return poller.poll(publishingHandler.init(targetServerId, eventStoreIndex)) > 0;
-        }
-        if (index < eventStoreIndex) {
-            poller.moveToNext();
-        } else {
-            poller.moveToPrevious();
-        }
-        return false;
+        return batch.send(eventStoreIndex, eventStoreLimit);
     }
 
-    private final class PublishingHandler implements Handler {
-        int targetServerId = NULL_SERVER;
-        long eventStoreIndex = -1;
-        PublishingHandler init(final int targetServerId, final long eventStoreIndex) {
+    @Override
+    public boolean sendHeartbeat(final int targetServerId, final long eventStoreIndex) {
+        final int length = ReplicationMessages.appendRequestHeader(heartbeatBuffer, 0, state.term(), state.leaderId(),
+                eventStoreIndex, state.committedEventStoreIndex());
+        return publisher.publish(targetServerId, heartbeatBuffer, 0, length);
+    }
+
+    /**
+     * Batch of events for a target server;  a batch that could not be published due to back pressure is retained and
+     * published again if the next send attempt is for the same event store index.  If the sender is throttled, a batch
+     * is only published if the byte credit of the target server is not negative;  credit accrues at the configured
+     * rate up to one max batch size.
+     */
+    private final class Batch implements Handler {
+        final int targetServerId;
+        final IndexTrackingPoller poller;
+        final DefaultReplicationMetrics.Follower metrics;
+        final MutableDirectBuffer buffer;
+        long startIndex = -1;
+        long endIndex = -1;
+        long limit;
+        int length;
+        long credit;
+        long creditTime = -1;
+
+        Batch(final int targetServerId,
+              final IndexTrackingPoller poller,
+              final DefaultReplicationMetrics.Follower metrics,
+              final int initialCapacity) {
             this.targetServerId = targetServerId;
-            this.eventStoreIndex = eventStoreIndex;
-            return this;
+            this.poller = requireNonNull(poller);
+            this.metrics = requireNonNull(metrics);
+            this.buffer = new ExpandableDirectByteBuffer(initialCapacity);
+        }
+
+        long send(final long eventStoreIndex, final long eventStoreLimit) {
+            if (bytesPerSecond > 0 && !hasCredit()) {
+                return eventStoreIndex;
+            }
+            if (length == 0 || startIndex != eventStoreIndex) {
+                if (!fill(eventStoreIndex, eventStoreLimit)) {
+                    return eventStoreIndex;
+                }
+            }
+            if (publisher.publish(targetServerId, buffer, 0, length)) {
+                credit -= length;
+                metrics.batchSent(endIndex - startIndex, length);
+                length = 0;
+                return endIndex;
+            }
+            return eventStoreIndex;
+        }
+
+        private boolean hasCredit() {
+            final long time = System.nanoTime();
+            final long elapsed = creditTime == -1 ? Long.MAX_VALUE : time - creditTime;
+            if (elapsed >= 1_000_000_000L) {
+                credit = maxBatchSize;
+                creditTime = time;
+            } else {
+                final long accrued = (long)(elapsed * (bytesPerSecond / 1e9));
+                if (accrued > 0) {
+                    credit = Math.min(maxBatchSize, credit + accrued);
+                    creditTime = time;
+                }
+            }
+            return credit >= 0;
+        }
+
+        private boolean fill(final long eventStoreIndex, final long eventStoreLimit) {
+            length = 0;
+            final long index = poller.index();
+            if (index != eventStoreIndex && !reposition(index, eventStoreIndex)) {
+                return false;
+            }
+            startIndex = eventStoreIndex;
+            endIndex = eventStoreIndex;
+            limit = eventStoreLimit;
+            length = ReplicationMessages.appendRequestHeader(buffer, 0, state.term(), state.leaderId(),
+                    eventStoreIndex, state.committedEventStoreIndex());
+            while (endIndex < limit && poller.poll(this) > 0) {
+                endIndex++;
+            }
+            if (endIndex == startIndex) {
+                length = 0;
+                return false;
+            }
+            return true;
+        }
+
+        private boolean reposition(final long fromIndex, final long toIndex) {
+            final long startTime = System.nanoTime();
+            final boolean moved = poller.moveToIndex(toIndex);
+            metrics.repositioned(Math.abs(toIndex - fromIndex), System.nanoTime() - startTime);
+            return moved;
         }
 
         @Override
         public Result onMessage(final DirectBuffer message) {
-            final int length = ReplicationMessages.appendRequest(sendBuffer, 0, state.term(),
-                    state.leaderId(), eventStoreIndex, message, 0, message.capacity());
-            if (publisher.publish(targetServerId, sendBuffer, 0, length)) {
-                return Result.POLL;
+            final int eventLength = message.capacity();
+            if (endIndex > startIndex && length + appendRequestEventEntryLength(eventLength) > maxBatchSize) {
+                return Result.PEEK;
             }
-            return Result.PEEK;
+            length = ReplicationMessages.appendRequestEvent(buffer, 0, message, 0, eventLength);
+            return Result.POLL;
         }
     }
 }
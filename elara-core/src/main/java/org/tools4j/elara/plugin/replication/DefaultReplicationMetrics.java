@@ -0,0 +1,314 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.agrona.collections.Int2ObjectHashMap;
+
+import java.util.concurrent.TimeUnit;
+
+final class DefaultReplicationMetrics implements ReplicationMetrics {
+
+    static final long RATE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    static final long ACK_HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    static final int ACK_SIGNIFICANT_DIGITS = 3;
+
+    private final Int2ObjectHashMap<Follower> followerByServerId = new Int2ObjectHashMap<>();
+    private final Follower[] followers;
+    private final ReplicationCounters counters;
+
+    DefaultReplicationMetrics(final ReplicationConfig configuration) {
+        final int currentServerId = configuration.serverId();
+        final int[] serverIds = configuration.serverIds();
+        this.followers = new Follower[serverIds.length - 1];
+        int index = 0;
+        for (final int serverId : serverIds) {
+            if (serverId != currentServerId) {
+                final Follower follower = new Follower(serverId);
+                followerByServerId.put(serverId, follower);
+                followers[index++] = follower;
+            }
+        }
+        this.counters = configuration.countersFile() == null ? null :
+                ReplicationCounters.create(configuration.countersFile(), followers);
+    }
+
+    Follower follower(final int serverId) {
+        final Follower follower = followerByServerId.get(serverId);
+        if (follower == null) {
+            throw new IllegalArgumentException("No follower metrics for server " + serverId);
+        }
+        return follower;
+    }
+
+    /**
+     * Records a message received from the given server, ignored if the server is unknown.
+     */
+    void received(final int serverId, final long nanoTime) {
+        final Follower follower = followerByServerId.get(serverId);
+        if (follower != null) {
+            follower.lastReceiveTime = nanoTime;
+        }
+    }
+
+    /**
+     * Samples send rates once per {@link #RATE_INTERVAL_NANOS rate interval} and updates the shared counters if
+     * available.
+     */
+    void update(final long nanoTime) {
+        for (final Follower follower : followers) {
+            follower.sample(nanoTime);
+        }
+        if (counters != null) {
+            counters.update(nanoTime);
+        }
+    }
+
+    ReplicationCounters counters() {
+        return counters;
+    }
+
+    /**
+     * Closes the shared counters if available;  must only be invoked after the last {@link #update(long) update}.
+     */
+    void closeCounters() {
+        if (counters != null) {
+            counters.close();
+        }
+    }
+
+    @Override
+    public long sentEvents(final int serverId) {
+        return follower(serverId).sentEvents;
+    }
+
+    @Override
+    public long sentBatches(final int serverId) {
+        return follower(serverId).sentBatches;
+    }
+
+    @Override
+    public long sentBytes(final int serverId) {
+        return follower(serverId).sentBytes;
+    }
+
+    @Override
+    public long sentHeartbeats(final int serverId) {
+        return follower(serverId).sentHeartbeats;
+    }
+
+    @Override
+    public long resendCount(final int serverId) {
+        return follower(serverId).resendCount;
+    }
+
+    @Override
+    public long resentEvents(final int serverId) {
+        return follower(serverId).resentEvents;
+    }
+
+    @Override
+    public long repositionCount(final int serverId) {
+        return follower(serverId).repositionCount;
+    }
+
+    @Override
+    public long repositionDistance(final int serverId) {
+        return follower(serverId).repositionDistance;
+    }
+
+    @Override
+    public long repositionTimeNanos(final int serverId) {
+        return follower(serverId).repositionTimeNanos;
+    }
+
+    @Override
+    public long nextEventStoreIndex(final int serverId) {
+        return follower(serverId).nextEventStoreIndex;
+    }
+
+    @Override
+    public long confirmedEventStoreIndex(final int serverId) {
+        return follower(serverId).confirmedEventStoreIndex;
+    }
+
+    @Override
+    public long lagEvents(final int serverId) {
+        return follower(serverId).lagEvents;
+    }
+
+    @Override
+    public long eventsPerSecond(final int serverId) {
+        return follower(serverId).eventsPerSecond;
+    }
+
+    @Override
+    public long bytesPerSecond(final int serverId) {
+        return follower(serverId).bytesPerSecond;
+    }
+
+    @Override
+    public long ackCount(final int serverId) {
+        return follower(serverId).ackCount;
+    }
+
+    @Override
+    public long ackRoundTripMaxNanos(final int serverId) {
+        return follower(serverId).ackRoundTripMax;
+    }
+
+    @Override
+    public Histogram ackRoundTripHistogram(final int serverId, final Histogram recycle) {
+        return follower(serverId).ackRoundTrip.getIntervalHistogram(recycle);
+    }
+
+    @Override
+    public long lastSendTimeNanos(final int serverId) {
+        return follower(serverId).lastSendTime;
+    }
+
+    @Override
+    public long lastReceiveTimeNanos(final int serverId) {
+        return follower(serverId).lastReceiveTime;
+    }
+
+    /**
+     * Counters of a follower, written by the leader's agent thread only.
+     */
+    static final class Follower {
+        final int serverId;
+        final Recorder ackRoundTrip = new Recorder(ACK_HIGHEST_TRACKABLE_NANOS, ACK_SIGNIFICANT_DIGITS);
+        volatile long sentEvents;
+        volatile long sentBatches;
+        volatile long sentBytes;
+        volatile long sentHeartbeats;
+        volatile long resendCount;
+        volatile long resentEvents;
+        volatile long repositionCount;
+        volatile long repositionDistance;
+        volatile long repositionTimeNanos;
+        volatile long nextEventStoreIndex;
+        volatile long confirmedEventStoreIndex = -1;
+        volatile long lagEvents;
+        volatile long eventsPerSecond;
+        volatile long bytesPerSecond;
+        volatile long ackCount;
+        volatile long ackRoundTripMax;
+        volatile long lastSendTime;
+        volatile long lastReceiveTime;
+        private long rateTime;
+        private long rateEvents;
+        private long rateBytes;
+
+        Follower(final int serverId) {
+            this.serverId = serverId;
+        }
+
+        void batchSent(final long events, final int bytes) {
+            sentEvents += events;
+            sentBytes += bytes;
+            sentBatches++;
+        }
+
+        void sent(final long nanoTime) {
+            lastSendTime = nanoTime;
+        }
+
+        void heartbeatSent(final long nanoTime) {
+            sentHeartbeats++;
+            lastSendTime = nanoTime;
+        }
+
+        void resent(final long events) {
+            resendCount++;
+            resentEvents += events;
+        }
+
+        void repositioned(final long distance, final long timeNanos) {
+            repositionCount++;
+            repositionDistance += distance;
+            repositionTimeNanos += timeNanos;
+        }
+
+        void progress(final long nextIndex, final long confirmedIndex, final long eventStoreSize) {
+            nextEventStoreIndex = nextIndex;
+            confirmedEventStoreIndex = confirmedIndex;
+            lagEvents = eventStoreSize - confirmedIndex - 1;
+        }
+
+        void acknowledged(final long roundTripNanos) {
+            final long value = Math.max(0, Math.min(roundTripNanos, ACK_HIGHEST_TRACKABLE_NANOS));
+            ackRoundTrip.recordValue(value);
+            ackCount++;
+            if (value > ackRoundTripMax) {
+                ackRoundTripMax = value;
+            }
+        }
+
+        void sample(final long nanoTime) {
+            if (rateTime == 0) {
+                rateTime = nanoTime;
+                return;
+            }
+            final long elapsed = nanoTime - rateTime;
+            if (elapsed >= RATE_INTERVAL_NANOS) {
+                final long events = sentEvents;
+                final long bytes = sentBytes;
+                eventsPerSecond = (long)((events - rateEvents) * (1e9 / elapsed));
+                bytesPerSecond = (long)((bytes - rateBytes) * (1e9 / elapsed));
+                rateEvents = events;
+                rateBytes = bytes;
+                rateTime = nanoTime;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Follower:server-id=" + serverId +
+                    "|sent-events=" + sentEvents +
+                    "|sent-batches=" + sentBatches +
+                    "|sent-bytes=" + sentBytes +
+                    "|sent-heartbeats=" + sentHeartbeats +
+                    "|resend-count=" + resendCount +
+                    "|resent-events=" + resentEvents +
+                    "|reposition-count=" + repositionCount +
+                    "|reposition-distance=" + repositionDistance +
+                    "|reposition-time-nanos=" + repositionTimeNanos +
+                    "|next-evt-store-index=" + nextEventStoreIndex +
+                    "|confirmed-evt-store-index=" + confirmedEventStoreIndex +
+                    "|lag-events=" + lagEvents +
+                    "|events-per-second=" + eventsPerSecond +
+                    "|bytes-per-second=" + bytesPerSecond +
+                    "|ack-count=" + ackCount +
+                    "|ack-round-trip-max=" + ackRoundTripMax;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DefaultReplicationMetrics:followers=" + followerByServerId +
+                "|counters=" + counters;
+    }
+}
@@ -24,23 +24,42 @@
 package org.tools4j.elara.plugin.replication;
 
 import org.agrona.collections.Long2LongHashMap;
-import org.agrona.collections.Long2LongHashMap.ValueIterator;
-import org.agrona.collections.LongArrayList;
 import org.tools4j.elara.app.message.Event;
 import org.tools4j.elara.app.state.BaseState;
 import org.tools4j.elara.time.TimeSource;
 
 public class DefaultReplicationState implements ReplicationState.Mutable {
 
+    private final ReplicationStateFile stateFile;//nullable
     private int term;
     private int leaderId = NULL_SERVER;
     private long lastAppliedEventSequence = BaseState.NIL_SEQUENCE;
     private long lastAppliedEventTime = TimeSource.MIN_VALUE;
     private long eventStoreSize;
     private final Long2LongHashMap nextEventStoreIndexByServerId = new Long2LongHashMap(0);
-    private final Long2LongHashMap confirmedEventStoreIndexByServerId = new Long2LongHashMap(0);
+    private final Long2LongHashMap confirmedEventStoreIndexByServerId = new Long2LongHashMap(-1);
     private final Long2LongHashMap nextNotBefore = new Long2LongHashMap(0);
-    private final LongArrayList temp = new LongArrayList();
+    private long committedEventStoreIndex = -1;
+    private long appendedEventStoreSize;
+    private int electionTerm;
+    private int votedFor = NULL_SERVER;
+
+    public DefaultReplicationState() {
+        this(null);
+    }
+
+    /**
+     * Constructor for replication state with election term, vote and committed event store index loaded from and
+     * stored in the given state file, or volatile state only if the state file is null.
+     */
+    DefaultReplicationState(final ReplicationStateFile stateFile) {
+        this.stateFile = stateFile;
+        if (stateFile != null) {
+            this.electionTerm = stateFile.electionTerm();
+            this.votedFor = stateFile.votedFor();
+            this.committedEventStoreIndex = stateFile.committedEventStoreIndex();
+        }
+    }
 
     @Override
     public int term() {
@@ -110,23 +129,17 @@ public class DefaultReplicationState implements ReplicationState.Mutable {
     }
 
     @Override
-    public long committedEventStoreIndex(final int serverCount) {
-        final int majority = (serverCount / 2) + 1;
-        if (confirmedEventStoreIndexByServerId.size() < majority) {
-            return -1;
-        }
-        temp.clear();
-        final ValueIterator it = confirmedEventStoreIndexByServerId.values().iterator();
-        while (it.hasNext()) {
-            final long value = it.nextValue();
-            int index = temp.size();
-            temp.addLong(value);
-            while (index > 0 && value > temp.get(index - 1)) {
-                temp.set(index, temp.get(index - 1));
-            }
-            temp.set(index, value);
+    public long committedEventStoreIndex() {
+        return committedEventStoreIndex;
+    }
+
+    @Override
+    public Volatile committedEventStoreIndex(final long index) {
+        this.committedEventStoreIndex = index;
+        if (stateFile != null) {
+            stateFile.committedEventStoreIndex(index);
         }
-        return temp.get(majority - 1);
+        return this;
     }
 
     @Override
@@ -140,6 +153,37 @@ public class DefaultReplicationState implements ReplicationState.Mutable {
         return this;
     }
 
+    @Override
+    public long appendedEventStoreSize() {
+        return Math.max(eventStoreSize, appendedEventStoreSize);
+    }
+
+    @Override
+    public Volatile appendedEventStoreSize(final long size) {
+        this.appendedEventStoreSize = size;
+        return this;
+    }
+
+    @Override
+    public int electionTerm() {
+        return electionTerm;
+    }
+
+    @Override
+    public int votedFor() {
+        return votedFor;
+    }
+
+    @Override
+    public Volatile vote(final int electionTerm, final int votedFor) {
+        if (stateFile != null && (electionTerm != this.electionTerm || votedFor != this.votedFor)) {
+            stateFile.vote(electionTerm, votedFor);
+        }
+        this.electionTerm = electionTerm;
+        this.votedFor = votedFor;
+        return this;
+    }
+
     private static void putOrRemove(final Long2LongHashMap map, final long key, final long value) {
         if (value == map.missingValue()) {
             map.remove(key);
@@ -158,7 +202,11 @@ public class DefaultReplicationState implements ReplicationState.Mutable {
                 "|evt-store-size=" + eventStoreSize +
                 "|next-evt-store-index-by-server-id=" + nextEventStoreIndexByServerId +
                 "|confirmed-evt-store-index-by-server-id=" + confirmedEventStoreIndexByServerId +
+                "|committed-evt-store-index=" + committedEventStoreIndex +
                 "|next-not-before=" + nextNotBefore +
-                "|temp=" + temp;
+                "|appended-evt-store-size=" + appendedEventStoreSize +
+                "|election-term=" + electionTerm +
+                "|voted-for=" + votedFor +
+                "|state-file=" + stateFile;
     }
 }
@@ -27,20 +27,30 @@ import org.agrona.DirectBuffer;
 import org.agrona.collections.Int2ObjectHashMap;
 import org.tools4j.elara.plugin.replication.Connection.Publisher;
 
+import java.util.function.IntFunction;
+
 public class DispatchingPublisher implements Publisher {
 
     private final Int2ObjectHashMap<Publisher> publisherByServerId = new Int2ObjectHashMap<>();
 
     public DispatchingPublisher(final ReplicationConfig configuration) {
+        this(configuration, configuration::connection);
+    }
+
+    public DispatchingPublisher(final ReplicationConfig configuration, final IntFunction<? extends Connection> connectionLookup) {
         final int currentServerId = configuration.serverId();
         for (final int serverId : configuration.serverIds()) {
-            if (serverId != currentServerId) {
-                final Publisher publisher = configuration.connection(serverId).publisher();
-                publisherByServerId.put(serverId, publisher);
+            final Connection connection = connectionLookup.apply(serverId);
+            if (serverId != currentServerId && connection != null) {
+                publisherByServerId.put(serverId, connection.publisher());
             }
         }
     }
 
+    public boolean hasPublisher(final int targetServerId) {
+        return publisherByServerId.containsKey(targetServerId);
+    }
+
     @Override
     public boolean publish(final int targetServerId, final DirectBuffer buffer, final int offset, final int length) {
         final Publisher publisher = publisherByServerId.get(targetServerId);
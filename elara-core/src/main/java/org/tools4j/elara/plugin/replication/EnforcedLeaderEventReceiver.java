@@ -49,13 +49,13 @@ final class EnforcedLeaderEventReceiver implements EnforceLeaderReceiver {
     private final TimeSource timeSource;
     private final int serverId;
     private final IntHashSet serverIds;
-    private final ReplicationState state;
+    private final ReplicationState.Volatile state;
     private final Appender eventStoreAppender;
 
     EnforcedLeaderEventReceiver(final Factory loggerFactory,
                                 final TimeSource timeSource,
                                 final ReplicationConfig configuration,
-                                final ReplicationState state,
+                                final ReplicationState.Volatile state,
                                 final Appender eventStoreAppender) {
         this.logger = ElaraLogger.create(loggerFactory, getClass());
         this.timeSource = requireNonNull(timeSource);
@@ -117,7 +117,7 @@ final class EnforcedLeaderEventReceiver implements EnforceLeaderReceiver {
             }
             return;
         }
-        final int nextTerm = currentTerm + 1;
+        final int nextTerm = Math.max(currentTerm, state.electionTerm()) + 1;
         logger.info("Server {} processing enforce-leader request: enforcing leader {} to replace current leader {} for next term {}")
                 .replace(serverId).replace(leaderId).replace(state.leaderId()).replace(nextTerm).format();
         try (final AppendingContext context = eventStoreAppender.appending()) {
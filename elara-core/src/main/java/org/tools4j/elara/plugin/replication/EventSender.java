@@ -24,5 +24,22 @@
 package org.tools4j.elara.plugin.replication;
 
 public interface EventSender {
-    boolean sendEvent(int targetServerId, long eventStoreIndex);
+    /**
+     * Sends a batch of consecutive events starting at the given event store index to the target server.
+     *
+     * @param targetServerId    the server to send the events to
+     * @param eventStoreIndex   the event store index of the first event to send
+     * @param eventStoreLimit   the event store index (exclusive) up to which events can be sent
+     * @return the event store index following the last event sent, or {@code eventStoreIndex} if no events were sent
+     */
+    long sendEvents(int targetServerId, long eventStoreIndex, long eventStoreLimit);
+
+    /**
+     * Sends an append request without events to propagate the committed event store index to the target server.
+     *
+     * @param targetServerId    the server to send the heartbeat to
+     * @param eventStoreIndex   the next event store index of the target server
+     * @return true if the heartbeat was sent, and false if sending failed for instance due to back pressure
+     */
+    boolean sendHeartbeat(int targetServerId, long eventStoreIndex);
 }
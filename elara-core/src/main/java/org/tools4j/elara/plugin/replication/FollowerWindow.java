@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sliding window of append request batches sent to a follower that have not been acknowledged yet.  The window tracks
+ * the end index (exclusive) of every batch in flight;  batches are removed when an acknowledgement covers their full
+ * range of events.  The send time of every batch is tracked as well to record the ack round-trip time in the follower
+ * metrics when a batch is acknowledged.
+ */
+final class FollowerWindow {
+
+    private final DefaultReplicationMetrics.Follower metrics;
+    private final long[] batchEnds;
+    private final long[] batchTimes;
+    private int head;
+    private int size;
+    private long lastProgressTime;
+
+    FollowerWindow(final int maxInFlightBatches, final DefaultReplicationMetrics.Follower metrics) {
+        if (maxInFlightBatches <= 0) {
+            throw new IllegalArgumentException("Max in-flight batches must be positive: " + maxInFlightBatches);
+        }
+        this.metrics = requireNonNull(metrics);
+        this.batchEnds = new long[maxInFlightBatches];
+        this.batchTimes = new long[maxInFlightBatches];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean isFull() {
+        return size == batchEnds.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the end index (exclusive) of the last batch in flight, or -1 if the window is empty
+     */
+    long end() {
+        return size == 0 ? -1 : batchEnds[(head + size - 1) % batchEnds.length];
+    }
+
+    void add(final long batchEnd, final long nanoTime) {
+        if (isFull()) {
+            throw new IllegalStateException("Window is full with " + size + " batches in flight");
+        }
+        if (size == 0) {
+            lastProgressTime = nanoTime;
+        }
+        batchEnds[(head + size) % batchEnds.length] = batchEnd;
+        batchTimes[(head + size) % batchEnds.length] = nanoTime;
+        size++;
+    }
+
+    /**
+     * Removes all batches acknowledged by the given event store index.
+     *
+     * @param nextEventStoreIndex   the follower's next event store index, all events before this index are confirmed
+     * @param nanoTime              the current time in nanoseconds
+     * @return the number of batches removed from the window
+     */
+    int acknowledge(final long nextEventStoreIndex, final long nanoTime) {
+        int removed = 0;
+        while (size > 0 && batchEnds[head] <= nextEventStoreIndex) {
+            metrics.acknowledged(nanoTime - batchTimes[head]);
+            head = (head + 1) % batchEnds.length;
+            size--;
+            removed++;
+        }
+        if (removed > 0) {
+            lastProgressTime = nanoTime;
+        }
+        return removed;
+    }
+
+    boolean isTimedOut(final long nanoTime, final long timeoutNanos) {
+        return size > 0 && nanoTime - lastProgressTime >= timeoutNanos;
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "FollowerWindow:size=" + size + "|end=" + end() + "|last-progress-time=" + lastProgressTime;
+    }
+}
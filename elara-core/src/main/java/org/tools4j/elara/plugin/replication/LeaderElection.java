@@ -0,0 +1,296 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.tools4j.elara.flyweight.EventDescriptor;
+import org.tools4j.elara.flyweight.EventType;
+import org.tools4j.elara.flyweight.FlyweightEvent;
+import org.tools4j.elara.logging.ElaraLogger;
+import org.tools4j.elara.logging.Logger;
+import org.tools4j.elara.plugin.replication.Connection.Publisher;
+import org.tools4j.elara.store.MessageStore.Appender;
+import org.tools4j.elara.store.MessageStore.AppendingContext;
+import org.tools4j.elara.time.TimeSource;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static java.util.Objects.requireNonNull;
+import static org.tools4j.elara.flyweight.EventDescriptor.HEADER_OFFSET;
+import static org.tools4j.elara.plugin.replication.ReplicationEvents.LEADER_ELECTED;
+import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.HEADER_LENGTH;
+import static org.tools4j.elara.plugin.replication.ReplicationMessages.candidateId;
+import static org.tools4j.elara.plugin.replication.ReplicationMessages.isVoteGranted;
+import static org.tools4j.elara.plugin.replication.ReplicationMessages.lastStoreTerm;
+import static org.tools4j.elara.plugin.replication.ReplicationMessages.storeIndex;
+import static org.tools4j.elara.plugin.replication.ReplicationMessages.term;
+import static org.tools4j.elara.plugin.replication.ReplicationPayloadDescriptor.PAYLOAD_LENGTH;
+import static org.tools4j.elara.plugin.replication.ReplicationState.NULL_SERVER;
+
+/**
+ * Raft style leader election:  a server that has not heard from a leader within a randomized election timeout becomes
+ * candidate for the next term and requests votes from all other servers.  A vote is granted at most once per term and
+ * only to a candidate whose event store is at least as up-to-date as the event store of the voting server.  A candidate
+ * with votes from a quorum of servers appends a {@link ReplicationEvents#LEADER_ELECTED LEADER_ELECTED} event to its
+ * event store which is then replicated to the other servers.
+ * <p>
+ * Election terms and votes are persisted in the {@link ReplicationConfig#stateFile() state file} before a vote is sent,
+ * hence a server restarted during an election does not vote twice in the same term.
+ */
+final class LeaderElection {
+
+    private final ElaraLogger logger;
+    private final TimeSource timeSource;
+    private final int serverId;
+    private final int[] serverIds;
+    private final ReplicationState.Volatile state;
+    private final Appender eventStoreAppender;
+    private final Publisher publisher;
+    private final boolean enabled;
+    private final long electionTimeoutNanos;
+    private final Random electionTimeoutRandom;
+    private final int sourceId;
+    private final int quorum;
+    private final boolean[] votesGranted;
+    private final boolean[] voteRequestsPending;
+    private final MutableDirectBuffer sendBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(HEADER_LENGTH));
+    private boolean timerStarted;
+    private long electionDeadline;
+    private boolean candidate;
+    private int votes;
+
+    LeaderElection(final Logger.Factory loggerFactory,
+                   final TimeSource timeSource,
+                   final ReplicationConfig configuration,
+                   final ReplicationState.Volatile state,
+                   final Appender eventStoreAppender,
+                   final Publisher publisher) {
+        this.logger = ElaraLogger.create(loggerFactory, getClass());
+        this.timeSource = requireNonNull(timeSource);
+        this.serverId = configuration.serverId();
+        this.serverIds = configuration.serverIds();
+        this.state = requireNonNull(state);
+        this.eventStoreAppender = requireNonNull(eventStoreAppender);
+        this.publisher = requireNonNull(publisher);
+        this.enabled = configuration.autoElection();
+        this.electionTimeoutNanos = configuration.electionTimeoutNanos();
+        this.electionTimeoutRandom = requireNonNull(configuration.electionTimeoutRandom());
+        this.sourceId = configuration.electionSourceId();
+        this.quorum = (serverIds.length / 2) + 1;
+        this.votesGranted = new boolean[serverIds.length];
+        this.voteRequestsPending = new boolean[serverIds.length];
+    }
+
+    int doWork(final long nanoTime) {
+        if (!enabled) {
+            return 0;
+        }
+        if (state.isLeader(serverId)) {
+            timerStarted = false;
+            candidate = false;
+            return 0;
+        }
+        if (!timerStarted) {
+            resetElectionTimer(nanoTime);
+            return 0;
+        }
+        int workDone = 0;
+        if (candidate) {
+            if (votes >= quorum) {
+                return appendLeaderElected(nanoTime);
+            }
+            workDone += sendVoteRequests();
+        }
+        if (nanoTime - electionDeadline >= 0) {
+            startElection(nanoTime);
+            workDone++;
+        }
+        return workDone;
+    }
+
+    /**
+     * Invoked for every append request received from a leader whose term is not lower than the current term.
+     */
+    void onLeaderContact(final int leaderId, final int leaderTerm, final long nanoTime) {
+        if (!enabled) {
+            return;
+        }
+        if (leaderTerm > state.electionTerm()) {
+            state.vote(leaderTerm, leaderId);
+        }
+        if (candidate && leaderTerm >= state.electionTerm()) {
+            logger.info("Server {}: Stopped candidacy for term {} since leader {} is active in term {}")
+                    .replace(serverId).replace(state.electionTerm()).replace(leaderId).replace(leaderTerm).format();
+            candidate = false;
+        }
+        resetElectionTimer(nanoTime);
+    }
+
+    void onVoteRequest(final int senderServerId, final DirectBuffer buffer, final long nanoTime) {
+        if (!enabled) {
+            logger.warn("Server {}: Ignoring vote-request message from sender {} since automatic election is disabled")
+                    .replace(serverId).replace(senderServerId).format();
+            return;
+        }
+        final int candidateTerm = term(buffer);
+        final int candidateId = candidateId(buffer);
+        if (candidateId != senderServerId) {
+            logger.warn("Server {}: Ignoring vote-request message from sender {} for different candidate {}")
+                    .replace(serverId).replace(senderServerId).replace(candidateId).format();
+            return;
+        }
+        if (candidateTerm > currentTerm()) {
+            stepDown(candidateTerm);
+        }
+        final boolean granted = candidateTerm == currentTerm() && candidateTerm > state.term()
+                && (state.votedFor() == NULL_SERVER || state.votedFor() == candidateId)
+                && isUpToDate(lastStoreTerm(buffer), storeIndex(buffer));
+        if (granted) {
+            state.vote(candidateTerm, candidateId);
+            resetElectionTimer(nanoTime);
+        }
+        logger.info("Server {}: {} vote for candidate {} in term {}")
+                .replace(serverId).replace(granted ? "Granted" : "Denied").replace(candidateId)
+                .replace(candidateTerm).format();
+        final int length = ReplicationMessages.voteResponse(sendBuffer, 0, currentTerm(), candidateId, granted);
+        if (!publisher.publish(senderServerId, sendBuffer, 0, length)) {
+            logger.warn("Server {}: Sending vote response to candidate {} for term {} failed")
+                    .replace(serverId).replace(candidateId).replace(candidateTerm).format();
+        }
+    }
+
+    void onVoteResponse(final int senderServerId, final DirectBuffer buffer) {
+        if (!enabled) {
+            return;
+        }
+        final int voterTerm = term(buffer);
+        if (voterTerm > currentTerm()) {
+            stepDown(voterTerm);
+            return;
+        }
+        if (!candidate || voterTerm != state.electionTerm() || candidateId(buffer) != serverId || !isVoteGranted(buffer)) {
+            return;
+        }
+        final int index = serverIndex(senderServerId);
+        if (index >= 0 && !votesGranted[index]) {
+            votesGranted[index] = true;
+            votes++;
+            if (votes == quorum) {
+                logger.info("Server {}: Won election for term {} with {} of {} votes")
+                        .replace(serverId).replace(voterTerm).replace(votes).replace(serverIds.length).format();
+            }
+        }
+    }
+
+    private int currentTerm() {
+        return Math.max(state.term(), state.electionTerm());
+    }
+
+    private boolean isUpToDate(final int candidateStoreTerm, final long candidateStoreIndex) {
+        final int storeTerm = state.term();
+        return candidateStoreTerm > storeTerm ||
+                (candidateStoreTerm == storeTerm && candidateStoreIndex >= state.appendedEventStoreSize() - 1);
+    }
+
+    private void stepDown(final int term) {
+        if (candidate || state.isLeader(serverId)) {
+            logger.info("Server {}: Stepping down since higher term {} was seen")
+                    .replace(serverId).replace(term).format();
+        }
+        state.vote(term, NULL_SERVER);
+        candidate = false;
+        timerStarted = false;
+    }
+
+    private void startElection(final long nanoTime) {
+        final int term = currentTerm() + 1;
+        state.vote(term, serverId);
+        candidate = true;
+        votes = 0;
+        for (int i = 0; i < serverIds.length; i++) {
+            final boolean self = serverIds[i] == serverId;
+            votesGranted[i] = self;
+            voteRequestsPending[i] = !self;
+            votes += self ? 1 : 0;
+        }
+        resetElectionTimer(nanoTime);
+        logger.info("Server {}: Starting election for term {}, current leader is {} in term {}")
+                .replace(serverId).replace(term).replace(state.leaderId()).replace(state.term()).format();
+        sendVoteRequests();
+    }
+
+    private int sendVoteRequests() {
+        int sent = 0;
+        for (int i = 0; i < serverIds.length; i++) {
+            if (voteRequestsPending[i]) {
+                final int length = ReplicationMessages.voteRequest(sendBuffer, 0, state.electionTerm(), serverId,
+                        state.appendedEventStoreSize() - 1, state.term());
+                if (publisher.publish(serverIds[i], sendBuffer, 0, length)) {
+                    voteRequestsPending[i] = false;
+                    sent++;
+                }
+            }
+        }
+        return sent;
+    }
+
+    private int appendLeaderElected(final long nanoTime) {
+        if (state.appendedEventStoreSize() > state.eventStoreSize()) {
+            //wait until all replicated events are applied
+            return 0;
+        }
+        final int term = state.electionTerm();
+        try (final AppendingContext context = eventStoreAppender.appending()) {
+            FlyweightEvent.writeHeader(
+                    EventType.APP_COMMIT, sourceId, term, (short)0, state.lastAppliedEventSequence() + 1,
+                    timeSource.currentTime(), LEADER_ELECTED, PAYLOAD_LENGTH, context.buffer(), HEADER_OFFSET
+            );
+            ReplicationEvents.leaderElected(context.buffer(), EventDescriptor.PAYLOAD_OFFSET, term, serverId);
+            context.commit(EventDescriptor.HEADER_LENGTH + PAYLOAD_LENGTH);
+        }
+        candidate = false;
+        Arrays.fill(voteRequestsPending, false);
+        resetElectionTimer(nanoTime);
+        return 1;
+    }
+
+    private void resetElectionTimer(final long nanoTime) {
+        final long randomNanos = (long)(electionTimeoutRandom.nextDouble() * electionTimeoutNanos);
+        electionDeadline = nanoTime + electionTimeoutNanos + randomNanos;
+        timerStarted = true;
+    }
+
+    private int serverIndex(final int id) {
+        for (int i = 0; i < serverIds.length; i++) {
+            if (serverIds[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.tools4j.elara.plugin.activation.ActivationPlugin;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Listener invoked when a leader change event is applied, for instance after an automatic election or an enforced
+ * leader change.  Note that the listener is also invoked when leader change events are replayed.
+ */
+@FunctionalInterface
+public interface LeaderListener {
+    LeaderListener NOOP = (serverId, term, leaderId) -> {};
+
+    /**
+     * Invoked when the leader changes.
+     *
+     * @param serverId  the ID of the local server
+     * @param term      the term of the new leader
+     * @param leaderId  the ID of the new leader
+     */
+    void onLeaderChange(int serverId, int term, int leaderId);
+
+    /**
+     * Returns a listener that activates the given activation plugin if the local server becomes leader, and
+     * deactivates it if another server becomes leader.
+     *
+     * @param activationPlugin the activation plugin to activate and deactivate
+     * @return a listener activating and deactivating the plugin
+     */
+    static LeaderListener activation(final ActivationPlugin activationPlugin) {
+        requireNonNull(activationPlugin);
+        return (serverId, term, leaderId) -> {
+            if (serverId == leaderId) {
+                activationPlugin.activate();
+            } else {
+                activationPlugin.deactivate();
+            }
+        };
+    }
+}
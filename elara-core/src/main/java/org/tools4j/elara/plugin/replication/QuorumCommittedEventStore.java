@@ -0,0 +1,181 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.tools4j.elara.store.IndexTrackingPoller;
+import org.tools4j.elara.store.IndexedMessageStore;
+import org.tools4j.elara.store.MessageStore;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Event store whose pollers only return events up to the committed event store index, that is, events that have been
+ * confirmed by a quorum of servers and which cannot get lost in a fail-over.  Polling an event beyond the committed
+ * index returns zero without invoking the handler until the committed index has advanced.
+ * <p>
+ * Pollers track the event store index of their position which is cheap when polling or moving by a single entry.
+ * Moving to an entry ID or creating a poller with a tracked position looks up the index of the entry with an
+ * {@link IndexTrackingPoller} that is reused by the poller;  the lookup is fast if the event store is an
+ * {@link IndexedMessageStore} and requires a scan from the start of the store otherwise.
+ */
+final class QuorumCommittedEventStore implements MessageStore {
+
+    private final MessageStore eventStore;
+    private final ReplicationState.Volatile replicationState;
+
+    QuorumCommittedEventStore(final MessageStore eventStore, final ReplicationState.Volatile replicationState) {
+        this.eventStore = requireNonNull(eventStore);
+        this.replicationState = requireNonNull(replicationState);
+    }
+
+    @Override
+    public Appender appender() {
+        return eventStore.appender();
+    }
+
+    @Override
+    public Poller poller() {
+        return new GatedPoller(eventStore.poller());
+    }
+
+    @Override
+    public Poller poller(final String id) {
+        return new GatedPoller(eventStore.poller(id));
+    }
+
+    @Override
+    public boolean isClosed() {
+        return eventStore.isClosed();
+    }
+
+    @Override
+    public void close() {
+        eventStore.close();
+    }
+
+    @Override
+    public String toString() {
+        return "QuorumCommittedEventStore:event-store=" + eventStore;
+    }
+
+    private final class GatedPoller implements Poller {
+        final Poller poller;
+        final IndexTrackingPoller seeker;
+        long index;
+
+        GatedPoller(final Poller poller) {
+            this.poller = requireNonNull(poller);
+            this.seeker = IndexTrackingPoller.create(eventStore);
+            this.index = indexOf(poller.entryId());
+        }
+
+        /**
+         * Returns the index of the given entry, or the store size if no such entry exists because the entry ID is
+         * the position at the end of the store.
+         */
+        private long indexOf(final long entryId) {
+            if (seeker.moveTo(entryId)) {
+                return seeker.index();
+            }
+            seeker.moveToEnd();
+            return seeker.index();
+        }
+
+        private boolean isCommitted() {
+            return index <= replicationState.committedEventStoreIndex();
+        }
+
+        @Override
+        public long entryId() {
+            return poller.entryId();
+        }
+
+        @Override
+        public boolean moveTo(final long entryId) {
+            if (!poller.moveTo(entryId)) {
+                return false;
+            }
+            index = indexOf(entryId);
+            return true;
+        }
+
+        @Override
+        public boolean moveToNext() {
+            if (isCommitted() && poller.moveToNext()) {
+                index++;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean moveToPrevious() {
+            if (index > 0 && poller.moveToPrevious()) {
+                index--;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public Poller moveToStart() {
+            poller.moveToStart();
+            index = 0;
+            return this;
+        }
+
+        @Override
+        @SuppressWarnings("StatementWithEmptyBody")
+        public Poller moveToEnd() {
+            while (moveToNext());
+            return this;
+        }
+
+        @Override
+        public int poll(final Handler handler) {
+            if (!isCommitted()) {
+                return 0;
+            }
+            final int polled = poller.poll(handler);
+            if (polled > 0) {
+                index++;
+            }
+            return polled;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return poller.isClosed();
+        }
+
+        @Override
+        public void close() {
+            try {
+                poller.close();
+            } finally {
+                seeker.close();
+            }
+        }
+    }
+}
@@ -36,12 +36,12 @@ public class ReplicationCommandHandler implements Handler {
 
     private final ReplicationPlugin plugin;
     private final BaseState baseState;
-    private final ReplicationState replicationState;
+    private final ReplicationState.Volatile replicationState;
     private final Handler leaderHandler;
 
     public ReplicationCommandHandler(final ReplicationPlugin plugin,
                                      final BaseState baseState,
-                                     final ReplicationState replicationState,
+                                     final ReplicationState.Volatile replicationState,
                                      final Handler leaderHandler) {
         this.plugin = requireNonNull(plugin);
         this.baseState = requireNonNull(baseState);
@@ -51,7 +51,7 @@ public class ReplicationCommandHandler implements Handler {
 
     @Override
     public Result onMessage(final DirectBuffer message) {
-        if (plugin.isLeader(replicationState)) {
+        if (replicationState.isLeader(plugin.config().serverId())) {
             return leaderHandler.onMessage(message);
         }
         final int sourceId = FlyweightCommand.sourceId(message);
@@ -43,11 +43,11 @@ public class ReplicationCommandProcessor implements CommandProcessor {
     private final ElaraLogger logger;
     private final ReplicationConfig configuration;
     private final IntHashSet serverIds;
-    private final ReplicationState replicationState;
+    private final ReplicationState.Volatile replicationState;
 
     public ReplicationCommandProcessor(final Logger.Factory loggerFactory,
                                        final ReplicationConfig configuration,
-                                       final ReplicationState replicationState) {
+                                       final ReplicationState.Volatile replicationState) {
         this.logger = ElaraLogger.create(loggerFactory, getClass());
         this.configuration = requireNonNull(configuration);
         this.serverIds = new IntHashSet(NULL_SERVER);
@@ -83,7 +83,7 @@ public class ReplicationCommandProcessor implements CommandProcessor {
                 }
                 return;
             }
-            final int nextTerm = currentTerm + 1;
+            final int nextTerm = Math.max(currentTerm, replicationState.electionTerm()) + 1;
             logger.info("Server {} processing {}: electing candidate {} to replace current leader {} for next term {}")
                     .replace(serverId).replace(commandName).replace(candidateId)
                     .replace(leaderId).replace(nextTerm).format();
@@ -23,17 +23,39 @@
  */
 package org.tools4j.elara.plugin.replication;
 
+import org.agrona.concurrent.NanoClock;
+
+import java.io.File;
+import java.util.Random;
+
 public interface ReplicationConfig {
     int serverId();
     int[] serverIds();
     EnforceLeaderInput enforceLeaderInput();
     Connection connection(int serverId);
+    Connection bootstrapConnection(int serverId);//nullable
 
     long heartbeatInterval();
     long leaderTimeout();
     long serverReplyTimeout();
 
     int initialSendBufferCapacity();
+    int maxBatchSize();
+    int maxInFlightBatches();
+    long resendTimeoutNanos();
+    boolean commitGatedOutput();
+    long bootstrapThreshold();
+    int bootstrapBatchSize();
+    long bootstrapBytesPerSecond();
+    boolean autoElection();
+    long electionTimeoutNanos();
+    long heartbeatIntervalNanos();
+    int electionSourceId();
+    Random electionTimeoutRandom();
+    NanoClock nanoClock();
+    LeaderListener leaderListener();
+    File countersFile();//nullable
+    File stateFile();//nullable, required for auto election
 
     static ReplicationConfigurator configure() {
         return ReplicationConfigurator.create();
@@ -23,16 +23,38 @@
  */
 package org.tools4j.elara.plugin.replication;
 
+import org.agrona.concurrent.NanoClock;
+
+import java.io.File;
+import java.util.Random;
+
 public interface ReplicationConfigurator extends ReplicationConfig {
     ReplicationConfigurator serverId(int serverId);
     ReplicationConfigurator serverId(int serverId, boolean local);
     ReplicationConfigurator serverIds(int... serverIds);
     ReplicationConfigurator enforceLeaderInput(EnforceLeaderInput input);
     ReplicationConfigurator connection(int serverId, Connection connection);
+    ReplicationConfigurator bootstrapConnection(int serverId, Connection connection);
     ReplicationConfigurator heartbeatInterval(long interval);
     ReplicationConfigurator leaderTimeout(long timeout);
     ReplicationConfigurator serverReplyTimeout(long timeout);
     ReplicationConfigurator initialSendBufferCapacity(int capacity);
+    ReplicationConfigurator maxBatchSize(int maxBytes);
+    ReplicationConfigurator maxInFlightBatches(int maxBatches);
+    ReplicationConfigurator resendTimeoutNanos(long timeoutNanos);
+    ReplicationConfigurator commitGatedOutput(boolean gated);
+    ReplicationConfigurator bootstrapThreshold(long events);
+    ReplicationConfigurator bootstrapBatchSize(int maxBytes);
+    ReplicationConfigurator bootstrapBytesPerSecond(long bytesPerSecond);
+    ReplicationConfigurator autoElection(boolean enabled);
+    ReplicationConfigurator electionTimeoutNanos(long timeoutNanos);
+    ReplicationConfigurator heartbeatIntervalNanos(long intervalNanos);
+    ReplicationConfigurator electionSourceId(int sourceId);
+    ReplicationConfigurator electionTimeoutRandom(Random random);
+    ReplicationConfigurator nanoClock(NanoClock clock);
+    ReplicationConfigurator leaderListener(LeaderListener listener);
+    ReplicationConfigurator countersFile(File file);
+    ReplicationConfigurator stateFile(File file);
 
     static ReplicationConfigurator create() {
         return new ReplicationConfiguratorImpl();
@@ -26,6 +26,11 @@ package org.tools4j.elara.plugin.replication;
 import org.agrona.collections.Int2ObjectHashMap;
 import org.agrona.collections.IntArrayList;
 import org.agrona.collections.IntHashSet;
+import org.agrona.concurrent.NanoClock;
+import org.agrona.concurrent.SystemNanoClock;
+
+import java.io.File;
+import java.util.Random;
 
 import static java.util.Objects.requireNonNull;
 import static org.tools4j.elara.plugin.replication.ReplicationState.NULL_SERVER;
@@ -35,16 +40,42 @@ final class ReplicationConfiguratorImpl implements ReplicationConfigurator {
     public static final long DEFAULT_HEARTBEAT_INTERVAL = 10000;//10s if millis
     public static final long DEFAULT_LEADER_TIMEOUT = 20000;//20s if millis
     public static final long DEFAULT_SERVER_REPLAY_TIMEOUT = 20000;//20s if millis
+    public static final int DEFAULT_MAX_BATCH_SIZE = 16 * 1024;
+    public static final int DEFAULT_MAX_IN_FLIGHT_BATCHES = 16;
+    public static final long DEFAULT_RESEND_TIMEOUT_NANOS = 1_000_000;//1ms
+    public static final long DEFAULT_BOOTSTRAP_THRESHOLD = 10_000;
+    public static final int DEFAULT_BOOTSTRAP_BATCH_SIZE = 256 * 1024;
+    public static final long DEFAULT_BOOTSTRAP_BYTES_PER_SECOND = 100_000_000;
+    public static final long DEFAULT_ELECTION_TIMEOUT_NANOS = 200_000_000;//200ms
+    public static final long DEFAULT_HEARTBEAT_INTERVAL_NANOS = 50_000_000;//50ms
+    public static final int DEFAULT_ELECTION_SOURCE_ID = -30;
     private static final EnforceLeaderInput NULL_INPUT = receiver -> 0;
 
     private int serverId = NULL_SERVER;
     private final IntArrayList serverIds = new IntArrayList();
     private EnforceLeaderInput enforceLeaderInput = NULL_INPUT;
     private final Int2ObjectHashMap<Connection> connectionByServerId = new Int2ObjectHashMap<>();
+    private final Int2ObjectHashMap<Connection> bootstrapConnectionByServerId = new Int2ObjectHashMap<>();
     private long heartbeatInterval = DEFAULT_HEARTBEAT_INTERVAL;
     private long leaderTimeout = DEFAULT_LEADER_TIMEOUT;
     private long serverReplayTimeout = DEFAULT_SERVER_REPLAY_TIMEOUT;
     private int initialSendBufferCapacity = DEFAULT_INITIAL_SEND_BUFFER_CAPACITY;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private int maxInFlightBatches = DEFAULT_MAX_IN_FLIGHT_BATCHES;
+    private long resendTimeoutNanos = DEFAULT_RESEND_TIMEOUT_NANOS;
+    private boolean commitGatedOutput;
+    private long bootstrapThreshold = DEFAULT_BOOTSTRAP_THRESHOLD;
+    private int bootstrapBatchSize = DEFAULT_BOOTSTRAP_BATCH_SIZE;
+    private long bootstrapBytesPerSecond = DEFAULT_BOOTSTRAP_BYTES_PER_SECOND;
+    private boolean autoElection;
+    private long electionTimeoutNanos = DEFAULT_ELECTION_TIMEOUT_NANOS;
+    private long heartbeatIntervalNanos = DEFAULT_HEARTBEAT_INTERVAL_NANOS;
+    private int electionSourceId = DEFAULT_ELECTION_SOURCE_ID;
+    private Random electionTimeoutRandom = new Random();
+    private NanoClock nanoClock = SystemNanoClock.INSTANCE;
+    private LeaderListener leaderListener = LeaderListener.NOOP;
+    private File countersFile;
+    private File stateFile;
 
     @Override
     public int serverId() {
@@ -100,6 +131,17 @@ final class ReplicationConfiguratorImpl implements ReplicationConfigurator {
         return this;
     }
 
+    @Override
+    public Connection bootstrapConnection(final int serverId) {
+        return bootstrapConnectionByServerId.get(serverId);
+    }
+
+    @Override
+    public ReplicationConfigurator bootstrapConnection(final int serverId, final Connection connection) {
+        bootstrapConnectionByServerId.put(serverId, requireNonNull(connection));
+        return this;
+    }
+
     @Override
     public long heartbeatInterval() {
         return heartbeatInterval;
@@ -156,6 +198,206 @@ final class ReplicationConfiguratorImpl implements ReplicationConfigurator {
         return this;
     }
 
+    @Override
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @Override
+    public ReplicationConfigurator maxBatchSize(final int maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive: " + maxBytes);
+        }
+        this.maxBatchSize = maxBytes;
+        return this;
+    }
+
+    @Override
+    public int maxInFlightBatches() {
+        return maxInFlightBatches;
+    }
+
+    @Override
+    public ReplicationConfigurator maxInFlightBatches(final int maxBatches) {
+        if (maxBatches <= 0) {
+            throw new IllegalArgumentException("Max in-flight batches must be positive: " + maxBatches);
+        }
+        this.maxInFlightBatches = maxBatches;
+        return this;
+    }
+
+    @Override
+    public long resendTimeoutNanos() {
+        return resendTimeoutNanos;
+    }
+
+    @Override
+    public ReplicationConfigurator resendTimeoutNanos(final long timeoutNanos) {
+        if (timeoutNanos < 0) {
+            throw new IllegalArgumentException("Resend timeout cannot be negative: " + timeoutNanos);
+        }
+        this.resendTimeoutNanos = timeoutNanos;
+        return this;
+    }
+
+    @Override
+    public boolean commitGatedOutput() {
+        return commitGatedOutput;
+    }
+
+    @Override
+    public ReplicationConfigurator commitGatedOutput(final boolean gated) {
+        this.commitGatedOutput = gated;
+        return this;
+    }
+
+    @Override
+    public long bootstrapThreshold() {
+        return bootstrapThreshold;
+    }
+
+    @Override
+    public ReplicationConfigurator bootstrapThreshold(final long events) {
+        if (events < 0) {
+            throw new IllegalArgumentException("Bootstrap threshold cannot be negative: " + events);
+        }
+        this.bootstrapThreshold = events;
+        return this;
+    }
+
+    @Override
+    public int bootstrapBatchSize() {
+        return bootstrapBatchSize;
+    }
+
+    @Override
+    public ReplicationConfigurator bootstrapBatchSize(final int maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Bootstrap batch size must be positive: " + maxBytes);
+        }
+        this.bootstrapBatchSize = maxBytes;
+        return this;
+    }
+
+    @Override
+    public long bootstrapBytesPerSecond() {
+        return bootstrapBytesPerSecond;
+    }
+
+    @Override
+    public ReplicationConfigurator bootstrapBytesPerSecond(final long bytesPerSecond) {
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("Bootstrap bytes per second cannot be negative: " + bytesPerSecond);
+        }
+        this.bootstrapBytesPerSecond = bytesPerSecond;
+        return this;
+    }
+
+    @Override
+    public boolean autoElection() {
+        return autoElection;
+    }
+
+    @Override
+    public ReplicationConfigurator autoElection(final boolean enabled) {
+        this.autoElection = enabled;
+        return this;
+    }
+
+    @Override
+    public long electionTimeoutNanos() {
+        return electionTimeoutNanos;
+    }
+
+    @Override
+    public ReplicationConfigurator electionTimeoutNanos(final long timeoutNanos) {
+        if (timeoutNanos <= 0) {
+            throw new IllegalArgumentException("Election timeout must be positive: " + timeoutNanos);
+        }
+        this.electionTimeoutNanos = timeoutNanos;
+        return this;
+    }
+
+    @Override
+    public long heartbeatIntervalNanos() {
+        return heartbeatIntervalNanos;
+    }
+
+    @Override
+    public ReplicationConfigurator heartbeatIntervalNanos(final long intervalNanos) {
+        if (intervalNanos <= 0) {
+            throw new IllegalArgumentException("Heartbeat interval must be positive: " + intervalNanos);
+        }
+        this.heartbeatIntervalNanos = intervalNanos;
+        return this;
+    }
+
+    @Override
+    public int electionSourceId() {
+        return electionSourceId;
+    }
+
+    @Override
+    public ReplicationConfigurator electionSourceId(final int sourceId) {
+        this.electionSourceId = sourceId;
+        return this;
+    }
+
+    @Override
+    public Random electionTimeoutRandom() {
+        return electionTimeoutRandom;
+    }
+
+    @Override
+    public ReplicationConfigurator electionTimeoutRandom(final Random random) {
+        this.electionTimeoutRandom = requireNonNull(random);
+        return this;
+    }
+
+    @Override
+    public NanoClock nanoClock() {
+        return nanoClock;
+    }
+
+    @Override
+    public ReplicationConfigurator nanoClock(final NanoClock clock) {
+        this.nanoClock = requireNonNull(clock);
+        return this;
+    }
+
+    @Override
+    public LeaderListener leaderListener() {
+        return leaderListener;
+    }
+
+    @Override
+    public ReplicationConfigurator leaderListener(final LeaderListener listener) {
+        this.leaderListener = requireNonNull(listener);
+        return this;
+    }
+
+    @Override
+    public File countersFile() {
+        return countersFile;
+    }
+
+    @Override
+    public ReplicationConfigurator countersFile(final File file) {
+        this.countersFile = file;
+        return this;
+    }
+
+    @Override
+    public File stateFile() {
+        return stateFile;
+    }
+
+    @Override
+    public ReplicationConfigurator stateFile(final File file) {
+        this.stateFile = file;
+        return this;
+    }
+
     static ReplicationConfig validate(final ReplicationConfig configuration) {
         final int localServerId = configuration.serverId();
         final IntHashSet serverIds = new IntHashSet(NULL_SERVER);
@@ -173,6 +415,13 @@ final class ReplicationConfiguratorImpl implements ReplicationConfigurator {
         if (!serverIds.contains(localServerId)) {
             throw new IllegalArgumentException("Server ID " + localServerId + " must be one of the server IDs " + serverIds);
         }
+        if (configuration.autoElection() && configuration.heartbeatIntervalNanos() >= configuration.electionTimeoutNanos()) {
+            throw new IllegalArgumentException("Heartbeat interval " + configuration.heartbeatIntervalNanos() +
+                    "ns must be less than election timeout " + configuration.electionTimeoutNanos() + "ns");
+        }
+        if (configuration.autoElection() && configuration.stateFile() == null) {
+            throw new IllegalArgumentException("State file is required for auto election to persist votes across restarts");
+        }
         return configuration;
     }
 }
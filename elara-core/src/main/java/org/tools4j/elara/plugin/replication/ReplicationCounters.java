@@ -0,0 +1,188 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.agrona.concurrent.status.CountersManager;
+import org.tools4j.elara.plugin.metrics.MetricsCounters;
+import org.tools4j.elara.plugin.replication.DefaultReplicationMetrics.Follower;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+
+import static java.util.Objects.requireNonNull;
+import static org.agrona.concurrent.status.CountersReader.COUNTER_LENGTH;
+import static org.agrona.concurrent.status.CountersReader.METADATA_LENGTH;
+import static org.tools4j.elara.plugin.metrics.MetricsCounters.HEADER_LENGTH;
+import static org.tools4j.elara.plugin.metrics.MetricsCounters.MAGIC;
+import static org.tools4j.elara.plugin.metrics.MetricsCounters.MAGIC_OFFSET;
+import static org.tools4j.elara.plugin.metrics.MetricsCounters.METADATA_LENGTH_OFFSET;
+import static org.tools4j.elara.plugin.metrics.MetricsCounters.VALUES_LENGTH_OFFSET;
+import static org.tools4j.elara.plugin.metrics.MetricsCounters.VERSION;
+import static org.tools4j.elara.plugin.metrics.MetricsCounters.VERSION_OFFSET;
+
+/**
+ * Live replication counters per peer server in a memory mapped file that can be sampled by other processes while the
+ * application is running.  The file has the same layout as {@link MetricsCounters} and can be read with
+ * {@link MetricsCounters#reader(File)} or the metrics counters reader tool;  counter labels are the
+ * {@link Counter#displayName() display name} followed by the peer server ID in square brackets.
+ */
+public final class ReplicationCounters implements AutoCloseable {
+
+    public static final int REPLICATION_COUNTER_TYPE_ID = 3;
+
+    public enum Counter {
+        NEXT_EVENT_STORE_INDEX("rep-nxt-idx"),
+        CONFIRMED_EVENT_STORE_INDEX("rep-cnf-idx"),
+        LAG_EVENTS("rep-lag-evt"),
+        SENT_EVENTS("rep-snt-evt"),
+        SENT_BYTES("rep-snt-byt"),
+        EVENTS_PER_SECOND("rep-evt-rate"),
+        BYTES_PER_SECOND("rep-byt-rate"),
+        RESEND_COUNT("rep-rsn-cnt"),
+        RESENT_EVENTS("rep-rsn-evt"),
+        ACK_COUNT("rep-ack-cnt"),
+        ACK_ROUND_TRIP_MAX("rep-ack-rtt-max"),
+        HEARTBEAT_AGE("rep-hbt-age");
+
+        private final String displayName;
+
+        Counter(final String displayName) {
+            this.displayName = requireNonNull(displayName);
+        }
+
+        public String displayName() {
+            return displayName;
+        }
+
+        private static final Counter[] VALUES = values();
+
+        public static int length() {
+            return VALUES.length;
+        }
+
+        public static Counter byOrdinal(final int ordinal) {
+            return VALUES[ordinal];
+        }
+    }
+
+    private final File file;
+    private final MappedByteBuffer mappedBuffer;
+    private final Follower[] followers;
+    private final AtomicCounter[][] countersByFollower;
+    private boolean closed;
+
+    private ReplicationCounters(final File file, final MappedByteBuffer mappedBuffer, final Follower[] followers) {
+        this.file = requireNonNull(file);
+        this.mappedBuffer = requireNonNull(mappedBuffer);
+        this.followers = requireNonNull(followers);
+        this.countersByFollower = new AtomicCounter[followers.length][Counter.length()];
+        final int counterCount = followers.length * Counter.length();
+        final int valuesLength = counterCount * COUNTER_LENGTH;
+        final int metadataLength = counterCount * METADATA_LENGTH;
+        final UnsafeBuffer header = new UnsafeBuffer(mappedBuffer, 0, HEADER_LENGTH);
+        final CountersManager countersManager = new CountersManager(
+                new UnsafeBuffer(mappedBuffer, HEADER_LENGTH, metadataLength),
+                new UnsafeBuffer(mappedBuffer, HEADER_LENGTH + metadataLength, valuesLength)
+        );
+        for (int i = 0; i < followers.length; i++) {
+            for (int ordinal = 0; ordinal < Counter.length(); ordinal++) {
+                countersByFollower[i][ordinal] = countersManager.newCounter(
+                        Counter.byOrdinal(ordinal).displayName() + "[" + followers[i].serverId + "]",
+                        REPLICATION_COUNTER_TYPE_ID);
+            }
+        }
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putInt(METADATA_LENGTH_OFFSET, metadataLength);
+        header.putInt(VALUES_LENGTH_OFFSET, valuesLength);
+        header.putIntOrdered(MAGIC_OFFSET, MAGIC);
+    }
+
+    public static int fileLength(final int followerCount) {
+        return HEADER_LENGTH + followerCount * Counter.length() * (METADATA_LENGTH + COUNTER_LENGTH);
+    }
+
+    static ReplicationCounters create(final File file, final Follower[] followers) {
+        requireNonNull(file);
+        if (file.exists() && !file.delete()) {
+            throw new IllegalStateException("Could not delete existing counters file: " + file);
+        }
+        return new ReplicationCounters(file, IoUtil.mapNewFile(file, fileLength(followers.length)), followers);
+    }
+
+    public File file() {
+        return file;
+    }
+
+    public long counter(final int serverId, final Counter counter) {
+        for (int i = 0; i < followers.length; i++) {
+            if (followers[i].serverId == serverId) {
+                return countersByFollower[i][counter.ordinal()].get();
+            }
+        }
+        throw new IllegalArgumentException("No replication counters for server " + serverId);
+    }
+
+    void update(final long nanoTime) {
+        if (closed) {
+            return;
+        }
+        for (int i = 0; i < followers.length; i++) {
+            final Follower follower = followers[i];
+            final AtomicCounter[] counters = countersByFollower[i];
+            final long lastReceiveTime = follower.lastReceiveTime;
+            counters[Counter.NEXT_EVENT_STORE_INDEX.ordinal()].setOrdered(follower.nextEventStoreIndex);
+            counters[Counter.CONFIRMED_EVENT_STORE_INDEX.ordinal()].setOrdered(follower.confirmedEventStoreIndex);
+            counters[Counter.LAG_EVENTS.ordinal()].setOrdered(follower.lagEvents);
+            counters[Counter.SENT_EVENTS.ordinal()].setOrdered(follower.sentEvents);
+            counters[Counter.SENT_BYTES.ordinal()].setOrdered(follower.sentBytes);
+            counters[Counter.EVENTS_PER_SECOND.ordinal()].setOrdered(follower.eventsPerSecond);
+            counters[Counter.BYTES_PER_SECOND.ordinal()].setOrdered(follower.bytesPerSecond);
+            counters[Counter.RESEND_COUNT.ordinal()].setOrdered(follower.resendCount);
+            counters[Counter.RESENT_EVENTS.ordinal()].setOrdered(follower.resentEvents);
+            counters[Counter.ACK_COUNT.ordinal()].setOrdered(follower.ackCount);
+            counters[Counter.ACK_ROUND_TRIP_MAX.ordinal()].setOrdered(follower.ackRoundTripMax);
+            counters[Counter.HEARTBEAT_AGE.ordinal()].setOrdered(lastReceiveTime == 0 ? -1 : nanoTime - lastReceiveTime);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            IoUtil.unmap(mappedBuffer);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicationCounters:file=" + file + "|closed=" + closed;
+    }
+}
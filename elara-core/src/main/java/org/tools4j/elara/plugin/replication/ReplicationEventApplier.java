@@ -71,5 +71,6 @@ public class ReplicationEventApplier implements EventApplier {
         replicationState.term(term).leaderId(leaderId);
         logger.info("Server {} applied {}: Updated leader to {} for term {}")
                 .replace(serverId).replace(eventName).replace(leaderId).replace(term).format();
+        configuration.leaderListener().onLeaderChange(serverId, term, leaderId);
     }
 }
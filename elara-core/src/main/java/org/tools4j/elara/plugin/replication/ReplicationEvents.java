@@ -50,7 +50,8 @@ public enum ReplicationEvents {
     public static final short LEADER_HEARTBEAT = -90;
     /**
      * Leader change occurred and a new term has started in response to a
-     * {@link org.tools4j.elara.plugin.replication.ReplicationCommands#PROPOSE_LEADER PROPOSE_LEADER} command
+     * {@link org.tools4j.elara.plugin.replication.ReplicationCommands#PROPOSE_LEADER PROPOSE_LEADER} command, or
+     * after the leader has won an {@link ReplicationConfig#autoElection() automatic election}
      */
     public static final short LEADER_ELECTED = -91;
     /**
@@ -23,15 +23,23 @@
  */
 package org.tools4j.elara.plugin.replication;
 
+import org.agrona.concurrent.Agent;
+import org.tools4j.elara.app.config.AppConfig;
 import org.tools4j.elara.app.config.EventStoreConfig;
+import org.tools4j.elara.app.config.OutputConfig;
+import org.tools4j.elara.app.factory.AppFactory;
 import org.tools4j.elara.app.factory.ApplierFactory;
 import org.tools4j.elara.app.factory.CommandPollerFactory;
 import org.tools4j.elara.app.factory.Interceptor;
+import org.tools4j.elara.app.factory.PublisherFactory;
 import org.tools4j.elara.app.factory.StateFactory;
+import org.tools4j.elara.app.factory.StorePublisherFactory;
 import org.tools4j.elara.app.handler.EventApplier;
 import org.tools4j.elara.handler.EventHandler;
+import org.tools4j.elara.handler.OutputHandler;
 import org.tools4j.elara.step.AgentStep;
 import org.tools4j.elara.step.EventPollerStep;
+import org.tools4j.elara.store.MessageStore;
 import org.tools4j.elara.store.MessageStore.Handler;
 import org.tools4j.elara.store.MessageStore.Poller;
 
@@ -42,18 +50,74 @@ import static java.util.Objects.requireNonNull;
 class ReplicationInterceptor implements Interceptor {
 
     private final ReplicationPlugin plugin;
+    private final AppConfig appConfig;
     private final EventStoreConfig eventStoreConfig;
     private final StateFactory stateFactory;
-    private final ReplicationState replicationState;
+    private final ReplicationState.Volatile replicationState;
+    private final DefaultReplicationMetrics metrics;
 
     public ReplicationInterceptor(final ReplicationPlugin plugin,
+                                  final AppConfig appConfig,
                                   final EventStoreConfig eventStoreConfig,
                                   final StateFactory stateFactory,
-                                  final ReplicationState replicationState) {
+                                  final ReplicationState.Volatile replicationState,
+                                  final DefaultReplicationMetrics metrics) {
         this.plugin = requireNonNull(plugin);
+        this.appConfig = requireNonNull(appConfig);
         this.eventStoreConfig = requireNonNull(eventStoreConfig);
         this.stateFactory = requireNonNull(stateFactory);
         this.replicationState = requireNonNull(replicationState);
+        this.metrics = requireNonNull(metrics);
+    }
+
+    @Override
+    public AppFactory appFactory(final Supplier<? extends AppFactory> singletons) {
+        requireNonNull(singletons);
+        if (metrics.counters() == null && plugin.stateFile() == null) {
+            return null;
+        }
+        //noinspection Convert2Lambda
+        return new AppFactory() {
+            @Override
+            public Agent agent() {
+                return filesClosingAgent(singletons.get().agent());
+            }
+        };
+    }
+
+    /**
+     * Returns an agent that unmaps the replication counters and state files when the application agent is closed;  the
+     * files are updated by the replication step on the agent thread, hence no more updates occur after the agent is
+     * closed.
+     */
+    private Agent filesClosingAgent(final Agent agent) {
+        requireNonNull(agent);
+        return new Agent() {
+            @Override
+            public void onStart() {
+                agent.onStart();
+            }
+
+            @Override
+            public int doWork() throws Exception {
+                return agent.doWork();
+            }
+
+            @Override
+            public void onClose() {
+                try {
+                    agent.onClose();
+                } finally {
+                    metrics.closeCounters();
+                    plugin.closeStateFile();
+                }
+            }
+
+            @Override
+            public String roleName() {
+                return agent.roleName();
+            }
+        };
     }
 
     @Override
@@ -98,4 +162,23 @@ class ReplicationInterceptor implements Interceptor {
             }
         };
     }
+
+    @Override
+    public PublisherFactory publisherFactory(final Supplier<? extends PublisherFactory> singletons) {
+        requireNonNull(singletons);
+        if (!plugin.config().commitGatedOutput() || !(appConfig instanceof OutputConfig)) {
+            return null;
+        }
+        final OutputConfig outputConfig = (OutputConfig) appConfig;
+        final MessageStore committedEventStore = new QuorumCommittedEventStore(eventStoreConfig.eventStore(),
+                replicationState);
+        //NOTE: output handler is taken from singletons, configured output is only used to determine max batch size
+        return new StorePublisherFactory(appConfig, () -> committedEventStore, outputConfig, stateFactory.baseState(),
+                singletons, () -> outputConfig::output) {
+            @Override
+            public OutputHandler outputHandler() {
+                return singletons.get().outputHandler();
+            }
+        };
+    }
 }
@@ -43,12 +43,36 @@ import org.agrona.DirectBuffer;
      |                             Data                              |
      |                             ....                              |
 
+ * </pre>
+ * The committed store index of an append request is the store index of the last event that has been confirmed by a
+ * quorum of servers, or -1 if no such event exists yet;  an append request without data serves as heartbeat to
+ * propagate the committed store index.
+ * <p>
+ * A vote request carries the index of the candidate's last event in the store index field and the term of the
+ * candidate's last event in the committed store index field;  the candidate/leader ID field of a vote response
+ * contains the candidate ID that the vote is for.
+ * <p>
+ * The data section of an append request contains one or more events with consecutive event store indices starting at
+ * store index; every event is prefixed with its length:
+ * <pre>
+
+     0         1         2         3         4         5         6
+     0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2 4
+     +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+     |         Event Length          |            Event              |
+     +-------+-------+-------+-------+                               |
+     |                             ....                              |
+     +-------+-------+-------+-------+-------+-------+-------+-------+
+     |         Event Length          |            Event              |
+     +-------+-------+-------+-------+                               |
+     |                             ....                              |
+
  * </pre>
  */
 public enum ReplicationMessageDescriptor {
     ;
 
-    public static final byte VERSION = 1;
+    public static final byte VERSION = 2;
     public static final byte FLAGS_NONE = 0;
 
     public static final int VERSION_OFFSET = 0;
@@ -72,9 +96,15 @@ public enum ReplicationMessageDescriptor {
     public static final int HEADER_LENGTH = COMMITTED_STORE_INDEX_OFFSET + COMMITTED_STORE_INDEX_LENGTH;
     public static final int PAYLOAD_OFFSET = HEADER_OFFSET + HEADER_LENGTH;
 
+    public static final int EVENT_LENGTH_OFFSET = 0;
+    public static final int EVENT_LENGTH_LENGTH = Integer.BYTES;
+    public static final int EVENT_OFFSET = EVENT_LENGTH_OFFSET + EVENT_LENGTH_LENGTH;
+
     //aliases
     public static final int LEADER_ID_OFFSET = CANDIDATE_ID_OFFSET;
     public static final int LEADER_ID_LENGTH = CANDIDATE_ID_LENGTH;
+    public static final int LAST_STORE_TERM_OFFSET = COMMITTED_STORE_INDEX_OFFSET;
+    public static final int LAST_STORE_TERM_LENGTH = COMMITTED_STORE_INDEX_LENGTH;
 
     public static byte version(final DirectBuffer buffer) {
         return buffer.getByte(VERSION_OFFSET);
@@ -100,15 +130,23 @@ public enum ReplicationMessageDescriptor {
         return buffer.getInt(TERM_OFFSET);
     }
 
-    public static int storeIndex(final DirectBuffer buffer) {
-        return buffer.getInt(STORE_INDEX_OFFSET);
+    public static long storeIndex(final DirectBuffer buffer) {
+        return buffer.getLong(STORE_INDEX_OFFSET);
     }
 
-    public static int committedStoreIndex(final DirectBuffer buffer) {
-        return buffer.getInt(COMMITTED_STORE_INDEX_OFFSET);
+    public static long committedStoreIndex(final DirectBuffer buffer) {
+        return buffer.getLong(COMMITTED_STORE_INDEX_OFFSET);
+    }
+
+    public static int lastStoreTerm(final DirectBuffer buffer) {
+        return (int)buffer.getLong(LAST_STORE_TERM_OFFSET);
     }
 
     public static int dataSize(final DirectBuffer buffer) {
         return buffer.getInt(DATA_SIZE_OFFSET);
     }
+
+    public static int eventLength(final DirectBuffer buffer, final int entryOffset) {
+        return buffer.getInt(entryOffset + EVENT_LENGTH_OFFSET);
+    }
 }
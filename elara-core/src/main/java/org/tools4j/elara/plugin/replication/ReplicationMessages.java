@@ -26,11 +26,15 @@ package org.tools4j.elara.plugin.replication;
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
 
+import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.CANDIDATE_ID_OFFSET;
 import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.COMMITTED_STORE_INDEX_OFFSET;
 import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.DATA_SIZE_OFFSET;
+import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.EVENT_LENGTH_OFFSET;
+import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.EVENT_OFFSET;
 import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.FLAGS_NONE;
 import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.FLAGS_OFFSET;
 import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.HEADER_LENGTH;
+import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.LAST_STORE_TERM_OFFSET;
 import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.LEADER_ID_OFFSET;
 import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.PAYLOAD_OFFSET;
 import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.STORE_INDEX_OFFSET;
@@ -47,26 +51,66 @@ public enum ReplicationMessages {
     ;
     public static final short APPEND_REQUEST = -95;
     public static final short APPEND_RESPONSE = -96;
+    public static final short VOTE_REQUEST = -97;
+    public static final short VOTE_RESPONSE = -98;
 
     public static final byte FLAG_APPEND_SUCCESS = 1;
+    public static final byte FLAG_VOTE_GRANTED = 1;
 
     public static int appendRequest(final MutableDirectBuffer buffer, final int offset,
                                     final int term,
                                     final int leaderId,
                                     final long storeIndex,
-                                    final DirectBuffer payload,
-                                    final int payloadOffset,
-                                    final int dataSize) {
+                                    final long committedStoreIndex,
+                                    final DirectBuffer event,
+                                    final int eventOffset,
+                                    final int eventLength) {
+        appendRequestHeader(buffer, offset, term, leaderId, storeIndex, committedStoreIndex);
+        return appendRequestEvent(buffer, offset, event, eventOffset, eventLength);
+    }
+
+    public static int appendRequestHeader(final MutableDirectBuffer buffer, final int offset,
+                                          final int term,
+                                          final int leaderId,
+                                          final long storeIndex,
+                                          final long committedStoreIndex) {
         buffer.putByte(offset + VERSION_OFFSET, VERSION);
         buffer.putByte(offset + FLAGS_OFFSET, FLAGS_NONE);
         buffer.putShort(offset + TYPE_OFFSET, APPEND_REQUEST);
-        buffer.putInt(offset + DATA_SIZE_OFFSET, dataSize);
+        buffer.putInt(offset + DATA_SIZE_OFFSET, 0);
         buffer.putInt(offset + LEADER_ID_OFFSET, leaderId);
         buffer.putInt(offset + TERM_OFFSET, term);
         buffer.putLong(offset + STORE_INDEX_OFFSET, storeIndex);
-        buffer.putLong(offset + COMMITTED_STORE_INDEX_OFFSET, 0);//TODO commit store index
-        buffer.putBytes(offset + PAYLOAD_OFFSET, payload, payloadOffset, dataSize);
-        return HEADER_LENGTH + dataSize;
+        buffer.putLong(offset + COMMITTED_STORE_INDEX_OFFSET, committedStoreIndex);
+        return HEADER_LENGTH;
+    }
+
+    /**
+     * Appends an event to the append request in the given buffer;  the event store index of the appended event is
+     * implicitly defined as store index in the header plus the number of events already contained in the request.
+     *
+     * @param buffer        buffer with append request header written at offset
+     * @param offset        offset of the append request in buffer
+     * @param event         buffer containing the event to append
+     * @param eventOffset   offset of the event in event buffer
+     * @param eventLength   length of the event
+     * @return the total length of the append request after appending the event
+     */
+    public static int appendRequestEvent(final MutableDirectBuffer buffer, final int offset,
+                                         final DirectBuffer event,
+                                         final int eventOffset,
+                                         final int eventLength) {
+        final int dataSize = buffer.getInt(offset + DATA_SIZE_OFFSET);
+        final int entryOffset = offset + PAYLOAD_OFFSET + dataSize;
+        buffer.putInt(entryOffset + EVENT_LENGTH_OFFSET, eventLength);
+        buffer.putBytes(entryOffset + EVENT_OFFSET, event, eventOffset, eventLength);
+        final int newDataSize = dataSize + EVENT_OFFSET + eventLength;
+        buffer.putInt(offset + DATA_SIZE_OFFSET, newDataSize);
+        return HEADER_LENGTH + newDataSize;
+    }
+
+    public static int appendRequestEventEntryLength(final int eventLength) {
+        return EVENT_OFFSET + eventLength;
     }
 
     public static int appendResponse(final MutableDirectBuffer buffer, final int offset,
@@ -85,6 +129,37 @@ public enum ReplicationMessages {
         return HEADER_LENGTH;
     }
 
+    public static int voteRequest(final MutableDirectBuffer buffer, final int offset,
+                                  final int term,
+                                  final int candidateId,
+                                  final long lastStoreIndex,
+                                  final int lastStoreTerm) {
+        buffer.putByte(offset + VERSION_OFFSET, VERSION);
+        buffer.putByte(offset + FLAGS_OFFSET, FLAGS_NONE);
+        buffer.putShort(offset + TYPE_OFFSET, VOTE_REQUEST);
+        buffer.putInt(offset + DATA_SIZE_OFFSET, 0);
+        buffer.putInt(offset + CANDIDATE_ID_OFFSET, candidateId);
+        buffer.putInt(offset + TERM_OFFSET, term);
+        buffer.putLong(offset + STORE_INDEX_OFFSET, lastStoreIndex);
+        buffer.putLong(offset + LAST_STORE_TERM_OFFSET, lastStoreTerm);
+        return HEADER_LENGTH;
+    }
+
+    public static int voteResponse(final MutableDirectBuffer buffer, final int offset,
+                                   final int term,
+                                   final int candidateId,
+                                   final boolean granted) {
+        buffer.putByte(offset + VERSION_OFFSET, VERSION);
+        buffer.putByte(offset + FLAGS_OFFSET, granted ? FLAG_VOTE_GRANTED : FLAGS_NONE);
+        buffer.putShort(offset + TYPE_OFFSET, VOTE_RESPONSE);
+        buffer.putInt(offset + DATA_SIZE_OFFSET, 0);
+        buffer.putInt(offset + CANDIDATE_ID_OFFSET, candidateId);
+        buffer.putInt(offset + TERM_OFFSET, term);
+        buffer.putLong(offset + STORE_INDEX_OFFSET, 0);
+        buffer.putLong(offset + LAST_STORE_TERM_OFFSET, 0);
+        return HEADER_LENGTH;
+    }
+
     public static byte version(final DirectBuffer buffer) {
         return ReplicationMessageDescriptor.version(buffer);
     }
@@ -97,6 +172,10 @@ public enum ReplicationMessages {
         return (FLAG_APPEND_SUCCESS & flags(buffer)) != 0;
     }
 
+    public static boolean isVoteGranted(final DirectBuffer buffer) {
+        return (FLAG_VOTE_GRANTED & flags(buffer)) != 0;
+    }
+
     public static byte type(final DirectBuffer buffer) {
         return ReplicationMessageDescriptor.type(buffer);
     }
@@ -113,22 +192,32 @@ public enum ReplicationMessages {
         return ReplicationMessageDescriptor.term(buffer);
     }
 
-    public static int storeIndex(final DirectBuffer buffer) {
+    public static long storeIndex(final DirectBuffer buffer) {
         return ReplicationMessageDescriptor.storeIndex(buffer);
     }
 
-    public static int committedStoreIndex(final DirectBuffer buffer) {
+    public static long committedStoreIndex(final DirectBuffer buffer) {
         return ReplicationMessageDescriptor.committedStoreIndex(buffer);
     }
 
+    public static int lastStoreTerm(final DirectBuffer buffer) {
+        return ReplicationMessageDescriptor.lastStoreTerm(buffer);
+    }
+
     public static int payloadSize(final DirectBuffer buffer) {
         return ReplicationMessageDescriptor.dataSize(buffer);
     }
 
+    public static int eventLength(final DirectBuffer buffer, final int entryOffset) {
+        return ReplicationMessageDescriptor.eventLength(buffer, entryOffset);
+    }
+
     public static boolean isReplicationMessageType(final int type) {
         switch (type) {
             case APPEND_REQUEST:
             case APPEND_RESPONSE:
+            case VOTE_REQUEST:
+            case VOTE_RESPONSE:
                 return true;
             default:
                 return false;
@@ -141,6 +230,10 @@ public enum ReplicationMessages {
                 return "APPEND_REQUEST";
             case APPEND_RESPONSE:
                 return "APPEND_RESPONSE";
+            case VOTE_REQUEST:
+                return "VOTE_REQUEST";
+            case VOTE_RESPONSE:
+                return "VOTE_RESPONSE";
             default:
                 throw new IllegalArgumentException("Not a replication message type: " + type);
         }
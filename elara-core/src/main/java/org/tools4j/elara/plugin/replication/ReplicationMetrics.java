@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Metrics of the replication plugin per peer server, counting events sent by the leader, resends and repositioning of
+ * the leader's event store poller when a follower catches up from a different event store index.  Leader side metrics
+ * also include the follower's replication progress, send rates sampled once per second and the round-trip time from
+ * sending an append request until it is acknowledged.
+ * <p>
+ * Metrics are written by the replication step on the agent thread and can be read from any thread;  if a
+ * {@link ReplicationConfig#countersFile() counters file} is configured, the metrics are also exported as shared
+ * counters that can be sampled by other processes, for instance with the metrics counters reader tool.
+ */
+public interface ReplicationMetrics {
+    long sentEvents(int serverId);
+    long sentBatches(int serverId);
+    long sentBytes(int serverId);
+    long sentHeartbeats(int serverId);
+    /** @return the number of times that events were resent after a timeout or a rejected append request */
+    long resendCount(int serverId);
+    long resentEvents(int serverId);
+    long repositionCount(int serverId);
+    /** @return the total number of event store entries skipped forward or backward when repositioning */
+    long repositionDistance(int serverId);
+    long repositionTimeNanos(int serverId);
+
+    long nextEventStoreIndex(int serverId);
+    long confirmedEventStoreIndex(int serverId);
+    /** @return the number of events in the leader's event store that have not been confirmed by the follower */
+    long lagEvents(int serverId);
+    long eventsPerSecond(int serverId);
+    long bytesPerSecond(int serverId);
+
+    long ackCount(int serverId);
+    long ackRoundTripMaxNanos(int serverId);
+    /**
+     * Returns a histogram with the ack round-trip times in nanoseconds recorded since the last invocation of this
+     * method for the same server.
+     *
+     * @param serverId  the follower server ID
+     * @param recycle   a histogram previously returned by this method to reuse, or null to allocate a new histogram
+     * @return the interval histogram with ack round-trip times
+     */
+    Histogram ackRoundTripHistogram(int serverId, Histogram recycle);
+
+    /** @return the {@link System#nanoTime() nano time} when a message was last sent to the server, or zero if never */
+    long lastSendTimeNanos(int serverId);
+    /** @return the {@link System#nanoTime() nano time} when a message was last received from the server, or zero if never */
+    long lastReceiveTimeNanos(int serverId);
+
+    /**
+     * Returns the time since the last heartbeat, append request or response was received from the given server, or
+     * -1 if no message has been received from that server yet.
+     *
+     * @param serverId the peer server ID
+     * @return the time in nanoseconds since the last message from the server, or -1 if none has been received
+     */
+    default long heartbeatAgeNanos(final int serverId) {
+        final long lastReceiveTime = lastReceiveTimeNanos(serverId);
+        return lastReceiveTime == 0 ? -1 : System.nanoTime() - lastReceiveTime;
+    }
+}
@@ -50,21 +50,42 @@ import static java.util.Objects.requireNonNull;
 public class ReplicationPlugin implements SystemPlugin<ReplicationState.Mutable> {
 
     private final ReplicationConfig config;
+    private final DefaultReplicationMetrics metrics;
+    private final ReplicationStateFile stateFile;//nullable
     private final Specification specification = new Specification();
 
     public ReplicationPlugin(final ReplicationConfig config) {
         this.config = ReplicationConfig.validate(config);
+        this.metrics = new DefaultReplicationMetrics(config);
+        this.stateFile = config.stateFile() == null ? null : ReplicationStateFile.open(config.stateFile());
     }
 
     public ReplicationConfig config() {
         return config;
     }
 
+    public ReplicationMetrics metrics() {
+        return metrics;
+    }
+
     @Override
     public SystemPluginSpecification<Mutable> specification() {
         return specification;
     }
 
+    ReplicationStateFile stateFile() {
+        return stateFile;
+    }
+
+    /**
+     * Closes the state file if available;  must only be invoked after the last update of the replication state.
+     */
+    void closeStateFile() {
+        if (stateFile != null) {
+            stateFile.close();
+        }
+    }
+
     public static ReplicationConfigurator configure() {
         return ReplicationConfigurator.create();
     }
@@ -73,10 +94,19 @@ public class ReplicationPlugin implements SystemPlugin<ReplicationState.Mutable>
         return state.leaderId() == config.serverId();
     }
 
+    private boolean hasBootstrapConnections() {
+        for (final int serverId : config.serverIds()) {
+            if (serverId != config.serverId() && config.bootstrapConnection(serverId) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private final class Specification implements SystemPluginSpecification<ReplicationState.Mutable> {
         @Override
         public PluginStateProvider<Mutable> defaultPluginStateProvider() {
-            return appConfig -> new DefaultReplicationState();
+            return appConfig -> new DefaultReplicationState(stateFile);
         }
 
         @Override
@@ -101,7 +131,10 @@ public class ReplicationPlugin implements SystemPlugin<ReplicationState.Mutable>
             );
             final DispatchingPublisher dispatchingPublisher = new DispatchingPublisher(config);
             final EventSender eventSender = new DefaultEventSender(config, replicationState, eventStore,
-                    dispatchingPublisher);
+                    dispatchingPublisher, metrics);
+            final EventSender bootstrapSender = hasBootstrapConnections() ? new DefaultEventSender(config,
+                    replicationState, eventStore, new DispatchingPublisher(config, config::bootstrapConnection),
+                    metrics, config.bootstrapBatchSize(), config.bootstrapBytesPerSecond()) : eventSender;
 
             return new Installer.Default() {
                 @Override
@@ -109,11 +142,17 @@ public class ReplicationPlugin implements SystemPlugin<ReplicationState.Mutable>
                     //noinspection SwitchStatementWithTooFewBranches
                     switch (executionType) {
                         case ALWAYS_WHEN_EVENTS_APPLIED:
+                            final LeaderElection leaderElection = new LeaderElection(
+                                    appConfig.loggerFactory(), appConfig.timeSource(), config, replicationState,
+                                    eventStoreAppender, dispatchingPublisher
+                            );
                             final Handler connectionHandler = new ConnectionHandler(
-                                    appConfig.loggerFactory(), config, baseState, replicationState, eventStoreAppender, dispatchingPublisher
+                                    appConfig.loggerFactory(), config, baseState, replicationState, eventStore,
+                                    eventStoreAppender, dispatchingPublisher, leaderElection, metrics
                             );
                             return new ReplicationPluginStep(
-                                    config, replicationState, enforcedLeaderEventReceiver, connectionHandler, eventSender
+                                    config, replicationState, enforcedLeaderEventReceiver, connectionHandler, eventSender,
+                                    bootstrapSender, leaderElection, metrics
                             );
                         default:
                             return AgentStep.NOOP;
@@ -132,8 +171,8 @@ public class ReplicationPlugin implements SystemPlugin<ReplicationState.Mutable>
 
                 @Override
                 public Interceptor interceptor(final StateFactory stateFactory) {
-                    return new ReplicationInterceptor(ReplicationPlugin.this, eventStoreConfig, stateFactory,
-                            replicationState);
+                    return new ReplicationInterceptor(ReplicationPlugin.this, appConfig, eventStoreConfig, stateFactory,
+                            replicationState, metrics);
                 }
             };
         }
@@ -23,40 +23,95 @@
  */
 package org.tools4j.elara.plugin.replication;
 
+import org.agrona.concurrent.NanoClock;
 import org.tools4j.elara.plugin.replication.Connection.Handler;
 import org.tools4j.elara.plugin.replication.Connection.Poller;
 import org.tools4j.elara.step.AgentStep;
 
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
 import static java.util.Objects.requireNonNull;
-import static org.tools4j.elara.plugin.replication.ConnectionHandler.RESEND_DELAY_NANOS;
 
 public class ReplicationPluginStep implements AgentStep {
 
+    private static final long NOTHING_SENT = Long.MIN_VALUE;
+    private static final int NO_LEADER_TERM = -1;
+
+    private final NanoClock clock;
     private final int serverId;
     private final int[] serverIds;
     private final ReplicationState.Volatile replicationState;
     private final EnforcedLeaderEventReceiver enforcedLeaderEventReceiver;
     private final Handler connectionHandler;
     private final EventSender eventSender;
+    private final EventSender bootstrapSender;
+    private final boolean[] bootstrapEnabled;
+    private final boolean[] bootstrapping;
+    private final long bootstrapThreshold;
     private final EnforceLeaderInput enforceLeaderInput;
+    private final LeaderElection leaderElection;
     private final Connection.Poller[] connectionPollers;
+    private final FollowerWindow[] followerWindows;
+    private final long resendTimeoutNanos;
+    private final int quorum;
+    private final long[] quorumStoreIndices;
+    private final long[] sentCommittedEventStoreIndices;
+    private final long[] lastSendTimes;
+    private final long heartbeatIntervalNanos;
+    private final DefaultReplicationMetrics metrics;
+    private final DefaultReplicationMetrics.Follower[] followerMetrics;
+    private int leaderTerm = NO_LEADER_TERM;
+
+    public ReplicationPluginStep(final ReplicationConfig configuration,
+                                 final ReplicationState.Volatile replicationState,
+                                 final EnforcedLeaderEventReceiver enforcedLeaderEventReceiver,
+                                 final Handler connectionHandler,
+                                 final EventSender eventSender,
+                                 final LeaderElection leaderElection,
+                                 final DefaultReplicationMetrics metrics) {
+        this(configuration, replicationState, enforcedLeaderEventReceiver, connectionHandler, eventSender, eventSender,
+                leaderElection, metrics);
+    }
 
+    /**
+     * Constructor with a bootstrap sender used for followers with a
+     * {@link ReplicationConfig#bootstrapConnection(int) bootstrap connection} if they lag behind by more than the
+     * {@link ReplicationConfig#bootstrapThreshold() bootstrap threshold}.
+     */
     public ReplicationPluginStep(final ReplicationConfig configuration,
                                  final ReplicationState.Volatile replicationState,
                                  final EnforcedLeaderEventReceiver enforcedLeaderEventReceiver,
                                  final Handler connectionHandler,
-                                 final EventSender eventSender) {
+                                 final EventSender eventSender,
+                                 final EventSender bootstrapSender,
+                                 final LeaderElection leaderElection,
+                                 final DefaultReplicationMetrics metrics) {
+        this.clock = configuration.nanoClock();
         this.serverId = configuration.serverId();
         this.serverIds = configuration.serverIds();
         this.replicationState = requireNonNull(replicationState);
         this.enforcedLeaderEventReceiver = requireNonNull(enforcedLeaderEventReceiver);
         this.connectionHandler = requireNonNull(connectionHandler);
         this.eventSender = requireNonNull(eventSender);
+        this.bootstrapSender = requireNonNull(bootstrapSender);
+        this.bootstrapEnabled = initBootstrapEnabled(configuration, bootstrapSender != eventSender);
+        this.bootstrapping = new boolean[serverIds.length];
+        this.bootstrapThreshold = configuration.bootstrapThreshold();
         this.enforceLeaderInput = configuration.enforceLeaderInput();
+        this.leaderElection = requireNonNull(leaderElection);
+        this.metrics = requireNonNull(metrics);
+        this.followerMetrics = initFollowerMetrics();
         this.connectionPollers = initPollers(configuration);
+        this.followerWindows = initWindows(configuration);
+        this.resendTimeoutNanos = configuration.resendTimeoutNanos();
+        this.quorum = (serverIds.length / 2) + 1;
+        this.quorumStoreIndices = new long[serverIds.length];
+        this.sentCommittedEventStoreIndices = new long[serverIds.length];
+        Arrays.fill(sentCommittedEventStoreIndices, NOTHING_SENT);
+        this.lastSendTimes = new long[serverIds.length];
+        this.heartbeatIntervalNanos = configuration.heartbeatIntervalNanos();
     }
 
     @Override
@@ -65,6 +120,10 @@ public class ReplicationPluginStep implements AgentStep {
         workDone += pollEnforcedLeaderInput();
         workDone += pollConnections();
         workDone += updateFollowers();
+        final long nanoTime = clock.nanoTime();
+        workDone += leaderElection.doWork(nanoTime);
+        //NOTE: updating metrics is not considered work as it would otherwise disable any idle strategy
+        metrics.update(nanoTime);
         return workDone;
     }
 
@@ -82,45 +141,203 @@ public class ReplicationPluginStep implements AgentStep {
 
     private int updateFollowers() {
         if (isLeader()) {
+            onLeaderTerm(replicationState.term());
             int workDone = 0;
             final long eventStoreSize = replicationState.eventStoreSize();
-            for (short server = 0; server < serverIds.length; server++) {
+            final long nanoTime = clock.nanoTime();
+            final long committedEventStoreIndex = updateCommittedEventStoreIndex(eventStoreSize);
+            for (int server = 0; server < serverIds.length; server++) {
                 final int followerId = serverIds[server];
                 if (followerId != serverId) {
-                    final long nextEventStoreIndex = replicationState.nextEventStoreIndex(followerId);
-                    if (nextEventStoreIndex < eventStoreSize) {
-                        if (eventSender.sendEvent(followerId, nextEventStoreIndex)) {
-                            replicationState.nextEventStoreIndex(followerId, nextEventStoreIndex + 1);
-                        }
-                        workDone++;//we have still some work done if we move the poller forward or backward
-                    } else {
-                        final long confirmedEventStoreIndex = replicationState.confirmedEventStoreIndex(followerId);
-                        if (confirmedEventStoreIndex < eventStoreSize) {
-                            final long nanoTime = System.nanoTime();
-                            final long nextTime = replicationState.nextNotBefore(followerId);
-                            if (nextTime == 0 || nanoTime - nextTime >= 0) {
-                                replicationState.nextEventStoreIndex(followerId, confirmedEventStoreIndex + 1);
-                                replicationState.nextNotBefore(followerId, nanoTime + RESEND_DELAY_NANOS);
-                                workDone++;
-                            }
-                        }
-                    }
+                    workDone += updateFollower(server, followerId, followerWindows[server], eventStoreSize, nanoTime);
+                    workDone += sendHeartbeat(server, followerId, eventStoreSize, committedEventStoreIndex, nanoTime);
                 }
             }
             return workDone;
         }
+        if (leaderTerm != NO_LEADER_TERM) {
+            resetFollowers();
+            leaderTerm = NO_LEADER_TERM;
+        }
+        return 0;
+    }
+
+    /**
+     * Forgets the committed indices sent to followers when this server becomes leader so that the committed index
+     * is sent to every follower again in the new term.
+     */
+    private void onLeaderTerm(final int term) {
+        if (leaderTerm != term) {
+            if (leaderTerm != NO_LEADER_TERM) {
+                resetFollowers();
+            }
+            leaderTerm = term;
+            Arrays.fill(sentCommittedEventStoreIndices, NOTHING_SENT);
+        }
+    }
+
+    /**
+     * Invoked when this server is no longer leader in the term it was leader before.  Events after the confirmed
+     * index of a follower may be replaced by events of another leader and have to be verified by the follower again;
+     * replication hence restarts after the confirmed index of every follower if this server becomes leader again.
+     */
+    private void resetFollowers() {
+        for (int server = 0; server < serverIds.length; server++) {
+            final int followerId = serverIds[server];
+            if (followerId != serverId) {
+                replicationState.nextEventStoreIndex(followerId,
+                        replicationState.confirmedEventStoreIndex(followerId) + 1);
+                followerWindows[server].clear();
+            }
+        }
+    }
+
+    private int updateFollower(final int server,
+                               final int followerId,
+                               final FollowerWindow window,
+                               final long eventStoreSize,
+                               final long nanoTime) {
+        int workDone = 0;
+        final DefaultReplicationMetrics.Follower follower = followerMetrics[server];
+        long nextEventStoreIndex = replicationState.nextEventStoreIndex(followerId);
+        final long confirmedEventStoreSize = replicationState.confirmedEventStoreIndex(followerId) + 1;
+        window.acknowledge(confirmedEventStoreSize, nanoTime);
+        if (nextEventStoreIndex < window.end()) {
+            //next index was reset by a rejected append request
+            follower.resent(window.end() - nextEventStoreIndex);
+            window.clear();
+        }
+        if (window.isTimedOut(nanoTime, resendTimeoutNanos)) {
+            follower.resent(nextEventStoreIndex - confirmedEventStoreSize);
+            window.clear();
+            nextEventStoreIndex = confirmedEventStoreSize;
+            replicationState.nextEventStoreIndex(followerId, nextEventStoreIndex);
+            workDone++;
+        }
+        final EventSender sender = sender(server, window, eventStoreSize - nextEventStoreIndex);
+        while (sender != null && nextEventStoreIndex < eventStoreSize && !window.isFull()) {
+            final long endEventStoreIndex = sender.sendEvents(followerId, nextEventStoreIndex, eventStoreSize);
+            workDone++;//we have still some work done if we move the poller forward or backward
+            if (endEventStoreIndex == nextEventStoreIndex) {
+                break;
+            }
+            window.add(endEventStoreIndex, nanoTime);
+            lastSendTimes[server] = nanoTime;
+            follower.sent(nanoTime);
+            nextEventStoreIndex = endEventStoreIndex;
+            replicationState.nextEventStoreIndex(followerId, nextEventStoreIndex);
+        }
+        follower.progress(nextEventStoreIndex, confirmedEventStoreSize - 1, eventStoreSize);
+        return workDone;
+    }
+
+    /**
+     * Returns the sender for the follower, the bootstrap sender if the follower lags behind by more than the bootstrap
+     * threshold, and the regular event sender otherwise.  Bootstrap and regular batches are sent over different
+     * connections and can therefore overtake each other;  the sender is hence only switched when all batches sent by
+     * the other sender are acknowledged, and null is returned until then.
+     */
+    private EventSender sender(final int server, final FollowerWindow window, final long lag) {
+        final boolean bootstrap = bootstrapEnabled[server] && lag > bootstrapThreshold;
+        if (bootstrap != bootstrapping[server]) {
+            if (!window.isEmpty()) {
+                return null;
+            }
+            bootstrapping[server] = bootstrap;
+        }
+        return bootstrap ? bootstrapSender : eventSender;
+    }
+
+    /**
+     * Updates the committed event store index to the highest index that is confirmed by a quorum of servers.
+     */
+    private long updateCommittedEventStoreIndex(final long eventStoreSize) {
+        for (int server = 0; server < serverIds.length; server++) {
+            final int id = serverIds[server];
+            quorumStoreIndices[server] = id == serverId ? eventStoreSize - 1
+                    : replicationState.confirmedEventStoreIndex(id);
+        }
+        Arrays.sort(quorumStoreIndices);
+        final long quorumStoreIndex = quorumStoreIndices[quorumStoreIndices.length - quorum];
+        final long committedEventStoreIndex = replicationState.committedEventStoreIndex();
+        if (quorumStoreIndex > committedEventStoreIndex) {
+            replicationState.committedEventStoreIndex(quorumStoreIndex);
+            return quorumStoreIndex;
+        }
+        return committedEventStoreIndex;
+    }
+
+    /**
+     * Sends a heartbeat if no more events are sent to the follower and if the committed index has changed or the
+     * heartbeat interval has elapsed since the last append request was sent to the follower.
+     */
+    private int sendHeartbeat(final int server,
+                              final int followerId,
+                              final long eventStoreSize,
+                              final long committedEventStoreIndex,
+                              final long nanoTime) {
+        if (sentCommittedEventStoreIndices[server] == committedEventStoreIndex &&
+                nanoTime - lastSendTimes[server] < heartbeatIntervalNanos) {
+            return 0;
+        }
+        final long nextEventStoreIndex = replicationState.nextEventStoreIndex(followerId);
+        if (nextEventStoreIndex < eventStoreSize) {
+            //committed index is sent with next append request
+            return 0;
+        }
+        //heartbeats go over the connection of the current sender to stay behind batches in flight
+        final EventSender sender = bootstrapping[server] ? bootstrapSender : eventSender;
+        if (sender.sendHeartbeat(followerId, nextEventStoreIndex)) {
+            sentCommittedEventStoreIndices[server] = committedEventStoreIndex;
+            lastSendTimes[server] = nanoTime;
+            followerMetrics[server].heartbeatSent(nanoTime);
+            return 1;
+        }
         return 0;
     }
 
     private boolean isLeader() {
-        return serverId == replicationState.leaderId();
+        return replicationState.isLeader(serverId);
     }
 
     private Poller[] initPollers(final ReplicationConfig configuration) {
         final Set<Connection> connections = new LinkedHashSet<>();
         for (int i = 0; i < serverIds.length; i++) {
             connections.add(configuration.connection(serverIds[i]));
+            final Connection bootstrapConnection = configuration.bootstrapConnection(serverIds[i]);
+            if (bootstrapConnection != null) {
+                connections.add(bootstrapConnection);
+            }
         }
         return connections.stream().map(Connection::poller).toArray(Poller[]::new);
     }
+
+    private boolean[] initBootstrapEnabled(final ReplicationConfig configuration, final boolean bootstrapSender) {
+        final boolean[] enabled = new boolean[serverIds.length];
+        for (int i = 0; i < serverIds.length; i++) {
+            enabled[i] = bootstrapSender && serverIds[i] != serverId
+                    && configuration.bootstrapConnection(serverIds[i]) != null;
+        }
+        return enabled;
+    }
+
+    private FollowerWindow[] initWindows(final ReplicationConfig configuration) {
+        final FollowerWindow[] windows = new FollowerWindow[serverIds.length];
+        for (int i = 0; i < serverIds.length; i++) {
+            if (serverIds[i] != serverId) {
+                windows[i] = new FollowerWindow(configuration.maxInFlightBatches(), followerMetrics[i]);
+            }
+        }
+        return windows;
+    }
+
+    private DefaultReplicationMetrics.Follower[] initFollowerMetrics() {
+        final DefaultReplicationMetrics.Follower[] followers = new DefaultReplicationMetrics.Follower[serverIds.length];
+        for (int i = 0; i < serverIds.length; i++) {
+            if (serverIds[i] != serverId) {
+                followers[i] = metrics.follower(serverIds[i]);
+            }
+        }
+        return followers;
+    }
 }
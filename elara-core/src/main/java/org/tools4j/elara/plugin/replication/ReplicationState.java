@@ -37,12 +37,26 @@ public interface ReplicationState {
         long eventStoreSize();
         long nextEventStoreIndex(int serverId);
         long confirmedEventStoreIndex(int serverId);
-        long committedEventStoreIndex(int serverCount);
+        long committedEventStoreIndex();
         long nextNotBefore(int serverId);
+        long appendedEventStoreSize();
+        int electionTerm();
+        int votedFor();
 
         Volatile nextEventStoreIndex(int serverId, long index);
         Volatile confirmedEventStoreIndex(int serverId, long index);
+        Volatile committedEventStoreIndex(long index);
         Volatile nextNotBefore(int serverId, long time);
+        Volatile appendedEventStoreSize(long size);
+        Volatile vote(int electionTerm, int votedFor);
+
+        /**
+         * Returns true if the given server is leader and no higher election term has been seen yet;  a leader is
+         * deposed as soon as it learns about a higher term through a vote request or append request.
+         */
+        default boolean isLeader(final int serverId) {
+            return serverId == leaderId() && electionTerm() <= term();
+        }
     }
 
     interface Mutable extends Volatile {
@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.util.Objects.requireNonNull;
+import static org.tools4j.elara.plugin.replication.ReplicationState.NULL_SERVER;
+
+/**
+ * Replication state that must survive a restart of the server, stored in a memory mapped file:
+ * <ul>
+ *     <li>the election term and the server voted for in that term, ensuring that a vote is granted at most once per
+ *     term even if the server is restarted during an election;  the file is forced to the storage device before a
+ *     vote becomes visible to other servers</li>
+ *     <li>the committed event store index, allowing a restarted follower to accept append requests for events after
+ *     the committed index without verifying the whole event store again</li>
+ * </ul>
+ * The state is read from the file when it exists, otherwise a new file is created.
+ */
+final class ReplicationStateFile implements AutoCloseable {
+
+    static final int MAGIC = 0xE1A4A5F1;
+    static final int VERSION = 1;
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = MAGIC_OFFSET + Integer.BYTES;
+    static final int VOTE_OFFSET = VERSION_OFFSET + Integer.BYTES;
+    static final int COMMITTED_EVENT_STORE_INDEX_OFFSET = VOTE_OFFSET + Long.BYTES;
+    static final int FILE_LENGTH = COMMITTED_EVENT_STORE_INDEX_OFFSET + Long.BYTES;
+
+    private final File file;
+    private final MappedByteBuffer mappedBuffer;
+    private final UnsafeBuffer buffer;
+    private boolean closed;
+
+    private ReplicationStateFile(final File file, final MappedByteBuffer mappedBuffer) {
+        this.file = requireNonNull(file);
+        this.mappedBuffer = requireNonNull(mappedBuffer);
+        this.buffer = new UnsafeBuffer(mappedBuffer, 0, FILE_LENGTH);
+    }
+
+    /**
+     * Opens the given state file if it exists, or creates a new state file otherwise.
+     *
+     * @param file the state file
+     * @return the state file
+     * @throws IllegalStateException if the file exists but is not a valid replication state file
+     */
+    static ReplicationStateFile open(final File file) {
+        requireNonNull(file);
+        if (!file.exists()) {
+            final ReplicationStateFile stateFile = new ReplicationStateFile(file, IoUtil.mapNewFile(file, FILE_LENGTH));
+            stateFile.buffer.putLong(VOTE_OFFSET, encodeVote(0, NULL_SERVER));
+            stateFile.buffer.putLong(COMMITTED_EVENT_STORE_INDEX_OFFSET, -1);
+            stateFile.buffer.putInt(VERSION_OFFSET, VERSION);
+            stateFile.buffer.putIntOrdered(MAGIC_OFFSET, MAGIC);
+            stateFile.mappedBuffer.force();
+            return stateFile;
+        }
+        if (file.length() < FILE_LENGTH) {
+            throw new IllegalStateException("Invalid replication state file length " + file.length() + ": " + file);
+        }
+        final MappedByteBuffer mappedBuffer = IoUtil.mapExistingFile(file, FileChannel.MapMode.READ_WRITE,
+                file.getAbsolutePath(), 0, FILE_LENGTH);
+        final ReplicationStateFile stateFile = new ReplicationStateFile(file, mappedBuffer);
+        final int magic = stateFile.buffer.getIntVolatile(MAGIC_OFFSET);
+        final int version = stateFile.buffer.getInt(VERSION_OFFSET);
+        if (magic != MAGIC || version != VERSION) {
+            IoUtil.unmap(mappedBuffer);
+            throw new IllegalStateException("Invalid replication state file with magic=" + Integer.toHexString(magic) +
+                    " and version=" + version + ": " + file);
+        }
+        return stateFile;
+    }
+
+    private static long encodeVote(final int electionTerm, final int votedFor) {
+        return ((long)electionTerm << 32) | (votedFor & 0xffffffffL);
+    }
+
+    File file() {
+        return file;
+    }
+
+    int electionTerm() {
+        return (int)(buffer.getLongVolatile(VOTE_OFFSET) >>> 32);
+    }
+
+    int votedFor() {
+        return (int)buffer.getLongVolatile(VOTE_OFFSET);
+    }
+
+    long committedEventStoreIndex() {
+        return buffer.getLongVolatile(COMMITTED_EVENT_STORE_INDEX_OFFSET);
+    }
+
+    /**
+     * Stores election term and vote and forces the change to the storage device;  invoked before a vote is sent or
+     * before a vote request is sent to other servers.
+     */
+    void vote(final int electionTerm, final int votedFor) {
+        ensureNotClosed();
+        buffer.putLongVolatile(VOTE_OFFSET, encodeVote(electionTerm, votedFor));
+        mappedBuffer.force();
+    }
+
+    void committedEventStoreIndex(final long index) {
+        ensureNotClosed();
+        buffer.putLongOrdered(COMMITTED_EVENT_STORE_INDEX_OFFSET, index);
+    }
+
+    private void ensureNotClosed() {
+        if (closed) {
+            throw new IllegalStateException("Replication state file is closed: " + file);
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            IoUtil.unmap(mappedBuffer);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicationStateFile:file=" + file + "|closed=" + closed;
+    }
+}
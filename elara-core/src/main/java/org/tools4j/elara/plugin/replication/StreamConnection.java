@@ -0,0 +1,203 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Int2ObjectHashMap;
+import org.tools4j.elara.stream.MessageReceiver;
+import org.tools4j.elara.stream.MessageSender;
+import org.tools4j.elara.stream.MessageSender.SendingContext;
+import org.tools4j.elara.stream.SendingResult;
+import org.tools4j.elara.stream.nio.BiDirectional;
+
+import java.util.function.IntFunction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Replication {@link Connection} on top of elara-stream {@link MessageSender senders} and
+ * {@link MessageReceiver receivers}, for instance those provided by IPC, TCP, UDP or aeron.
+ * <p>
+ * Every replication message is wrapped in a small envelope with the sender and target server IDs, hence the same
+ * stream can be shared by several servers or used with multicast transports;  messages addressed to other servers are
+ * silently dropped by the poller.  Messages are encoded directly into the buffer claimed from the sender, and any
+ * sending result other than {@link SendingResult#SENT SENT} such as back pressure or a disconnected peer is reported
+ * as unsuccessful publication so that replication messages are resent later.
+ * <p>
+ * Reconnection of receivers and connected senders is handled by the underlying transports;  senders created through a
+ * factory are additionally replaced with a new instance from the same factory after they have been closed.
+ */
+public final class StreamConnection implements Connection {
+
+    public static final int SENDER_SERVER_ID_OFFSET = 0;
+    public static final int SENDER_SERVER_ID_LENGTH = Integer.BYTES;
+    public static final int TARGET_SERVER_ID_OFFSET = SENDER_SERVER_ID_OFFSET + SENDER_SERVER_ID_LENGTH;
+    public static final int TARGET_SERVER_ID_LENGTH = Integer.BYTES;
+    public static final int HEADER_LENGTH = TARGET_SERVER_ID_OFFSET + TARGET_SERVER_ID_LENGTH;
+
+    private final int serverId;
+    private final BiDirectional endpoint;
+    private final MessageReceiver receiver;
+    private final IntFunction<? extends MessageSender> senderFactory;
+    private final Int2ObjectHashMap<MessageSender> senderByServerId = new Int2ObjectHashMap<>();
+    private final ReceiverHandler receiverHandler = new ReceiverHandler();
+    private final Poller poller = this::poll;
+    private final Publisher publisher = this::publish;
+
+    private StreamConnection(final int serverId,
+                             final BiDirectional endpoint,
+                             final MessageReceiver receiver,
+                             final IntFunction<? extends MessageSender> senderFactory) {
+        this.serverId = serverId;
+        this.endpoint = endpoint;
+        this.receiver = requireNonNull(receiver);
+        this.senderFactory = requireNonNull(senderFactory);
+    }
+
+    /**
+     * Creates a connection receiving messages from the given receiver and sending all messages through the given sender.
+     *
+     * @param serverId  the ID of the local server
+     * @param receiver  the receiver for messages sent to this server
+     * @param sender    the sender used for messages to all other servers
+     * @return a new connection
+     */
+    public static StreamConnection create(final int serverId,
+                                          final MessageReceiver receiver,
+                                          final MessageSender sender) {
+        requireNonNull(sender);
+        return new StreamConnection(serverId, null, receiver, targetServerId -> sender);
+    }
+
+    /**
+     * Creates a connection receiving messages from the given receiver and sending messages through senders created
+     * per target server by the given factory.  The factory is invoked when a message is first sent to a target server,
+     * and again after the sender for that server has been closed;  it can return null if no sender is available at
+     * the time.
+     *
+     * @param serverId      the ID of the local server
+     * @param receiver      the receiver for messages sent to this server
+     * @param senderFactory factory for senders given the target server ID
+     * @return a new connection
+     */
+    public static StreamConnection create(final int serverId,
+                                          final MessageReceiver receiver,
+                                          final IntFunction<? extends MessageSender> senderFactory) {
+        return new StreamConnection(serverId, null, receiver, senderFactory);
+    }
+
+    /**
+     * Creates a connection sending and receiving messages through a bi-directional endpoint such as a TCP client or
+     * server.  The endpoint is polled by the connection's poller to perform I/O and to accept or reconnect peers.
+     *
+     * @param serverId  the ID of the local server
+     * @param endpoint  the bi-directional endpoint
+     * @return a new connection
+     */
+    public static StreamConnection create(final int serverId, final BiDirectional endpoint) {
+        final MessageSender sender = endpoint.sender();
+        return new StreamConnection(serverId, endpoint, endpoint.receiver(), targetServerId -> sender);
+    }
+
+    public int serverId() {
+        return serverId;
+    }
+
+    @Override
+    public Poller poller() {
+        return poller;
+    }
+
+    @Override
+    public Publisher publisher() {
+        return publisher;
+    }
+
+    private int poll(final Handler handler) {
+        int workCount = endpoint == null ? 0 : endpoint.poll();
+        receiverHandler.handler = handler;
+        try {
+            workCount += receiver.poll(receiverHandler);
+        } finally {
+            receiverHandler.handler = null;
+        }
+        return workCount;
+    }
+
+    private boolean publish(final int targetServerId, final DirectBuffer buffer, final int offset, final int length) {
+        final MessageSender sender = sender(targetServerId);
+        if (sender == null) {
+            return false;
+        }
+        final SendingResult result;
+        try (final SendingContext context = sender.sendingMessage()) {
+            final MutableDirectBuffer message = context.buffer();
+            message.putInt(SENDER_SERVER_ID_OFFSET, serverId);
+            message.putInt(TARGET_SERVER_ID_OFFSET, targetServerId);
+            message.putBytes(HEADER_LENGTH, buffer, offset, length);
+            result = context.send(HEADER_LENGTH + length);
+        }
+        if (result == SendingResult.CLOSED || sender.isClosed()) {
+            senderByServerId.remove(targetServerId);
+        }
+        return result == SendingResult.SENT;
+    }
+
+    private MessageSender sender(final int targetServerId) {
+        final MessageSender sender = senderByServerId.get(targetServerId);
+        if (sender != null) {
+            if (!sender.isClosed()) {
+                return sender;
+            }
+            senderByServerId.remove(targetServerId);
+        }
+        final MessageSender created = senderFactory.apply(targetServerId);
+        if (created != null && !created.isClosed()) {
+            senderByServerId.put(targetServerId, created);
+            return created;
+        }
+        return null;
+    }
+
+    private final class ReceiverHandler implements MessageReceiver.Handler {
+        Handler handler;
+
+        @Override
+        public void onMessage(final DirectBuffer message) {
+            final int length = message.capacity();
+            if (length < HEADER_LENGTH || message.getInt(TARGET_SERVER_ID_OFFSET) != serverId) {
+                return;
+            }
+            handler.onMessage(message.getInt(SENDER_SERVER_ID_OFFSET), message, HEADER_LENGTH, length - HEADER_LENGTH);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StreamConnection:server-id=" + serverId +
+                "|endpoint=" + endpoint +
+                "|receiver=" + receiver;
+    }
+}
@@ -28,6 +28,8 @@ import org.agrona.collections.IntArrayList;
 import org.tools4j.elara.plugin.timer.Timer.Style;
 import org.tools4j.elara.plugin.timer.TimerStore.MutableTimerStore;
 
+import java.util.function.IntConsumer;
+
 import static java.util.Objects.requireNonNull;
 import static org.agrona.collections.Hashing.DEFAULT_LOAD_FACTOR;
 
@@ -44,6 +46,7 @@ public class DeadlineHeapTimerState implements MutableTimerState {
     private final Int2IntHashMap storeIndexToHeapIndex;
     private final IntArrayList deadlineHeapToStoreIndex;
     private final MutableTimerStore timerStore;
+    private final IntArrayList dueCandidates = new IntArrayList();
 
     public DeadlineHeapTimerState() {
         this(DirectTimerStore.DEFAULT_CAPACITY, new DirectTimerStore());
@@ -89,6 +92,78 @@ public class DeadlineHeapTimerState implements MutableTimerState {
         return deadlineHeapToStoreIndex.isEmpty() ? -1 : 0;
     }
 
+    @Override
+    public int forEachDueTimer(final long currentTime, final int maxCount, final IntConsumer indexConsumer) {
+        //NOTE: children are never due before their parent, hence the next due timer is the root or a child of a timer
+        //      passed before;  such candidates are kept in a second heap to pass timers in deadline order
+        final IntArrayList candidates = dueCandidates;
+        candidates.clear();
+        offerDueCandidate(0, currentTime);
+        int due = 0;
+        while (due < maxCount && !candidates.isEmpty()) {
+            final int heapIndex = pollDueCandidate();
+            indexConsumer.accept(heapIndex);
+            due++;
+            final int child = (heapIndex << 1) + 1;
+            offerDueCandidate(child, currentTime);
+            offerDueCandidate(child + 1, currentTime);
+        }
+        candidates.clear();
+        return due;
+    }
+
+    private void offerDueCandidate(final int heapIndex, final long currentTime) {
+        if (heapIndex >= deadlineHeapToStoreIndex.size() || deadline(heapIndex) > currentTime) {
+            return;
+        }
+        final IntArrayList candidates = dueCandidates;
+        int k = candidates.size();
+        candidates.addInt(heapIndex);
+        while (k > 0) {
+            final int parent = (k - 1) >>> 1;
+            final int p = candidates.getInt(parent);
+            if (!isBefore(heapIndex, p)) {
+                break;
+            }
+            candidates.setInt(k, p);
+            k = parent;
+        }
+        candidates.setInt(k, heapIndex);
+    }
+
+    private int pollDueCandidate() {
+        final IntArrayList candidates = dueCandidates;
+        final int first = candidates.getInt(0);
+        final int last = candidates.removeAt(candidates.size() - 1);
+        final int size = candidates.size();
+        if (size > 0) {
+            int k = 0;
+            final int half = size >>> 1;
+            while (k < half) {
+                int child = (k << 1) + 1;
+                int c = candidates.getInt(child);
+                final int right = child + 1;
+                if (right < size && isBefore(candidates.getInt(right), c)) {
+                    child = right;
+                    c = candidates.getInt(right);
+                }
+                if (!isBefore(c, last)) {
+                    break;
+                }
+                candidates.setInt(k, c);
+                k = child;
+            }
+            candidates.setInt(k, last);
+        }
+        return first;
+    }
+
+    private boolean isBefore(final int heapIndex1, final int heapIndex2) {
+        final long deadline1 = deadline(heapIndex1);
+        final long deadline2 = deadline(heapIndex2);
+        return deadline1 < deadline2 || (deadline1 == deadline2 && heapIndex1 < heapIndex2);
+    }
+
     @Override
     public long timerId(final int index) {
         return timerStore.timerId(heapIndexToStoreIndex(index));
@@ -26,6 +26,8 @@ package org.tools4j.elara.plugin.timer;
 import org.tools4j.elara.app.message.Event;
 import org.tools4j.elara.plugin.timer.Timer.Style;
 
+import java.util.function.IntConsumer;
+
 public interface MutableTimerState extends TimerState {
     default boolean add(final Event event, final Timer timer) {
         return add(timer.timerId(), timer.style(), timer.repetition(), event.eventTime(), timer.timeout(),
@@ -44,4 +46,63 @@ public interface MutableTimerState extends TimerState {
         }
         return false;
     }
+
+    /**
+     * Advances internal data structures to the given current time and returns the index of the next timer to fire, or
+     * -1 if there are no timers.
+     * <p>
+     * Implementations ordering timers by exact deadline return the timer with the earliest deadline, which is due if
+     * any timer is due.  Implementations grouping deadlines into ticks (such as a {@link TimingWheelTimerState} with a
+     * tick resolution greater than one) may return any timer of the earliest tick;  the returned timer is then not
+     * necessarily due even if another timer of the same tick is, and firing of that timer is delayed by up to one
+     * tick.  Callers must therefore check the {@link #deadline(int) deadline} of the returned timer.
+     * <p>
+     * The default implementation simply returns {@link #indexOfNextDeadline()}.
+     *
+     * @param currentTime the current time
+     * @return the index of the next timer to fire, -1 if there are no timers
+     */
+    default int indexOfNextDeadline(final long currentTime) {
+        return indexOfNextDeadline();
+    }
+
+    /**
+     * Advances internal data structures to the given current time and passes the indices of timers that are due at
+     * the current time to the given consumer, at most {@code maxCount} timers.  Timers are passed in deadline order,
+     * and if more than {@code maxCount} timers are due, the timers with the earliest deadlines are passed.  The
+     * consumer must not modify the timer state.  The default implementation scans all timers for every timer passed
+     * to the consumer.
+     *
+     * @param currentTime   the current time
+     * @param maxCount      the maximum number of due timers to pass to the consumer
+     * @param indexConsumer consumer for indices of due timers
+     * @return the number of due timer indices passed to the consumer
+     */
+    default int forEachDueTimer(final long currentTime, final int maxCount, final IntConsumer indexConsumer) {
+        final int count = count();
+        long lastDeadline = Long.MIN_VALUE;
+        int lastIndex = -1;
+        int due = 0;
+        while (due < maxCount) {
+            //NOTE: next is the due timer with minimum (deadline, index) after the last passed timer
+            int nextIndex = -1;
+            long nextDeadline = Long.MAX_VALUE;
+            for (int index = 0; index < count; index++) {
+                final long deadline = deadline(index);
+                if (deadline <= currentTime && (deadline > lastDeadline || (deadline == lastDeadline && index > lastIndex))
+                        && (nextIndex < 0 || deadline < nextDeadline)) {
+                    nextIndex = index;
+                    nextDeadline = deadline;
+                }
+            }
+            if (nextIndex < 0) {
+                break;
+            }
+            indexConsumer.accept(nextIndex);
+            lastIndex = nextIndex;
+            lastDeadline = nextDeadline;
+            due++;
+        }
+        return due;
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.timer;
+
+/**
+ * Descriptor of payload data for batch timer signal commands in a byte buffer.  The header with the timer count is
+ * followed by the timers, each laid out as per {@link TimerPayloadDescriptor}.
+ * <p>
+ * <br>
+ * <pre>
+
+ 0         1         2         3         4         5         6
+ 0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2 4
+ +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ |          Timer Count          |           Reserved            |
+ +-------+-------+-------+-------+-------+-------+-------+-------+
+ |                       Timer 0 (32 bytes)                      |
+ +-------+-------+-------+-------+-------+-------+-------+-------+
+ |                              ...                              |
+ +-------+-------+-------+-------+-------+-------+-------+-------+
+ |                    Timer (Timer Count - 1)                    |
+ +-------+-------+-------+-------+-------+-------+-------+-------+
+
+ * </pre>
+ */
+public enum TimerBatchPayloadDescriptor {
+    ;
+
+    public static final int TIMER_COUNT_OFFSET = 0;
+    public static final int TIMER_COUNT_LENGTH = Integer.BYTES;
+    public static final int RESERVED_OFFSET = TIMER_COUNT_OFFSET + TIMER_COUNT_LENGTH;
+    public static final int RESERVED_LENGTH = Integer.BYTES;
+
+    public static final int HEADER_LENGTH = RESERVED_OFFSET + RESERVED_LENGTH;
+    public static final int TIMERS_OFFSET = HEADER_LENGTH;
+    public static final int TIMER_LENGTH = TimerPayloadDescriptor.PAYLOAD_SIZE;
+
+    public static int timerOffset(final int timerIndex) {
+        return TIMERS_OFFSET + timerIndex * TIMER_LENGTH;
+    }
+
+    public static int payloadSize(final int timerCount) {
+        return timerOffset(timerCount);
+    }
+}
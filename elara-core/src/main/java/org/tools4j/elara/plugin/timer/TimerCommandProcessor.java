@@ -23,11 +23,16 @@
  */
 package org.tools4j.elara.plugin.timer;
 
+import org.agrona.DirectBuffer;
 import org.tools4j.elara.app.handler.CommandProcessor;
 import org.tools4j.elara.app.message.Command;
 import org.tools4j.elara.route.EventRouter;
 
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static java.util.Objects.requireNonNull;
+import static org.tools4j.elara.plugin.timer.TimerBatchPayloadDescriptor.TIMER_COUNT_OFFSET;
+import static org.tools4j.elara.plugin.timer.TimerBatchPayloadDescriptor.TIMER_LENGTH;
+import static org.tools4j.elara.plugin.timer.TimerBatchPayloadDescriptor.timerOffset;
 
 public class TimerCommandProcessor implements CommandProcessor {
 
@@ -39,17 +44,33 @@ public class TimerCommandProcessor implements CommandProcessor {
 
     @Override
     public void onCommand(final Command command, final EventRouter router) {
-        if (TimerCommands.isTimerCommand(command)) {
-            final long timerId = FlyweightTimerPayload.timerId(command.payload(), 0);
-            if (command.payloadType() == TimerCommands.START_TIMER) {
-                if (!timerState.hasTimer(timerId)) {
+        switch (command.payloadType()) {
+            case TimerCommands.START_TIMER:
+                if (!timerState.hasTimer(FlyweightTimerPayload.timerId(command.payload(), 0))) {
                     router.routeEventWithCommandPayload();
                 }//else: TODO log warning ?
-            } else {
-                if (timerState.hasTimer(timerId)) {
+                break;
+            case TimerCommands.CANCEL_TIMER:
+            case TimerCommands.SIGNAL_TIMER:
+                if (timerState.hasTimer(FlyweightTimerPayload.timerId(command.payload(), 0))) {
                     router.routeEventWithCommandPayload();
                 }//else: TODO log warning ?
-            }
+                break;
+            case TimerCommands.SIGNAL_TIMERS:
+                onSignalTimers(command.payload(), router);
+                break;
+        }
+    }
+
+    private void onSignalTimers(final DirectBuffer payload, final EventRouter router) {
+        //NOTE: batch signals are routed as individual signal events so that event appliers and handlers see no
+        //      difference to timers signalled with a single command
+        final int count = payload.getInt(TIMER_COUNT_OFFSET, LITTLE_ENDIAN);
+        for (int i = 0; i < count; i++) {
+            final int offset = timerOffset(i);
+            if (timerState.hasTimer(FlyweightTimerPayload.timerId(payload, offset))) {
+                router.routeEvent(TimerEvents.TIMER_SIGNALLED, payload, offset, TIMER_LENGTH);
+            }//else: TODO log warning ?
         }
     }
 }
@@ -39,7 +39,17 @@ public enum TimerCommands {
     public static final int CANCEL_TIMER = TimerPayloadTypes.CANCEL_TIMER;
     /** Payload type for command to signal that a timer should trigger or be expired.*/
     public static final int SIGNAL_TIMER = TimerPayloadTypes.SIGNAL_TIMER;
+    /** Payload type for command to signal a batch of timers, laid out as per {@link TimerBatchPayloadDescriptor}.*/
+    public static final int SIGNAL_TIMERS = TimerPayloadTypes.SIGNAL_TIMERS;
 
+    /**
+     * Returns true if the command is a timer command with a single timer payload, that is, one of
+     * {@link #START_TIMER}, {@link #CANCEL_TIMER} or {@link #SIGNAL_TIMER};  batch signal commands are identified via
+     * {@link #isTimerBatchCommand(Command)}.
+     *
+     * @param command the command
+     * @return true if the command payload can be wrapped as {@link FlyweightTimerPayload}
+     */
     public static boolean isTimerCommand(final Command command) {
         return isTimerCommand(command.payloadType());
     }
@@ -52,6 +62,18 @@ public enum TimerCommands {
         return TimerPayloadTypes.isTimerPayloadType(payloadType);
     }
 
+    public static boolean isTimerBatchCommand(final Command command) {
+        return isTimerBatchCommand(command.payloadType());
+    }
+
+    public static boolean isTimerBatchCommand(final DataFrame frame) {
+        return frame.type() == COMMAND_TYPE && isTimerBatchCommand(frame.payloadType());
+    }
+
+    public static boolean isTimerBatchCommand(final int payloadType) {
+        return TimerPayloadTypes.isTimerBatchPayloadType(payloadType);
+    }
+
     public static String timerCommandName(final Command command) {
         return timerCommandName(command.payloadType());
     }
@@ -68,6 +90,8 @@ public enum TimerCommands {
                 return "CANCEL_TIMER";
             case SIGNAL_TIMER:
                 return "SIGNAL_TIMER";
+            case SIGNAL_TIMERS:
+                return "SIGNAL_TIMERS";
             default:
                 throw new IllegalArgumentException("Not a timer command type: " + payloadType);
         }
@@ -48,7 +48,14 @@ public enum TimerEvents {
     }
 
     public static boolean isTimerEvent(final int payloadType) {
-        return TimerPayloadTypes.isTimerPayloadType(payloadType);
+        switch (payloadType) {
+            case TIMER_STARTED:
+            case TIMER_CANCELLED:
+            case TIMER_SIGNALLED:
+                return true;
+            default:
+                return false;
+        }
     }
 
     public static String timerEventName(final Event event) {
@@ -31,7 +31,17 @@ public enum TimerPayloadTypes {
     public static final int CANCEL_TIMER = -11;
     /** Payload type used to signal when a timer expires or triggers */
     public static final int SIGNAL_TIMER = -12;
+    /** Payload type used to signal a batch of timers expiring or triggering at the same time */
+    public static final int SIGNAL_TIMERS = -13;
 
+    /**
+     * Returns true if the payload type is one of the timer payload types with a single timer payload as per
+     * {@link TimerPayloadDescriptor};  returns false for {@link #SIGNAL_TIMERS}, see
+     * {@link #isTimerBatchPayloadType(int)}.
+     *
+     * @param payloadType the payload type
+     * @return true for start, cancel and signal timer payload types
+     */
     public static boolean isTimerPayloadType(final int payloadType) {
         switch (payloadType) {
             case START_TIMER:
@@ -42,4 +52,15 @@ public enum TimerPayloadTypes {
                 return false;
         }
     }
+
+    /**
+     * Returns true if the payload type is {@link #SIGNAL_TIMERS} whose payload is laid out as per
+     * {@link TimerBatchPayloadDescriptor}.
+     *
+     * @param payloadType the payload type
+     * @return true for the batch timer signal payload type
+     */
+    public static boolean isTimerBatchPayloadType(final int payloadType) {
+        return payloadType == SIGNAL_TIMERS;
+    }
 }
@@ -33,6 +33,8 @@ import org.tools4j.elara.send.CommandSender;
 import org.tools4j.elara.source.CommandSource;
 import org.tools4j.elara.time.TimeSource;
 
+import java.util.function.Supplier;
+
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -42,10 +44,14 @@ public class TimerPlugin implements SystemPlugin<MutableTimerState> {
     public static final int DEFAULT_SOURCE_ID = -10;
     public static final boolean DEFAULT_USE_INTERCEPTOR = true;
     public static final int DEFAULT_SIGNAL_INPUT_SKIP = 16;
+    public static final int DEFAULT_SIGNAL_BATCH_SIZE = TimerSignalPoller.DEFAULT_SIGNAL_BATCH_SIZE;
+    public static final Supplier<MutableTimerState> DEFAULT_TIMER_STATE_FACTORY = SimpleTimerState::new;
 
     private final int sourceId;
     private final boolean useInterceptor;
     private final int signalInputSkip;
+    private final int signalBatchSize;
+    private final Supplier<? extends MutableTimerState> timerStateFactory;
     private final TimerPluginSpecification specification = new TimerPluginSpecification(this);
     private final FlyweightTimerController controller = new FlyweightTimerController();
     private final DefaultTimerHandlerRegistry registry = new DefaultTimerHandlerRegistry();
@@ -56,6 +62,34 @@ public class TimerPlugin implements SystemPlugin<MutableTimerState> {
         this(sourceId, DEFAULT_USE_INTERCEPTOR, DEFAULT_SIGNAL_INPUT_SKIP);
     }
     public TimerPlugin(final int sourceId, final boolean useInterceptor, final int signalInputSkip) {
+        this(sourceId, useInterceptor, signalInputSkip, DEFAULT_TIMER_STATE_FACTORY);
+    }
+
+    public TimerPlugin(final int sourceId,
+                       final boolean useInterceptor,
+                       final int signalInputSkip,
+                       final Supplier<? extends MutableTimerState> timerStateFactory) {
+        this(sourceId, useInterceptor, signalInputSkip, DEFAULT_SIGNAL_BATCH_SIZE, timerStateFactory);
+    }
+
+    /**
+     * Constructor with all timer plugin settings.
+     *
+     * @param sourceId          the source ID for timer signal commands
+     * @param useInterceptor    true if {@link #useInterceptor() interceptor} mode is enabled
+     * @param signalInputSkip   the {@link #signalInputSkip() signal input skip}, a positive power of two
+     * @param signalBatchSize   the {@link #signalBatchSize() signal batch size}, one to signal every timer with a
+     *                          separate command
+     * @param timerStateFactory factory for the default timer state, for instance {@code SimpleTimerState::new},
+     *                          {@code DeadlineHeapTimerState::new} or {@code TimingWheelTimerState::new} for a very
+     *                          large number of timers;  used unless a plugin state is provided when configuring the
+     *                          plugin
+     */
+    public TimerPlugin(final int sourceId,
+                       final boolean useInterceptor,
+                       final int signalInputSkip,
+                       final int signalBatchSize,
+                       final Supplier<? extends MutableTimerState> timerStateFactory) {
         if (!BitUtil.isPowerOfTwo(signalInputSkip)) {
             throw new IllegalArgumentException("Invalid signalInputSkip value, must be a power of two: " +
                     signalInputSkip);
@@ -63,6 +97,8 @@ public class TimerPlugin implements SystemPlugin<MutableTimerState> {
         this.sourceId = sourceId;
         this.useInterceptor = useInterceptor;
         this.signalInputSkip = signalInputSkip;
+        this.signalBatchSize = TimerSignalPoller.validateSignalBatchSize(signalBatchSize);
+        this.timerStateFactory = requireNonNull(timerStateFactory);
     }
 
     void init(final TimeSource timeSource, final TimerIdGenerator timerIdGenerator, final MutableTimerState timerState) {
@@ -99,6 +135,27 @@ public class TimerPlugin implements SystemPlugin<MutableTimerState> {
         return signalInputSkip;
     }
 
+    /**
+     * Returns the maximum number of due timers signalled with a single command by the {@link TimerSignalPoller}.  If
+     * many timers expire at the same time, a larger batch size reduces the number of command round trips needed until
+     * all timers are signalled.
+     *
+     * @return the maximum number of timers signalled with one command, one if every timer is signalled with a separate
+     *         command
+     */
+    public int signalBatchSize() {
+        return signalBatchSize;
+    }
+
+    /**
+     * Returns the factory for the timer state used if no plugin state is provided when configuring the plugin.
+     *
+     * @return the factory for the default timer state
+     */
+    public Supplier<? extends MutableTimerState> timerStateFactory() {
+        return timerStateFactory;
+    }
+
     /**
      * Returns a controller to start and cancel timers. Depending on the scope from which the controller is accessed,
      * this will be done either by sending commands or by routing events.
@@ -230,6 +287,7 @@ public class TimerPlugin implements SystemPlugin<MutableTimerState> {
                 ":source-id=" + sourceId +
                 "|use-interceptor=" + useInterceptor +
                 "|signal-input-skip=" + signalInputSkip +
+                "|signal-batch-size=" + signalBatchSize +
                 "|timer-state=" + (timerState != null ? timerState : "(not initialized)");
     }
 }
\ No newline at end of file
@@ -46,7 +46,7 @@ final class TimerPluginSpecification implements SystemPluginSpecification<Mutabl
 
     @Override
     public PluginStateProvider<MutableTimerState> defaultPluginStateProvider() {
-        return appConfig -> new SimpleTimerState();
+        return appConfig -> timerPlugin.timerStateFactory().get();
     }
 
     @Override
@@ -66,7 +66,7 @@ final class TimerPluginSpecification implements SystemPluginSpecification<Mutabl
                 final long sourceSeq = 1 + baseState.lastAppliedCommandSequence(timerPlugin.sourceId());
                 return Input.single(timerPlugin.sourceId(), sourceSeq,
                         new TimerSignalPoller(appConfig.timeSource(), timerState,
-                        timerPlugin.signalInputSkip()));
+                        timerPlugin.signalInputSkip(), timerPlugin.signalBatchSize()));
             }
 
             @Override
@@ -24,6 +24,8 @@
 package org.tools4j.elara.plugin.timer;
 
 import org.agrona.BitUtil;
+import org.agrona.MutableDirectBuffer;
+import org.tools4j.elara.flyweight.EventFrame;
 import org.tools4j.elara.input.InputPoller;
 import org.tools4j.elara.plugin.timer.Timer.Style;
 import org.tools4j.elara.send.CommandContext;
@@ -31,26 +33,59 @@ import org.tools4j.elara.send.CommandSender;
 import org.tools4j.elara.send.CommandSender.SendingContext;
 import org.tools4j.elara.time.TimeSource;
 
+import java.util.function.IntConsumer;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static java.util.Objects.requireNonNull;
+import static org.tools4j.elara.plugin.timer.TimerBatchPayloadDescriptor.RESERVED_OFFSET;
+import static org.tools4j.elara.plugin.timer.TimerBatchPayloadDescriptor.TIMER_COUNT_OFFSET;
+import static org.tools4j.elara.plugin.timer.TimerBatchPayloadDescriptor.payloadSize;
+import static org.tools4j.elara.plugin.timer.TimerBatchPayloadDescriptor.timerOffset;
 import static org.tools4j.elara.plugin.timer.TimerCommands.SIGNAL_TIMER;
+import static org.tools4j.elara.plugin.timer.TimerCommands.SIGNAL_TIMERS;
 
 /**
- * Input poller to send signal commands when a timer fires or expires.
+ * Input poller to send signal commands when a timer fires or expires.  If the signal batch size is greater than one,
+ * all due timers up to the batch size are signalled with a single {@link TimerCommands#SIGNAL_TIMERS SIGNAL_TIMERS}
+ * command instead of sending one {@link TimerCommands#SIGNAL_TIMER SIGNAL_TIMER} command per timer.  Batched timers
+ * are signalled in deadline order, and if more timers are due than fit into a batch, the timers with the earliest
+ * deadlines are signalled first.
  */
 public final class TimerSignalPoller implements InputPoller {
+    public static final int DEFAULT_SIGNAL_BATCH_SIZE = 1;
+
     private final TimeSource timeSource;
-    private final TimerState timerState;
+    private final MutableTimerState timerState;
     private final int signalInputSkipMask;
+    private final int signalBatchSize;
+    private final BatchWriter batchWriter = new BatchWriter();
     private int counter;
 
-    public TimerSignalPoller(final TimeSource timeSource, final TimerState timerState, final int signalInputSkip) {
+    public TimerSignalPoller(final TimeSource timeSource, final MutableTimerState timerState, final int signalInputSkip) {
+        this(timeSource, timerState, signalInputSkip, DEFAULT_SIGNAL_BATCH_SIZE);
+    }
+
+    public TimerSignalPoller(final TimeSource timeSource,
+                             final MutableTimerState timerState,
+                             final int signalInputSkip,
+                             final int signalBatchSize) {
         this.timeSource = requireNonNull(timeSource);
         this.timerState = requireNonNull(timerState);
         this.signalInputSkipMask = signalInputSkip - 1;
+        this.signalBatchSize = signalBatchSize;
         if (!BitUtil.isPowerOfTwo(signalInputSkip)) {
             throw new IllegalArgumentException("Invalid signalInputSkip value, must be a power of two: " +
                     signalInputSkip);
         }
+        validateSignalBatchSize(signalBatchSize);
+    }
+
+    static int validateSignalBatchSize(final int signalBatchSize) {
+        if (signalBatchSize < 1 || signalBatchSize > EventFrame.MAX_INDEX) {
+            throw new IllegalArgumentException("Invalid signalBatchSize value, must be in [1.." +
+                    EventFrame.MAX_INDEX + "]: " + signalBatchSize);
+        }
+        return signalBatchSize;
     }
 
     @Override
@@ -64,44 +99,14 @@ public final class TimerSignalPoller implements InputPoller {
         }
         counter++;
 
-        final int index = timerState.indexOfNextDeadline();
-        if (index >= 0 && timerState.deadline(index) <= timeSource.currentTime()) {
+        final long currentTime = timeSource.currentTime();
+        final int index = timerState.indexOfNextDeadline(currentTime);
+        if (index >= 0 && timerState.deadline(index) <= currentTime) {
+            if (signalBatchSize > 1) {
+                return signalBatch(currentTime, commandSender);
+            }
             try (final SendingContext context = commandSender.sendingCommand(SIGNAL_TIMER)) {
-                final Style style = timerState.style(index);
-                final int length;
-                switch (style) {
-                    case ALARM:
-                        length = FlyweightTimerPayload.writeAlarm(
-                                timerState.timerId(index),
-                                timerState.timeout(index),
-                                timerState.timerType(index),
-                                timerState.contextId(index),
-                                context.buffer(), 0
-                        );
-                        break;
-                    case TIMER:
-                        length = FlyweightTimerPayload.writeTimer(
-                                timerState.timerId(index),
-                                timerState.timeout(index),
-                                timerState.timerType(index),
-                                timerState.contextId(index),
-                                context.buffer(), 0
-                        );
-                        break;
-                    case PERIODIC:
-                        length = FlyweightTimerPayload.writePeriodic(
-                                timerState.timerId(index),
-                                timerState.timeout(index),
-                                timerState.repetition(index) + 1,
-                                timerState.timerType(index),
-                                timerState.contextId(index),
-                                context.buffer(), 0
-                        );
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Invalid style: " + style);
-                }
-                context.send(length);
+                context.send(writeTimer(index, context.buffer(), 0));
             }
             return 1;
         }
@@ -110,4 +115,75 @@ public final class TimerSignalPoller implements InputPoller {
         //      - a reasonably configured idle strategy should never cause any serious problems for most timers
         return 0;
     }
+
+    private int signalBatch(final long currentTime, final CommandSender commandSender) {
+        try (final SendingContext context = commandSender.sendingCommand(SIGNAL_TIMERS)) {
+            final MutableDirectBuffer buffer = context.buffer();
+            final int count;
+            try {
+                count = timerState.forEachDueTimer(currentTime, signalBatchSize, batchWriter.init(buffer));
+            } finally {
+                batchWriter.reset();
+            }
+            buffer.putInt(TIMER_COUNT_OFFSET, count, LITTLE_ENDIAN);
+            buffer.putInt(RESERVED_OFFSET, 0, LITTLE_ENDIAN);
+            context.send(payloadSize(count));
+            return count;
+        }
+    }
+
+    private int writeTimer(final int index, final MutableDirectBuffer buffer, final int offset) {
+        final Style style = timerState.style(index);
+        switch (style) {
+            case ALARM:
+                return FlyweightTimerPayload.writeAlarm(
+                        timerState.timerId(index),
+                        timerState.timeout(index),
+                        timerState.timerType(index),
+                        timerState.contextId(index),
+                        buffer, offset
+                );
+            case TIMER:
+                return FlyweightTimerPayload.writeTimer(
+                        timerState.timerId(index),
+                        timerState.timeout(index),
+                        timerState.timerType(index),
+                        timerState.contextId(index),
+                        buffer, offset
+                );
+            case PERIODIC:
+                return FlyweightTimerPayload.writePeriodic(
+                        timerState.timerId(index),
+                        timerState.timeout(index),
+                        timerState.repetition(index) + 1,
+                        timerState.timerType(index),
+                        timerState.contextId(index),
+                        buffer, offset
+                );
+            default:
+                throw new IllegalArgumentException("Invalid style: " + style);
+        }
+    }
+
+    private final class BatchWriter implements IntConsumer {
+        MutableDirectBuffer buffer;
+        int count;
+
+        BatchWriter init(final MutableDirectBuffer buffer) {
+            this.buffer = buffer;
+            this.count = 0;
+            return this;
+        }
+
+        void reset() {
+            this.buffer = null;
+            this.count = 0;
+        }
+
+        @Override
+        public void accept(final int index) {
+            writeTimer(index, buffer, timerOffset(count));
+            count++;
+        }
+    }
 }
@@ -41,5 +41,4 @@ public interface TimerState {
     default boolean hasTimer(final long timerId) {
         return index(timerId) >= 0;
     }
-
 }
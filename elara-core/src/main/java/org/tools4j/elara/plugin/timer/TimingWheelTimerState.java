@@ -0,0 +1,442 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.timer;
+
+import org.agrona.BitUtil;
+import org.tools4j.elara.plugin.timer.Timer.Style;
+import org.tools4j.elara.plugin.timer.TimerStore.MutableTimerStore;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A timer state optimised for a very large number of timers.  Timers are kept in a hierarchical timing wheel leading
+ * to<pre>
+ *     - constant time to add or remove a timer
+ *     - constant time to update the repetition of a periodic timer
+ *     - amortized constant time for {@link #indexOfNextDeadline(long)} as invoked by the {@link TimerSignalPoller}
+ * </pre>
+ * Deadlines are mapped to ticks of the configurable tick resolution.  Each of the {@code levels} wheels has
+ * {@code wheelSize} slots, and a slot of a wheel spans all slots of the next lower wheel.  Timers whose deadline
+ * exceeds the range of the top level wheel are kept in an overflow list that is re-examined each time the top level
+ * wheel completes a revolution.
+ * <p>
+ * The wheel is advanced with the time passed to {@link #indexOfNextDeadline(long)}.  Timers of the current and earlier
+ * ticks are kept in a due list ordered by deadline, hence timers fire in the exact order of their deadlines also with
+ * a coarse tick resolution.  Keeping the due list ordered takes constant time if timers become due in deadline order,
+ * as is the case if the wheel is advanced regularly, and up to linear time in the number of due timers otherwise.
+ * <p>
+ * Note that {@link #indexOfNextDeadline()} without time argument returns the timer with the minimum deadline but it
+ * has to scan the timers of the earliest occupied slot to do so.
+ */
+public class TimingWheelTimerState implements MutableTimerState {
+    public static final long DEFAULT_TICK_RESOLUTION = 1;
+    public static final int DEFAULT_WHEEL_SIZE = 64;
+    public static final int DEFAULT_LEVELS = 8;
+    private static final int NULL_INDEX = -1;
+
+    private final MutableTimerStore timerStore;
+    private final long tickResolution;
+    private final int wheelBits;
+    private final int wheelMask;
+    private final int levels;
+    private final int dueBucket;
+    private final int overflowBucket;
+    private final int[] bucketHeads;
+    private final int[] bucketTails;
+    private final long[] occupiedSlots;
+    private int[] next;
+    private int[] prev;
+    private int[] bucket;
+    private long cursor = Long.MIN_VALUE;
+
+    public TimingWheelTimerState() {
+        this(DirectTimerStore.DEFAULT_CAPACITY);
+    }
+
+    public TimingWheelTimerState(final int initialCapacity) {
+        this(initialCapacity, DEFAULT_TICK_RESOLUTION, DEFAULT_WHEEL_SIZE, DEFAULT_LEVELS);
+    }
+
+    public TimingWheelTimerState(final int initialCapacity,
+                                 final long tickResolution,
+                                 final int wheelSize,
+                                 final int levels) {
+        this(initialCapacity, new DirectTimerStore(initialCapacity), tickResolution, wheelSize, levels);
+    }
+
+    /**
+     * Constructor with timer store and wheel configuration.
+     *
+     * @param initialCapacity   the initial timer capacity
+     * @param timerStore        the timer store, must add new timers at the end and swap the last timer into the
+     *                          place of a removed timer
+     * @param tickResolution    the tick resolution in time units, a positive value
+     * @param wheelSize         the number of slots per wheel, a power of two in {@code [2..64]}
+     * @param levels            the number of wheels, {@code levels * log2(wheelSize)} must be less than 64
+     */
+    public TimingWheelTimerState(final int initialCapacity,
+                                 final MutableTimerStore timerStore,
+                                 final long tickResolution,
+                                 final int wheelSize,
+                                 final int levels) {
+        if (tickResolution <= 0) {
+            throw new IllegalArgumentException("Tick resolution must be positive: " + tickResolution);
+        }
+        if (wheelSize < 2 || wheelSize > Long.SIZE || !BitUtil.isPowerOfTwo(wheelSize)) {
+            throw new IllegalArgumentException("Wheel size must be a power of two in [2.." + Long.SIZE + "]: " + wheelSize);
+        }
+        final int wheelBits = Integer.numberOfTrailingZeros(wheelSize);
+        if (levels <= 0 || levels * wheelBits >= Long.SIZE) {
+            throw new IllegalArgumentException("Invalid levels " + levels + " for wheel size " + wheelSize);
+        }
+        this.timerStore = requireNonNull(timerStore);
+        this.tickResolution = tickResolution;
+        this.wheelBits = wheelBits;
+        this.wheelMask = wheelSize - 1;
+        this.levels = levels;
+        this.dueBucket = levels * wheelSize;
+        this.overflowBucket = dueBucket + 1;
+        this.bucketHeads = new int[overflowBucket + 1];
+        this.bucketTails = new int[overflowBucket + 1];
+        this.occupiedSlots = new long[levels];
+        this.next = new int[initialCapacity];
+        this.prev = new int[initialCapacity];
+        this.bucket = new int[initialCapacity];
+        Arrays.fill(bucketHeads, NULL_INDEX);
+        Arrays.fill(bucketTails, NULL_INDEX);
+    }
+
+    @Override
+    public int count() {
+        return timerStore.count();
+    }
+
+    @Override
+    public boolean hasTimer(final long timerId) {
+        return timerStore.hasTimer(timerId);
+    }
+
+    @Override
+    public int index(final long timerId) {
+        return timerStore.index(timerId);
+    }
+
+    @Override
+    public int indexOfNextDeadline() {
+        if (bucketHeads[dueBucket] != NULL_INDEX) {
+            return bucketHeads[dueBucket];
+        }
+        for (int level = 0; level < levels; level++) {
+            final long slots = occupiedSlots[level];
+            if (slots != 0) {
+                return indexOfMinDeadline(level * (wheelMask + 1) + Long.numberOfTrailingZeros(slots));
+            }
+        }
+        return indexOfMinDeadline(overflowBucket);
+    }
+
+    @Override
+    public int indexOfNextDeadline(final long currentTime) {
+        advance(tick(currentTime));
+        if (bucketHeads[dueBucket] != NULL_INDEX) {
+            return bucketHeads[dueBucket];
+        }
+        for (int level = 0; level < levels; level++) {
+            final long slots = occupiedSlots[level];
+            if (slots != 0) {
+                return bucketHeads[level * (wheelMask + 1) + Long.numberOfTrailingZeros(slots)];
+            }
+        }
+        //NOTE: overflow timers are not due yet, but we need to return some timer if we have any
+        return bucketHeads[overflowBucket];
+    }
+
+    @Override
+    public int forEachDueTimer(final long currentTime, final int maxCount, final IntConsumer indexConsumer) {
+        advance(tick(currentTime));
+        //NOTE: all due timers are in the due list after advancing, and the due list is ordered by deadline, but timers
+        //      of the current tick at the end of the list may not be due yet
+        int due = 0;
+        for (int index = bucketHeads[dueBucket]; index != NULL_INDEX && due < maxCount; index = next[index]) {
+            if (timerStore.deadline(index) > currentTime) {
+                break;
+            }
+            indexConsumer.accept(index);
+            due++;
+        }
+        return due;
+    }
+
+    private int indexOfMinDeadline(final int bucketId) {
+        int minIndex = NULL_INDEX;
+        long minDeadline = Long.MAX_VALUE;
+        for (int index = bucketHeads[bucketId]; index != NULL_INDEX; index = next[index]) {
+            final long deadline = timerStore.deadline(index);
+            if (minIndex == NULL_INDEX || deadline < minDeadline || (deadline == minDeadline && index < minIndex)) {
+                minIndex = index;
+                minDeadline = deadline;
+            }
+        }
+        return minIndex;
+    }
+
+    @Override
+    public long timerId(final int index) {
+        return timerStore.timerId(index);
+    }
+
+    @Override
+    public Style style(final int index) {
+        return timerStore.style(index);
+    }
+
+    @Override
+    public int repetition(final int index) {
+        return timerStore.repetition(index);
+    }
+
+    @Override
+    public long startTime(final int index) {
+        return timerStore.startTime(index);
+    }
+
+    @Override
+    public long timeout(final int index) {
+        return timerStore.timeout(index);
+    }
+
+    @Override
+    public int timerType(final int index) {
+        return timerStore.timerType(index);
+    }
+
+    @Override
+    public long contextId(final int index) {
+        return timerStore.contextId(index);
+    }
+
+    @Override
+    public long deadline(final int index) {
+        return timerStore.deadline(index);
+    }
+
+    @Override
+    public boolean add(final long timerId, final Style style, final int repetition, final long startTime, final long timeout, final int timerType, final long contextId) {
+        final int index = timerStore.count();//NOTE: we know the store adds a new entry at the end
+        if (timerStore.add(timerId, style, repetition, startTime, timeout, timerType, contextId)) {
+            ensureCapacity(index + 1);
+            place(index);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void remove(final int index) {
+        unlink(index);
+        //NOTE: we know that removing timerStore[index] from the store will swap the last element into its place
+        timerStore.remove(index);
+        final int swappedIndex = timerStore.count();
+        if (index != swappedIndex) {
+            move(swappedIndex, index);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        Arrays.fill(bucketHeads, NULL_INDEX);
+        Arrays.fill(bucketTails, NULL_INDEX);
+        Arrays.fill(occupiedSlots, 0);
+        timerStore.removeAll();
+    }
+
+    @Override
+    public void updateRepetitionById(final long timerId, final int repetition) {
+        final int index = timerStore.index(timerId);
+        if (index < 0 || timerStore.repetition(index) == repetition) {
+            return;
+        }
+        timerStore.updateRepetition(index, repetition);
+        unlink(index);
+        place(index);
+    }
+
+    private long tick(final long time) {
+        return Math.floorDiv(time, tickResolution);
+    }
+
+    private int digit(final long tick, final int level) {
+        return (int)(tick >> (level * wheelBits)) & wheelMask;
+    }
+
+    private boolean sameWindow(final long tick1, final long tick2, final int level) {
+        final int shift = (level + 1) * wheelBits;
+        return (tick1 >> shift) == (tick2 >> shift);
+    }
+
+    private void place(final int index) {
+        final long tick = tick(timerStore.deadline(index));
+        if (tick <= cursor) {
+            link(index, dueBucket);
+            return;
+        }
+        for (int level = 0; level < levels; level++) {
+            if (sameWindow(tick, cursor, level)) {
+                final int slot = digit(tick, level);
+                link(index, level * (wheelMask + 1) + slot);
+                occupiedSlots[level] |= 1L << slot;
+                return;
+            }
+        }
+        link(index, overflowBucket);
+    }
+
+    private void advance(final long tick) {
+        final long oldCursor = cursor;
+        if (tick <= oldCursor) {
+            return;
+        }
+        cursor = tick;
+        //NOTE: we go bottom up so that timers re-placed from higher levels are never visited twice
+        for (int level = 0; level < levels; level++) {
+            if (sameWindow(oldCursor, tick, level)) {
+                final int oldSlot = digit(oldCursor, level);
+                final int newSlot = digit(tick, level);
+                if (oldSlot != newSlot) {
+                    //slots in (oldSlot, newSlot] have been passed or are now current
+                    final long passed = ((2L << newSlot) - 1) & ~((2L << oldSlot) - 1);
+                    replaceSlots(level, passed);
+                }
+                //higher levels are in the same window, hence no changes there
+                return;
+            }
+            replaceSlots(level, -1L);
+        }
+        replace(overflowBucket);
+    }
+
+    private void replaceSlots(final int level, final long slotMask) {
+        long slots = occupiedSlots[level] & slotMask;
+        occupiedSlots[level] &= ~slotMask;
+        while (slots != 0) {
+            final int slot = Long.numberOfTrailingZeros(slots);
+            slots &= slots - 1;
+            replace(level * (wheelMask + 1) + slot);
+        }
+    }
+
+    private void replace(final int bucketId) {
+        int index = bucketHeads[bucketId];
+        bucketHeads[bucketId] = NULL_INDEX;
+        bucketTails[bucketId] = NULL_INDEX;
+        while (index != NULL_INDEX) {
+            final int nextIndex = next[index];
+            place(index);
+            index = nextIndex;
+        }
+    }
+
+    private void link(final int index, final int bucketId) {
+        int tail = bucketTails[bucketId];
+        if (bucketId == dueBucket) {
+            //NOTE: the due list is ordered by deadline, timers usually become due in order and are appended at the end
+            final long deadline = timerStore.deadline(index);
+            while (tail != NULL_INDEX && timerStore.deadline(tail) > deadline) {
+                tail = prev[tail];
+            }
+        }
+        final int nextIndex = tail == NULL_INDEX ? bucketHeads[bucketId] : next[tail];
+        bucket[index] = bucketId;
+        prev[index] = tail;
+        next[index] = nextIndex;
+        if (tail == NULL_INDEX) {
+            bucketHeads[bucketId] = index;
+        } else {
+            next[tail] = index;
+        }
+        if (nextIndex == NULL_INDEX) {
+            bucketTails[bucketId] = index;
+        } else {
+            prev[nextIndex] = index;
+        }
+    }
+
+    private void unlink(final int index) {
+        final int bucketId = bucket[index];
+        final int prevIndex = prev[index];
+        final int nextIndex = next[index];
+        if (prevIndex == NULL_INDEX) {
+            bucketHeads[bucketId] = nextIndex;
+        } else {
+            next[prevIndex] = nextIndex;
+        }
+        if (nextIndex == NULL_INDEX) {
+            bucketTails[bucketId] = prevIndex;
+        } else {
+            prev[nextIndex] = prevIndex;
+        }
+        if (bucketHeads[bucketId] == NULL_INDEX && bucketId < dueBucket) {
+            occupiedSlots[bucketId >> wheelBits] &= ~(1L << (bucketId & wheelMask));
+        }
+    }
+
+    private void move(final int fromIndex, final int toIndex) {
+        final int bucketId = bucket[fromIndex];
+        final int prevIndex = prev[fromIndex];
+        final int nextIndex = next[fromIndex];
+        bucket[toIndex] = bucketId;
+        prev[toIndex] = prevIndex;
+        next[toIndex] = nextIndex;
+        if (prevIndex == NULL_INDEX) {
+            bucketHeads[bucketId] = toIndex;
+        } else {
+            next[prevIndex] = toIndex;
+        }
+        if (nextIndex == NULL_INDEX) {
+            bucketTails[bucketId] = toIndex;
+        } else {
+            prev[nextIndex] = toIndex;
+        }
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > next.length) {
+            final int newCapacity = Math.max(capacity, 2 * next.length);
+            next = Arrays.copyOf(next, newCapacity);
+            prev = Arrays.copyOf(prev, newCapacity);
+            bucket = Arrays.copyOf(bucket, newCapacity);
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (count() == 0) {
+            return "TimingWheelTimerState{}";
+        }
+        return "TimingWheelTimerState{next=" + timerId(indexOfNextDeadline()) + ", timers=" + timerStore + "}";
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.profile;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures bytes allocated by the current thread via {@code com.sun.management.ThreadMXBean} if supported by the JVM.
+ * The overhead of the measurement itself is calibrated at construction time and subtracted from every measurement.
+ */
+final class AllocationMeter {
+
+    static final long UNAVAILABLE = -1;
+
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final long threadId;
+    private final long overhead;
+
+    AllocationMeter() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean &&
+                ((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemorySupported()) {
+            this.threadBean = (com.sun.management.ThreadMXBean)bean;
+            if (!threadBean.isThreadAllocatedMemoryEnabled()) {
+                threadBean.setThreadAllocatedMemoryEnabled(true);
+            }
+        } else {
+            this.threadBean = null;
+        }
+        this.threadId = Thread.currentThread().getId();
+        this.overhead = calibrate();
+    }
+
+    private long calibrate() {
+        if (threadBean == null) {
+            return 0;
+        }
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            final long start = threadBean.getThreadAllocatedBytes(threadId);
+            final long end = threadBean.getThreadAllocatedBytes(threadId);
+            min = Math.min(min, end - start);
+        }
+        return min;
+    }
+
+    boolean isAvailable() {
+        return threadBean != null;
+    }
+
+    /**
+     * Returns the bytes allocated by the thread that created this meter so far, or {@link #UNAVAILABLE} if not
+     * supported.
+     *
+     * @return the allocated bytes, or -1 if unavailable
+     */
+    long allocatedBytes() {
+        return threadBean == null ? UNAVAILABLE : threadBean.getThreadAllocatedBytes(threadId);
+    }
+
+    /**
+     * Returns the bytes allocated between two {@link #allocatedBytes()} readings corrected by the measurement overhead.
+     *
+     * @param start the start reading
+     * @param end   the end reading
+     * @return the allocated bytes, or -1 if unavailable
+     */
+    long allocatedBytes(final long start, final long end) {
+        return threadBean == null ? UNAVAILABLE : Math.max(0, end - start - overhead);
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.profile;
+
+import org.tools4j.elara.app.config.AppConfig;
+import org.tools4j.elara.app.factory.AgentStepFactory;
+import org.tools4j.elara.app.factory.ApplierFactory;
+import org.tools4j.elara.app.factory.CommandPollerFactory;
+import org.tools4j.elara.app.factory.EventSubscriberFactory;
+import org.tools4j.elara.app.factory.InputFactory;
+import org.tools4j.elara.app.factory.Interceptor;
+import org.tools4j.elara.app.factory.PublisherFactory;
+import org.tools4j.elara.app.factory.StateFactory;
+import org.tools4j.elara.app.handler.EventApplier;
+import org.tools4j.elara.handler.EventHandler;
+import org.tools4j.elara.handler.OutputHandler;
+import org.tools4j.elara.handler.PlaybackHandler;
+import org.tools4j.elara.input.Input;
+import org.tools4j.elara.plugin.api.Plugin;
+import org.tools4j.elara.plugin.api.PluginSpecification;
+import org.tools4j.elara.plugin.api.PluginStateProvider;
+import org.tools4j.elara.plugin.api.PluginStateProvider.NullState;
+import org.tools4j.elara.step.AgentStep;
+import org.tools4j.elara.store.MessageStore.Handler;
+import org.tools4j.elara.store.MessageStore.Poller;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Plugin that tracks bytes allocated by the agent steps of an elara application.  Allocations are only recorded while
+ * tracking is {@link #start() started}, usually after a warm-up phase when the application has reached a steady state.
+ * Steps are measured on the thread invoking them, that is, on the agent thread of the application.
+ * <p>
+ * Note that step wrappers added by other plugins are only measured if those plugins are installed before the tracker.
+ * Allocation tracking requires {@code com.sun.management.ThreadMXBean} support;  if unavailable, no allocations are
+ * recorded and {@link #isAvailable()} returns false.
+ */
+public class AllocationTracker implements Plugin<NullState> {
+
+    private final List<StepAllocation> steps = new CopyOnWriteArrayList<>();
+    private final Specification specification = new Specification();
+    private volatile boolean tracking;
+    private volatile AllocationMeter meter;
+
+    @Override
+    public PluginSpecification<NullState> specification() {
+        return specification;
+    }
+
+    /**
+     * Resets all step allocations and starts tracking.  Should be invoked when the agent is idle or from the agent
+     * thread.
+     */
+    public void start() {
+        for (final StepAllocation step : steps) {
+            step.reset();
+        }
+        tracking = true;
+    }
+
+    /**
+     * Stops tracking;  recorded step allocations remain available until tracking is started again.
+     */
+    public void stop() {
+        tracking = false;
+    }
+
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    /**
+     * Returns true if thread allocation measurement is supported by the JVM.  Returns true before the first step has
+     * been invoked since the agent thread is not known at this point.
+     *
+     * @return true unless allocation measurement has been found to be unsupported
+     */
+    public boolean isAvailable() {
+        final AllocationMeter m = meter;
+        return m == null || m.isAvailable();
+    }
+
+    /**
+     * Returns the tracked steps in the order they were created.
+     *
+     * @return an unmodifiable list with all tracked steps
+     */
+    public List<StepAllocation> steps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * Returns the total number of bytes allocated by all steps while tracking.
+     *
+     * @return the sum of allocated bytes of all steps
+     */
+    public long allocatedBytes() {
+        long bytes = 0;
+        for (final StepAllocation step : steps) {
+            bytes += step.allocatedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Checks that no step has allocated any bytes while tracking.
+     *
+     * @throws IllegalStateException if at least one step has allocated, with a message reporting the offending steps
+     */
+    public void assertNoAllocation() {
+        StringBuilder offenders = null;
+        for (final StepAllocation step : steps) {
+            if (step.allocatedBytes() > 0) {
+                offenders = offenders == null ? new StringBuilder() : offenders.append(", ");
+                offenders.append(step);
+            }
+        }
+        if (offenders != null) {
+            throw new IllegalStateException("Allocation in steady state: " + offenders);
+        }
+    }
+
+    public void printTo(final PrintStream out) {
+        out.printf("%-40s %12s %12s %16s %16s%n", "step", "invocations", "allocating", "allocated-bytes",
+                "max-bytes");
+        for (final StepAllocation step : steps) {
+            out.printf("%-40s %12d %12d %16d %16d%n", step.name(), step.invocations(), step.allocatingInvocations(),
+                    step.allocatedBytes(), step.maxAllocatedBytes());
+        }
+    }
+
+    private AgentStep track(final String name, final AgentStep step) {
+        requireNonNull(name);
+        requireNonNull(step);
+        if (step == AgentStep.NOOP) {
+            return step;
+        }
+        final StepAllocation allocation = new StepAllocation(name);
+        steps.add(allocation);
+        return () -> {
+            final AllocationMeter m = meter();
+            if (!tracking) {
+                return step.doWork();
+            }
+            final long start = m.allocatedBytes();
+            final int workDone = step.doWork();
+            final long end = m.allocatedBytes();
+            allocation.record(m.allocatedBytes(start, end));
+            return workDone;
+        };
+    }
+
+    private AllocationMeter meter() {
+        AllocationMeter m = meter;
+        if (m == null) {
+            meter = m = new AllocationMeter();
+        }
+        return m;
+    }
+
+    @Override
+    public String toString() {
+        return "AllocationTracker:tracking=" + tracking + "|steps=" + steps;
+    }
+
+    /**
+     * Allocations recorded for a single agent step.  Values are written by the agent thread only.
+     */
+    public static final class StepAllocation {
+        private final String name;
+        private volatile long invocations;
+        private volatile long allocatingInvocations;
+        private volatile long allocatedBytes;
+        private volatile long maxAllocatedBytes;
+
+        StepAllocation(final String name) {
+            this.name = requireNonNull(name);
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public long invocations() {
+            return invocations;
+        }
+
+        public long allocatingInvocations() {
+            return allocatingInvocations;
+        }
+
+        public long allocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long maxAllocatedBytes() {
+            return maxAllocatedBytes;
+        }
+
+        void record(final long bytes) {
+            invocations++;
+            if (bytes > 0) {
+                allocatingInvocations++;
+                allocatedBytes += bytes;
+                if (bytes > maxAllocatedBytes) {
+                    maxAllocatedBytes = bytes;
+                }
+            }
+        }
+
+        void reset() {
+            invocations = 0;
+            allocatingInvocations = 0;
+            allocatedBytes = 0;
+            maxAllocatedBytes = 0;
+        }
+
+        @Override
+        public String toString() {
+            return "StepAllocation:name=" + name +
+                    "|invocations=" + invocations +
+                    "|allocating-invocations=" + allocatingInvocations +
+                    "|allocated-bytes=" + allocatedBytes +
+                    "|max-allocated-bytes=" + maxAllocatedBytes;
+        }
+    }
+
+    private final class Specification implements PluginSpecification<NullState> {
+        @Override
+        public PluginStateProvider<NullState> defaultPluginStateProvider() {
+            return PluginStateProvider.NULL_STATE_PROVIDER;
+        }
+
+        @Override
+        public Installer installer(final AppConfig appConfig, final NullState pluginState) {
+            return new Installer.Default() {
+                @Override
+                public Interceptor interceptor(final StateFactory stateFactory) {
+                    return new TrackingInterceptor();
+                }
+            };
+        }
+    }
+
+    /**
+     * Intercepts the factories of all agent steps;  the sequencer step is not intercepted since it is the input poller
+     * step which is tracked through the input factory.
+     */
+    private final class TrackingInterceptor implements Interceptor {
+        @Override
+        public AgentStepFactory agentStepFactory(final Supplier<? extends AgentStepFactory> singletons) {
+            return new AgentStepFactory() {
+                @Override
+                public AgentStep extraStepAlwaysWhenEventsApplied() {
+                    return track("extra-step-always-when-events-applied", singletons.get().extraStepAlwaysWhenEventsApplied());
+                }
+
+                @Override
+                public AgentStep extraStepAlways() {
+                    return track("extra-step-always", singletons.get().extraStepAlways());
+                }
+            };
+        }
+
+        @Override
+        public InputFactory inputFactory(final Supplier<? extends InputFactory> singletons) {
+            return () -> {
+                final Input input = singletons.get().input();
+                return commandContext -> track("input-poller", input.inputPollerStep(commandContext));
+            };
+        }
+
+        @Override
+        public CommandPollerFactory commandPollerFactory(final Supplier<? extends CommandPollerFactory> singletons) {
+            return new CommandPollerFactory() {
+                @Override
+                public Poller commandMessagePoller() {
+                    return singletons.get().commandMessagePoller();
+                }
+
+                @Override
+                public Handler commandMessageHandler() {
+                    return singletons.get().commandMessageHandler();
+                }
+
+                @Override
+                public AgentStep commandPollerStep() {
+                    return track("command-poller", singletons.get().commandPollerStep());
+                }
+            };
+        }
+
+        @Override
+        public ApplierFactory applierFactory(final Supplier<? extends ApplierFactory> singletons) {
+            return new ApplierFactory() {
+                @Override
+                public EventApplier eventApplier() {
+                    return singletons.get().eventApplier();
+                }
+
+                @Override
+                public EventHandler eventHandler() {
+                    return singletons.get().eventHandler();
+                }
+
+                @Override
+                public AgentStep eventPollerStep() {
+                    return track("event-poller", singletons.get().eventPollerStep());
+                }
+            };
+        }
+
+        @Override
+        public PublisherFactory publisherFactory(final Supplier<? extends PublisherFactory> singletons) {
+            return new PublisherFactory() {
+                @Override
+                public OutputHandler outputHandler() {
+                    return singletons.get().outputHandler();
+                }
+
+                @Override
+                public AgentStep publisherStep() {
+                    return track("publisher", singletons.get().publisherStep());
+                }
+            };
+        }
+
+        @Override
+        public EventSubscriberFactory eventSubscriberFactory(final Supplier<? extends EventSubscriberFactory> singletons) {
+            return new EventSubscriberFactory() {
+                @Override
+                public PlaybackHandler playbackHandler() {
+                    return singletons.get().playbackHandler();
+                }
+
+                @Override
+                public AgentStep playbackPollerStep() {
+                    return track("playback-poller", singletons.get().playbackPollerStep());
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.profile;
+
+import org.HdrHistogram.Histogram;
+import org.agrona.collections.Int2ObjectHashMap;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Time and allocation profile of a handler such as a command processor or event applier, broken down by payload type.
+ */
+public class HandlerProfile {
+
+    /** Highest trackable handler time in nanoseconds, larger values are recorded as this value */
+    public static final long HIGHEST_TRACKABLE_VALUE = TimeUnit.SECONDS.toNanos(10);
+    public static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String name;
+    private final Int2ObjectHashMap<PayloadTypeProfile> profiles = new Int2ObjectHashMap<>();
+
+    public HandlerProfile(final String name) {
+        this.name = requireNonNull(name);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the profile of the given payload type, or null if no message with this payload type has been recorded.
+     *
+     * @param payloadType the payload type
+     * @return the profile, or null if unavailable
+     */
+    public PayloadTypeProfile profile(final int payloadType) {
+        return profiles.get(payloadType);
+    }
+
+    /**
+     * Returns the recorded payload types in ascending order.
+     *
+     * @return a new array with recorded payload types
+     */
+    public int[] payloadTypes() {
+        final int[] types = new int[profiles.size()];
+        int index = 0;
+        for (final PayloadTypeProfile profile : profiles.values()) {
+            types[index++] = profile.payloadType;
+        }
+        Arrays.sort(types);
+        return types;
+    }
+
+    void record(final int payloadType, final long nanos, final long allocatedBytes) {
+        PayloadTypeProfile profile = profiles.get(payloadType);
+        if (profile == null) {
+            profile = new PayloadTypeProfile(payloadType);
+            profiles.put(payloadType, profile);
+        }
+        profile.record(nanos, allocatedBytes);
+    }
+
+    public void printTo(final PrintStream out) {
+        for (final int payloadType : payloadTypes()) {
+            out.println(profiles.get(payloadType).printTo(new StringBuilder(256).append(name).append(' ')));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HandlerProfile:name=" + name + "|payload-types=" + Arrays.toString(payloadTypes());
+    }
+
+    /**
+     * Time and allocation statistics for messages of a single payload type.
+     */
+    public static final class PayloadTypeProfile {
+        private final int payloadType;
+        private final Histogram nanos = new Histogram(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+        private long allocatedBytes;
+        private long maxAllocatedBytes;
+        private boolean allocationAvailable = true;
+
+        PayloadTypeProfile(final int payloadType) {
+            this.payloadType = payloadType;
+        }
+
+        void record(final long time, final long allocated) {
+            nanos.recordValue(Math.max(0, Math.min(time, HIGHEST_TRACKABLE_VALUE)));
+            if (allocated == AllocationMeter.UNAVAILABLE) {
+                allocationAvailable = false;
+            } else {
+                allocatedBytes += allocated;
+                maxAllocatedBytes = Math.max(maxAllocatedBytes, allocated);
+            }
+        }
+
+        public int payloadType() {
+            return payloadType;
+        }
+
+        public long count() {
+            return nanos.getTotalCount();
+        }
+
+        /**
+         * Returns the histogram with handler invocation times in nanoseconds.
+         *
+         * @return the time histogram in nanoseconds
+         */
+        public Histogram nanos() {
+            return nanos;
+        }
+
+        public boolean isAllocationAvailable() {
+            return allocationAvailable;
+        }
+
+        public long allocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long maxAllocatedBytes() {
+            return maxAllocatedBytes;
+        }
+
+        public double averageAllocatedBytes() {
+            final long count = count();
+            return count == 0 ? 0 : allocatedBytes / (double)count;
+        }
+
+        public StringBuilder printTo(final StringBuilder dst) {
+            dst.append("type=").append(payloadType);
+            dst.append(" | n=").append(count());
+            dst.append(", min=").append(nanos.getMinValue());
+            dst.append(", p50=").append(nanos.getValueAtPercentile(50));
+            dst.append(", p90=").append(nanos.getValueAtPercentile(90));
+            dst.append(", p99=").append(nanos.getValueAtPercentile(99));
+            dst.append(", p99.9=").append(nanos.getValueAtPercentile(99.9));
+            dst.append(", max=").append(nanos.getMaxValue()).append("ns");
+            if (allocationAvailable) {
+                dst.append(" | alloc avg=").append(Math.round(averageAllocatedBytes()));
+                dst.append(", max=").append(maxAllocatedBytes).append("B");
+            }
+            return dst;
+        }
+
+        @Override
+        public String toString() {
+            return printTo(new StringBuilder(256).append("PayloadTypeProfile:")).toString();
+        }
+    }
+}
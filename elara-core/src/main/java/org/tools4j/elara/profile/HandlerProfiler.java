@@ -0,0 +1,359 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.profile;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2LongHashMap;
+import org.tools4j.elara.app.handler.CommandProcessor;
+import org.tools4j.elara.app.handler.EventApplier;
+import org.tools4j.elara.app.message.Command;
+import org.tools4j.elara.app.message.Event;
+import org.tools4j.elara.flyweight.FlyweightCommand;
+import org.tools4j.elara.route.EventRouter;
+import org.tools4j.elara.step.AgentStep;
+import org.tools4j.elara.step.EventReplayStep;
+import org.tools4j.elara.store.MessageStore;
+import org.tools4j.elara.store.MessageStore.Handler.Result;
+
+import java.io.PrintStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Replays a command store and an event store through a {@link CommandProcessor} and an {@link EventApplier} and
+ * profiles invocation time and allocation of both handlers per payload type.
+ * <p>
+ * Committed events are replayed in store order and each command is processed right before the first event that it
+ * caused is applied, as it happened in the original run.  Commands are matched to events by source ID and source
+ * sequence across all sources.  Events routed by the command processor are discarded since the stored events are
+ * applied instead;  note that unlike in the live engine, events routed by a command are therefore not yet applied when
+ * the processor routes the next event for the same command.  Commands stored ahead of a matched command that have not
+ * resulted in any events (e.g. skipped commands) are ignored, events not caused by a stored command are applied
+ * without processing a command, and commands left after the last event are processed at the end.
+ * <p>
+ * The profiler is meant to be run on a dedicated thread, or a thread that does nothing else at the same time, as it
+ * measures the allocation of the thread that constructed the profiler.
+ */
+public class HandlerProfiler {
+
+    private final MessageStore commandStore;
+    private final MessageStore eventStore;
+    private final CommandProcessor commandProcessor;
+    private final EventApplier eventApplier;
+    private final int warmupMessages;
+
+    private final HandlerProfile commandProfile = new HandlerProfile("command");
+    private final HandlerProfile eventProfile = new HandlerProfile("event");
+    private final AllocationMeter allocationMeter = new AllocationMeter();
+    private final FlyweightCommand command = new FlyweightCommand();
+    private final DiscardingEventRouter eventRouter = new DiscardingEventRouter();
+    private final Long2LongHashMap maxSourceSequenceBySourceId = new Long2LongHashMap(Long.MIN_VALUE);
+    private final MessageStore.Handler sourceSequenceRecorder = this::recordSourceSequence;
+    private final MessageStore.Handler commandMatcher = this::matchCommand;
+    private final MessageStore.Handler remainingCommandHandler = this::onRemainingCommand;
+
+    private MessageStore.Poller commandPoller;
+    private Event event;
+    private boolean matching;
+    private boolean matched;
+    private long messages;
+    private boolean profiled;
+
+    public HandlerProfiler(final MessageStore commandStore,
+                           final MessageStore eventStore,
+                           final CommandProcessor commandProcessor,
+                           final EventApplier eventApplier) {
+        this(commandStore, eventStore, commandProcessor, eventApplier, 0);
+    }
+
+    /**
+     * Constructor for profiler with warmup.
+     *
+     * @param commandStore      the command store to replay
+     * @param eventStore        the event store to replay
+     * @param commandProcessor  the command processor to profile
+     * @param eventApplier      the event applier to profile
+     * @param warmupMessages    number of initial commands and events that are passed to the handlers but not recorded
+     */
+    public HandlerProfiler(final MessageStore commandStore,
+                           final MessageStore eventStore,
+                           final CommandProcessor commandProcessor,
+                           final EventApplier eventApplier,
+                           final int warmupMessages) {
+        if (warmupMessages < 0) {
+            throw new IllegalArgumentException("Warmup messages cannot be negative: " + warmupMessages);
+        }
+        this.commandStore = requireNonNull(commandStore);
+        this.eventStore = requireNonNull(eventStore);
+        this.commandProcessor = requireNonNull(commandProcessor);
+        this.eventApplier = requireNonNull(eventApplier);
+        this.warmupMessages = warmupMessages;
+    }
+
+    /**
+     * Replays all commands and events and records the profiles.
+     *
+     * @return this profiler for chaining
+     * @throws IllegalStateException if profile has already been invoked
+     */
+    public HandlerProfiler profile() {
+        if (profiled) {
+            throw new IllegalStateException("Handler profiles have already been recorded");
+        }
+        profiled = true;
+        final AgentStep eventReplayStep = EventReplayStep.replayNonAbortedEvents(eventStore, this::onEvent);
+        try (final MessageStore.Poller poller = commandStore.poller()) {
+            while (poller.poll(sourceSequenceRecorder) > 0) {
+                //record max source sequence per source
+            }
+            poller.moveToStart();
+            commandPoller = poller;
+            while (eventReplayStep.doWork() > 0) {
+                //replay until done
+            }
+            while (poller.poll(remainingCommandHandler) > 0) {
+                //process remaining commands
+            }
+        } finally {
+            commandPoller = null;
+            event = null;
+            matching = false;
+        }
+        return this;
+    }
+
+    public HandlerProfile commandProfile() {
+        return commandProfile;
+    }
+
+    public HandlerProfile eventProfile() {
+        return eventProfile;
+    }
+
+    public boolean isAllocationAvailable() {
+        return allocationMeter.isAvailable();
+    }
+
+    public void printTo(final PrintStream out) {
+        commandProfile.printTo(out);
+        eventProfile.printTo(out);
+        if (!allocationMeter.isAvailable()) {
+            out.println("(thread allocation measurement is not supported by this JVM)");
+        }
+    }
+
+    private void onEvent(final Event event) {
+        if (event.eventIndex() == 0 && isCausedByStoredCommand(event)) {
+            processCommandOf(event);
+        }
+        final long allocStart = allocationMeter.allocatedBytes();
+        final long start = System.nanoTime();
+        eventApplier.onEvent(event);
+        final long end = System.nanoTime();
+        final long allocEnd = allocationMeter.allocatedBytes();
+        if (messages++ >= warmupMessages) {
+            eventProfile.record(event.payloadType(), end - start, allocationMeter.allocatedBytes(allocStart, allocEnd));
+        }
+    }
+
+    private boolean isCausedByStoredCommand(final Event event) {
+        return event.sourceSequence() <= maxSourceSequenceBySourceId.get(event.sourceId());
+    }
+
+    private void processCommandOf(final Event event) {
+        final long entryId = commandPoller.entryId();
+        this.event = event;
+        matching = true;
+        matched = false;
+        try {
+            while (matching && commandPoller.poll(commandMatcher) > 0) {
+                //process commands until we find the one that caused this event
+            }
+            if (!matched) {
+                //event not caused by a stored command, leave commands for later
+                commandPoller.moveTo(entryId);
+            }
+        } finally {
+            this.event = null;
+            matching = false;
+        }
+    }
+
+    private Result recordSourceSequence(final DirectBuffer buffer) {
+        command.wrap(buffer, 0);
+        try {
+            final int sourceId = command.sourceId();
+            final long sourceSequence = command.sourceSequence();
+            if (sourceSequence > maxSourceSequenceBySourceId.get(sourceId)) {
+                maxSourceSequenceBySourceId.put(sourceId, sourceSequence);
+            }
+            return Result.POLL;
+        } finally {
+            command.reset();
+        }
+    }
+
+    private Result matchCommand(final DirectBuffer buffer) {
+        command.wrap(buffer, 0);
+        try {
+            if (command.sourceId() == event.sourceId()) {
+                if (command.sourceSequence() == event.sourceSequence()) {
+                    processCommand(event.eventSequence());
+                    matching = false;
+                    matched = true;
+                    return Result.POLL;
+                }
+                if (command.sourceSequence() > event.sourceSequence()) {
+                    //passed the source sequence of the event, the command that caused it is not stored
+                    matching = false;
+                    return Result.PEEK;
+                }
+            }
+            //command without events, for instance a skipped command, unless no match is found
+            return Result.POLL;
+        } finally {
+            command.reset();
+        }
+    }
+
+    private Result onRemainingCommand(final DirectBuffer buffer) {
+        command.wrap(buffer, 0);
+        try {
+            processCommand(0);
+            return Result.POLL;
+        } finally {
+            command.reset();
+        }
+    }
+
+    private void processCommand(final long eventSequence) {
+        eventRouter.reset(command, eventSequence);
+        final long allocStart = allocationMeter.allocatedBytes();
+        final long start = System.nanoTime();
+        commandProcessor.onCommand(command, eventRouter);
+        final long end = System.nanoTime();
+        final long allocEnd = allocationMeter.allocatedBytes();
+        if (messages++ >= warmupMessages) {
+            commandProfile.record(command.payloadType(), end - start, allocationMeter.allocatedBytes(allocStart, allocEnd));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HandlerProfiler:profiled=" + profiled + "|messages=" + messages + "|warmup-messages=" + warmupMessages;
+    }
+
+    private static final class DiscardingEventRouter implements EventRouter.Default, EventRouter.RoutingContext {
+        private final MutableDirectBuffer buffer = new ExpandableDirectByteBuffer(4096);
+        private Command command;
+        private long firstEventSequence;
+        private int nextIndex;
+        private boolean routing;
+        private boolean skipped;
+
+        void reset(final Command command, final long firstEventSequence) {
+            this.command = command;
+            this.firstEventSequence = firstEventSequence;
+            this.nextIndex = 0;
+            this.routing = false;
+            this.skipped = false;
+        }
+
+        @Override
+        public RoutingContext routingEvent(final int type) {
+            if (routing) {
+                throw new IllegalStateException("Routing context is still open");
+            }
+            if (skipped) {
+                throw new IllegalStateException("Cannot route events for skipped command");
+            }
+            routing = true;
+            return this;
+        }
+
+        @Override
+        public long nextEventSequence() {
+            return firstEventSequence + nextIndex;
+        }
+
+        @Override
+        public int nextEventIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public boolean skipCommand() {
+            if (skipped) {
+                return true;
+            }
+            if (nextIndex > 0) {
+                return false;
+            }
+            routing = false;
+            skipped = true;
+            return true;
+        }
+
+        @Override
+        public boolean isSkipped() {
+            return skipped;
+        }
+
+        @Override
+        public Command command() {
+            return command;
+        }
+
+        @Override
+        public int index() {
+            return nextIndex;
+        }
+
+        @Override
+        public MutableDirectBuffer buffer() {
+            return buffer;
+        }
+
+        @Override
+        public void route(final int length) {
+            if (!routing) {
+                throw new IllegalStateException("Routing context is closed");
+            }
+            routing = false;
+            nextIndex++;
+        }
+
+        @Override
+        public void abort() {
+            routing = false;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return !routing;
+        }
+    }
+}
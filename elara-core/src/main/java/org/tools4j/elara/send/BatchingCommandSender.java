@@ -0,0 +1,223 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.send;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.tools4j.elara.input.BatchInputPoller;
+import org.tools4j.elara.source.CommandSource;
+import org.tools4j.elara.store.ExpandableDirectBuffer;
+import org.tools4j.elara.stream.SendingResult;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A command sender used by {@link BatchInputPoller batch input pollers} that claims consecutive commands in a batch
+ * buffer and sends them together through the command source's sender when the batch is {@link #flush() flushed}.
+ * <p>
+ * Source sequences are claimed when the commands are encoded into the batch, that is,
+ * {@link #nextCommandSequence()} accounts for commands already in the batch but not yet flushed.  If the underlying
+ * sender fails to send a command, flushing stops and the remaining commands are retained for the next flush.
+ */
+public final class BatchingCommandSender implements CommandSender.Default {
+
+    public static final int DEFAULT_INITIAL_BATCH_CAPACITY = 64 * 1024;
+
+    private static final int PAYLOAD_TYPE_OFFSET = 0;
+    private static final int PAYLOAD_LENGTH_OFFSET = PAYLOAD_TYPE_OFFSET + Integer.BYTES;
+    private static final int PAYLOAD_OFFSET = PAYLOAD_LENGTH_OFFSET + Integer.BYTES;
+
+    private final CommandSource commandSource;
+    private final MutableDirectBuffer batch;
+    private final SendingContext sendingContext = new SendingContext();
+
+    private int batchCount;
+    private int batchLength;
+    private int flushCount;
+    private int flushOffset;
+
+    public BatchingCommandSender(final CommandSource commandSource) {
+        this(commandSource, DEFAULT_INITIAL_BATCH_CAPACITY);
+    }
+
+    public BatchingCommandSender(final CommandSource commandSource, final int initialBatchCapacity) {
+        this.commandSource = requireNonNull(commandSource);
+        this.batch = new ExpandableDirectByteBuffer(initialBatchCapacity);
+    }
+
+    @Override
+    public CommandSource source() {
+        return commandSource;
+    }
+
+    @Override
+    public int sourceId() {
+        return commandSource.sourceId();
+    }
+
+    @Override
+    public long nextCommandSequence() {
+        return commandSource.transientCommandSourceState().sourceSequenceGenerator().sequence() + pendingCommands();
+    }
+
+    /**
+     * Returns the number of commands in the batch that have not been flushed yet.
+     * @return the number of commands waiting to be flushed
+     */
+    public int pendingCommands() {
+        return batchCount - flushCount;
+    }
+
+    @Override
+    public CommandSender.SendingContext sendingCommand(final int payloadType) {
+        return sendingContext.init(payloadType);
+    }
+
+    @Override
+    public SendingResult sendCommand(final int payloadType, final DirectBuffer buffer, final int offset, final int length) {
+        if (!sendingContext.isClosed()) {
+            sendingContext.abort();
+            throw new IllegalStateException("Sending context not closed");
+        }
+        batch.putInt(batchLength + PAYLOAD_TYPE_OFFSET, payloadType);
+        batch.putBytes(batchLength + PAYLOAD_OFFSET, buffer, offset, length);
+        return addToBatch(length);
+    }
+
+    private SendingResult addToBatch(final int length) {
+        batch.putInt(batchLength + PAYLOAD_LENGTH_OFFSET, length);
+        batchLength += PAYLOAD_OFFSET + length;
+        batchCount++;
+        return SendingResult.SENT;
+    }
+
+    /**
+     * Sends all commands in the batch through the command source's sender in one tight sequence.
+     *
+     * @return the number of commands sent, zero if the batch was empty or if the first command could not be sent
+     */
+    public int flush() {
+        if (flushCount == batchCount) {
+            return 0;
+        }
+        final CommandSender commandSender = commandSource.commandSender();
+        final int flushCountBefore = flushCount;
+        while (flushCount < batchCount) {
+            final int payloadType = batch.getInt(flushOffset + PAYLOAD_TYPE_OFFSET);
+            final int length = batch.getInt(flushOffset + PAYLOAD_LENGTH_OFFSET);
+            if (commandSender.sendCommand(payloadType, batch, flushOffset + PAYLOAD_OFFSET, length) != SendingResult.SENT) {
+                break;
+            }
+            flushOffset += PAYLOAD_OFFSET + length;
+            flushCount++;
+        }
+        final int sent = flushCount - flushCountBefore;
+        if (flushCount == batchCount) {
+            batchCount = 0;
+            batchLength = 0;
+            flushCount = 0;
+            flushOffset = 0;
+        }
+        return sent;
+    }
+
+    private final class SendingContext implements CommandSender.SendingContext {
+
+        final ExpandableDirectBuffer buffer = new ExpandableDirectBuffer();
+        long sourceSequence;
+        boolean closed = true;
+
+        SendingContext init(final int payloadType) {
+            if (!closed) {
+                abort();
+                throw new IllegalStateException("Sending context not closed");
+            }
+            batch.putInt(batchLength + PAYLOAD_TYPE_OFFSET, payloadType);
+            buffer.wrap(batch, batchLength + PAYLOAD_OFFSET);
+            sourceSequence = nextCommandSequence();
+            closed = false;
+            return this;
+        }
+
+        void ensureNotClosed() {
+            if (closed) {
+                throw new IllegalStateException("Sending context is closed");
+            }
+        }
+
+        @Override
+        public int sourceId() {
+            ensureNotClosed();
+            return commandSource.sourceId();
+        }
+
+        @Override
+        public long sourceSequence() {
+            ensureNotClosed();
+            return sourceSequence;
+        }
+
+        @Override
+        public MutableDirectBuffer buffer() {
+            ensureNotClosed();
+            return buffer;
+        }
+
+        @Override
+        public SendingResult send(final int length) {
+            ensureNotClosed();
+            if (length < 0) {
+                throw new IllegalArgumentException("Length cannot be negative: " + length);
+            }
+            try {
+                buffer.unwrap();
+                return addToBatch(length);
+            } finally {
+                closed = true;
+            }
+        }
+
+        @Override
+        public void abort() {
+            if (!closed) {
+                buffer.unwrap();
+                closed = true;
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BatchingCommandSender" +
+                ":source-id=" + sourceId() +
+                "|pending-commands=" + pendingCommands() +
+                "|batch-length=" + batchLength;
+    }
+}
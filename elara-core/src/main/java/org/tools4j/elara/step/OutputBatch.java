@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.step;
+
+import org.tools4j.elara.handler.OutputHandler;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Tracks the events published through a single invocation of a publisher step and notifies the output handler about
+ * the batch boundaries:  the batch is started before the first publish attempt, either explicitly through
+ * {@link #start()} or with the first {@link #add() added} event, and it is ended through {@link #end()} if it was
+ * started.  Only events that were published without requesting a retry are added to the batch.
+ */
+final class OutputBatch {
+
+    private final OutputHandler handler;
+    private boolean started;
+    private int size;
+
+    OutputBatch(final OutputHandler handler) {
+        this.handler = requireNonNull(handler);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void start() {
+        if (!started) {
+            started = true;
+            handler.onBatchStart();
+        }
+    }
+
+    void add() {
+        start();
+        size++;
+    }
+
+    void end() {
+        if (started) {
+            final int batchSize = size;
+            started = false;
+            size = 0;
+            handler.onBatchEnd(batchSize);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OutputBatch:started=" + started + "|size=" + size;
+    }
+}
@@ -27,6 +27,7 @@ import org.agrona.DirectBuffer;
 import org.tools4j.elara.flyweight.FlyweightEvent;
 import org.tools4j.elara.handler.OutputHandler;
 import org.tools4j.elara.output.Output.Ack;
+import org.tools4j.elara.output.OutputCheckpoint;
 import org.tools4j.elara.store.CommittedEventPoller;
 import org.tools4j.elara.store.MessageStore;
 import org.tools4j.elara.store.MessageStore.Handler;
@@ -34,6 +35,7 @@ import org.tools4j.elara.store.MessageStore.Handler.Result;
 import org.tools4j.elara.store.MessageStore.Poller;
 
 import static java.util.Objects.requireNonNull;
+import static org.tools4j.elara.sequence.SequenceSupplier.NIL_SEQUENCE;
 
 /**
  * Agent to poll and publish events.
@@ -42,53 +44,180 @@ import static java.util.Objects.requireNonNull;
  * to store the index of the last event passed to the handler.  A second poller is used to also pass replayed events to
  * the output handler.  Using a {@link CommittedEventPoller} as tracking poller guarantees that only committed events
  * are passed to the handler.
+ * <p>
+ * Up to {@code maxBatchSize} events are published per invocation of {@link #doWork()}.  The output handler is notified
+ * through {@link OutputHandler#onBatchStart() onBatchStart()} and {@link OutputHandler#onBatchEnd(int) onBatchEnd(..)}
+ * about the boundaries of every such batch.  A batch ends early if no more events are available or if an event is
+ * to be retried;  the batch size passed to the handler counts only events whose publishing did not request a retry.
+ * <p>
+ * If created with an {@link OutputCheckpoint}, the agent seeks to the checkpointed event on start and publishes only
+ * subsequent events;  the checkpoint is updated with every published event.
  */
 public class PollerPublisherStep implements AgentStep {
 
     public static final String DEFAULT_POLLER_ID = "elara-publisher";
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1;
 
     private final OutputHandler handler;
     private final Poller poller;
+    private final int maxBatchSize;
     private final Handler replayHandler = buffer -> onMessage(buffer, true);
     private final Handler defaultHandler = buffer -> onMessage(buffer, false);
     private final FlyweightEvent flyweightEvent = new FlyweightEvent();
+    private final OutputCheckpoint checkpoint;
     private Poller replayPoller;
+    private long skipSequence = NIL_SEQUENCE;
+    private final OutputBatch batch;
     private int retry;
 
-    private PollerPublisherStep(final OutputHandler handler, final Poller poller, final Poller replayPoller) {
+    private PollerPublisherStep(final OutputHandler handler,
+                                final Poller poller,
+                                final Poller replayPoller,
+                                final int maxBatchSize) {
+        this(handler, poller, replayPoller, null, maxBatchSize);
+    }
+
+    private PollerPublisherStep(final OutputHandler handler,
+                                final Poller poller,
+                                final Poller replayPoller,
+                                final OutputCheckpoint checkpoint,
+                                final int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive: " + maxBatchSize);
+        }
         this.handler = requireNonNull(handler);
         this.poller = requireNonNull(poller);
         this.replayPoller = replayPoller;//nullable
+        this.checkpoint = checkpoint;//nullable
+        this.maxBatchSize = maxBatchSize;
+        this.batch = new OutputBatch(handler);
     }
 
     public static PollerPublisherStep committedEventsPoller(final OutputHandler handler, final MessageStore eventStore) {
+        return committedEventsPoller(handler, eventStore, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public static PollerPublisherStep committedEventsPoller(final OutputHandler handler,
+                                                            final MessageStore eventStore,
+                                                            final int maxBatchSize) {
         try {
-            return committedEventsPoller(handler, eventStore, DEFAULT_POLLER_ID);
+            return committedEventsPoller(handler, eventStore, DEFAULT_POLLER_ID, maxBatchSize);
         } catch (final UnsupportedOperationException e) {
             //ignore, use non-tracking
-            return new PollerPublisherStep(handler, new CommittedEventPoller(eventStore), null);
+            return new PollerPublisherStep(handler, new CommittedEventPoller(eventStore), null, maxBatchSize);
         }
     }
 
     public static PollerPublisherStep committedEventsPoller(final OutputHandler handler, final MessageStore eventStore, final String id) {
-        return new PollerPublisherStep(handler, new CommittedEventPoller(eventStore, id), new CommittedEventPoller(eventStore));
+        return committedEventsPoller(handler, eventStore, id, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public static PollerPublisherStep committedEventsPoller(final OutputHandler handler,
+                                                            final MessageStore eventStore,
+                                                            final String id,
+                                                            final int maxBatchSize) {
+        return new PollerPublisherStep(handler, new CommittedEventPoller(eventStore, id), new CommittedEventPoller(eventStore),
+                maxBatchSize);
     }
 
     public static PollerPublisherStep allEventsPoller(final OutputHandler handler, final MessageStore eventStore) {
+        return allEventsPoller(handler, eventStore, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public static PollerPublisherStep allEventsPoller(final OutputHandler handler,
+                                                      final MessageStore eventStore,
+                                                      final int maxBatchSize) {
         try {
-            return allEventsPoller(handler, eventStore, DEFAULT_POLLER_ID);
+            return allEventsPoller(handler, eventStore, DEFAULT_POLLER_ID, maxBatchSize);
         } catch (final UnsupportedOperationException e) {
             //ignore, use non-tracking
-            return new PollerPublisherStep(handler, eventStore.poller(), null);
+            return new PollerPublisherStep(handler, eventStore.poller(), null, maxBatchSize);
         }
     }
 
     public static PollerPublisherStep allEventsPoller(final OutputHandler handler, final MessageStore eventStore, final String id) {
-        return new PollerPublisherStep(handler, eventStore.poller(id), eventStore.poller());
+        return allEventsPoller(handler, eventStore, id, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public static PollerPublisherStep allEventsPoller(final OutputHandler handler,
+                                                      final MessageStore eventStore,
+                                                      final String id,
+                                                      final int maxBatchSize) {
+        return new PollerPublisherStep(handler, eventStore.poller(id), eventStore.poller(), maxBatchSize);
+    }
+
+    public static PollerPublisherStep committedEventsPoller(final OutputHandler handler,
+                                                            final MessageStore eventStore,
+                                                            final OutputCheckpoint checkpoint,
+                                                            final int maxBatchSize) {
+        return checkpointed(handler, new CommittedEventPoller(eventStore), eventStore, checkpoint, maxBatchSize);
+    }
+
+    public static PollerPublisherStep allEventsPoller(final OutputHandler handler,
+                                                      final MessageStore eventStore,
+                                                      final OutputCheckpoint checkpoint,
+                                                      final int maxBatchSize) {
+        return checkpointed(handler, eventStore.poller(), eventStore, checkpoint, maxBatchSize);
+    }
+
+    private static PollerPublisherStep checkpointed(final OutputHandler handler,
+                                                    final Poller poller,
+                                                    final MessageStore eventStore,
+                                                    final OutputCheckpoint checkpoint,
+                                                    final int maxBatchSize) {
+        final PollerPublisherStep step = new PollerPublisherStep(handler, poller, null, requireNonNull(checkpoint),
+                maxBatchSize);
+        step.seekToCheckpoint(eventStore);
+        return step;
+    }
+
+    /**
+     * Moves the poller to the checkpointed event, first trying the checkpointed entry ID and validating it through
+     * the event sequence, and otherwise scanning forward for the last event with a sequence not exceeding the
+     * checkpointed sequence.  The scan starts at the checkpointed entry if it precedes the checkpointed event, and at
+     * the start of the store otherwise.  Events up to the checkpointed sequence are skipped without publishing them in
+     * case the poller cannot be positioned exactly.
+     */
+    private void seekToCheckpoint(final MessageStore eventStore) {
+        final long sequence = checkpoint.eventSequence();
+        if (sequence == NIL_SEQUENCE) {
+            return;
+        }
+        skipSequence = sequence;
+        final SequencePeeker peeker = new SequencePeeker();
+        long entryId = checkpoint.entryId();
+        try (final Poller seekPoller = eventStore.poller()) {
+            final long entrySequence = seekPoller.moveTo(entryId) ? peeker.peek(seekPoller) : Long.MAX_VALUE;
+            if (entrySequence != sequence) {
+                if (entrySequence > sequence) {
+                    seekPoller.moveToStart();
+                }
+                entryId = peeker.scan(seekPoller, sequence);
+            }
+        }
+        if (entryId != NIL_SEQUENCE) {
+            poller.moveTo(entryId);
+        }
     }
 
     @Override
     public int doWork() {
+        try {
+            int workDone = 0;
+            do {
+                final int polled = pollNext();
+                if (polled == 0) {
+                    break;
+                }
+                workDone += polled;
+            } while (retry == 0 && batch.size() < maxBatchSize);
+            return workDone;
+        } finally {
+            batch.end();
+        }
+    }
+
+    private int pollNext() {
         if (replayPoller != null) {
             if (replayPoller.entryId() < poller.entryId()) {
                 return replayPoller.poll(replayHandler);
@@ -99,11 +228,22 @@ public class PollerPublisherStep implements AgentStep {
     }
 
     private Result onMessage(final DirectBuffer message, final boolean replay) {
+        if (skipSequence != NIL_SEQUENCE) {
+            if (FlyweightEvent.eventSequence(message) <= skipSequence) {
+                return Result.POLL;
+            }
+            skipSequence = NIL_SEQUENCE;
+        }
+        batch.start();
         flyweightEvent.wrap(message, 0);
         try {
             final Ack ack = handler.publish(flyweightEvent, replay, retry);
             if (Ack.RETRY != ack) {
+                batch.add();
                 retry = 0;
+                if (checkpoint != null) {
+                    checkpoint.update(poller.entryId(), flyweightEvent.eventSequence());
+                }
                 return Result.POLL;
             }
             retry++;
@@ -113,4 +253,41 @@ public class PollerPublisherStep implements AgentStep {
         }
     }
 
+    private static final class SequencePeeker implements Handler {
+        long sequence;
+        long limit;
+
+        long peek(final Poller poller) {
+            sequence = Long.MAX_VALUE;
+            limit = Long.MIN_VALUE;
+            poller.poll(this);
+            return sequence;
+        }
+
+        /**
+         * Polls events from the current position of the poller as long as their sequence does not exceed the given
+         * sequence.
+         *
+         * @return the entry ID of the last polled event, or {@link org.tools4j.elara.sequence.SequenceSupplier#NIL_SEQUENCE NIL_SEQUENCE} if no event was polled
+         */
+        long scan(final Poller poller, final long maxSequence) {
+            long entryId = NIL_SEQUENCE;
+            limit = maxSequence;
+            while (true) {
+                final long nextEntryId = poller.entryId();
+                sequence = Long.MAX_VALUE;
+                poller.poll(this);
+                if (sequence > maxSequence) {
+                    return entryId;
+                }
+                entryId = nextEntryId;
+            }
+        }
+
+        @Override
+        public Result onMessage(final DirectBuffer message) {
+            sequence = FlyweightEvent.eventSequence(message);
+            return sequence <= limit ? Result.POLL : Result.PEEK;
+        }
+    }
 }
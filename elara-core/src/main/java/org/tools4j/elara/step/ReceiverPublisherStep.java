@@ -33,7 +33,8 @@ import org.tools4j.elara.stream.MessageReceiver;
 import static java.util.Objects.requireNonNull;
 
 /**
- * Agent to poll and publish events from a message stream via {@link MessageReceiver}.
+ * Agent to poll and publish events from a message stream via {@link MessageReceiver}.  The output handler is notified
+ * about the start and the end of the batch of events received through every receiver poll invocation.
  */
 public class ReceiverPublisherStep implements AgentStep {
 
@@ -41,18 +42,25 @@ public class ReceiverPublisherStep implements AgentStep {
     private final MessageReceiver receiver;
     private final MessageReceiver.Handler receiverHandler = this::onMessage;
     private final FlyweightEvent flyweightEvent = new FlyweightEvent();
+    private final OutputBatch batch;
 
     public ReceiverPublisherStep(final OutputHandler outputHandler, final MessageReceiver receiver) {
         this.eventHandler = Handlers.asEventHandler(outputHandler);
         this.receiver = requireNonNull(receiver);
+        this.batch = new OutputBatch(outputHandler);
     }
 
     @Override
     public int doWork() {
-        return receiver.poll(receiverHandler);
+        try {
+            return receiver.poll(receiverHandler);
+        } finally {
+            batch.end();
+        }
     }
 
     private void onMessage(final DirectBuffer message) {
+        batch.add();
         try {
             eventHandler.onEvent(flyweightEvent.wrap(message, 0));
         } finally {
@@ -80,16 +80,29 @@ public class DefaultIndexTrackingPoller implements IndexTrackingPoller {
         if (index() == index) {
             return true;
         }
+        if (index < 0) {
+            return false;
+        }
         final long originalEntryId = poller.entryId();
         boolean found = false;
         try {
-            poller.moveToStart();
-            long pollIndex = 0;
-            while (pollIndex != index) {
-                if (poller.poll(message -> Result.POLL) == 0) {
-                    break;
+            long pollIndex = index();
+            if (index < pollIndex && pollIndex - index <= index) {
+                //moving backward from current position is shorter than moving forward from start
+                while (pollIndex > index && poller.moveToPrevious()) {
+                    pollIndex--;
+                }
+            } else {
+                if (index < pollIndex) {
+                    poller.moveToStart();
+                    pollIndex = 0;
+                }
+                while (pollIndex < index) {
+                    if (poller.poll(message -> Result.POLL) == 0) {
+                        break;
+                    }
+                    pollIndex++;
                 }
-                pollIndex++;
             }
             if (pollIndex == index) {
                 this.index = pollIndex;
@@ -27,7 +27,7 @@ import org.tools4j.elara.store.MessageStore.Poller;
 
 /**
  * A poller tracking (gap free) indexes of entries in the message store.  Note that all methods that are moving by more
- * than a single index are slow!
+ * than a single index are slow unless the message store is an {@link IndexedMessageStore}!
  */
 public interface IndexTrackingPoller extends Poller {
     /**
@@ -62,6 +62,9 @@ public interface IndexTrackingPoller extends Poller {
     Poller moveToEnd();
 
     static IndexTrackingPoller create(final MessageStore messageStore) {
+        if (messageStore instanceof IndexedMessageStore) {
+            return ((IndexedMessageStore)messageStore).indexTrackingPoller();
+        }
         return new DefaultIndexTrackingPoller(messageStore);
     }
 }
@@ -0,0 +1,224 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.app.factory;
+
+import org.agrona.concurrent.Agent;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit test for {@link Interceptors}.
+ */
+public class InterceptorsTest {
+
+    @Test
+    public void concatReturnsFirstInterceptionIfNextDoesNotIntercept() {
+        //given
+        final AppFactory original = mock(AppFactory.class);
+        final AppFactory intercepted = mock(AppFactory.class);
+        final Interceptor first = new Interceptor() {
+            @Override
+            public AppFactory appFactory(final Supplier<? extends AppFactory> singletons) {
+                return intercepted;
+            }
+        };
+        final Interceptor next = new Interceptor() {};
+
+        //when
+        final Interceptor concat = Interceptors.concat(first, next);
+
+        //then
+        assertSame(intercepted, concat.appFactory(() -> original));
+    }
+
+    @Test
+    public void concatPassesFirstInterceptionToNext() {
+        //given
+        final Agent originalAgent = mock(Agent.class);
+        final Agent firstAgent = mock(Agent.class);
+        final Agent nextAgent = mock(Agent.class);
+        final Agent[] seenByNext = new Agent[1];
+        final Interceptor first = new Interceptor() {
+            @Override
+            public AppFactory appFactory(final Supplier<? extends AppFactory> singletons) {
+                return () -> firstAgent;
+            }
+        };
+        final Interceptor next = new Interceptor() {
+            @Override
+            public AppFactory appFactory(final Supplier<? extends AppFactory> singletons) {
+                return () -> {
+                    seenByNext[0] = singletons.get().agent();
+                    return nextAgent;
+                };
+            }
+        };
+
+        //when
+        final Agent agent = Interceptors.concat(first, next).appFactory(() -> () -> originalAgent).agent();
+
+        //then
+        assertSame(nextAgent, agent);
+        assertSame(firstAgent, seenByNext[0]);
+    }
+
+    @Test
+    public void concatPassesOriginalToNextIfFirstDoesNotIntercept() {
+        //given
+        final Agent originalAgent = mock(Agent.class);
+        final Agent[] seenByNext = new Agent[1];
+        final Interceptor first = new Interceptor() {};
+        final Interceptor next = new Interceptor() {
+            @Override
+            public AppFactory appFactory(final Supplier<? extends AppFactory> singletons) {
+                seenByNext[0] = singletons.get().agent();
+                return null;
+            }
+        };
+
+        //when
+        final AppFactory appFactory = Interceptors.concat(first, next).appFactory(() -> () -> originalAgent);
+
+        //then
+        assertNull(appFactory);
+        assertSame(originalAgent, seenByNext[0]);
+    }
+
+    @Test
+    public void concatKeepsFirstInterceptionOfEveryFactory() {
+        //given
+        final AppFactory appFactory = mock(AppFactory.class);
+        final StateFactory stateFactory = mock(StateFactory.class);
+        final AgentStepFactory agentStepFactory = mock(AgentStepFactory.class);
+        final SequencerFactory sequencerFactory = mock(SequencerFactory.class);
+        final CommandPollerFactory commandPollerFactory = mock(CommandPollerFactory.class);
+        final CommandProcessorFactory commandProcessorFactory = mock(CommandProcessorFactory.class);
+        final ApplierFactory applierFactory = mock(ApplierFactory.class);
+        final InputFactory inputFactory = mock(InputFactory.class);
+        final OutputFactory outputFactory = mock(OutputFactory.class);
+        final PublisherFactory publisherFactory = mock(PublisherFactory.class);
+        final CommandSenderFactory commandSenderFactory = mock(CommandSenderFactory.class);
+        final EventSubscriberFactory eventSubscriberFactory = mock(EventSubscriberFactory.class);
+        final EventProcessorFactory eventProcessorFactory = mock(EventProcessorFactory.class);
+        final Interceptor first = new Interceptor() {
+            @Override
+            public AppFactory appFactory(final Supplier<? extends AppFactory> singletons) {
+                return appFactory;
+            }
+
+            @Override
+            public StateFactory stateFactory(final Supplier<? extends StateFactory> singletons) {
+                return stateFactory;
+            }
+
+            @Override
+            public AgentStepFactory agentStepFactory(final Supplier<? extends AgentStepFactory> singletons) {
+                return agentStepFactory;
+            }
+
+            @Override
+            public SequencerFactory sequencerFactory(final Supplier<? extends SequencerFactory> singletons) {
+                return sequencerFactory;
+            }
+
+            @Override
+            public CommandPollerFactory commandPollerFactory(final Supplier<? extends CommandPollerFactory> singletons) {
+                return commandPollerFactory;
+            }
+
+            @Override
+            public CommandProcessorFactory commandProcessorFactory(final Supplier<? extends CommandProcessorFactory> singletons) {
+                return commandProcessorFactory;
+            }
+
+            @Override
+            public ApplierFactory applierFactory(final Supplier<? extends ApplierFactory> singletons) {
+                return applierFactory;
+            }
+
+            @Override
+            public InputFactory inputFactory(final Supplier<? extends InputFactory> singletons) {
+                return inputFactory;
+            }
+
+            @Override
+            public OutputFactory outputFactory(final Supplier<? extends OutputFactory> singletons) {
+                return outputFactory;
+            }
+
+            @Override
+            public PublisherFactory publisherFactory(final Supplier<? extends PublisherFactory> singletons) {
+                return publisherFactory;
+            }
+
+            @Override
+            public CommandSenderFactory commandSenderFactory(final Supplier<? extends CommandSenderFactory> singletons) {
+                return commandSenderFactory;
+            }
+
+            @Override
+            public EventSubscriberFactory eventSubscriberFactory(final Supplier<? extends EventSubscriberFactory> singletons) {
+                return eventSubscriberFactory;
+            }
+
+            @Override
+            public EventProcessorFactory eventProcessorFactory(final Supplier<? extends EventProcessorFactory> singletons) {
+                return eventProcessorFactory;
+            }
+        };
+
+        //when
+        final Interceptor concat = Interceptors.concat(first, new Interceptor() {});
+
+        //then
+        assertSame(appFactory, concat.appFactory(() -> null));
+        assertSame(stateFactory, concat.stateFactory(() -> null));
+        assertSame(agentStepFactory, concat.agentStepFactory(() -> null));
+        assertSame(sequencerFactory, concat.sequencerFactory(() -> null));
+        assertSame(commandPollerFactory, concat.commandPollerFactory(() -> null));
+        assertSame(commandProcessorFactory, concat.commandProcessorFactory(() -> null));
+        assertSame(applierFactory, concat.applierFactory(() -> null));
+        assertSame(inputFactory, concat.inputFactory(() -> null));
+        assertSame(outputFactory, concat.outputFactory(() -> null));
+        assertSame(publisherFactory, concat.publisherFactory(() -> null));
+        assertSame(commandSenderFactory, concat.commandSenderFactory(() -> null));
+        assertSame(eventSubscriberFactory, concat.eventSubscriberFactory(() -> null));
+        assertSame(eventProcessorFactory, concat.eventProcessorFactory(() -> null));
+    }
+
+    @Test
+    public void concatWithNoopReturnsOtherInterceptor() {
+        //given
+        final Interceptor interceptor = new Interceptor() {};
+
+        //when + then
+        assertSame(interceptor, Interceptors.concat(Interceptor.NOOP, interceptor));
+        assertSame(interceptor, Interceptors.concat(interceptor, Interceptor.NOOP));
+    }
+}
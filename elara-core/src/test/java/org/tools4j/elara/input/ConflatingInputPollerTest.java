@@ -0,0 +1,192 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.input;
+
+import org.agrona.DirectBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.tools4j.elara.send.CommandSender;
+import org.tools4j.elara.source.CommandSource;
+import org.tools4j.elara.stream.SendingResult;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit test for {@link ConflatingInputPoller}
+ */
+public class ConflatingInputPollerTest {
+
+    private static final int PAYLOAD_TYPE = 7;
+
+    private Queue<long[]> upstream;
+    private List<long[]> sent;
+    private SendingResult sendingResult;
+    private CommandSender commandSender;
+
+    //under test
+    private ConflatingInputPoller conflatingPoller;
+
+    @BeforeEach
+    public void init() {
+        upstream = new ArrayDeque<>();
+        sent = new ArrayList<>();
+        sendingResult = SendingResult.SENT;
+        commandSender = new RecordingSender();
+        conflatingPoller = new ConflatingInputPoller((commandContext, sender) -> {
+            final long[] keyValue = upstream.peek();
+            if (keyValue == null) {
+                return 0;
+            }
+            try (final CommandSender.SendingContext context = sender.sendingCommand(PAYLOAD_TYPE)) {
+                context.buffer().putLong(0, keyValue[0]);
+                context.buffer().putLong(Long.BYTES, keyValue[1]);
+                if (context.send(2 * Long.BYTES) == SendingResult.SENT) {
+                    upstream.remove();
+                }
+            }
+            return 1;
+        }, (payloadType, buffer, offset, length) -> buffer.getLong(offset), 4, 2 * Long.BYTES);
+    }
+
+    @Test
+    public void shouldSendLatestValuePerKey() {
+        //given
+        add(1, 100);
+        add(2, 200);
+        add(1, 101);
+        add(3, 300);
+        add(1, 102);
+        add(2, 201);
+
+        //when
+        final int work = conflatingPoller.poll(null, commandSender);
+
+        //then
+        assertEquals(6 + 3, work, "work");
+        assertEquals(3, sent.size(), "sent.size");
+        assertKeyValue(1, 102, sent.get(0));
+        assertKeyValue(2, 201, sent.get(1));
+        assertKeyValue(3, 300, sent.get(2));
+        assertEquals(6, conflatingPoller.messagesReceived(), "messagesReceived");
+        assertEquals(3, conflatingPoller.messagesConflated(), "messagesConflated");
+        assertEquals(3, conflatingPoller.commandsSent(), "commandsSent");
+        assertEquals(0, conflatingPoller.pendingCommands(), "pendingCommands");
+    }
+
+    @Test
+    public void shouldRetainPendingCommandsWhenBackPressured() {
+        //given
+        add(1, 100);
+        add(2, 200);
+        sendingResult = SendingResult.BACK_PRESSURED;
+
+        //when
+        conflatingPoller.poll(null, commandSender);
+
+        //then
+        assertEquals(0, sent.size(), "sent.size");
+        assertEquals(2, conflatingPoller.pendingCommands(), "pendingCommands");
+
+        //when
+        add(2, 202);
+        add(1, 101);
+        sendingResult = SendingResult.SENT;
+        conflatingPoller.poll(null, commandSender);
+
+        //then
+        assertEquals(2, sent.size(), "sent.size");
+        assertKeyValue(1, 101, sent.get(0));
+        assertKeyValue(2, 202, sent.get(1));
+        assertEquals(0, conflatingPoller.pendingCommands(), "pendingCommands");
+    }
+
+    @Test
+    public void shouldBackPressureUpstreamWhenKeysExhausted() {
+        //given
+        for (int key = 1; key <= 6; key++) {
+            add(key, key * 100);
+        }
+
+        //when
+        conflatingPoller.poll(null, commandSender);
+
+        //then
+        assertEquals(4, sent.size(), "sent.size");
+        assertEquals(2, upstream.size(), "upstream.size");
+
+        //when
+        conflatingPoller.poll(null, commandSender);
+
+        //then
+        assertEquals(6, sent.size(), "sent.size");
+        assertKeyValue(5, 500, sent.get(4));
+        assertKeyValue(6, 600, sent.get(5));
+        assertEquals(0, upstream.size(), "upstream.size");
+    }
+
+    private void add(final long key, final long value) {
+        upstream.add(new long[] {key, value});
+    }
+
+    private static void assertKeyValue(final long key, final long value, final long[] actual) {
+        assertEquals(key, actual[0], "key");
+        assertEquals(value, actual[1], "value");
+    }
+
+    private final class RecordingSender implements CommandSender.Default {
+        @Override
+        public CommandSource source() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int sourceId() {
+            return 1;
+        }
+
+        @Override
+        public long nextCommandSequence() {
+            return sent.size() + 1;
+        }
+
+        @Override
+        public SendingResult sendCommand(final int payloadType, final DirectBuffer buffer, final int offset, final int length) {
+            assertEquals(PAYLOAD_TYPE, payloadType, "payloadType");
+            if (sendingResult == SendingResult.SENT) {
+                sent.add(new long[] {buffer.getLong(offset), buffer.getLong(offset + Long.BYTES)});
+            }
+            return sendingResult;
+        }
+
+        @Override
+        public SendingContext sendingCommand(final int payloadType) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
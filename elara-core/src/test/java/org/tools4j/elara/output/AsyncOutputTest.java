@@ -0,0 +1,187 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.output;
+
+import org.agrona.ExpandableArrayBuffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tools4j.elara.app.message.Event;
+import org.tools4j.elara.exception.ExceptionHandler;
+import org.tools4j.elara.flyweight.EventType;
+import org.tools4j.elara.flyweight.FlyweightEvent;
+import org.tools4j.elara.store.InMemoryStore;
+import org.tools4j.elara.store.MessageStore;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for {@link AsyncOutput}
+ */
+public class AsyncOutputTest {
+
+    private final List<Throwable> exceptions = new ArrayList<>();
+    private final ExceptionHandler exceptionHandler = (message, context, t) -> exceptions.add(t);
+
+    @Test
+    public void publishesEventsInOrder(@TempDir final Path tempDir) {
+        //given
+        final MessageStore eventStore = new InMemoryStore();
+        appendEvents(eventStore, 1, 5);
+        final RecordingOutput output = new RecordingOutput();
+        try (final OutputCheckpoint checkpoint = OutputCheckpoint.mapped(tempDir.resolve("out.cpt").toFile())) {
+            final AsyncOutput asyncOutput = new AsyncOutput("test", output, eventStore, checkpoint, exceptionHandler);
+
+            //when
+            while (asyncOutput.doWork() > 0);
+
+            //then
+            assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), output.published);
+            assertEquals(5, asyncOutput.publishedEventSequence());
+            assertEquals(0, asyncOutput.retryCount());
+            assertTrue(exceptions.isEmpty(), "exceptions: " + exceptions);
+        }
+    }
+
+    @Test
+    public void backsOffAfterRetry(@TempDir final Path tempDir) {
+        //given
+        final MessageStore eventStore = new InMemoryStore();
+        appendEvents(eventStore, 1, 3);
+        final RecordingOutput output = new RecordingOutput();
+        output.retriesBeforeCommit = 1;
+        try (final OutputCheckpoint checkpoint = OutputCheckpoint.mapped(tempDir.resolve("out.cpt").toFile())) {
+            final AsyncOutput asyncOutput = new AsyncOutput("test", output, eventStore, checkpoint, exceptionHandler,
+                    TimeUnit.HOURS.toNanos(1), TimeUnit.HOURS.toNanos(1), AsyncOutput.DEFAULT_MAX_RETRIES);
+
+            //when
+            asyncOutput.doWork();
+            final int workDuringBackoff = asyncOutput.doWork();
+
+            //then
+            assertEquals(0, workDuringBackoff);
+            assertEquals(1, output.attempts);
+            assertEquals(1, asyncOutput.retryCount());
+            assertTrue(output.published.isEmpty());
+        }
+    }
+
+    @Test
+    public void skipsEventAfterMaxRetries(@TempDir final Path tempDir) {
+        //given
+        final MessageStore eventStore = new InMemoryStore();
+        appendEvents(eventStore, 1, 3);
+        final RecordingOutput output = new RecordingOutput();
+        output.retriesBeforeCommit = Integer.MAX_VALUE;
+        output.retrySequence = 2;
+        try (final OutputCheckpoint checkpoint = OutputCheckpoint.mapped(tempDir.resolve("out.cpt").toFile())) {
+            final AsyncOutput asyncOutput = new AsyncOutput("test", output, eventStore, checkpoint, exceptionHandler,
+                    1, 1, 2);
+
+            //when
+            while (asyncOutput.publishedEventSequence() < 3) {
+                asyncOutput.doWork();
+            }
+
+            //then
+            assertEquals(Arrays.asList(1L, 3L), output.published);
+            assertEquals(2, asyncOutput.retryCount());
+            assertEquals(1, asyncOutput.failureCount());
+            assertEquals(1, exceptions.size());
+        }
+    }
+
+    @Test
+    public void resumesFromCheckpoint(@TempDir final Path tempDir) {
+        //given
+        final File file = tempDir.resolve("out.cpt").toFile();
+        final MessageStore eventStore = new InMemoryStore();
+        appendEvents(eventStore, 1, 3);
+        try (final OutputCheckpoint checkpoint = OutputCheckpoint.mapped(file)) {
+            final AsyncOutput asyncOutput = new AsyncOutput("test", new RecordingOutput(), eventStore, checkpoint,
+                    exceptionHandler);
+            while (asyncOutput.doWork() > 0);
+        }
+        appendEvents(eventStore, 4, 5);
+
+        //when
+        final RecordingOutput output = new RecordingOutput();
+        try (final OutputCheckpoint checkpoint = OutputCheckpoint.mapped(file)) {
+            final AsyncOutput asyncOutput = new AsyncOutput("test", output, eventStore, checkpoint, exceptionHandler);
+            while (asyncOutput.doWork() > 0);
+        }
+
+        //then
+        assertEquals(Arrays.asList(4L, 5L), output.published);
+    }
+
+    @Test
+    public void requiresCheckpointIfStoreCannotTrackPosition() {
+        //given
+        final MessageStore eventStore = new InMemoryStore();
+
+        //when + then
+        assertThrows(IllegalArgumentException.class,
+                () -> new AsyncOutput("test", new RecordingOutput(), eventStore, exceptionHandler));
+    }
+
+    static void appendEvents(final MessageStore eventStore, final long fromSequence, final long toSequence) {
+        final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer();
+        try (final MessageStore.Appender appender = eventStore.appender()) {
+            for (long seq = fromSequence; seq <= toSequence; seq++) {
+                final int length = FlyweightEvent.writeHeader(EventType.APP_COMMIT, 1, seq, (short)0, seq, seq, 0, 0,
+                        buffer, 0);
+                appender.append(buffer, 0, length);
+            }
+        }
+    }
+
+    static final class RecordingOutput implements Output {
+        static final long NIL_RETRY_SEQUENCE = -1;
+        final List<Long> published = new ArrayList<>();
+        long retrySequence = NIL_RETRY_SEQUENCE;
+        int retriesBeforeCommit;
+        int attempts;
+
+        @Override
+        public Ack publish(final Event event, final boolean replay, final int retry) {
+            attempts++;
+            final boolean retrySequenceMatches = retrySequence == NIL_RETRY_SEQUENCE ||
+                    retrySequence == event.eventSequence();
+            if (retrySequenceMatches && retry < retriesBeforeCommit) {
+                return Ack.RETRY;
+            }
+            published.add(event.eventSequence());
+            return Ack.COMMIT;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.output;
+
+import org.agrona.concurrent.BackoffIdleStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tools4j.elara.exception.ExceptionHandler;
+import org.tools4j.elara.flyweight.FlyweightEvent;
+import org.tools4j.elara.output.AsyncOutputTest.RecordingOutput;
+import org.tools4j.elara.run.ElaraRunner;
+import org.tools4j.elara.store.InMemoryStore;
+import org.tools4j.elara.store.MessageStore;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.tools4j.elara.output.AsyncOutputTest.appendEvents;
+
+/**
+ * Unit test for {@link AsyncOutputs}
+ */
+public class AsyncOutputsTest {
+
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    @Test
+    public void lagIsDerivedFromEngineAndPublishedSequence(@TempDir final Path tempDir) {
+        //given
+        final MessageStore eventStore = new InMemoryStore();
+        appendEvents(eventStore, 1, 4);
+        final ExceptionHandler exceptionHandler = ExceptionHandler.systemDefault();
+        try (final OutputCheckpoint fastCheckpoint = OutputCheckpoint.mapped(tempDir.resolve("fast.cpt").toFile());
+             final OutputCheckpoint slowCheckpoint = OutputCheckpoint.mapped(tempDir.resolve("slow.cpt").toFile())) {
+            final AsyncOutput fast = new AsyncOutput("fast", new RecordingOutput(), eventStore, fastCheckpoint,
+                    exceptionHandler);
+            final AsyncOutput slow = new AsyncOutput("slow", new RecordingOutput(), eventStore, slowCheckpoint,
+                    exceptionHandler);
+            final AsyncOutputs outputs = new AsyncOutputs(fast, slow);
+            try (final MessageStore.Poller poller = eventStore.poller()) {
+                while (poller.poll(message -> {
+                    final FlyweightEvent event = new FlyweightEvent().wrap(message, 0);
+                    outputs.engineOutput().publish(event, false, 0);
+                    return MessageStore.Handler.Result.POLL;
+                }) > 0);
+            }
+
+            //when
+            while (fast.doWork() > 0);
+            slow.doWork();
+
+            //then
+            assertEquals(4, outputs.engineEventSequence());
+            assertEquals(0, outputs.lag(0));
+            assertEquals(3, outputs.lag(1));
+        }
+    }
+
+    @Test
+    public void publishesOnSharedThread(@TempDir final Path tempDir) {
+        //given
+        final MessageStore eventStore = new InMemoryStore();
+        appendEvents(eventStore, 1, 10);
+        final RecordingOutput first = new RecordingOutput();
+        final RecordingOutput second = new RecordingOutput();
+        final ExceptionHandler exceptionHandler = ExceptionHandler.systemDefault();
+        try (final OutputCheckpoint firstCheckpoint = OutputCheckpoint.mapped(tempDir.resolve("first.cpt").toFile());
+             final OutputCheckpoint secondCheckpoint = OutputCheckpoint.mapped(tempDir.resolve("second.cpt").toFile())) {
+            final AsyncOutputs outputs = new AsyncOutputs(
+                    new AsyncOutput("first", first, eventStore, firstCheckpoint, exceptionHandler),
+                    new AsyncOutput("second", second, eventStore, secondCheckpoint, exceptionHandler)
+            );
+
+            //when
+            final ElaraRunner runner = outputs.launchShared(new BackoffIdleStrategy(), exceptionHandler);
+            try {
+                final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+                while ((outputs.output(0).publishedEventSequence() < 10 ||
+                        outputs.output(1).publishedEventSequence() < 10) && System.currentTimeMillis() < deadline) {
+                    Thread.yield();
+                }
+            } finally {
+                runner.close();
+            }
+
+            //then
+            assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), first.published);
+            assertEquals(first.published, second.published);
+        }
+    }
+}
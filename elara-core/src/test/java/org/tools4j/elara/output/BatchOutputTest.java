@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.output;
+
+import org.junit.jupiter.api.Test;
+import org.tools4j.elara.app.message.Event;
+import org.tools4j.elara.composite.CompositeOutput;
+import org.tools4j.elara.exception.ExceptionHandler;
+import org.tools4j.elara.output.Output.Ack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for {@link BatchOutput} notifications, also through {@link CompositeOutput}.
+ */
+public class BatchOutputTest {
+
+    private final List<Throwable> exceptions = new ArrayList<>();
+    private final ExceptionHandler exceptionHandler = (message, context, t) -> exceptions.add(t);
+
+    @Test
+    public void notifyIgnoresNonBatchOutput() {
+        //given
+        final Output output = (event, replay, retry) -> Ack.COMMIT;
+
+        //when
+        BatchOutput.notifyBatchStart(output, exceptionHandler);
+        BatchOutput.notifyBatchEnd(output, 3, exceptionHandler);
+
+        //then
+        assertTrue(exceptions.isEmpty());
+    }
+
+    @Test
+    public void notifyPassesExceptionsToHandler() {
+        //given
+        final RecordingBatchOutput output = new RecordingBatchOutput(8);
+        output.failing = true;
+
+        //when
+        BatchOutput.notifyBatchStart(output, exceptionHandler);
+        BatchOutput.notifyBatchEnd(output, 3, exceptionHandler);
+
+        //then
+        assertEquals(2, exceptions.size());
+    }
+
+    @Test
+    public void compositeForwardsBatchesToBatchOutputs() {
+        //given
+        final RecordingBatchOutput failing = new RecordingBatchOutput(4);
+        final RecordingBatchOutput working = new RecordingBatchOutput(16);
+        failing.failing = true;
+        final Output composite = CompositeOutput.create(new Output[]{
+                failing, (event, replay, retry) -> Ack.COMMIT, working
+        }, exceptionHandler);
+
+        //when
+        BatchOutput.notifyBatchStart(composite, exceptionHandler);
+        BatchOutput.notifyBatchEnd(composite, 5, exceptionHandler);
+
+        //then
+        assertEquals(16, BatchOutput.maxBatchSize(composite));
+        assertEquals(1, working.batchStarts);
+        assertEquals(Arrays.asList(5), working.batches);
+        assertEquals(2, exceptions.size());
+    }
+
+    private static final class RecordingBatchOutput implements BatchOutput {
+        final int maxBatchSize;
+        final List<Integer> batches = new ArrayList<>();
+        int batchStarts;
+        boolean failing;
+
+        RecordingBatchOutput(final int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        @Override
+        public Ack publish(final Event event, final boolean replay, final int retry) {
+            return Ack.COMMIT;
+        }
+
+        @Override
+        public void onBatchStart() {
+            if (failing) {
+                throw new IllegalStateException("batch start failed");
+            }
+            batchStarts++;
+        }
+
+        @Override
+        public void onBatchEnd(final int batchSize) {
+            if (failing) {
+                throw new IllegalStateException("batch end failed");
+            }
+            batches.add(batchSize);
+        }
+
+        @Override
+        public int maxBatchSize() {
+            return maxBatchSize;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.activation;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.MutableInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tools4j.elara.plugin.activation.CommandCache.OverflowPolicy;
+import org.tools4j.elara.stream.MessageSender;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.tools4j.elara.stream.SendingResult.BACK_PRESSURED;
+import static org.tools4j.elara.stream.SendingResult.CLOSED;
+import static org.tools4j.elara.stream.SendingResult.SENT;
+
+/**
+ * Unit test for {@link CommandCache}.
+ */
+class CommandCacheTest {
+
+    private static final int CAPACITY = 128;
+    private static final int MESSAGE_LENGTH = 20;//record length 24 bytes with alignment
+
+    private final MutableDirectBuffer message = new ExpandableArrayBuffer(MESSAGE_LENGTH);
+
+    @Test
+    public void overwritePolicyDiscardsOldestCommands(@TempDir final Path tempDir) {
+        //given
+        final List<Integer> polled = new ArrayList<>();
+        try (final CommandCache cache = CommandCache.map(tempDir.resolve("cache.map").toFile(), CAPACITY,
+                OverflowPolicy.OVERWRITE)) {
+            final MessageSender sender = cache.sender();
+
+            //when
+            for (int i = 0; i < 12; i++) {
+                assertEquals(SENT, sender.sendMessage(message(i), 0, MESSAGE_LENGTH), "result[" + i + "]");
+            }
+            final int count = cache.receiver().poll(msg -> polled.add(msg.getInt(0)));
+
+            //then
+            assertEquals(polled.size(), count, "count");
+            assertTrue(count >= CAPACITY / 24 - 1, "count >= " + (CAPACITY / 24 - 1));
+            assertEquals(11, polled.get(polled.size() - 1), "last");
+            for (int i = 1; i < polled.size(); i++) {
+                assertEquals(polled.get(i - 1) + 1, polled.get(i), "polled[" + i + "]");
+            }
+            assertEquals(12 - count, cache.overwrittenCount(), "overwrittenCount");
+            assertTrue(cache.isEmpty(), "isEmpty");
+        }
+    }
+
+    @Test
+    public void rejectPolicyBackPressuresSender() {
+        //given
+        try (final CommandCache cache = CommandCache.allocate(CAPACITY, OverflowPolicy.REJECT)) {
+            final MessageSender sender = cache.sender();
+            for (int i = 0; i < CAPACITY / 24; i++) {
+                assertEquals(SENT, sender.sendMessage(message(i), 0, MESSAGE_LENGTH), "result[" + i + "]");
+            }
+
+            //when + then
+            assertEquals(BACK_PRESSURED, sender.sendMessage(message(99), 0, MESSAGE_LENGTH));
+            assertEquals(1, cache.rejectedCount(), "rejectedCount");
+            assertEquals(0, cache.overwrittenCount(), "overwrittenCount");
+            assertThrows(IllegalArgumentException.class, () -> sender.sendMessage(message, 0, CAPACITY));
+
+            //when
+            final MutableInteger next = new MutableInteger();
+            final int drained = cache.poll(msg -> msg.getInt(0) == next.value++, 2);
+
+            //then
+            assertEquals(2, drained, "drained");
+            assertEquals(SENT, sender.sendMessage(message(5), 0, MESSAGE_LENGTH));
+        }
+    }
+
+    @Test
+    public void closedCacheRejectsMessages() {
+        //given
+        final CommandCache cache = CommandCache.allocate(CAPACITY, OverflowPolicy.REJECT);
+        final MessageSender sender = cache.sender();
+        assertEquals(SENT, sender.sendMessage(message(1), 0, MESSAGE_LENGTH));
+
+        //when
+        cache.close();
+
+        //then
+        assertEquals(CLOSED, sender.sendMessage(message(2), 0, MESSAGE_LENGTH));
+        assertEquals(CLOSED, cache.sender().sendMessage(message(3), 0, MESSAGE_LENGTH));
+    }
+
+    @Test
+    public void pollRetainsCommandsNotConsumed() {
+        //given
+        try (final CommandCache cache = CommandCache.allocate(CAPACITY, OverflowPolicy.REJECT)) {
+            final List<Integer> consumed = new ArrayList<>();
+            for (int round = 0; round < 10; round++) {
+                for (int i = 0; i < 3; i++) {
+                    assertEquals(SENT, cache.sender().sendMessage(message(round * 3 + i), 0, MESSAGE_LENGTH));
+                }
+
+                //when
+                final int last = round * 3 + 2;
+                final int first = cache.poll(msg -> msg.getInt(0) != last && consumed.add(msg.getInt(0)), 10);
+                final int rest = cache.poll(msg -> consumed.add(msg.getInt(0)), 10);
+
+                //then
+                assertEquals(2, first, "first");
+                assertEquals(1, rest, "rest");
+                assertTrue(cache.isEmpty(), "isEmpty");
+            }
+            for (int i = 0; i < consumed.size(); i++) {
+                assertEquals(i, consumed.get(i), "consumed[" + i + "]");
+            }
+        }
+    }
+
+    private DirectBuffer message(final int value) {
+        message.setMemory(0, MESSAGE_LENGTH, (byte)0);
+        message.putInt(0, value);
+        return message;
+    }
+}
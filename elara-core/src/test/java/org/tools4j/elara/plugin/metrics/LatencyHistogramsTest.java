@@ -0,0 +1,184 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+import org.tools4j.elara.flyweight.FlyweightHistogramMetrics;
+import org.tools4j.elara.flyweight.FlyweightMetricsFrame;
+import org.tools4j.elara.store.InMemoryStore;
+import org.tools4j.elara.store.MessageStore.Handler.Result;
+import org.tools4j.elara.store.MessageStore.Poller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.tools4j.elara.plugin.metrics.LatencyMetric.COMMAND_PROCESSING_LATENCY;
+import static org.tools4j.elara.plugin.metrics.LatencyMetric.EVENT_APPLYING_LATENCY;
+import static org.tools4j.elara.plugin.metrics.TimeMetric.APPLYING_END_TIME;
+import static org.tools4j.elara.plugin.metrics.TimeMetric.APPLYING_START_TIME;
+import static org.tools4j.elara.plugin.metrics.TimeMetric.PROCESSING_END_TIME;
+import static org.tools4j.elara.plugin.metrics.TimeMetric.PROCESSING_START_TIME;
+import static org.tools4j.elara.plugin.metrics.TimeMetric.Target.COMMAND;
+import static org.tools4j.elara.plugin.metrics.TimeMetric.Target.EVENT;
+import static org.tools4j.elara.plugin.metrics.TimeMetric.Target.OUTPUT;
+
+/**
+ * Unit test for {@link LatencyHistograms} and {@link LatencyHistogramWriterStep}.
+ */
+class LatencyHistogramsTest {
+
+    @Test
+    public void recordAndWriteHistograms() {
+        //given
+        final InMemoryStore store = new InMemoryStore();
+        final MetricsConfig config = MetricsConfig.configure()
+                .latencyMetrics(COMMAND_PROCESSING_LATENCY, EVENT_APPLYING_LATENCY)
+                .latencyHistograms(100)
+                .timeMetricsStore(store);
+        final MetricsState state = new DefaultMetricsState();
+        final LatencyHistograms histograms = new LatencyHistograms(config, state);
+        final long[] time = {1000};
+        final LatencyHistogramWriterStep step = new LatencyHistogramWriterStep(() -> time[0], config, histograms);
+
+        //when
+        step.doWork();
+        for (int i = 0; i < 10; i++) {
+            state.time(PROCESSING_START_TIME, 1000 + i);
+            state.time(PROCESSING_END_TIME, 1000 + i + 250);
+            assertEquals(1, histograms.record(COMMAND), "record(COMMAND)");
+        }
+        state.clear(PROCESSING_END_TIME);
+
+        //then
+        assertEquals(0, histograms.record(COMMAND), "record(COMMAND) with missing end time");
+        assertEquals(0, histograms.record(EVENT), "record(EVENT) without captured times");
+        assertEquals(0, histograms.record(OUTPUT), "record(OUTPUT) without latency metrics");
+        assertEquals(2, histograms.count(), "count");
+        assertNull(histograms.histogram(LatencyMetric.INPUT_TO_OUTPUT_LATENCY), "histogram(out-inp)");
+
+        //when
+        time[0] += 99;
+        assertEquals(0, step.doWork(), "doWork() before interval end");
+        time[0] += 1;
+        assertEquals(1, step.doWork(), "doWork() at interval end");
+
+        //then
+        final List<DirectBuffer> messages = messages(store);
+        assertEquals(1, messages.size(), "messages.size");
+        final FlyweightHistogramMetrics frame = new FlyweightHistogramMetrics().wrap(messages.get(0), 0);
+        assertEquals(COMMAND_PROCESSING_LATENCY, frame.latencyMetric(), "latencyMetric");
+        assertEquals(0, frame.iteration(), "iteration");
+        assertEquals(100, frame.interval(), "interval");
+        assertEquals(1000, frame.startTime(), "startTime");
+        assertEquals(1100, frame.metricTime(), "metricTime");
+        final Histogram histogram = frame.decodeHistogram();
+        assertEquals(10, histogram.getTotalCount(), "histogram.totalCount");
+        assertEquals(250, histogram.getMinValue(), "histogram.minValue");
+        assertEquals(250, histogram.getMaxValue(), "histogram.maxValue");
+        assertEquals(0, histograms.histogram(COMMAND_PROCESSING_LATENCY).getTotalCount(), "reset after write");
+        final FlyweightMetricsFrame metricsFrame = new FlyweightMetricsFrame().wrap(messages.get(0), 0);
+        assertEquals(MetricType.HISTOGRAM, metricsFrame.metricType(), "metricsFrame.metricType");
+        assertTrue(metricsFrame.hasMetric(COMMAND_PROCESSING_LATENCY), "metricsFrame.hasMetric");
+    }
+
+    @Test
+    public void recordAndWriteHistogramsByPayloadType() {
+        //given
+        final int transfer = 7;
+        final int deposit = 8;
+        final int other = 9;
+        final InMemoryStore store = new InMemoryStore();
+        final MetricsConfig config = MetricsConfig.configure()
+                .latencyMetrics(COMMAND_PROCESSING_LATENCY)
+                .latencyHistograms(100)
+                .payloadTypes(transfer, deposit)
+                .timeMetricsStore(store);
+        final MetricsState state = new DefaultMetricsState();
+        final LatencyHistograms histograms = new LatencyHistograms(config, state);
+        final long[] time = {1000};
+        final LatencyHistogramWriterStep step = new LatencyHistogramWriterStep(() -> time[0], config, histograms);
+
+        //when
+        step.doWork();
+        state.time(PROCESSING_START_TIME, 1000);
+        state.time(PROCESSING_END_TIME, 1500);
+        histograms.record(COMMAND, transfer);
+        state.time(PROCESSING_END_TIME, 1010);
+        histograms.record(COMMAND, deposit);
+        histograms.record(COMMAND, deposit);
+        histograms.record(COMMAND, other);
+        time[0] += 100;
+        step.doWork();
+
+        //then
+        final List<DirectBuffer> messages = messages(store);
+        assertEquals(3, messages.size(), "messages.size");
+        final FlyweightHistogramMetrics frame = new FlyweightHistogramMetrics();
+        final int[] expectedTypes = {transfer, deposit};
+        final long[] expectedCounts = {1, 2, 1};
+        for (int i = 0; i < messages.size(); i++) {
+            frame.wrap(messages.get(i), 0);
+            assertEquals(i < 2, frame.hasPayloadType(), "hasPayloadType[" + i + "]");
+            if (i < 2) {
+                assertEquals(expectedTypes[i], frame.payloadType(), "payloadType[" + i + "]");
+            }
+            assertEquals(expectedCounts[i], frame.decodeHistogram().getTotalCount(), "totalCount[" + i + "]");
+        }
+        frame.wrap(messages.get(0), 0);
+        assertEquals(500, frame.decodeHistogram().getMaxValue(), "transfer maxValue");
+    }
+
+    @Test
+    public void noLatencyMetrics() {
+        //given
+        final MetricsConfig config = MetricsConfig.configure()
+                .timeMetrics(PROCESSING_START_TIME, APPLYING_END_TIME)
+                .latencyHistograms(100)
+                .timeMetricsStore(new InMemoryStore());
+
+        //when + then
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistograms(config, new DefaultMetricsState()));
+        config.timeMetrics().add(APPLYING_START_TIME);
+        assertEquals(1, new LatencyHistograms(config, new DefaultMetricsState()).count());
+    }
+
+    private static List<DirectBuffer> messages(final InMemoryStore store) {
+        final List<DirectBuffer> messages = new ArrayList<>();
+        final Poller poller = store.poller();
+        while (poller.poll(message -> {
+            final byte[] bytes = new byte[message.capacity()];
+            message.getBytes(0, bytes);
+            messages.add(new UnsafeBuffer(bytes));
+            return Result.POLL;
+        }) > 0);
+        return messages;
+    }
+}
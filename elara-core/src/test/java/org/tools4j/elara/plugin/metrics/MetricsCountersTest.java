@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.metrics;
+
+import org.agrona.collections.Object2LongHashMap;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.status.CountersReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tools4j.elara.app.state.DefaultBaseState;
+import org.tools4j.elara.flyweight.EventType;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.tools4j.elara.app.state.BaseState.NIL_SEQUENCE;
+import static org.tools4j.elara.plugin.metrics.FrequencyMetric.COMMAND_PROCESSED_FREQUENCY;
+import static org.tools4j.elara.plugin.metrics.FrequencyMetric.EVENT_APPLIED_FREQUENCY;
+import static org.tools4j.elara.plugin.metrics.FrequencyMetric.OUTPUT_PUBLISHED_FREQUENCY;
+import static org.tools4j.elara.plugin.metrics.MetricsCounters.Gauge.LAST_APPLIED_EVENT_SEQUENCE;
+import static org.tools4j.elara.plugin.metrics.MetricsCounters.Gauge.MAX_AVAILABLE_EVENT_SEQUENCE;
+
+/**
+ * Unit test for {@link MetricsCounters} and {@link MetricsCountersStep}.
+ */
+class MetricsCountersTest {
+
+    @Test
+    public void countersClosedWhenAgentIsClosed(@TempDir final Path tempDir) {
+        //given
+        final File file = tempDir.resolve("metrics.cnt").toFile();
+        final MetricsCounters counters = MetricsCounters.create(file, EnumSet.of(COMMAND_PROCESSED_FREQUENCY));
+        final MetricsConfig config = MetricsConfig.configure()
+                .frequencyMetrics(COMMAND_PROCESSED_FREQUENCY)
+                .countersFile(file);
+        final MetricsCapturingInterceptor interceptor = new MetricsCapturingInterceptor(
+                () -> 0, config, new DefaultMetricsState(), null, counters);
+        final Agent appAgent = new Agent() {
+            @Override
+            public int doWork() {
+                return 0;
+            }
+
+            @Override
+            public String roleName() {
+                return "app";
+            }
+        };
+        final Agent agent = interceptor.appFactory(() -> () -> appAgent).agent();
+
+        //when
+        agent.onClose();
+
+        //then
+        assertTrue(counters.isClosed(), "counters.isClosed");
+    }
+
+    @Test
+    public void countersAreVisibleToReader(@TempDir final Path tempDir) {
+        //given
+        final File file = tempDir.resolve("metrics.cnt").toFile();
+        final DefaultBaseState baseState = new DefaultBaseState();
+        try (final MetricsCounters counters = MetricsCounters.create(file,
+                EnumSet.of(COMMAND_PROCESSED_FREQUENCY, EVENT_APPLIED_FREQUENCY))) {
+            final MetricsCountersStep step = new MetricsCountersStep(baseState, counters);
+
+            //when
+            counters.count(COMMAND_PROCESSED_FREQUENCY, 3);
+            counters.count(COMMAND_PROCESSED_FREQUENCY, 2);
+            counters.count(EVENT_APPLIED_FREQUENCY, 7);
+            counters.count(OUTPUT_PUBLISHED_FREQUENCY, 11);
+            baseState.onEvent(1, 22, 42, 0, EventType.APP_COMMIT, 1234, 0, 0);
+            final int workDone = step.doWork();
+
+            //then
+            assertEquals(0, workDone, "workDone");
+            assertEquals(5, counters.counter(COMMAND_PROCESSED_FREQUENCY));
+            assertEquals(0, counters.counter(OUTPUT_PUBLISHED_FREQUENCY));
+            final Object2LongHashMap<String> values = read(MetricsCounters.reader(file));
+            assertEquals(5, values.getValue(COMMAND_PROCESSED_FREQUENCY.displayName()));
+            assertEquals(7, values.getValue(EVENT_APPLIED_FREQUENCY.displayName()));
+            assertFalse(values.containsKey(OUTPUT_PUBLISHED_FREQUENCY.displayName()));
+            assertEquals(42, values.getValue(LAST_APPLIED_EVENT_SEQUENCE.displayName()));
+            assertEquals(NIL_SEQUENCE, values.getValue(MAX_AVAILABLE_EVENT_SEQUENCE.displayName()));
+            assertEquals(2 + MetricsCounters.Gauge.length(), values.size());
+        }
+    }
+
+    @Test
+    public void readerRejectsInvalidFile(@TempDir final Path tempDir) throws Exception {
+        //given
+        final File file = tempDir.resolve("invalid.cnt").toFile();
+        Files.write(file.toPath(), new byte[MetricsCounters.HEADER_LENGTH]);
+
+        //when + then
+        assertThrows(IllegalStateException.class, () -> MetricsCounters.reader(file));
+    }
+
+    private static Object2LongHashMap<String> read(final CountersReader reader) {
+        final Object2LongHashMap<String> values = new Object2LongHashMap<>(Long.MIN_VALUE);
+        reader.forEach((value, counterId, label) -> values.put(label, value));
+        return values;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for {@link TimeMetricsSampler} and {@link TimeBudgetedSampler}.
+ */
+class TimeMetricsSamplerTest {
+
+    @Test
+    public void oneInSamplesConsistently() {
+        //given
+        final int n = 100;
+        final int commands = 100_000;
+        final TimeMetricsSampler sampler = TimeMetricsSampler.oneIn(n);
+        int sampled = 0;
+
+        //when
+        for (long seq = 1; seq <= commands; seq++) {
+            final boolean sample = sampler.sample(7, seq);
+            assertEquals(sample, sampler.sample(7, seq), "decision for seq " + seq);
+            if (sample) {
+                sampled++;
+            }
+        }
+
+        //then
+        assertSame(TimeMetricsSampler.ALL, TimeMetricsSampler.oneIn(1));
+        assertTrue(sampled > commands / n / 2 && sampled < commands / n * 2, "sampled=" + sampled);
+    }
+
+    @Test
+    public void sourcesSamplesOnlyGivenSources() {
+        //given
+        final TimeMetricsSampler sampler = TimeMetricsSampler.sources(3, 5);
+
+        //when + then
+        assertTrue(sampler.sample(3, 1));
+        assertTrue(sampler.sample(5, 2));
+        assertFalse(sampler.sample(4, 3));
+        assertTrue(sampler.and(TimeMetricsSampler.ALL).sample(5, 4));
+        assertFalse(sampler.and((sourceId, sourceSeq) -> false).sample(5, 4));
+    }
+
+    @Test
+    public void budgetedSamplesAtMostMaxPerIntervalConsistently() {
+        //given
+        final long[] time = {1000};
+        final TimeMetricsSampler sampler = TimeMetricsSampler.budgeted(() -> time[0], 100, 2);
+
+        //when + then
+        assertTrue(sampler.sample(1, 10), "first command in interval");
+        assertTrue(sampler.sample(2, 20), "second command in interval");
+        assertFalse(sampler.sample(1, 11), "budget exhausted");
+        time[0] += 50;
+        assertTrue(sampler.sample(1, 10), "sampled command chain remains sampled");
+        assertFalse(sampler.sample(1, 11), "unsampled command chain remains unsampled");
+        assertFalse(sampler.sample(1, 12), "budget still exhausted");
+        time[0] += 50;
+        assertTrue(sampler.sample(1, 13), "budget renewed in next interval");
+        assertFalse(sampler.sample(1, 12), "decided command remains unsampled");
+        assertTrue(sampler.sample(2, 20), "sampled command chain remains sampled");
+    }
+}
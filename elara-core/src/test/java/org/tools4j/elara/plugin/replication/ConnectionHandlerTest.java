@@ -0,0 +1,411 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.AgentTerminationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tools4j.elara.app.state.DefaultBaseState;
+import org.tools4j.elara.flyweight.EventType;
+import org.tools4j.elara.flyweight.FlyweightEvent;
+import org.tools4j.elara.store.InMemoryStore;
+import org.tools4j.elara.store.MessageStore;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.tools4j.elara.logging.OutputStreamLogger.SYSTEM_FACTORY;
+
+/**
+ * Unit test for {@link ConnectionHandler}.
+ */
+class ConnectionHandlerTest {
+
+    static final int LEADER = 1;
+    static final int FOLLOWER = 2;
+    static final int OTHER = 3;
+    static final int TERM = 1;
+
+    private MessageStore eventStore;
+    private DefaultBaseState baseState;
+    private DefaultReplicationState state;
+    private List<String> responses;
+    private long nanoTime;
+
+    @BeforeEach
+    void init() {
+        eventStore = new InMemoryStore();
+        baseState = new DefaultBaseState();
+        state = new DefaultReplicationState();
+        state.term(TERM).leaderId(LEADER);
+        responses = new ArrayList<>();
+    }
+
+    @Test
+    void followerAcknowledgesAllEventsAppendedSoFar() {
+        //given
+        final ConnectionHandler handler = connectionHandler(FOLLOWER);
+
+        //when
+        receive(handler, LEADER, appendRequest(TERM, 0, -1, 1, 3));
+        receive(handler, LEADER, appendRequest(TERM, 2, -1, 3, 6));
+
+        //then
+        assertEquals(5, state.appendedEventStoreSize(), "state.appendedEventStoreSize");
+        assertEquals(Arrays.asList("1->1:2:true", "1->1:5:true"), responses);
+
+        //when
+        receive(handler, LEADER, appendRequest(TERM, 3, -1, 4, 7));
+
+        //then
+        assertEquals(6, state.appendedEventStoreSize(), "state.appendedEventStoreSize");
+        assertEquals("1->1:6:true", responses.get(2));
+        assertEquals(6, countEvents(eventStore), "events");
+    }
+
+    @Test
+    void followerRejectsRequestBeyondStoreSize() {
+        //given
+        final ConnectionHandler handler = connectionHandler(FOLLOWER);
+        receive(handler, LEADER, appendRequest(TERM, 0, -1, 1, 3));
+
+        //when
+        receive(handler, LEADER, appendRequest(TERM, 4, -1, 5, 7));
+
+        //then
+        assertEquals(2, state.appendedEventStoreSize(), "state.appendedEventStoreSize");
+        assertEquals(Arrays.asList("1->1:2:true", "1->1:2:false"), responses);
+        assertEquals(2, countEvents(eventStore), "events");
+    }
+
+    @Test
+    void followerRecordsEventsAppendedBeforeAlreadyAppliedEventOfBatch() {
+        //given
+        final ConnectionHandler handler = connectionHandler(FOLLOWER);
+        baseState.onEvent(42, 2, 2, 0, EventType.AUTO_COMMIT, 123L, 7, 0);
+
+        //when
+        receive(handler, LEADER, appendRequestWithSequences(TERM, 0, -1, 5, 1, 6));
+
+        //then
+        assertEquals(1, state.appendedEventStoreSize(), "state.appendedEventStoreSize");
+        assertEquals(Arrays.asList("1->1:1:false"), responses);
+        assertEquals(1, countEvents(eventStore), "events");
+
+        //when
+        nanoTime += 100;
+        receive(handler, LEADER, appendRequestWithSequences(TERM, 1, -1, 6, 7));
+
+        //then
+        assertEquals(3, state.appendedEventStoreSize(), "state.appendedEventStoreSize");
+        assertEquals("1->1:3:true", responses.get(1));
+        assertEquals(3, countEvents(eventStore), "events");
+    }
+
+    @Test
+    void followerAdoptsLeaderCommittedIndexUpToOwnStore() {
+        //given
+        final ConnectionHandler handler = connectionHandler(FOLLOWER);
+
+        //when
+        receive(handler, LEADER, appendRequest(TERM, 0, 10, 1, 4));
+
+        //then
+        assertEquals(2, state.committedEventStoreIndex(), "committedEventStoreIndex capped at store");
+
+        //when
+        receive(handler, LEADER, appendRequest(TERM, 3, 1, 4, 4));
+
+        //then
+        assertEquals(2, state.committedEventStoreIndex(), "committedEventStoreIndex after stale heartbeat");
+
+        //when
+        receive(handler, LEADER, appendRequest(TERM, 5, 8, 6, 7));
+
+        //then
+        assertEquals(2, state.committedEventStoreIndex(), "committedEventStoreIndex after rejected request");
+
+        //when
+        receive(handler, LEADER, appendRequest(TERM, 3, 4, 4, 6));
+
+        //then
+        assertEquals(4, state.committedEventStoreIndex(), "committedEventStoreIndex");
+        assertEquals(Arrays.asList("1->1:3:true", "1->1:3:true", "1->1:3:false", "1->1:5:true"), responses);
+    }
+
+    @Test
+    void leaderConfirmsCumulativeAcknowledgements() {
+        //given
+        final ConnectionHandler handler = connectionHandler(LEADER);
+        state.nextEventStoreIndex(FOLLOWER, 8);
+        final FollowerWindow window = new FollowerWindow(4, new DefaultReplicationMetrics.Follower(FOLLOWER));
+        window.add(2, 100);
+        window.add(5, 100);
+        window.add(8, 100);
+
+        //when
+        receive(handler, FOLLOWER, appendResponse(5, true));
+        window.acknowledge(state.confirmedEventStoreIndex(FOLLOWER) + 1, 200);
+
+        //then
+        assertEquals(4, state.confirmedEventStoreIndex(FOLLOWER), "state.confirmedEventStoreIndex");
+        assertEquals(8, state.nextEventStoreIndex(FOLLOWER), "state.nextEventStoreIndex");
+        assertEquals(1, window.size(), "window.size");
+
+        //when
+        receive(handler, FOLLOWER, appendResponse(3, true));
+
+        //then
+        assertEquals(4, state.confirmedEventStoreIndex(FOLLOWER), "state.confirmedEventStoreIndex");
+        assertEquals(8, state.nextEventStoreIndex(FOLLOWER), "state.nextEventStoreIndex");
+
+        //when
+        receive(handler, FOLLOWER, appendResponse(6, false));
+
+        //then
+        assertEquals(4, state.confirmedEventStoreIndex(FOLLOWER), "state.confirmedEventStoreIndex");
+        assertEquals(6, state.nextEventStoreIndex(FOLLOWER), "state.nextEventStoreIndex");
+    }
+
+    @Test
+    void followerVerifiesEventsAfterCommittedIndexWhenLeaderChanges() {
+        //given
+        final ConnectionHandler handler = connectionHandler(FOLLOWER);
+        receive(handler, LEADER, appendRequest(TERM, 0, 2, 1, 6));
+        state.term(TERM + 1).leaderId(OTHER);
+
+        //when
+        nanoTime += 100;
+        receive(handler, OTHER, appendRequest(TERM + 1, 5, 2, 6, 6));
+
+        //then
+        assertEquals(Arrays.asList("1->1:5:true", "3->3:3:false"), responses);
+
+        //when
+        nanoTime += 100;
+        receive(handler, OTHER, appendRequest(TERM + 1, 3, 4, 4, 7));
+
+        //then
+        assertEquals("3->3:6:true", responses.get(2));
+        assertEquals(6, state.appendedEventStoreSize(), "state.appendedEventStoreSize");
+        assertEquals(4, state.committedEventStoreIndex(), "state.committedEventStoreIndex");
+        assertEquals(6, countEvents(eventStore), "events");
+    }
+
+    @Test
+    void followerAcceptsEventsAfterCommittedIndexWhenRestarted(@TempDir final Path tempDir) {
+        //given
+        final File file = tempDir.resolve("replication.state").toFile();
+        try (final ReplicationStateFile stateFile = ReplicationStateFile.open(file)) {
+            state = new DefaultReplicationState(stateFile);
+            state.term(TERM).leaderId(LEADER);
+            receive(connectionHandler(FOLLOWER), LEADER, appendRequest(TERM, 0, 3, 1, 6));
+        }
+        assertEquals(Arrays.asList("1->1:5:true"), responses);
+
+        //when
+        try (final ReplicationStateFile stateFile = ReplicationStateFile.open(file)) {
+            state = new DefaultReplicationState(stateFile);
+            state.term(TERM).leaderId(LEADER).appendedEventStoreSize(5);
+            final ConnectionHandler handler = connectionHandler(FOLLOWER);
+            receive(handler, LEADER, appendRequest(TERM, 5, 5, 6, 8));
+            nanoTime += 100;
+            receive(handler, LEADER, appendRequest(TERM, 4, 6, 5, 9));
+        }
+
+        //then
+        assertEquals(Arrays.asList("1->1:4:false", "1->1:8:true"), responses.subList(1, 3));
+        assertEquals(8, state.appendedEventStoreSize(), "state.appendedEventStoreSize");
+        assertEquals(6, state.committedEventStoreIndex(), "state.committedEventStoreIndex");
+        assertEquals(8, countEvents(eventStore), "events");
+    }
+
+    @Test
+    void formerLeaderAcceptsEventsAfterCommittedIndexWhenLeaderChanges() {
+        //given
+        final ConnectionHandler handler = connectionHandler(FOLLOWER);
+        appendEvents(eventStore, 1, 6);
+        state.term(TERM).leaderId(FOLLOWER).appendedEventStoreSize(5).committedEventStoreIndex(3);
+        state.term(TERM + 1).leaderId(OTHER);
+
+        //when
+        receive(handler, OTHER, appendRequest(TERM + 1, 4, 4, 5, 8));
+
+        //then
+        assertEquals(Arrays.asList("3->3:7:true"), responses);
+        assertEquals(7, state.appendedEventStoreSize(), "state.appendedEventStoreSize");
+        assertEquals(4, state.committedEventStoreIndex(), "state.committedEventStoreIndex");
+        assertEquals(7, countEvents(eventStore), "events");
+    }
+
+    @Test
+    void followerTerminatesIfLeaderFailedOverWithUnreplicatedEvents() {
+        //given
+        final ConnectionHandler handler = connectionHandler(FOLLOWER);
+        receive(handler, LEADER, appendRequest(TERM, 0, 2, 1, 6));
+        state.term(TERM + 1).leaderId(OTHER);
+
+        //when
+        nanoTime += 100;
+        receive(handler, OTHER, appendRequest(TERM + 1, 0, 2, 1, 4));
+
+        //then
+        assertEquals(Arrays.asList("1->1:5:true", "3->3:3:true"), responses);
+
+        //when
+        nanoTime += 100;
+        final AgentTerminationException exception = assertThrows(AgentTerminationException.class,
+                () -> receive(handler, OTHER, appendRequest(TERM + 1, 3, 3, 43, 4, 6)));
+
+        //then
+        assertTrue(exception.getMessage().contains("event store diverged from leader 3"), exception.getMessage());
+        assertTrue(exception.getMessage().contains("at event store index 3"), exception.getMessage());
+        assertEquals(2, responses.size(), "responses");
+        assertEquals(5, state.appendedEventStoreSize(), "state.appendedEventStoreSize");
+        assertEquals(2, state.committedEventStoreIndex(), "state.committedEventStoreIndex");
+        assertEquals(5, countEvents(eventStore), "events");
+    }
+
+    private ConnectionHandler connectionHandler(final int serverId) {
+        final ReplicationConfig config = ReplicationConfigurator.create()
+                .serverId(serverId)
+                .serverIds(otherServerIds(serverId))
+                .connection(LEADER, Connection.create(handler -> 0, (target, buffer, offset, length) -> true))
+                .connection(FOLLOWER, Connection.create(handler -> 0, (target, buffer, offset, length) -> true))
+                .connection(OTHER, Connection.create(handler -> 0, (target, buffer, offset, length) -> true))
+                .nanoClock(() -> nanoTime);
+        final Connection.Publisher publisher = (target, buffer, offset, length) ->
+                responses.add(target + "->" + response(buffer, offset, length));
+        final LeaderElection leaderElection = new LeaderElection(SYSTEM_FACTORY, () -> 0, config, state,
+                eventStore.appender(), publisher);
+        return new ConnectionHandler(SYSTEM_FACTORY, config, baseState, state, eventStore,
+                eventStore.appender(), publisher, leaderElection, new DefaultReplicationMetrics(config));
+    }
+
+    private static int[] otherServerIds(final int serverId) {
+        return serverId == LEADER ? new int[] {FOLLOWER, OTHER} : new int[] {LEADER, OTHER};
+    }
+
+    private static String response(final DirectBuffer buffer, final int offset, final int length) {
+        final MutableDirectBuffer message = new ExpandableArrayBuffer(length);
+        message.putBytes(0, buffer, offset, length);
+        return ReplicationMessages.leaderId(message) + ":" + ReplicationMessages.storeIndex(message) + ":" +
+                ReplicationMessages.isAppendSuccess(message);
+    }
+
+    static void receive(final ConnectionHandler handler, final int sender, final DirectBuffer message) {
+        handler.onMessage(sender, message, 0, message.capacity());
+    }
+
+    /**
+     * Returns an append request with events for sequences from (inclusive) to end (exclusive);  the event sequence is
+     * also used as source sequence, and the source ID is 42 unless specified otherwise.
+     */
+    static DirectBuffer appendRequest(final int term,
+                                      final long storeIndex,
+                                      final long committedStoreIndex,
+                                      final long fromSequence,
+                                      final long endSequence) {
+        return appendRequest(term, storeIndex, committedStoreIndex, 42, fromSequence, endSequence);
+    }
+
+    static DirectBuffer appendRequest(final int term,
+                                      final long storeIndex,
+                                      final long committedStoreIndex,
+                                      final int sourceId,
+                                      final long fromSequence,
+                                      final long endSequence) {
+        final MutableDirectBuffer buffer = new ExpandableArrayBuffer(1024);
+        int length = ReplicationMessages.appendRequestHeader(buffer, 0, term, LEADER, storeIndex, committedStoreIndex);
+        final MutableDirectBuffer event = new ExpandableArrayBuffer(FlyweightEvent.HEADER_LENGTH);
+        for (long sequence = fromSequence; sequence < endSequence; sequence++) {
+            final int eventLength = FlyweightEvent.writeHeader(EventType.AUTO_COMMIT, sourceId, sequence, (short)0,
+                    sequence, 123L, 7, 0, event, 0);
+            length = ReplicationMessages.appendRequestEvent(buffer, 0, event, 0, eventLength);
+        }
+        final MutableDirectBuffer message = new ExpandableArrayBuffer(length);
+        message.putBytes(0, buffer, 0, length);
+        return message;
+    }
+
+    /**
+     * Returns an append request with events for the given sequences, used as event and source sequence for source 42.
+     */
+    static DirectBuffer appendRequestWithSequences(final int term,
+                                                   final long storeIndex,
+                                                   final long committedStoreIndex,
+                                                   final long... sequences) {
+        final MutableDirectBuffer buffer = new ExpandableArrayBuffer(1024);
+        int length = ReplicationMessages.appendRequestHeader(buffer, 0, term, LEADER, storeIndex, committedStoreIndex);
+        final MutableDirectBuffer event = new ExpandableArrayBuffer(FlyweightEvent.HEADER_LENGTH);
+        for (final long sequence : sequences) {
+            final int eventLength = FlyweightEvent.writeHeader(EventType.AUTO_COMMIT, 42, sequence, (short)0,
+                    sequence, 123L, 7, 0, event, 0);
+            length = ReplicationMessages.appendRequestEvent(buffer, 0, event, 0, eventLength);
+        }
+        final MutableDirectBuffer message = new ExpandableArrayBuffer(length);
+        message.putBytes(0, buffer, 0, length);
+        return message;
+    }
+
+    /**
+     * Appends events for sequences from (inclusive) to end (exclusive) directly to the store, as done by the leader;
+     * the events are identical to those of an {@link #appendRequest(int, long, long, long, long) append request}.
+     */
+    static void appendEvents(final MessageStore store, final long fromSequence, final long endSequence) {
+        final MessageStore.Appender appender = store.appender();
+        final MutableDirectBuffer event = new ExpandableArrayBuffer(FlyweightEvent.HEADER_LENGTH);
+        for (long sequence = fromSequence; sequence < endSequence; sequence++) {
+            final int eventLength = FlyweightEvent.writeHeader(EventType.AUTO_COMMIT, 42, sequence, (short)0,
+                    sequence, 123L, 7, 0, event, 0);
+            appender.append(event, 0, eventLength);
+        }
+    }
+
+    static DirectBuffer appendResponse(final long nextEventStoreIndex, final boolean success) {
+        final MutableDirectBuffer buffer = new ExpandableArrayBuffer(ReplicationMessageDescriptor.HEADER_LENGTH);
+        ReplicationMessages.appendResponse(buffer, 0, TERM, LEADER, nextEventStoreIndex, success);
+        return buffer;
+    }
+
+    static int countEvents(final MessageStore store) {
+        int count = 0;
+        try (final MessageStore.Poller poller = store.poller()) {
+            while (poller.poll(message -> MessageStore.Handler.Result.POLL) > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.tools4j.elara.flyweight.EventType;
+import org.tools4j.elara.flyweight.FlyweightEvent;
+import org.tools4j.elara.store.InMemoryStore;
+import org.tools4j.elara.store.MessageStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for {@link DefaultEventSender}.
+ */
+class DefaultEventSenderTest {
+
+    private static final int LEADER = 1;
+    private static final int FOLLOWER = 2;
+
+    private MessageStore eventStore;
+    private ReplicationConfig config;
+    private DefaultReplicationState state;
+    private DefaultReplicationMetrics metrics;
+    private List<DirectBuffer> published;
+    private boolean backPressure;
+
+    @BeforeEach
+    void init() {
+        eventStore = new InMemoryStore();
+        config = ReplicationConfigurator.create()
+                .serverId(LEADER)
+                .serverIds(FOLLOWER)
+                .connection(FOLLOWER, Connection.create(handler -> 0, (target, buffer, offset, length) -> true));
+        state = new DefaultReplicationState();
+        state.term(1).leaderId(LEADER);
+        metrics = new DefaultReplicationMetrics(config);
+        published = new ArrayList<>();
+    }
+
+    @Test
+    void resendsRetainedBatchAfterBackPressure() {
+        //given
+        final DefaultEventSender sender = eventSender();
+        appendEvents(eventStore, 1, 4);
+
+        //when
+        backPressure = true;
+        final long rejected = sender.sendEvents(FOLLOWER, 0, 3);
+        appendEvents(eventStore, 4, 5);
+        backPressure = false;
+        final long resent = sender.sendEvents(FOLLOWER, 0, 4);
+
+        //then
+        assertEquals(0, rejected, "rejected");
+        assertEquals(3, resent, "resent");
+        assertEquals(2, published.size(), "published.size");
+        assertEquals(0, published.get(0).compareTo(published.get(1)), "resent batch equals rejected batch");
+        assertEquals(3, eventCount(published.get(1)), "eventCount");
+        assertEquals(1, metrics.sentBatches(FOLLOWER), "sentBatches");
+        assertEquals(3, metrics.sentEvents(FOLLOWER), "sentEvents");
+
+        //when
+        final long next = sender.sendEvents(FOLLOWER, resent, 4);
+
+        //then
+        assertEquals(4, next, "next");
+        assertEquals(3, ReplicationMessages.storeIndex(published.get(2)), "storeIndex");
+        assertEquals(1, eventCount(published.get(2)), "eventCount");
+        assertEquals(0, metrics.repositionCount(FOLLOWER), "repositionCount");
+    }
+
+    @Test
+    void refillsRetainedBatchForDifferentIndex() {
+        //given
+        final DefaultEventSender sender = eventSender();
+        appendEvents(eventStore, 1, 5);
+        backPressure = true;
+        sender.sendEvents(FOLLOWER, 2, 4);
+
+        //when
+        backPressure = false;
+        final long next = sender.sendEvents(FOLLOWER, 1, 4);
+
+        //then
+        assertEquals(4, next, "next");
+        assertEquals(1, ReplicationMessages.storeIndex(published.get(1)), "storeIndex");
+        assertEquals(3, eventCount(published.get(1)), "eventCount");
+        assertEquals(1, metrics.sentBatches(FOLLOWER), "sentBatches");
+        assertTrue(metrics.repositionCount(FOLLOWER) >= 2, "repositionCount >= 2");
+    }
+
+    private DefaultEventSender eventSender() {
+        return new DefaultEventSender(config, state, eventStore, (target, buffer, offset, length) -> {
+            final MutableDirectBuffer copy = new ExpandableArrayBuffer(length);
+            copy.putBytes(0, buffer, offset, length);
+            published.add(copy);
+            return !backPressure;
+        }, metrics);
+    }
+
+    private static int eventCount(final DirectBuffer message) {
+        final int dataEnd = ReplicationMessageDescriptor.PAYLOAD_OFFSET + ReplicationMessages.payloadSize(message);
+        int count = 0;
+        for (int offset = ReplicationMessageDescriptor.PAYLOAD_OFFSET; offset < dataEnd; count++) {
+            offset += ReplicationMessages.appendRequestEventEntryLength(ReplicationMessages.eventLength(message, offset));
+        }
+        return count;
+    }
+
+    static void appendEvents(final MessageStore store, final long fromSequence, final long endSequence) {
+        final MutableDirectBuffer buffer = new ExpandableArrayBuffer(FlyweightEvent.HEADER_LENGTH);
+        for (long sequence = fromSequence; sequence < endSequence; sequence++) {
+            final int length = FlyweightEvent.writeHeader(EventType.AUTO_COMMIT, 42, sequence, (short)0,
+                    sequence, 123L, 7, 0, buffer, 0);
+            store.appender().append(buffer, 0, length);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.HdrHistogram.Histogram;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.status.CountersReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tools4j.elara.app.config.AppConfig;
+import org.tools4j.elara.app.config.EventStoreConfig;
+import org.tools4j.elara.app.factory.AppFactory;
+import org.tools4j.elara.app.factory.StateFactory;
+import org.tools4j.elara.plugin.metrics.MetricsCounters;
+import org.tools4j.elara.plugin.replication.ReplicationCounters.Counter;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.tools4j.elara.plugin.replication.DefaultReplicationMetrics.RATE_INTERVAL_NANOS;
+
+/**
+ * Unit test for {@link DefaultReplicationMetrics} and {@link ReplicationCounters}.
+ */
+class DefaultReplicationMetricsTest {
+
+    private static final int LEADER = 1;
+    private static final int FOLLOWER = 2;
+    private static final int OTHER = 3;
+
+    @Test
+    void lagIsConfirmedProgressOfFollower() {
+        //given
+        final DefaultReplicationMetrics metrics = new DefaultReplicationMetrics(config());
+
+        //when
+        metrics.follower(FOLLOWER).progress(8, 4, 10);
+
+        //then
+        assertEquals(8, metrics.nextEventStoreIndex(FOLLOWER), "nextEventStoreIndex");
+        assertEquals(4, metrics.confirmedEventStoreIndex(FOLLOWER), "confirmedEventStoreIndex");
+        assertEquals(5, metrics.lagEvents(FOLLOWER), "lagEvents");
+        assertEquals(-1, metrics.confirmedEventStoreIndex(OTHER), "confirmedEventStoreIndex[other]");
+        assertEquals(0, metrics.lagEvents(OTHER), "lagEvents[other]");
+
+        //when
+        metrics.follower(FOLLOWER).progress(10, 9, 10);
+
+        //then
+        assertEquals(0, metrics.lagEvents(FOLLOWER), "lagEvents");
+    }
+
+    @Test
+    void sendRatesAreSampledOncePerInterval() {
+        //given
+        final long time = 1000;
+        final DefaultReplicationMetrics metrics = new DefaultReplicationMetrics(config());
+        final DefaultReplicationMetrics.Follower follower = metrics.follower(FOLLOWER);
+        metrics.update(time);
+
+        //when
+        follower.batchSent(50, 5000);
+        metrics.update(time + RATE_INTERVAL_NANOS / 2);
+
+        //then
+        assertEquals(0, metrics.eventsPerSecond(FOLLOWER), "eventsPerSecond");
+        assertEquals(0, metrics.bytesPerSecond(FOLLOWER), "bytesPerSecond");
+
+        //when
+        metrics.update(time + 2 * RATE_INTERVAL_NANOS);
+
+        //then
+        assertEquals(25, metrics.eventsPerSecond(FOLLOWER), "eventsPerSecond");
+        assertEquals(2500, metrics.bytesPerSecond(FOLLOWER), "bytesPerSecond");
+
+        //when
+        follower.batchSent(10, 800);
+        metrics.update(time + 3 * RATE_INTERVAL_NANOS);
+
+        //then
+        assertEquals(10, metrics.eventsPerSecond(FOLLOWER), "eventsPerSecond");
+        assertEquals(800, metrics.bytesPerSecond(FOLLOWER), "bytesPerSecond");
+        assertEquals(60, metrics.sentEvents(FOLLOWER), "sentEvents");
+        assertEquals(2, metrics.sentBatches(FOLLOWER), "sentBatches");
+        assertEquals(0, metrics.eventsPerSecond(OTHER), "eventsPerSecond[other]");
+    }
+
+    @Test
+    void ackRoundTripIsRecordedWhenWindowIsAcknowledged() {
+        //given
+        final DefaultReplicationMetrics metrics = new DefaultReplicationMetrics(config());
+        final FollowerWindow window = new FollowerWindow(4, metrics.follower(FOLLOWER));
+        window.add(3, 100);
+        window.add(6, 400);
+        window.add(9, 500);
+
+        //when
+        window.acknowledge(6, 1100);
+
+        //then
+        assertEquals(2, metrics.ackCount(FOLLOWER), "ackCount");
+        assertEquals(1000, metrics.ackRoundTripMaxNanos(FOLLOWER), "ackRoundTripMaxNanos");
+        final Histogram histogram = metrics.ackRoundTripHistogram(FOLLOWER, null);
+        assertEquals(2, histogram.getTotalCount(), "histogram.totalCount");
+        assertTrue(histogram.valuesAreEquivalent(700, histogram.getMinValue()), "histogram.minValue");
+        assertTrue(histogram.valuesAreEquivalent(1000, histogram.getMaxValue()), "histogram.maxValue");
+
+        //when
+        window.acknowledge(6, 2000);
+        window.acknowledge(9, 3500);
+
+        //then
+        assertEquals(3, metrics.ackCount(FOLLOWER), "ackCount");
+        assertEquals(3000, metrics.ackRoundTripMaxNanos(FOLLOWER), "ackRoundTripMaxNanos");
+        assertEquals(1, metrics.ackRoundTripHistogram(FOLLOWER, histogram).getTotalCount(),
+                "interval histogram.totalCount");
+        assertEquals(0, metrics.ackCount(OTHER), "ackCount[other]");
+    }
+
+    @Test
+    void countersFileHasCountersOfAllFollowers(@TempDir final Path tempDir) {
+        //given
+        final File file = tempDir.resolve("replication.cnt").toFile();
+        final DefaultReplicationMetrics metrics = new DefaultReplicationMetrics(config().countersFile(file));
+        final ReplicationCounters counters = metrics.counters();
+        final DefaultReplicationMetrics.Follower follower = metrics.follower(FOLLOWER);
+
+        //when
+        follower.progress(8, 4, 10);
+        follower.batchSent(7, 700);
+        metrics.received(FOLLOWER, 500);
+        metrics.update(1500);
+
+        //then
+        assertEquals(ReplicationCounters.fileLength(2), file.length(), "file.length");
+        assertEquals(5, counters.counter(FOLLOWER, Counter.LAG_EVENTS), "LAG_EVENTS");
+        assertEquals(7, counters.counter(FOLLOWER, Counter.SENT_EVENTS), "SENT_EVENTS");
+        assertEquals(1000, counters.counter(FOLLOWER, Counter.HEARTBEAT_AGE), "HEARTBEAT_AGE");
+        assertEquals(-1, counters.counter(OTHER, Counter.HEARTBEAT_AGE), "HEARTBEAT_AGE[other]");
+
+        //when
+        final CountersReader reader = MetricsCounters.reader(file);
+        final List<String> labels = new ArrayList<>();
+        final List<Long> values = new ArrayList<>();
+        reader.forEach((value, counterId, label) -> {
+            labels.add(label);
+            values.add(value);
+        });
+
+        //then
+        assertEquals(2 * Counter.length(), labels.size(), "labels.size");
+        for (int ordinal = 0; ordinal < Counter.length(); ordinal++) {
+            final Counter counter = Counter.byOrdinal(ordinal);
+            assertEquals(counter.displayName() + "[" + FOLLOWER + "]", labels.get(ordinal), "label");
+            assertEquals(counter.displayName() + "[" + OTHER + "]", labels.get(Counter.length() + ordinal), "label");
+            assertEquals(counters.counter(FOLLOWER, counter), values.get(ordinal), "value[" + counter + "]");
+        }
+        metrics.closeCounters();
+    }
+
+    @Test
+    void countersClosedWhenAgentIsClosed(@TempDir final Path tempDir) throws Exception {
+        //given
+        final File file = tempDir.resolve("replication.cnt").toFile();
+        final DefaultReplicationMetrics metrics = new DefaultReplicationMetrics(config().countersFile(file));
+        final Agent appAgent = new Agent() {
+            @Override
+            public int doWork() {
+                return 0;
+            }
+
+            @Override
+            public String roleName() {
+                return "app";
+            }
+        };
+        final Agent agent = interceptor(metrics).appFactory(() -> () -> appAgent).agent();
+
+        //when
+        agent.doWork();
+
+        //then
+        assertFalse(metrics.counters().isClosed(), "counters.isClosed");
+
+        //when
+        agent.onClose();
+        metrics.update(1000);
+
+        //then
+        assertTrue(metrics.counters().isClosed(), "counters.isClosed");
+    }
+
+    @Test
+    void noAppFactoryWithoutCountersFile() {
+        //given
+        final DefaultReplicationMetrics metrics = new DefaultReplicationMetrics(config());
+
+        //when
+        final AppFactory appFactory = interceptor(metrics).appFactory(() -> mock(AppFactory.class));
+
+        //then
+        assertNull(appFactory, "appFactory");
+    }
+
+    private static ReplicationConfigurator config() {
+        return ReplicationConfigurator.create()
+                .serverId(LEADER)
+                .serverIds(FOLLOWER, OTHER);
+    }
+
+    private static ReplicationInterceptor interceptor(final DefaultReplicationMetrics metrics) {
+        return new ReplicationInterceptor(mock(ReplicationPlugin.class), mock(AppConfig.class),
+                mock(EventStoreConfig.class), mock(StateFactory.class), new DefaultReplicationState(), metrics);
+    }
+}
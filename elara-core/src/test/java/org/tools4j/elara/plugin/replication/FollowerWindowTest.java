@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for {@link FollowerWindow}.
+ */
+class FollowerWindowTest {
+
+    @Test
+    void fillAndAcknowledge() {
+        //given
+        final DefaultReplicationMetrics.Follower metrics = new DefaultReplicationMetrics.Follower(2);
+        final FollowerWindow window = new FollowerWindow(3, metrics);
+
+        //when
+        window.add(10, 100);
+        window.add(20, 110);
+        window.add(30, 120);
+
+        //then
+        assertTrue(window.isFull(), "window.isFull");
+        assertEquals(3, window.size(), "window.size");
+        assertEquals(30, window.end(), "window.end");
+        assertThrows(IllegalStateException.class, () -> window.add(40, 130));
+
+        //when
+        final int partial = window.acknowledge(15, 200);
+
+        //then
+        assertEquals(1, partial, "partial");
+        assertEquals(2, window.size(), "window.size");
+        assertEquals(30, window.end(), "window.end");
+        assertEquals(1, metrics.ackCount, "metrics.ackCount");
+        assertEquals(100, metrics.ackRoundTripMax, "metrics.ackRoundTripMax");
+
+        //when
+        final int none = window.acknowledge(19, 210);
+        final int all = window.acknowledge(30, 220);
+
+        //then
+        assertEquals(0, none, "none");
+        assertEquals(2, all, "all");
+        assertTrue(window.isEmpty(), "window.isEmpty");
+        assertEquals(-1, window.end(), "window.end");
+        assertEquals(3, metrics.ackCount, "metrics.ackCount");
+        assertEquals(110, metrics.ackRoundTripMax, "metrics.ackRoundTripMax");
+    }
+
+    @Test
+    void wrapAround() {
+        //given
+        final FollowerWindow window = new FollowerWindow(3, new DefaultReplicationMetrics.Follower(2));
+        window.add(10, 100);
+        window.add(20, 100);
+        window.add(30, 100);
+        window.acknowledge(20, 200);
+
+        //when
+        window.add(40, 300);
+        window.add(50, 300);
+
+        //then
+        assertTrue(window.isFull(), "window.isFull");
+        assertEquals(50, window.end(), "window.end");
+
+        //when
+        final int removed = window.acknowledge(45, 400);
+
+        //then
+        assertEquals(2, removed, "removed");
+        assertEquals(1, window.size(), "window.size");
+        assertEquals(50, window.end(), "window.end");
+
+        //when
+        window.add(60, 500);
+        window.add(70, 500);
+
+        //then
+        assertTrue(window.isFull(), "window.isFull");
+        assertEquals(70, window.end(), "window.end");
+        assertEquals(3, window.acknowledge(70, 600), "acknowledged");
+        assertTrue(window.isEmpty(), "window.isEmpty");
+    }
+
+    @Test
+    void timeoutRestartsWithProgress() {
+        //given
+        final FollowerWindow window = new FollowerWindow(4, new DefaultReplicationMetrics.Follower(2));
+
+        //when
+        window.add(10, 100);
+        window.add(20, 150);
+
+        //then
+        assertFalse(window.isTimedOut(199, 100), "window.isTimedOut(199)");
+        assertTrue(window.isTimedOut(200, 100), "window.isTimedOut(200)");
+
+        //when
+        window.acknowledge(10, 250);
+
+        //then
+        assertFalse(window.isTimedOut(300, 100), "window.isTimedOut(300)");
+        assertTrue(window.isTimedOut(350, 100), "window.isTimedOut(350)");
+
+        //when
+        window.clear();
+
+        //then
+        assertTrue(window.isEmpty(), "window.isEmpty");
+        assertFalse(window.isTimedOut(1000, 100), "window.isTimedOut(1000)");
+    }
+
+    @Test
+    void invalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new FollowerWindow(0, new DefaultReplicationMetrics.Follower(2)));
+    }
+}
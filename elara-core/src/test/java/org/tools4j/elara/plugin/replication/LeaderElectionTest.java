@@ -0,0 +1,253 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tools4j.elara.store.InMemoryStore;
+import org.tools4j.elara.store.MessageStore;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.tools4j.elara.logging.OutputStreamLogger.SYSTEM_FACTORY;
+import static org.tools4j.elara.plugin.replication.ConnectionHandlerTest.countEvents;
+import static org.tools4j.elara.plugin.replication.ReplicationMessageDescriptor.HEADER_LENGTH;
+import static org.tools4j.elara.plugin.replication.ReplicationState.NULL_SERVER;
+
+/**
+ * Unit test for {@link LeaderElection}.
+ */
+class LeaderElectionTest {
+
+    private static final int SERVER = 1;
+    private static final long ELECTION_TIMEOUT_NANOS = 1000;
+    private static final long ELECTION_DEADLINE_NANOS = ELECTION_TIMEOUT_NANOS + ELECTION_TIMEOUT_NANOS / 2;
+
+    private MessageStore eventStore;
+    private DefaultReplicationState state;
+    private List<String> messages;
+
+    @BeforeEach
+    void init() {
+        eventStore = new InMemoryStore();
+        state = new DefaultReplicationState();
+        messages = new ArrayList<>();
+    }
+
+    @Test
+    void grantsOneVotePerTerm() {
+        //given
+        final LeaderElection election = leaderElection(1, 2, 3);
+        state.term(1).leaderId(2);
+
+        //when
+        election.onVoteRequest(3, voteRequest(2, 3, -1, 1), 0);
+        election.onVoteRequest(2, voteRequest(2, 2, -1, 1), 0);
+
+        //then
+        assertEquals(Arrays.asList("3->VOTE_RESPONSE:2:3:true", "2->VOTE_RESPONSE:2:2:false"), messages);
+        assertEquals(2, state.electionTerm(), "state.electionTerm");
+        assertEquals(3, state.votedFor(), "state.votedFor");
+
+        //when
+        election.onVoteRequest(3, voteRequest(2, 3, -1, 1), 0);
+        election.onVoteRequest(2, voteRequest(3, 2, -1, 1), 0);
+
+        //then
+        assertEquals(Arrays.asList("3->VOTE_RESPONSE:2:3:true", "2->VOTE_RESPONSE:3:2:true"), messages.subList(2, 4));
+        assertEquals(3, state.electionTerm(), "state.electionTerm");
+        assertEquals(2, state.votedFor(), "state.votedFor");
+    }
+
+    @Test
+    void grantsOneVotePerTermAcrossRestart(@TempDir final Path tempDir) {
+        //given
+        final File file = tempDir.resolve("replication.state").toFile();
+        try (final ReplicationStateFile stateFile = ReplicationStateFile.open(file)) {
+            state = new DefaultReplicationState(stateFile);
+            state.term(1).leaderId(2);
+            leaderElection(1, 2, 3).onVoteRequest(3, voteRequest(2, 3, -1, 1), 0);
+        }
+
+        //when
+        try (final ReplicationStateFile stateFile = ReplicationStateFile.open(file)) {
+            state = new DefaultReplicationState(stateFile);
+            state.term(1).leaderId(2);
+            leaderElection(1, 2, 3).onVoteRequest(2, voteRequest(2, 2, -1, 1), 0);
+
+            //then
+            assertEquals(2, state.electionTerm(), "state.electionTerm");
+            assertEquals(3, state.votedFor(), "state.votedFor");
+        }
+        assertEquals(Arrays.asList("3->VOTE_RESPONSE:2:3:true", "2->VOTE_RESPONSE:2:2:false"), messages);
+    }
+
+    @Test
+    void grantsVoteOnlyToCandidateWithUpToDateEventStore() {
+        //given
+        final LeaderElection election = leaderElection(1, 2, 3);
+        state.term(2).leaderId(3).appendedEventStoreSize(5);
+
+        //when
+        election.onVoteRequest(2, voteRequest(3, 2, 3, 2), 0);
+        election.onVoteRequest(2, voteRequest(3, 2, 10, 1), 0);
+
+        //then
+        assertEquals(Arrays.asList("2->VOTE_RESPONSE:3:2:false", "2->VOTE_RESPONSE:3:2:false"), messages);
+        assertEquals(NULL_SERVER, state.votedFor(), "state.votedFor");
+
+        //when
+        election.onVoteRequest(2, voteRequest(3, 2, 4, 2), 0);
+        election.onVoteRequest(3, voteRequest(4, 3, 0, 3), 0);
+
+        //then
+        assertEquals(Arrays.asList("2->VOTE_RESPONSE:3:2:true", "3->VOTE_RESPONSE:4:3:true"), messages.subList(2, 4));
+        assertEquals(4, state.electionTerm(), "state.electionTerm");
+        assertEquals(3, state.votedFor(), "state.votedFor");
+    }
+
+    @Test
+    void candidateStepsDownWhenHigherTermIsSeen() {
+        //given
+        final LeaderElection election = leaderElection(1, 2, 3);
+        election.doWork(0);
+        election.doWork(ELECTION_DEADLINE_NANOS);
+
+        //then
+        assertEquals(1, state.electionTerm(), "state.electionTerm");
+        assertEquals(SERVER, state.votedFor(), "state.votedFor");
+        assertEquals(Arrays.asList("2->VOTE_REQUEST:1:1:-1:0", "3->VOTE_REQUEST:1:1:-1:0"), messages);
+
+        //when
+        election.onVoteResponse(2, voteResponse(3, 2, false));
+        election.onVoteResponse(3, voteResponse(1, SERVER, true));
+        election.doWork(ELECTION_DEADLINE_NANOS + 1);
+
+        //then
+        assertEquals(3, state.electionTerm(), "state.electionTerm");
+        assertEquals(NULL_SERVER, state.votedFor(), "state.votedFor");
+        assertEquals(0, countEvents(eventStore), "events");
+    }
+
+    @Test
+    void leaderStepsDownWhenHigherTermIsSeen() {
+        //given
+        final LeaderElection election = leaderElection(1, 2, 3);
+        state.term(2).leaderId(SERVER).vote(2, SERVER);
+
+        //when
+        election.onVoteRequest(2, voteRequest(3, 2, -1, 2), 0);
+
+        //then
+        assertFalse(state.isLeader(SERVER), "state.isLeader");
+        assertEquals(3, state.electionTerm(), "state.electionTerm");
+        assertEquals(2, state.votedFor(), "state.votedFor");
+    }
+
+    @Test
+    void candidateWinsElectionWithQuorumOfVotes() {
+        //given
+        final LeaderElection election = leaderElection(1, 2, 3, 4, 5);
+        election.doWork(0);
+        election.doWork(ELECTION_DEADLINE_NANOS);
+
+        //when
+        election.onVoteResponse(2, voteResponse(1, SERVER, true));
+        election.onVoteResponse(2, voteResponse(1, SERVER, true));
+        election.onVoteResponse(3, voteResponse(1, SERVER, false));
+        election.onVoteResponse(4, voteResponse(1, 5, true));
+
+        //then
+        assertEquals(0, election.doWork(ELECTION_DEADLINE_NANOS + 1), "doWork");
+        assertEquals(0, countEvents(eventStore), "events");
+
+        //when
+        election.onVoteResponse(5, voteResponse(1, SERVER, true));
+
+        //then
+        assertEquals(1, election.doWork(ELECTION_DEADLINE_NANOS + 2), "doWork");
+        assertEquals(1, countEvents(eventStore), "events");
+        assertTrue(messages.stream().allMatch(message -> message.contains("VOTE_REQUEST:1:1:")), "only vote requests");
+    }
+
+    private LeaderElection leaderElection(final int... serverIds) {
+        final ReplicationConfigurator config = ReplicationConfigurator.create()
+                .serverId(SERVER)
+                .autoElection(true)
+                .electionTimeoutNanos(ELECTION_TIMEOUT_NANOS)
+                .heartbeatIntervalNanos(ELECTION_TIMEOUT_NANOS / 10)
+                .electionTimeoutRandom(new Random() {
+                    @Override
+                    public double nextDouble() {
+                        return 0.5;
+                    }
+                });
+        for (final int serverId : serverIds) {
+            if (serverId != SERVER) {
+                config.serverIds(serverId);
+            }
+            config.connection(serverId, Connection.create(handler -> 0, (target, buffer, offset, length) -> true));
+        }
+        final Connection.Publisher publisher = (target, buffer, offset, length) ->
+                messages.add(target + "->" + message(buffer, offset, length));
+        return new LeaderElection(SYSTEM_FACTORY, () -> 0, config, state, eventStore.appender(), publisher);
+    }
+
+    private static String message(final DirectBuffer buffer, final int offset, final int length) {
+        final MutableDirectBuffer message = new ExpandableArrayBuffer(length);
+        message.putBytes(0, buffer, offset, length);
+        final int type = ReplicationMessages.type(message);
+        final String prefix = ReplicationMessages.replicationMessageName(type) + ":" +
+                ReplicationMessages.term(message) + ":" + ReplicationMessages.candidateId(message) + ":";
+        return type == ReplicationMessages.VOTE_REQUEST ? prefix + ReplicationMessages.storeIndex(message) + ":" +
+                ReplicationMessages.lastStoreTerm(message) : prefix + ReplicationMessages.isVoteGranted(message);
+    }
+
+    private static DirectBuffer voteRequest(final int term,
+                                            final int candidateId,
+                                            final long lastStoreIndex,
+                                            final int lastStoreTerm) {
+        final MutableDirectBuffer buffer = new ExpandableArrayBuffer(HEADER_LENGTH);
+        ReplicationMessages.voteRequest(buffer, 0, term, candidateId, lastStoreIndex, lastStoreTerm);
+        return buffer;
+    }
+
+    private static DirectBuffer voteResponse(final int term, final int candidateId, final boolean granted) {
+        final MutableDirectBuffer buffer = new ExpandableArrayBuffer(HEADER_LENGTH);
+        ReplicationMessages.voteResponse(buffer, 0, term, candidateId, granted);
+        return buffer;
+    }
+}
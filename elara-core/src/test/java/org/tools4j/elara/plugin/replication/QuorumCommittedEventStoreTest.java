@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.tools4j.elara.store.InMemoryStore;
+import org.tools4j.elara.store.MessageStore;
+import org.tools4j.elara.store.MessageStore.Handler.Result;
+import org.tools4j.elara.store.MessageStore.Poller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.tools4j.elara.plugin.replication.DefaultEventSenderTest.appendEvents;
+
+/**
+ * Unit test for {@link QuorumCommittedEventStore}.
+ */
+class QuorumCommittedEventStoreTest {
+
+    private MessageStore eventStore;
+    private DefaultReplicationState state;
+    private QuorumCommittedEventStore committedStore;
+
+    @BeforeEach
+    void init() {
+        eventStore = spy(new InMemoryStore());
+        state = new DefaultReplicationState();
+        committedStore = new QuorumCommittedEventStore(eventStore, state);
+        appendEvents(eventStore, 1, 6);
+    }
+
+    @Test
+    void pollsOnlyCommittedEvents() {
+        try (final Poller poller = committedStore.poller()) {
+            //when + then
+            assertEquals(0, pollAll(poller), "polled with nothing committed");
+
+            //when
+            state.committedEventStoreIndex(1);
+
+            //then
+            assertEquals(2, pollAll(poller), "polled with index 1 committed");
+            assertEquals(0, pollAll(poller), "polled again with index 1 committed");
+
+            //when
+            state.committedEventStoreIndex(4);
+
+            //then
+            assertEquals(3, pollAll(poller), "polled with index 4 committed");
+        }
+    }
+
+    @Test
+    void movesOnlyWithinCommittedEvents() {
+        //given
+        state.committedEventStoreIndex(1);
+
+        try (final Poller poller = committedStore.poller()) {
+            //when
+            poller.moveToEnd();
+
+            //then
+            assertEquals(2, poller.entryId(), "entryId after moveToEnd");
+            assertEquals(0, pollAll(poller), "polled after moveToEnd");
+            assertFalse(poller.moveToNext(), "moveToNext");
+
+            //when
+            state.committedEventStoreIndex(2);
+
+            //then
+            assertTrue(poller.moveToPrevious(), "moveToPrevious");
+            assertEquals(2, pollAll(poller), "polled after moveToPrevious");
+        }
+    }
+
+    @Test
+    void moveToSeeksIndexOfEntry() {
+        //given
+        state.committedEventStoreIndex(2);
+
+        try (final Poller poller = committedStore.poller()) {
+            //when
+            final boolean movedForward = poller.moveTo(3);
+
+            //then
+            assertTrue(movedForward, "movedForward");
+            assertEquals(0, pollAll(poller), "polled from index 3");
+
+            //when
+            final boolean movedBackward = poller.moveTo(1);
+
+            //then
+            assertTrue(movedBackward, "movedBackward");
+            assertEquals(2, pollAll(poller), "polled from index 1");
+
+            //when
+            final boolean movedBeyondEnd = poller.moveTo(7);
+
+            //then
+            assertFalse(movedBeyondEnd, "movedBeyondEnd");
+            assertEquals(3, poller.entryId(), "entryId");
+        }
+    }
+
+    @Test
+    void moveToReusesSeekingPoller() {
+        //given
+        state.committedEventStoreIndex(4);
+
+        try (final Poller poller = committedStore.poller()) {
+            //when
+            for (int i = 0; i < 10; i++) {
+                poller.moveTo(i % 5);
+            }
+
+            //then
+            verify(eventStore, times(2)).poller();
+            assertEquals(1, pollAll(poller), "polled from index 4");
+        }
+    }
+
+    private static int pollAll(final Poller poller) {
+        int polled = 0;
+        while (poller.poll(message -> Result.POLL) > 0) {
+            polled++;
+        }
+        return polled;
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.tools4j.elara.app.message.Event;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test for {@link ReplicationPluginStep}.
+ */
+class ReplicationPluginStepTest {
+
+    private static final int LEADER = 1;
+    private static final int[] FOLLOWERS = {2, 3, 4, 5};
+    private static final int EVENTS = 10;
+
+    private ReplicationConfigurator config;
+    private Connection connection;
+    private DefaultReplicationState state;
+    private DefaultReplicationMetrics metrics;
+    private EventSender eventSender;
+    private ReplicationPluginStep step;
+
+    @BeforeEach
+    void init() {
+        config = ReplicationConfigurator.create()
+                .serverId(LEADER)
+                .serverIds(FOLLOWERS)
+                .heartbeatIntervalNanos(TimeUnit.HOURS.toNanos(1));
+        connection = Connection.create(handler -> 0, (target, buffer, offset, length) -> true);
+        for (final int serverId : config.serverIds()) {
+            config.connection(serverId, connection);
+        }
+        state = new DefaultReplicationState();
+        state.term(1).leaderId(LEADER);
+        final Event event = mock(Event.class);
+        for (int i = 0; i < EVENTS; i++) {
+            state.eventApplied(event);
+        }
+        for (final int follower : FOLLOWERS) {
+            state.nextEventStoreIndex(follower, EVENTS);
+        }
+        eventSender = mock(EventSender.class);
+        when(eventSender.sendHeartbeat(anyInt(), anyLong())).thenReturn(true);
+        metrics = new DefaultReplicationMetrics(config);
+        step = new ReplicationPluginStep(config, state, mock(EnforcedLeaderEventReceiver.class),
+                (senderServerId, buffer, offset, length) -> {}, eventSender, mock(LeaderElection.class), metrics);
+    }
+
+    /**
+     * Returns a step with a bootstrap sender for follower 2 which is lagging behind by all events and is hence
+     * initially served by the bootstrap sender;  both senders send up to 4 events per batch.
+     */
+    private ReplicationPluginStep bootstrapStep(final EventSender bootstrapSender, final long resendTimeoutNanos) {
+        config.bootstrapConnection(2, connection)
+                .bootstrapThreshold(5)
+                .resendTimeoutNanos(resendTimeoutNanos);
+        state.nextEventStoreIndex(2, 0);
+        when(eventSender.sendEvents(anyInt(), anyLong(), anyLong())).thenAnswer(ReplicationPluginStepTest::sendBatch);
+        when(bootstrapSender.sendEvents(anyInt(), anyLong(), anyLong())).thenAnswer(ReplicationPluginStepTest::sendBatch);
+        when(bootstrapSender.sendHeartbeat(anyInt(), anyLong())).thenReturn(true);
+        metrics = new DefaultReplicationMetrics(config);
+        return new ReplicationPluginStep(config, state, mock(EnforcedLeaderEventReceiver.class),
+                (senderServerId, buffer, offset, length) -> {}, eventSender, bootstrapSender,
+                mock(LeaderElection.class), metrics);
+    }
+
+    private static long sendBatch(final InvocationOnMock invocation) {
+        final long eventStoreIndex = invocation.getArgument(1);
+        final long eventStoreLimit = invocation.getArgument(2);
+        return Math.min(eventStoreIndex + 4, eventStoreLimit);
+    }
+
+    private void appendEvents(final int events) {
+        final Event event = mock(Event.class);
+        for (int i = 0; i < events; i++) {
+            state.eventApplied(event);
+        }
+    }
+
+    @Test
+    void committedIndexIsConfirmedByQuorumIncludingLeader() {
+        //given
+        state.confirmedEventStoreIndex(2, 9);
+        state.confirmedEventStoreIndex(3, 4);
+        state.confirmedEventStoreIndex(4, 2);
+
+        //when
+        step.doWork();
+
+        //then
+        assertEquals(4, state.committedEventStoreIndex(), "committedEventStoreIndex");
+
+        //when
+        state.confirmedEventStoreIndex(4, 9);
+        step.doWork();
+
+        //then
+        assertEquals(9, state.committedEventStoreIndex(), "committedEventStoreIndex");
+
+        //when
+        state.confirmedEventStoreIndex(2, 3);
+        step.doWork();
+
+        //then
+        assertEquals(9, state.committedEventStoreIndex(), "committedEventStoreIndex never decreases");
+    }
+
+    @Test
+    void committedIndexRequiresQuorum() {
+        //given
+        state.confirmedEventStoreIndex(2, 9);
+
+        //when
+        step.doWork();
+
+        //then
+        assertEquals(-1, state.committedEventStoreIndex(), "committedEventStoreIndex");
+    }
+
+    @Test
+    void heartbeatIsSentWhenCommittedIndexChanges() {
+        //when
+        step.doWork();
+
+        //then
+        for (final int follower : FOLLOWERS) {
+            verify(eventSender).sendHeartbeat(follower, EVENTS);
+        }
+
+        //when
+        clearInvocations(eventSender);
+        step.doWork();
+
+        //then
+        verify(eventSender, never()).sendHeartbeat(anyInt(), anyLong());
+
+        //when
+        state.confirmedEventStoreIndex(2, 9);
+        state.confirmedEventStoreIndex(3, 9);
+        step.doWork();
+
+        //then
+        assertEquals(9, state.committedEventStoreIndex(), "committedEventStoreIndex");
+        verify(eventSender, times(FOLLOWERS.length)).sendHeartbeat(anyInt(), anyLong());
+    }
+
+    @Test
+    void noHeartbeatIfFollowerHasEventsToReceive() {
+        //given
+        state.nextEventStoreIndex(2, EVENTS - 1);
+        when(eventSender.sendEvents(2, EVENTS - 1, EVENTS)).thenReturn((long)EVENTS - 1);
+
+        //when
+        step.doWork();
+
+        //then
+        verify(eventSender).sendEvents(2, EVENTS - 1, EVENTS);
+        verify(eventSender, never()).sendHeartbeat(2, EVENTS - 1);
+        verify(eventSender).sendHeartbeat(3, EVENTS);
+    }
+
+    @Test
+    void heartbeatIsSentAgainAfterLeaderChange() {
+        //given
+        for (final int follower : FOLLOWERS) {
+            state.confirmedEventStoreIndex(follower, EVENTS - 1);
+        }
+        step.doWork();
+        clearInvocations(eventSender);
+
+        //when
+        state.leaderId(2);
+        step.doWork();
+
+        //then
+        verify(eventSender, never()).sendHeartbeat(anyInt(), anyLong());
+
+        //when
+        state.term(2).leaderId(LEADER);
+        step.doWork();
+
+        //then
+        verify(eventSender, times(FOLLOWERS.length)).sendHeartbeat(anyInt(), anyLong());
+    }
+
+    @Test
+    void replicationRestartsAfterConfirmedIndexWhenLeaderChanges() {
+        //given
+        state.confirmedEventStoreIndex(2, 4);
+        step.doWork();
+
+        //when
+        state.term(2).leaderId(3);
+        step.doWork();
+
+        //then
+        assertEquals(5, state.nextEventStoreIndex(2), "nextEventStoreIndex[2]");
+        assertEquals(0, state.nextEventStoreIndex(3), "nextEventStoreIndex[3]");
+
+        //when
+        clearInvocations(eventSender);
+        state.term(3).leaderId(LEADER);
+        step.doWork();
+
+        //then
+        verify(eventSender).sendEvents(2, 5, EVENTS);
+        verify(eventSender).sendEvents(3, 0, EVENTS);
+    }
+
+    @Test
+    void switchesToLiveSenderOnlyAfterBootstrapBatchesAreAcknowledged() {
+        //given
+        final EventSender bootstrapSender = mock(EventSender.class);
+        final ReplicationPluginStep step = bootstrapStep(bootstrapSender, TimeUnit.HOURS.toNanos(1));
+
+        //when
+        step.doWork();
+
+        //then
+        verify(bootstrapSender).sendEvents(2, 0, EVENTS);
+        verify(bootstrapSender).sendEvents(2, 4, EVENTS);
+        verify(bootstrapSender).sendEvents(2, 8, EVENTS);
+        verify(bootstrapSender).sendHeartbeat(2, EVENTS);
+        verify(eventSender, never()).sendEvents(eq(2), anyLong(), anyLong());
+        verify(eventSender, never()).sendHeartbeat(eq(2), anyLong());
+
+        //when
+        appendEvents(2);
+        step.doWork();
+
+        //then
+        verify(bootstrapSender, never()).sendEvents(2, EVENTS, EVENTS + 2);
+        verify(eventSender, never()).sendEvents(eq(2), anyLong(), anyLong());
+
+        //when
+        state.confirmedEventStoreIndex(2, 5);
+        step.doWork();
+
+        //then
+        verify(eventSender, never()).sendEvents(eq(2), anyLong(), anyLong());
+
+        //when
+        state.confirmedEventStoreIndex(2, EVENTS - 1);
+        step.doWork();
+
+        //then
+        verify(eventSender).sendEvents(2, EVENTS, EVENTS + 2);
+        verify(bootstrapSender, never()).sendEvents(2, EVENTS, EVENTS + 2);
+        assertEquals(EVENTS + 2, state.nextEventStoreIndex(2), "nextEventStoreIndex");
+    }
+
+    @Test
+    void resendsWithBootstrapSenderAfterReject() {
+        //given
+        final EventSender bootstrapSender = mock(EventSender.class);
+        final ReplicationPluginStep step = bootstrapStep(bootstrapSender, TimeUnit.HOURS.toNanos(1));
+        step.doWork();
+        appendEvents(2);
+
+        //when
+        state.confirmedEventStoreIndex(2, 3);
+        state.nextEventStoreIndex(2, 4);
+        step.doWork();
+
+        //then
+        verify(bootstrapSender).sendEvents(2, 4, EVENTS + 2);
+        verify(eventSender, never()).sendEvents(eq(2), anyLong(), anyLong());
+        assertEquals(1, metrics.resendCount(2), "resendCount");
+        assertEquals(EVENTS - 4, metrics.resentEvents(2), "resentEvents");
+        assertEquals(EVENTS + 2, state.nextEventStoreIndex(2), "nextEventStoreIndex");
+    }
+
+    @Test
+    void resendsUnconfirmedEventsAfterTimeout() {
+        //given
+        final EventSender bootstrapSender = mock(EventSender.class);
+        final ReplicationPluginStep step = bootstrapStep(bootstrapSender, 1);
+        step.doWork();
+
+        //when
+        step.doWork();
+
+        //then
+        verify(bootstrapSender, times(2)).sendEvents(2, 0, EVENTS);
+        assertEquals(1, metrics.resendCount(2), "resendCount");
+        assertEquals(EVENTS, metrics.resentEvents(2), "resentEvents");
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.tools4j.elara.plugin.replication.ReplicationState.NULL_SERVER;
+
+/**
+ * Unit test for {@link ReplicationStateFile}.
+ */
+class ReplicationStateFileTest {
+
+    @Test
+    void newFileHasInitialState(@TempDir final Path tempDir) {
+        //given
+        final File file = tempDir.resolve("replication.state").toFile();
+
+        //when
+        try (final ReplicationStateFile stateFile = ReplicationStateFile.open(file)) {
+
+            //then
+            assertEquals(ReplicationStateFile.FILE_LENGTH, file.length(), "file.length");
+            assertEquals(0, stateFile.electionTerm(), "electionTerm");
+            assertEquals(NULL_SERVER, stateFile.votedFor(), "votedFor");
+            assertEquals(-1, stateFile.committedEventStoreIndex(), "committedEventStoreIndex");
+        }
+    }
+
+    @Test
+    void stateIsRestoredWhenFileIsReopened(@TempDir final Path tempDir) {
+        //given
+        final File file = tempDir.resolve("replication.state").toFile();
+        try (final ReplicationStateFile stateFile = ReplicationStateFile.open(file)) {
+            final DefaultReplicationState state = new DefaultReplicationState(stateFile);
+            state.vote(7, 3);
+            state.committedEventStoreIndex(42);
+        }
+
+        //when
+        final ReplicationStateFile stateFile = ReplicationStateFile.open(file);
+        final DefaultReplicationState state = new DefaultReplicationState(stateFile);
+        stateFile.close();
+
+        //then
+        assertTrue(stateFile.isClosed(), "isClosed");
+        assertEquals(7, state.electionTerm(), "state.electionTerm");
+        assertEquals(3, state.votedFor(), "state.votedFor");
+        assertEquals(42, state.committedEventStoreIndex(), "state.committedEventStoreIndex");
+    }
+
+    @Test
+    void invalidFileIsRejected(@TempDir final Path tempDir) throws IOException {
+        //given
+        final File file = tempDir.resolve("replication.state").toFile();
+        try (final FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[ReplicationStateFile.FILE_LENGTH]);
+        }
+
+        //when + then
+        assertThrows(IllegalStateException.class, () -> ReplicationStateFile.open(file));
+    }
+}
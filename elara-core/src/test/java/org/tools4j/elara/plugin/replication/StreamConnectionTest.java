@@ -0,0 +1,220 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.replication;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+import org.tools4j.elara.plugin.replication.Connection.Handler;
+import org.tools4j.elara.stream.MessageReceiver;
+import org.tools4j.elara.stream.MessageSender;
+import org.tools4j.elara.stream.SendingResult;
+import org.tools4j.elara.stream.ipc.Ipc;
+import org.tools4j.elara.stream.ipc.IpcConfig;
+import org.tools4j.elara.stream.tcp.Tcp;
+import org.tools4j.elara.stream.tcp.TcpConnection;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.tools4j.elara.stream.ipc.Cardinality.ONE;
+
+/**
+ * Unit test for {@link StreamConnection}.
+ */
+class StreamConnectionTest {
+
+    private static final long TIMEOUT_MILLIS = 5_000;
+
+    @Test
+    void publishAndPollEnvelopedMessages() {
+        //given
+        final File file = new File("build/replication/stream-connection.map");
+        final IpcConfig config = IpcConfig.configure()
+                .senderCardinality(ONE)
+                .newFileCreateParentDirs(true)
+                .newFileDeleteIfPresent(true);
+        final MessageReceiver receiver = Ipc.newReceiver(file, 1 << 16, config);
+        try {
+            final MessageSender sender = Ipc.retryOpenSender(file, config);
+            try {
+                final StreamConnection leader = StreamConnection.create(1, MessageReceiver.CLOSED, sender);
+                final StreamConnection follower = StreamConnection.create(2, receiver, MessageSender.CLOSED);
+                final UnsafeBuffer payload = new UnsafeBuffer(new byte[16]);
+                final List<String> received = new ArrayList<>();
+
+                //when
+                payload.putLong(0, 42);
+                payload.putLong(8, 43);
+                final boolean sentToFollower = leader.publisher().publish(2, payload, 0, 16);
+                final boolean sentToOther = leader.publisher().publish(3, payload, 8, 8);
+                final boolean sentByFollower = follower.publisher().publish(1, payload, 0, 8);
+                int polled = 0;
+                for (int i = 0; i < 100 && polled < 2; i++) {
+                    polled += follower.poller().poll(recorder(received));
+                }
+
+                //then
+                assertTrue(sentToFollower, "sentToFollower");
+                assertTrue(sentToOther, "sentToOther");
+                assertEquals(false, sentByFollower, "sentByFollower");
+                assertEquals(2, polled, "polled");
+                assertEquals(1, received.size(), "received.size");
+                assertEquals("1:16:43", received.get(0));
+            } finally {
+                sender.close();
+            }
+        } finally {
+            receiver.close();
+        }
+    }
+
+    @Test
+    void publishAndPollOverTcp() throws Exception {
+        //given
+        final SocketAddress address = new InetSocketAddress("localhost", freePort());
+        final TcpConnection server = Tcp.bind(address);
+        try {
+            final TcpConnection client = Tcp.connect(address);
+            try {
+                final StreamConnection leader = StreamConnection.create(1, server);
+                final StreamConnection follower = StreamConnection.create(2, client);
+                final UnsafeBuffer payload = new UnsafeBuffer(new byte[8]);
+                final List<String> receivedByFollower = new ArrayList<>();
+                final List<String> receivedByLeader = new ArrayList<>();
+
+                //when
+                payload.putLong(0, 42);
+                publishAndPoll(leader, 2, payload, follower, receivedByFollower);
+                payload.putLong(0, 43);
+                publishAndPoll(follower, 1, payload, leader, receivedByLeader);
+
+                //then
+                assertEquals(Arrays.asList("1:8:42"), receivedByFollower, "receivedByFollower");
+                assertEquals(Arrays.asList("2:8:43"), receivedByLeader, "receivedByLeader");
+            } finally {
+                client.close();
+            }
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    void factoryReplacesClosedSender() {
+        //given
+        final List<RecordingSender> created = new ArrayList<>();
+        final StreamConnection connection = StreamConnection.create(1, MessageReceiver.CLOSED, targetServerId -> {
+            final RecordingSender sender = new RecordingSender();
+            created.add(sender);
+            return sender;
+        });
+        final UnsafeBuffer payload = new UnsafeBuffer(new byte[8]);
+        try {
+            //when
+            payload.putLong(0, 42);
+            final boolean sentToFirst = connection.publisher().publish(2, payload, 0, 8);
+            created.get(0).close();
+            payload.putLong(0, 43);
+            final boolean sentToSecond = connection.publisher().publish(2, payload, 0, 8);
+
+            //then
+            assertTrue(sentToFirst, "sentToFirst");
+            assertTrue(sentToSecond, "sentToSecond");
+            assertEquals(2, created.size(), "created.size");
+            assertEquals(Arrays.asList(42L), created.get(0).sent, "created[0].sent");
+            assertEquals(Arrays.asList(43L), created.get(1).sent, "created[1].sent");
+        } finally {
+            for (final RecordingSender sender : created) {
+                sender.close();
+            }
+        }
+    }
+
+    private static void publishAndPoll(final StreamConnection sender,
+                                       final int targetServerId,
+                                       final DirectBuffer payload,
+                                       final StreamConnection receiver,
+                                       final List<String> received) {
+        final Handler recorder = recorder(received);
+        final int expected = received.size() + 1;
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        boolean sent = false;
+        while (received.size() < expected && System.currentTimeMillis() < deadline) {
+            if (!sent) {
+                sent = sender.publisher().publish(targetServerId, payload, 0, payload.capacity());
+            }
+            sender.poller().poll(recorder);
+            receiver.poller().poll(recorder);
+        }
+        assertTrue(sent, "sent");
+    }
+
+    private static Handler recorder(final List<String> received) {
+        return (senderServerId, buffer, offset, length) ->
+                received.add(senderServerId + ":" + length + ":" + buffer.getLong(offset + length - Long.BYTES));
+    }
+
+    private static int freePort() throws IOException {
+        try (final ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static final class RecordingSender extends MessageSender.Buffered {
+        final List<Long> sent = new ArrayList<>();
+        boolean closed;
+
+        RecordingSender() {
+            super(64);
+        }
+
+        @Override
+        public SendingResult sendMessage(final DirectBuffer buffer, final int offset, final int length) {
+            if (closed) {
+                return SendingResult.CLOSED;
+            }
+            sent.add(buffer.getLong(offset + length - Long.BYTES));
+            return SendingResult.SENT;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
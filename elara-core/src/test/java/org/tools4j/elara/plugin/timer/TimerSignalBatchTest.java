@@ -0,0 +1,178 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.plugin.timer;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.tools4j.elara.app.message.Command;
+import org.tools4j.elara.plugin.timer.Timer.Style;
+import org.tools4j.elara.route.EventRouter;
+import org.tools4j.elara.send.CommandSender;
+import org.tools4j.elara.send.CommandSender.SendingContext;
+import org.tools4j.elara.source.CommandSource;
+import org.tools4j.elara.stream.SendingResult;
+import org.tools4j.elara.time.TimeSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.tools4j.elara.plugin.timer.TimerBatchPayloadDescriptor.TIMER_COUNT_OFFSET;
+import static org.tools4j.elara.plugin.timer.TimerBatchPayloadDescriptor.TIMER_LENGTH;
+import static org.tools4j.elara.plugin.timer.TimerBatchPayloadDescriptor.payloadSize;
+import static org.tools4j.elara.plugin.timer.TimerBatchPayloadDescriptor.timerOffset;
+
+/**
+ * Unit test for batch signalling of timers with {@link TimerCommands#SIGNAL_TIMERS SIGNAL_TIMERS} commands through
+ * {@link TimerSignalPoller} and {@link TimerCommandProcessor}.
+ */
+@ExtendWith(MockitoExtension.class)
+public class TimerSignalBatchTest {
+
+    private static final long CURRENT_TIME = 100;
+
+    @Mock
+    private TimeSource timeSource;
+    @Mock
+    private CommandSender commandSender;
+    @Mock
+    private CommandSource commandSource;
+    @Mock
+    private SendingContext sendingContext;
+    @Mock
+    private Command command;
+    @Mock
+    private EventRouter eventRouter;
+
+    private final MutableDirectBuffer buffer = new ExpandableArrayBuffer();
+    private MutableTimerState timerState;
+
+    @BeforeEach
+    public void init() {
+        timerState = new DeadlineHeapTimerState();
+        timerState.add(1, Style.TIMER, 0, 0, CURRENT_TIME, 0, 0);
+        timerState.add(2, Style.ALARM, 0, 0, CURRENT_TIME - 50, 0, 0);
+        timerState.add(3, Style.TIMER, 0, 0, CURRENT_TIME + 1, 0, 0);
+        timerState.add(4, Style.PERIODIC, 0, 0, CURRENT_TIME - 20, 0, 0);
+    }
+
+    @Test
+    public void timerCommandExcludesBatchSignal() {
+        assertTrue(TimerCommands.isTimerCommand(TimerCommands.SIGNAL_TIMER), "isTimerCommand(SIGNAL_TIMER)");
+        assertFalse(TimerCommands.isTimerCommand(TimerCommands.SIGNAL_TIMERS), "isTimerCommand(SIGNAL_TIMERS)");
+        assertTrue(TimerCommands.isTimerBatchCommand(TimerCommands.SIGNAL_TIMERS), "isTimerBatchCommand(SIGNAL_TIMERS)");
+        assertFalse(TimerCommands.isTimerBatchCommand(TimerCommands.SIGNAL_TIMER), "isTimerBatchCommand(SIGNAL_TIMER)");
+    }
+
+    @Test
+    public void pollerSendsDueTimersInBatch() {
+        //given
+        final TimerSignalPoller poller = new TimerSignalPoller(timeSource, timerState, 1, 8);
+        final ArgumentCaptor<Integer> length = ArgumentCaptor.forClass(Integer.class);
+        givenSender();
+
+        //when
+        final int polled = poller.poll(null, commandSender);
+
+        //then
+        verify(commandSender).sendingCommand(TimerCommands.SIGNAL_TIMERS);
+        verify(sendingContext).send(length.capture());
+        assertEquals(3, polled, "polled");
+        assertEquals(3, buffer.getInt(TIMER_COUNT_OFFSET, LITTLE_ENDIAN), "timer count");
+        assertEquals(payloadSize(3), length.getValue(), "payload length");
+        assertEquals(Arrays.asList(2L, 4L, 1L), timerIds(3), "timerIds");
+    }
+
+    @Test
+    public void pollerSendsEarliestDueTimersIfBatchIsFull() {
+        //given
+        final TimerSignalPoller poller = new TimerSignalPoller(timeSource, timerState, 1, 2);
+        givenSender();
+
+        //when
+        final int polled = poller.poll(null, commandSender);
+
+        //then
+        assertEquals(2, polled, "polled");
+        assertEquals(2, buffer.getInt(TIMER_COUNT_OFFSET, LITTLE_ENDIAN), "timer count");
+        assertEquals(Arrays.asList(2L, 4L), timerIds(2), "timerIds");
+    }
+
+    @Test
+    public void processorRoutesSignalEventPerExistingTimer() {
+        //given
+        final TimerSignalPoller poller = new TimerSignalPoller(timeSource, timerState, 1, 8);
+        givenSender();
+        poller.poll(null, commandSender);
+        final DirectBuffer payload = new UnsafeBuffer(buffer, 0, payloadSize(3));
+        timerState.removeById(FlyweightTimerPayload.timerId(payload, timerOffset(1)));
+        when(command.payloadType()).thenReturn(TimerCommands.SIGNAL_TIMERS);
+        when(command.payload()).thenReturn(payload);
+
+        //when
+        new TimerCommandProcessor(timerState).onCommand(command, eventRouter);
+
+        //then
+        verify(eventRouter).routeEvent(TimerEvents.TIMER_SIGNALLED, payload, timerOffset(0), TIMER_LENGTH);
+        verify(eventRouter, never()).routeEvent(anyInt(), any(), eq(timerOffset(1)), anyInt());
+        verify(eventRouter).routeEvent(TimerEvents.TIMER_SIGNALLED, payload, timerOffset(2), TIMER_LENGTH);
+        verify(eventRouter, times(2)).routeEvent(anyInt(), any(), anyInt(), anyInt());
+    }
+
+    private List<Long> timerIds(final int count) {
+        final List<Long> timerIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            timerIds.add(FlyweightTimerPayload.timerId(buffer, timerOffset(i)));
+        }
+        return timerIds;
+    }
+
+    private void givenSender() {
+        when(timeSource.currentTime()).thenReturn(CURRENT_TIME);
+        when(commandSender.source()).thenReturn(commandSource);
+        when(commandSource.hasInFlightCommand()).thenReturn(false);
+        when(commandSender.sendingCommand(TimerCommands.SIGNAL_TIMERS)).thenReturn(sendingContext);
+        when(sendingContext.buffer()).thenReturn(buffer);
+        when(sendingContext.send(anyInt())).thenReturn(SendingResult.SENT);
+    }
+}
@@ -23,15 +23,23 @@
  */
 package org.tools4j.elara.plugin.timer;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.tools4j.elara.plugin.timer.Timer.Style;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 /**
  * Unit test for {@link TimerState} implementations.
@@ -49,7 +57,7 @@ class TimerStateTest {
     private final int[] sorted = {0, 4, 2, 6, 3, 1, 5};
 
     @ParameterizedTest
-    @ValueSource(classes = {SimpleTimerState.class, DeadlineHeapTimerState.class})
+    @ValueSource(classes = {SimpleTimerState.class, DeadlineHeapTimerState.class, TimingWheelTimerState.class})
     public void addAndGet(final Class<? extends MutableTimerState> timerStateClass) throws Exception {
         //given
         final MutableTimerState timerState = timerStateClass.newInstance();
@@ -78,7 +86,7 @@ class TimerStateTest {
     }
 
     @ParameterizedTest
-    @ValueSource(classes = {SimpleTimerState.class, DeadlineHeapTimerState.class})
+    @ValueSource(classes = {SimpleTimerState.class, DeadlineHeapTimerState.class, TimingWheelTimerState.class})
     public void remove(final Class<? extends MutableTimerState> timerStateClass) throws Exception {
         //given
         final MutableTimerState timerState = timerStateClass.newInstance();
@@ -115,7 +123,7 @@ class TimerStateTest {
     }
 
     @ParameterizedTest
-    @ValueSource(classes = {SimpleTimerState.class, DeadlineHeapTimerState.class})
+    @ValueSource(classes = {SimpleTimerState.class, DeadlineHeapTimerState.class, TimingWheelTimerState.class})
     public void repeat(final Class<? extends MutableTimerState> timerStateClass) throws Exception {
         //given
         final MutableTimerState timerState = timerStateClass.newInstance();
@@ -175,7 +183,7 @@ class TimerStateTest {
     }
 
     @ParameterizedTest
-    @ValueSource(classes = {SimpleTimerState.class, DeadlineHeapTimerState.class})
+    @ValueSource(classes = {SimpleTimerState.class, DeadlineHeapTimerState.class, TimingWheelTimerState.class})
     public void removeAndSeek(final Class<? extends MutableTimerState> timerStateClass) throws Exception {
         //given
         //            1
@@ -227,4 +235,133 @@ class TimerStateTest {
         }
         assertEquals(0, timerState.count());
     }
-}
\ No newline at end of file
+
+    @ParameterizedTest
+    @ValueSource(classes = {SimpleTimerState.class, DeadlineHeapTimerState.class, TimingWheelTimerState.class})
+    public void forEachDueTimer(final Class<? extends MutableTimerState> timerStateClass) throws Exception {
+        //given
+        final MutableTimerState timerState = timerStateClass.newInstance();
+        for (int i = 0; i < time.length; i++) {
+            timerState.add(idOffset + i, Style.TIMER, 0, time[i], timeout[i], typeOffset + i, contextIdOffset + i);
+        }
+        final long currentTime = t0 + 25;
+        final Set<Long> due = new HashSet<>();
+
+        //when
+        final int count = timerState.forEachDueTimer(currentTime, time.length, index -> {
+            assertTrue(timerState.deadline(index) <= currentTime, "deadline(" + index + ") <= currentTime");
+            due.add(timerState.timerId(index));
+        });
+
+        //then
+        assertEquals(3, count, "count");
+        assertEquals(new HashSet<>(Arrays.asList(idOffset + 0, idOffset + 2, idOffset + 4)), due, "due");
+
+        //when
+        due.clear();
+        final int limited = timerState.forEachDueTimer(currentTime, 2, index -> due.add(timerState.timerId(index)));
+
+        //then
+        assertEquals(2, limited, "limited");
+        assertEquals(2, due.size(), "due.size");
+        assertEquals(0, timerState.forEachDueTimer(t0, time.length, index -> fail("no timer due")), "none due");
+    }
+
+    @ParameterizedTest
+    @ValueSource(classes = {SimpleTimerState.class, DeadlineHeapTimerState.class, TimingWheelTimerState.class})
+    public void forEachDueTimerPassesEarliestDeadlinesFirst(final Class<? extends MutableTimerState> timerStateClass) throws Exception {
+        //given
+        //                  1
+        //  heap:       10      2
+        //            11  12  3   4
+        //          30
+        final MutableTimerState timerState = timerStateClass.newInstance();
+        for (final long deadline : new long[]{1, 10, 2, 11, 12, 3, 4, 30}) {
+            timerState.add(deadline, Style.TIMER, 0, 0, deadline, 0, 0);
+        }
+        final long currentTime = 20;
+        final List<Long> due = new ArrayList<>();
+
+        //when
+        final int limited = timerState.forEachDueTimer(currentTime, 4, index -> due.add(timerState.timerId(index)));
+
+        //then
+        assertEquals(4, limited, "limited");
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), due, "due");
+
+        //when
+        due.clear();
+        final int count = timerState.forEachDueTimer(currentTime, 100, index -> due.add(timerState.timerId(index)));
+
+        //then
+        assertEquals(7, count, "count");
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 10L, 11L, 12L), due, "due");
+    }
+
+    @Test
+    public void timingWheelFiresAllDueTimersWhenAdvancedWithTime() {
+        //given
+        final Random random = new Random(123);
+        final MutableTimerState heap = new DeadlineHeapTimerState();
+        final MutableTimerState wheel = new TimingWheelTimerState(16, 1, 8, 3);
+        final long startTime = 1_000_000;
+        final int n = 2000;
+        long timerId = 0;
+
+        //when
+        long time = startTime;
+        int fired = 0;
+        while (fired < n) {
+            if (timerId < n) {
+                //add some timers with timeouts also exceeding the wheel range to test overflow
+                final long timeout = 1 + random.nextInt(random.nextBoolean() ? 100 : 50_000_000);
+                timerId++;
+                heap.add(timerId, Style.TIMER, 0, time, timeout, 0, 0);
+                wheel.add(timerId, Style.TIMER, 0, time, timeout, 0, 0);
+                if (timerId % 7 == 0) {
+                    if (heap.removeById(timerId - 3)) {
+                        assertTrue(wheel.removeById(timerId - 3), "removeById(" + (timerId - 3) + ")");
+                        fired++;
+                    }
+                }
+            }
+            int index;
+            while ((index = wheel.indexOfNextDeadline(time)) >= 0 && wheel.deadline(index) <= time) {
+                //then: timers due in the same advance fire in no particular order
+                assertTrue(heap.removeById(wheel.timerId(index)), "removeById(" + wheel.timerId(index) + ")");
+                wheel.remove(index);
+                fired++;
+            }
+            //then: no due timer is left behind
+            final int heapIndex = heap.indexOfNextDeadline();
+            assertTrue(heapIndex < 0 || heap.deadline(heapIndex) > time, "heap has no due timer");
+            assertEquals(heap.count(), wheel.count(), "count");
+            time += timerId < n ? 10 : 1 + random.nextInt(100_000);
+        }
+
+        //then
+        assertEquals(0, wheel.count(), "count");
+        assertEquals(-1, wheel.indexOfNextDeadline(time), "indexOfNextDeadline(time)");
+    }
+
+    @Test
+    public void timingWheelWithCoarseTicksFindsDueTimersOfSameTick() {
+        //given
+        final MutableTimerState wheel = new TimingWheelTimerState(16, 10, 8, 3);
+        wheel.add(1, Style.TIMER, 0, 0, 9, 0, 0);
+        wheel.add(2, Style.TIMER, 0, 0, 5, 0, 0);
+        final long time = 6;
+
+        //when
+        final int nextIndex = wheel.indexOfNextDeadline(time);
+        final Set<Long> dueTimerIds = new HashSet<>();
+        final int due = wheel.forEachDueTimer(time, 2, index -> dueTimerIds.add(wheel.timerId(index)));
+
+        //then: timers of the same tick are ordered by deadline, hence the next timer is due
+        assertEquals(2, wheel.timerId(nextIndex), "timerId(indexOfNextDeadline(time))");
+        assertTrue(wheel.deadline(nextIndex) <= time, "deadline(indexOfNextDeadline(time)) <= time");
+        //then: and due timers of the same tick are found
+        assertEquals(1, due, "due");
+        assertEquals(new HashSet<>(Arrays.asList(2L)), dueTimerIds, "dueTimerIds");
+    }
+}
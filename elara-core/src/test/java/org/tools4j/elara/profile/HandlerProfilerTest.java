@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.profile;
+
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.junit.jupiter.api.Test;
+import org.tools4j.elara.flyweight.EventType;
+import org.tools4j.elara.flyweight.FlyweightCommand;
+import org.tools4j.elara.flyweight.FlyweightEvent;
+import org.tools4j.elara.store.InMemoryStore;
+import org.tools4j.elara.store.MessageStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit test for {@link HandlerProfiler}.
+ */
+public class HandlerProfilerTest {
+
+    @Test
+    public void profileReplaysCommandsAndEventsInOriginalOrder() {
+        //given
+        final MessageStore commandStore = new InMemoryStore();
+        final MessageStore eventStore = new InMemoryStore();
+        appendCommand(commandStore, 1, 1, 7);
+        appendCommand(commandStore, 1, 2, 8);//skipped, no events
+        appendCommand(commandStore, 1, 3, 7);
+        appendCommand(commandStore, 1, 4, 9);//not processed yet
+        appendEvent(eventStore, EventType.INTERMEDIARY, 1, 1, 0, 1, 100);
+        appendEvent(eventStore, EventType.APP_COMMIT, 1, 1, 1, 2, 101);
+        appendEvent(eventStore, EventType.AUTO_COMMIT, 2, 1, 0, 3, 0);
+        appendEvent(eventStore, EventType.AUTO_COMMIT, 1, 3, 0, 4, 0);
+        final List<String> invocations = new ArrayList<>();
+        final HandlerProfiler profiler = new HandlerProfiler(commandStore, eventStore,
+                (command, router) -> {
+                    invocations.add("cmd:" + command.sourceSequence() + ":" + router.nextEventSequence());
+                    router.routeEventWithCommandPayload();
+                },
+                event -> invocations.add("evt:" + event.eventSequence())
+        );
+
+        //when
+        profiler.profile();
+
+        //then
+        assertEquals(Arrays.asList("cmd:1:1", "evt:1", "evt:2", "evt:3", "cmd:3:4", "evt:4", "cmd:4:0"), invocations);
+        assertArrayEquals(new int[] {7, 9}, profiler.commandProfile().payloadTypes());
+        assertEquals(2, profiler.commandProfile().profile(7).count());
+        assertEquals(1, profiler.commandProfile().profile(9).count());
+        assertNull(profiler.commandProfile().profile(8));
+        assertArrayEquals(new int[] {0, 100, 101}, profiler.eventProfile().payloadTypes());
+        assertEquals(2, profiler.eventProfile().profile(0).count());
+        assertEquals(profiler.isAllocationAvailable(), profiler.eventProfile().profile(0).isAllocationAvailable());
+        assertThrows(IllegalStateException.class, profiler::profile);
+    }
+
+    @Test
+    public void profileMatchesCommandsOfInterleavedSources() {
+        //given
+        final int a = 1, b = 2, x = 9;
+        final MessageStore commandStore = new InMemoryStore();
+        final MessageStore eventStore = new InMemoryStore();
+        appendCommand(commandStore, a, 1, 7);//skipped, no events
+        appendCommand(commandStore, b, 1, 7);
+        appendCommand(commandStore, a, 2, 7);
+        appendCommand(commandStore, b, 2, 7);//skipped, no events
+        appendCommand(commandStore, b, 3, 7);
+        appendCommand(commandStore, a, 4, 7);
+        appendEvent(eventStore, EventType.INTERMEDIARY, b, 1, 0, 1, 100);
+        appendEvent(eventStore, EventType.APP_COMMIT, b, 1, 1, 2, 100);
+        appendEvent(eventStore, EventType.AUTO_COMMIT, a, 2, 0, 3, 0);
+        appendEvent(eventStore, EventType.AUTO_COMMIT, x, 1, 0, 4, 0);//source without stored commands
+        appendEvent(eventStore, EventType.AUTO_COMMIT, b, 3, 0, 5, 0);
+        appendEvent(eventStore, EventType.AUTO_COMMIT, a, 3, 0, 6, 0);//command not stored
+        appendEvent(eventStore, EventType.AUTO_COMMIT, a, 4, 0, 7, 0);
+        final List<String> invocations = new ArrayList<>();
+        final HandlerProfiler profiler = new HandlerProfiler(commandStore, eventStore,
+                (command, router) -> {
+                    invocations.add("cmd:" + command.sourceId() + ":" + command.sourceSequence() + ":" +
+                            router.nextEventSequence());
+                    router.routeEventWithCommandPayload();
+                },
+                event -> invocations.add("evt:" + event.eventSequence())
+        );
+
+        //when
+        profiler.profile();
+
+        //then
+        assertEquals(Arrays.asList(
+                "cmd:2:1:1", "evt:1", "evt:2",
+                "cmd:1:2:3", "evt:3",
+                "evt:4",
+                "cmd:2:3:5", "evt:5",
+                "evt:6",
+                "cmd:1:4:7", "evt:7"
+        ), invocations);
+        assertEquals(4, profiler.commandProfile().profile(7).count());
+    }
+
+    private static void appendCommand(final MessageStore store, final int sourceId, final long sourceSeq, final int type) {
+        final MutableDirectBuffer buffer = new ExpandableArrayBuffer(FlyweightCommand.HEADER_LENGTH);
+        final int length = FlyweightCommand.writeHeader(sourceId, sourceSeq, 123L, type, 0, buffer, 0);
+        store.appender().append(buffer, 0, length);
+    }
+
+    private static void appendEvent(final MessageStore store, final EventType eventType, final int sourceId,
+                                    final long sourceSeq, final int index, final long eventSeq, final int type) {
+        final MutableDirectBuffer buffer = new ExpandableArrayBuffer(FlyweightEvent.HEADER_LENGTH);
+        final int length = FlyweightEvent.writeHeader(eventType, sourceId, sourceSeq, (short)index, eventSeq, 123L,
+                type, 0, buffer, 0);
+        store.appender().append(buffer, 0, length);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.send;
+
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.tools4j.elara.app.state.DefaultBaseState;
+import org.tools4j.elara.flyweight.FlyweightCommand;
+import org.tools4j.elara.source.CommandSource;
+import org.tools4j.elara.source.DefaultCommandSourceProvider;
+import org.tools4j.elara.store.InMemoryStore;
+import org.tools4j.elara.store.MessageStore;
+import org.tools4j.elara.store.MessageStore.Handler.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.tools4j.elara.app.state.MutableInFlightState.NO_IN_FLIGHT_STATE;
+
+/**
+ * Unit test for {@link BatchingCommandSender}
+ */
+public class BatchingCommandSenderTest {
+
+    private static final int SOURCE_ID = 42;
+
+    private InMemoryStore commandStore;
+    private CommandSource commandSource;
+
+    //under test
+    private BatchingCommandSender batchingSender;
+
+    @BeforeEach
+    public void init() {
+        commandStore = new InMemoryStore();
+        commandSource = new DefaultCommandSourceProvider(new DefaultBaseState(), NO_IN_FLIGHT_STATE,
+                new CommandAppendingSender(() -> 1234L, commandStore.appender())
+        ).sourceById(SOURCE_ID);
+        batchingSender = new BatchingCommandSender(commandSource, 16);
+    }
+
+    @Test
+    public void shouldClaimSequencesAndSendOnFlush() {
+        //given
+        final long firstSeq = commandSource.commandSender().nextCommandSequence();
+        final MutableDirectBuffer message = new ExpandableArrayBuffer();
+        message.putLong(0, 777);
+
+        //when
+        try (final CommandSender.SendingContext context = batchingSender.sendingCommand(3)) {
+            assertEquals(firstSeq, context.sourceSequence(), "context.sourceSequence");
+            context.buffer().putLong(0, 666);
+            context.send(Long.BYTES);
+        }
+        batchingSender.sendCommand(4, message, 0, Long.BYTES);
+        batchingSender.sendCommandWithoutPayload(5);
+
+        //then
+        assertEquals(firstSeq + 3, batchingSender.nextCommandSequence(), "nextCommandSequence");
+        assertEquals(3, batchingSender.pendingCommands(), "pendingCommands");
+        assertEquals(0, commandStore.size(), "commandStore.size");
+
+        //when
+        final int sent = batchingSender.flush();
+
+        //then
+        assertEquals(3, sent, "sent");
+        assertEquals(0, batchingSender.pendingCommands(), "pendingCommands");
+        assertEquals(firstSeq + 3, batchingSender.nextCommandSequence(), "nextCommandSequence");
+        final List<String> commands = commands();
+        assertEquals(3, commands.size(), "commands.size");
+        assertEquals(SOURCE_ID + ":" + firstSeq + ":3:666", commands.get(0));
+        assertEquals(SOURCE_ID + ":" + (firstSeq + 1) + ":4:777", commands.get(1));
+        assertEquals(SOURCE_ID + ":" + (firstSeq + 2) + ":5", commands.get(2));
+    }
+
+    private List<String> commands() {
+        final List<String> commands = new ArrayList<>();
+        final FlyweightCommand command = new FlyweightCommand();
+        final MessageStore.Poller poller = commandStore.poller();
+        while (poller.poll(message -> {
+            command.wrap(message, 0);
+            commands.add(command.sourceId() + ":" + command.sourceSequence() + ":" + command.payloadType() +
+                    (command.payloadSize() > 0 ? ":" + command.payload().getLong(0) : ""));
+            command.reset();
+            return Result.POLL;
+        }) > 0);
+        return commands;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.step;
+
+import org.junit.jupiter.api.Test;
+import org.tools4j.elara.step.PollerPublisherStepTest.RecordingHandler;
+import org.tools4j.elara.store.InMemoryStore;
+import org.tools4j.elara.store.MessageStore;
+import org.tools4j.elara.store.StorePollingMessageReceiver;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.tools4j.elara.step.PollerPublisherStepTest.appendEvents;
+
+/**
+ * Unit test for batch notifications through {@link OutputBatch} in publisher steps.
+ */
+public class OutputBatchTest {
+
+    @Test
+    public void publishesEventsInBatches() {
+        //given
+        final MessageStore eventStore = new InMemoryStore();
+        appendEvents(eventStore, 1, 5);
+        final RecordingHandler handler = new RecordingHandler();
+        final PollerPublisherStep step = PollerPublisherStep.committedEventsPoller(handler, eventStore, 2);
+
+        //when
+        while (step.doWork() > 0);
+
+        //then
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), handler.published);
+        assertEquals(Arrays.asList(2, 2, 1), handler.batches);
+        assertEquals(3, handler.batchStarts);
+    }
+
+    @Test
+    public void retriedPublishInvocationsAreNotCounted() {
+        //given
+        final MessageStore eventStore = new InMemoryStore();
+        appendEvents(eventStore, 1, 3);
+        final RecordingHandler handler = new RecordingHandler();
+        handler.retrySequence = 2;
+        final PollerPublisherStep step = PollerPublisherStep.committedEventsPoller(handler, eventStore, 3);
+
+        //when
+        while (step.doWork() > 0);
+
+        //then
+        assertEquals(Arrays.asList(1L, 2L, 3L), handler.published);
+        assertEquals(Arrays.asList(1, 2), handler.batches);
+        assertEquals(2, handler.batchStarts);
+    }
+
+    @Test
+    public void noBatchNotificationsWithoutEvents() {
+        //given
+        final RecordingHandler handler = new RecordingHandler();
+        final PollerPublisherStep step = PollerPublisherStep.committedEventsPoller(handler, new InMemoryStore(), 2);
+
+        //when
+        final int workDone = step.doWork();
+
+        //then
+        assertEquals(0, workDone);
+        assertEquals(0, handler.batchStarts);
+        assertEquals(0, handler.batches.size());
+    }
+
+    @Test
+    public void receiverPublisherNotifiesBatchPerPoll() {
+        //given
+        final MessageStore eventStore = new InMemoryStore();
+        appendEvents(eventStore, 1, 3);
+        final RecordingHandler handler = new RecordingHandler();
+        final ReceiverPublisherStep step = new ReceiverPublisherStep(handler,
+                new StorePollingMessageReceiver(eventStore));
+
+        //when
+        while (step.doWork() > 0);
+
+        //then
+        assertEquals(Arrays.asList(1L, 2L, 3L), handler.published);
+        assertEquals(handler.batchStarts, handler.batches.size());
+        assertEquals(3, handler.batches.stream().mapToInt(Integer::intValue).sum());
+    }
+}
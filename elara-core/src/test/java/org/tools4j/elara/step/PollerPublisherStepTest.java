@@ -0,0 +1,180 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.step;
+
+import org.agrona.ExpandableArrayBuffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tools4j.elara.app.message.Event;
+import org.tools4j.elara.flyweight.EventType;
+import org.tools4j.elara.flyweight.FlyweightEvent;
+import org.tools4j.elara.handler.OutputHandler;
+import org.tools4j.elara.output.Output.Ack;
+import org.tools4j.elara.output.OutputCheckpoint;
+import org.tools4j.elara.store.InMemoryStore;
+import org.tools4j.elara.store.MessageStore;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.tools4j.elara.sequence.SequenceSupplier.NIL_SEQUENCE;
+
+/**
+ * Unit test for {@link PollerPublisherStep}
+ */
+public class PollerPublisherStepTest {
+
+    @Test
+    public void resumesAfterCheckpoint(@TempDir final Path tempDir) {
+        //given
+        final File file = tempDir.resolve("publisher.cpt").toFile();
+        final MessageStore eventStore = new InMemoryStore();
+        appendEvents(eventStore, 1, 3);
+        try (final OutputCheckpoint checkpoint = OutputCheckpoint.mapped(file)) {
+            final RecordingHandler handler = new RecordingHandler();
+            final PollerPublisherStep step = PollerPublisherStep.committedEventsPoller(handler, eventStore, checkpoint, 8);
+
+            //when
+            while (step.doWork() > 0);
+
+            //then
+            assertEquals(Arrays.asList(1L, 2L, 3L), handler.published);
+            assertEquals(3, checkpoint.eventSequence());
+        }
+
+        //when
+        appendEvents(eventStore, 4, 5);
+        try (final OutputCheckpoint checkpoint = OutputCheckpoint.mapped(file)) {
+            final RecordingHandler handler = new RecordingHandler();
+            final PollerPublisherStep step = PollerPublisherStep.committedEventsPoller(handler, eventStore, checkpoint, 8);
+            while (step.doWork() > 0);
+
+            //then
+            assertEquals(Arrays.asList(4L, 5L), handler.published);
+            assertEquals(5, checkpoint.eventSequence());
+        }
+    }
+
+    @Test
+    public void seeksBySequenceIfEntryIdIsInvalid(@TempDir final Path tempDir) {
+        //given
+        final MessageStore eventStore = new InMemoryStore();
+        appendEvents(eventStore, 1, 4);
+        try (final OutputCheckpoint checkpoint = OutputCheckpoint.mapped(tempDir.resolve("publisher.cpt").toFile())) {
+            checkpoint.update(12345, 2);
+            final RecordingHandler handler = new RecordingHandler();
+            final PollerPublisherStep step = PollerPublisherStep.committedEventsPoller(handler, eventStore, checkpoint, 1);
+
+            //when
+            while (step.doWork() > 0);
+
+            //then
+            assertEquals(Arrays.asList(3L, 4L), handler.published);
+            assertEquals(4, checkpoint.eventSequence());
+        }
+    }
+
+    @Test
+    public void seeksBySequenceBetweenEvents(@TempDir final Path tempDir) {
+        //given
+        final MessageStore eventStore = new InMemoryStore();
+        for (long seq = 2; seq <= 200; seq += 2) {
+            appendEvents(eventStore, seq, seq);
+        }
+        try (final OutputCheckpoint checkpoint = OutputCheckpoint.mapped(tempDir.resolve("publisher.cpt").toFile())) {
+            checkpoint.update(12345, 171);
+            final RecordingHandler handler = new RecordingHandler();
+            final PollerPublisherStep step = PollerPublisherStep.committedEventsPoller(handler, eventStore, checkpoint, 8);
+
+            //when
+            while (step.doWork() > 0);
+
+            //then
+            assertEquals(15, handler.published.size());
+            assertEquals(172L, handler.published.get(0));
+            assertEquals(200L, handler.published.get(14));
+        }
+    }
+
+    @Test
+    public void scansForwardFromCheckpointedEntryPrecedingCheckpointedEvent(@TempDir final Path tempDir) {
+        //given
+        final MessageStore eventStore = new InMemoryStore();
+        appendEvents(eventStore, 1, 10);
+        try (final OutputCheckpoint checkpoint = OutputCheckpoint.mapped(tempDir.resolve("publisher.cpt").toFile())) {
+            //entry ID 2 is the event with sequence 3
+            checkpoint.update(2, 6);
+            final RecordingHandler handler = new RecordingHandler();
+            final PollerPublisherStep step = PollerPublisherStep.committedEventsPoller(handler, eventStore, checkpoint, 8);
+
+            //when
+            while (step.doWork() > 0);
+
+            //then
+            assertEquals(Arrays.asList(7L, 8L, 9L, 10L), handler.published);
+            assertEquals(10, checkpoint.eventSequence());
+        }
+    }
+
+    static void appendEvents(final MessageStore eventStore, final long fromSequence, final long toSequence) {
+        final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer();
+        try (final MessageStore.Appender appender = eventStore.appender()) {
+            for (long seq = fromSequence; seq <= toSequence; seq++) {
+                final int length = FlyweightEvent.writeHeader(EventType.APP_COMMIT, 1, seq, (short)0, seq, seq, 0, 0,
+                        buffer, 0);
+                appender.append(buffer, 0, length);
+            }
+        }
+    }
+
+    static final class RecordingHandler implements OutputHandler {
+        final List<Long> published = new ArrayList<>();
+        final List<Integer> batches = new ArrayList<>();
+        int batchStarts;
+        long retrySequence = NIL_SEQUENCE;
+
+        @Override
+        public Ack publish(final Event event, final boolean replay, final int retry) {
+            if (event.eventSequence() == retrySequence && retry == 0) {
+                return Ack.RETRY;
+            }
+            published.add(event.eventSequence());
+            return Ack.COMMIT;
+        }
+
+        @Override
+        public void onBatchStart() {
+            batchStarts++;
+        }
+
+        @Override
+        public void onBatchEnd(final int batchSize) {
+            batches.add(batchSize);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.store;
+
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.tools4j.elara.store.MessageStore.Poller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.tools4j.elara.store.MessageStore.Handler.Result.POLL;
+
+/**
+ * Unit test for {@link DefaultIndexTrackingPoller}
+ */
+class DefaultIndexTrackingPollerTest {
+
+    private static final int MESSAGES = 10;
+
+    private Poller storePoller;
+    private DefaultIndexTrackingPoller poller;
+
+    @BeforeEach
+    void init() {
+        final MessageStore messageStore = spy(new InMemoryStore());
+        final MutableDirectBuffer buffer = new ExpandableArrayBuffer(Integer.BYTES);
+        for (int i = 0; i < MESSAGES; i++) {
+            buffer.putInt(0, i);
+            messageStore.appender().append(buffer, 0, Integer.BYTES);
+        }
+        doAnswer(invocation -> storePoller = spy((Poller)invocation.callRealMethod())).when(messageStore).poller();
+        poller = new DefaultIndexTrackingPoller(messageStore);
+        clearInvocations(storePoller);
+    }
+
+    @Test
+    void moveToIndexBackwardFromCurrentPosition() {
+        //given
+        assertTrue(poller.moveToIndex(8), "moveToIndex(8)");
+        clearInvocations(storePoller);
+
+        //when
+        final boolean moved = poller.moveToIndex(6);
+
+        //then
+        assertTrue(moved, "moved");
+        assertEquals(6, poller.index(), "index");
+        verify(storePoller, times(2)).moveToPrevious();
+        verify(storePoller, never()).moveToStart();
+        assertEquals(6, pollValue(poller), "polled value");
+        assertEquals(7, poller.index(), "index after poll");
+    }
+
+    @Test
+    void moveToIndexForwardFromStartIfCloser() {
+        //given
+        assertTrue(poller.moveToIndex(8), "moveToIndex(8)");
+        clearInvocations(storePoller);
+
+        //when
+        final boolean moved = poller.moveToIndex(2);
+
+        //then
+        assertTrue(moved, "moved");
+        assertEquals(2, poller.index(), "index");
+        verify(storePoller, never()).moveToPrevious();
+        verify(storePoller).moveToStart();
+        assertEquals(2, pollValue(poller), "polled value");
+    }
+
+    @Test
+    void moveToIndexBackwardToStart() {
+        //given
+        assertTrue(poller.moveToIndex(2), "moveToIndex(2)");
+
+        //when
+        final boolean moved = poller.moveToIndex(0);
+
+        //then
+        assertTrue(moved, "moved");
+        assertEquals(0, poller.index(), "index");
+        assertEquals(0, pollValue(poller), "polled value");
+    }
+
+    @Test
+    void moveToInvalidIndexKeepsPosition() {
+        //given
+        assertTrue(poller.moveToIndex(5), "moveToIndex(5)");
+
+        //when
+        final boolean movedBeyondEnd = poller.moveToIndex(MESSAGES + 1);
+        final boolean movedBeforeStart = poller.moveToIndex(-1);
+
+        //then
+        assertFalse(movedBeyondEnd, "movedBeyondEnd");
+        assertFalse(movedBeforeStart, "movedBeforeStart");
+        assertEquals(5, poller.index(), "index");
+        assertEquals(5, pollValue(poller), "polled value");
+    }
+
+    @Test
+    void moveToEntryTracksIndex() {
+        //given
+        assertTrue(poller.moveToIndex(7), "moveToIndex(7)");
+        final long entryId = poller.entryId();
+        poller.moveToStart();
+
+        //when
+        final boolean moved = poller.moveTo(entryId);
+
+        //then
+        assertTrue(moved, "moved");
+        assertEquals(7, poller.index(), "index");
+        assertEquals(7, pollValue(poller), "polled value");
+    }
+
+    private static int pollValue(final Poller poller) {
+        final int[] value = {-1};
+        poller.poll(message -> {
+            value[0] = message.getInt(0);
+            return POLL;
+        });
+        return value[0];
+    }
+}
@@ -25,9 +25,14 @@ package org.tools4j.elara.samples.activation;
 
 import net.openhft.chronicle.queue.ChronicleQueue;
 import net.openhft.chronicle.wire.WireType;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
 import org.junit.jupiter.api.Test;
 import org.tools4j.elara.app.config.CommandPollingMode;
 import org.tools4j.elara.chronicle.ChronicleMessageStore;
+import org.tools4j.elara.flyweight.PayloadType;
+import org.tools4j.elara.handler.WarmUpCommandHandler;
+import org.tools4j.elara.plugin.activation.ActivationConfigurator;
 import org.tools4j.elara.plugin.activation.ActivationPlugin;
 import org.tools4j.elara.plugin.activation.CommandCachingMode;
 import org.tools4j.elara.plugin.api.Plugins;
@@ -40,6 +45,7 @@ import org.tools4j.elara.store.InMemoryStore;
 import java.util.Random;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
 import java.util.function.IntPredicate;
 
@@ -110,6 +116,30 @@ public class ActivationHashApplicationTest {
         assertEquals(expectedHash, state.hash(), "state.hash(" + n + ")");
     }
 
+    @Test
+    public void discardCommands_WarmUpWhilePassive() throws Exception {
+        //given
+        final AtomicLong warmUpCommands = new AtomicLong();
+        final AtomicReference<WarmUpCommandHandler> warmUpHandler = new AtomicReference<>();
+        final MutableDirectBuffer payload = new ExpandableArrayBuffer(Long.BYTES);
+        final ActivationConfigurator config = ActivationPlugin.configure()
+                .commandWarmUp(handler -> {
+                    warmUpHandler.set(handler);
+                    payload.putLong(0, warmUpCommands.incrementAndGet());
+                    handler.processCommand(PayloadType.DEFAULT, payload, 0, Long.BYTES);
+                    return 1;
+                })
+                .warmUpWithShadowCommands(true);
+
+        //when
+        discardCommands(false, CommandStoreOption.MEMORY, config);
+
+        //then
+        assertTrue(warmUpCommands.get() > 0, "warmUpCommands > 0");
+        assertEquals(130, warmUpHandler.get().commandCount() - warmUpCommands.get(), "shadow commands");
+        assertEquals(warmUpHandler.get().commandCount(), warmUpHandler.get().eventCount(), "events");
+    }
+
     @Test
     public void replayCommands_InMemoryCommandStore() throws Exception {
         replayCommands(false, CommandStoreOption.MEMORY);
@@ -131,6 +161,12 @@ public class ActivationHashApplicationTest {
     }
 
     private void discardCommands(final boolean isReplay, final CommandStoreOption queueMode) throws Exception {
+        discardCommands(isReplay, queueMode, ActivationPlugin.configure());
+    }
+
+    private void discardCommands(final boolean isReplay,
+                                 final CommandStoreOption queueMode,
+                                 final ActivationConfigurator config) throws Exception {
         //given
         final int n = 200;
         final HashApplication.ModifiableState state = new DefaultState();
@@ -146,7 +182,8 @@ public class ActivationHashApplicationTest {
         };
 
         //when
-        runWithCommandReplayMode(n, isReplay, CommandCachingMode.DISCARD, state, active, inlineAsserts, queueMode);
+        runWithCommandReplayMode(n, isReplay, config.commandCachingMode(CommandCachingMode.DISCARD), state, active,
+                inlineAsserts, queueMode);
 
         //then
         assertEquals(expectedCount, state.count(), "state.count(" + n + ")");
@@ -182,14 +219,24 @@ public class ActivationHashApplicationTest {
                                           final IntPredicate active,
                                           final InlineAsserts inlineAsserts,
                                           final CommandStoreOption queueMode) throws Exception {
+        runWithCommandReplayMode(n, isReplay, ActivationPlugin.configure().commandCachingMode(replayMode), state,
+                active, inlineAsserts, queueMode);
+    }
+
+    private void runWithCommandReplayMode(final int n,
+                                          final boolean isReplay,
+                                          final ActivationConfigurator config,
+                                          final HashApplication.ModifiableState state,
+                                          final IntPredicate active,
+                                          final InlineAsserts inlineAsserts,
+                                          final CommandStoreOption queueMode) throws Exception {
         //given
+        final CommandCachingMode replayMode = config.commandCachingMode();
         final AtomicLong input = new AtomicLong(NULL_VALUE);
         final Random random = new Random(123);
         final long shortSleepNanos = MILLISECONDS.toNanos(1);
         final long activationSleepNanos = MILLISECONDS.toNanos(500);
-        final ActivationPlugin plugin = Plugins.activationPlugin(ActivationPlugin.configure()
-                .commandCachingMode(replayMode)
-        );
+        final ActivationPlugin plugin = Plugins.activationPlugin(config);
 
         //when
         try (final ElaraRunner runner = elaraRunner(queueMode, replayMode, state, input, plugin)) {
@@ -0,0 +1,509 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2024 tools4j.org (Marco Terzer, Anton Anufriev)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.elara.samples.allocation;
+
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.wire.WireType;
+import org.agrona.DirectBuffer;
+import org.agrona.IoUtil;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.OneToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.tools4j.elara.app.message.Command;
+import org.tools4j.elara.app.message.Event;
+import org.tools4j.elara.app.state.SingleEventBaseState;
+import org.tools4j.elara.app.type.AllInOneApp;
+import org.tools4j.elara.app.type.AllInOneAppConfig;
+import org.tools4j.elara.app.type.AllInOneAppConfigurator;
+import org.tools4j.elara.app.type.FeedbackAppConfig;
+import org.tools4j.elara.app.type.FeedbackAppConfigurator;
+import org.tools4j.elara.app.type.PassthroughAppConfig;
+import org.tools4j.elara.app.type.PassthroughAppConfigurator;
+import org.tools4j.elara.app.type.PublisherAppConfig;
+import org.tools4j.elara.app.type.PublisherAppConfigurator;
+import org.tools4j.elara.chronicle.ChronicleMessageStore;
+import org.tools4j.elara.input.CommandMessageInput;
+import org.tools4j.elara.plugin.activation.ActivationPlugin;
+import org.tools4j.elara.plugin.api.Plugins;
+import org.tools4j.elara.plugin.metrics.FrequencyMetric;
+import org.tools4j.elara.plugin.metrics.LatencyMetric;
+import org.tools4j.elara.plugin.metrics.MetricsConfig;
+import org.tools4j.elara.plugin.metrics.TimeMetric;
+import org.tools4j.elara.plugin.replication.Connection;
+import org.tools4j.elara.plugin.replication.EnforceLeaderInput;
+import org.tools4j.elara.plugin.replication.ReplicationConfigurator;
+import org.tools4j.elara.plugin.replication.ReplicationPlugin;
+import org.tools4j.elara.plugin.timer.TimerController.ControlContext;
+import org.tools4j.elara.plugin.timer.TimerEvents;
+import org.tools4j.elara.plugin.timer.TimerPlugin;
+import org.tools4j.elara.profile.AllocationTracker;
+import org.tools4j.elara.route.EventRouter;
+import org.tools4j.elara.samples.hash.HashApplication;
+import org.tools4j.elara.samples.hash.HashApplication.DefaultState;
+import org.tools4j.elara.samples.hash.HashApplication.ModifiableState;
+import org.tools4j.elara.samples.hash.HashApplication.State;
+import org.tools4j.elara.samples.hash.HashFeedbackApplication;
+import org.tools4j.elara.samples.hash.HashPassthroughApplication;
+import org.tools4j.elara.samples.hash.HashPassthroughApplication.PublisherWithState;
+import org.tools4j.elara.store.MessageStore;
+import org.tools4j.elara.stream.MessageReceiver;
+import org.tools4j.elara.stream.MessageSender;
+import org.tools4j.elara.stream.ipc.AllocationStrategy;
+import org.tools4j.elara.stream.ipc.Ipc;
+import org.tools4j.elara.stream.ipc.IpcConfig;
+import org.tools4j.elara.stream.ipc.IpcConfigurator;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.tools4j.elara.samples.hash.HashApplication.DEFAULT_SOURCE_ID;
+import static org.tools4j.elara.samples.hash.HashApplication.NULL_VALUE;
+import static org.tools4j.elara.stream.ipc.Cardinality.ONE;
+
+/**
+ * Unit test running the {@link HashApplication} as different app types and with different plugins at steady state,
+ * asserting that no bytes are allocated on the agent thread by using the {@link AllocationTracker}.
+ * <p>
+ * All agents are driven on the test thread which makes the test deterministic also on single core machines.  Sporadic
+ * allocations can occur while the JIT compiler is still optimising code, hence messages are sent in rounds after
+ * warm-up until a round completes without allocation;  the test fails if this is not the case for any round.  The test
+ * is run by the {@code allocationTest} task without assertions since chronicle queue allocates if assertions are enabled.
+ */
+@Tag("allocation")
+public class ZeroAllocationTest {
+
+    private static final int WARMUP_MESSAGES = 20_000;
+    private static final int MEASURED_MESSAGES = 10_000;
+    private static final int MAX_MEASURED_ROUNDS = 5;
+    private static final int MAX_CYCLES_PER_MESSAGE = 100_000;
+    private static final int IDLE_CYCLES = 1_000;
+    private static final int LEADER_ID = 1;
+    private static final int FOLLOWER_ID = 2;
+    private static final int ENFORCE_LEADER_SOURCE = 999;
+
+    @Test
+    public void allInOneApp() throws Exception {
+        //given
+        final AtomicLong input = new AtomicLong(NULL_VALUE);
+        final ModifiableState state = new DefaultState();
+        final AllocationTracker tracker = new AllocationTracker();
+        final Agent agent = allInOneAgent("all-in-one", new HashApplication(state), input, config -> {}, tracker);
+
+        //when
+        runSteadyState(input, new State[] {state}, new AllocationTracker[] {tracker}, agent);
+
+        //then
+        assertNoAllocation(tracker);
+    }
+
+    @Test
+    public void allInOneAppWithTimerPlugin() throws Exception {
+        //given
+        final AtomicLong input = new AtomicLong(NULL_VALUE);
+        final ModifiableState state = new DefaultState();
+        final ModifiableState timerState = new DefaultState();
+        final AllocationTracker tracker = new AllocationTracker();
+        final TimerPlugin timerPlugin = Plugins.timerPlugin();
+        final Agent agent = allInOneAgent("timer", new TimerHashApplication(state, timerState, timerPlugin), input,
+                config -> config.plugin(timerPlugin), tracker);
+
+        //when
+        runSteadyState(input, new State[] {state, timerState}, new AllocationTracker[] {tracker}, agent);
+
+        //then
+        assertNoAllocation(tracker);
+    }
+
+    @Test
+    public void allInOneAppWithMetricsPlugin() throws Exception {
+        //given
+        final String name = "metrics";
+        final AtomicLong input = new AtomicLong(NULL_VALUE);
+        final ModifiableState state = new DefaultState();
+        final AllocationTracker tracker = new AllocationTracker();
+        final Agent agent = allInOneAgent(name, new HashApplication(state), input, config -> config
+                .plugin(Plugins.metricsPlugin(MetricsConfig.configure()
+                        .timeMetrics(EnumSet.allOf(TimeMetric.class))
+                        .frequencyMetrics(EnumSet.allOf(FrequencyMetric.class))
+                        .latencyMetrics(EnumSet.allOf(LatencyMetric.class))
+                        .inputSendingTimeExtractor((sourceId, sourceSeq, type, buffer, offset, length) -> 0)
+                        .frequencyMetricInterval(100_000)
+                        .latencyHistograms(100_000)
+                        .timeMetricsStore(chronicleStore(name, "tim"))
+                        .frequencyMetricsStore(chronicleStore(name, "frq"))
+                        .countersFile(new File(folder(name), "counters.dat"))
+                )), tracker);
+
+        //when
+        runSteadyState(input, new State[] {state}, new AllocationTracker[] {tracker}, agent);
+
+        //then
+        assertNoAllocation(tracker);
+    }
+
+    @Test
+    public void allInOneAppWithActivationPlugin() throws Exception {
+        //given
+        final AtomicLong input = new AtomicLong(NULL_VALUE);
+        final ModifiableState state = new DefaultState();
+        final AllocationTracker tracker = new AllocationTracker();
+        final ActivationPlugin activationPlugin = Plugins.activationPlugin();
+        final Agent agent = allInOneAgent("activation", new HashApplication(state), input,
+                config -> config.plugin(activationPlugin), tracker);
+        activationPlugin.activate();
+
+        //when
+        runSteadyState(input, new State[] {state}, new AllocationTracker[] {tracker}, agent);
+
+        //then
+        assertNoAllocation(tracker);
+    }
+
+    @Test
+    public void allInOneAppsWithReplicationPlugin() throws Exception {
+        //given
+        final AtomicLong input = new AtomicLong(NULL_VALUE);
+        final ModifiableState leaderState = new DefaultState();
+        final ModifiableState followerState = new DefaultState();
+        final AllocationTracker leaderTracker = new AllocationTracker();
+        final AllocationTracker followerTracker = new AllocationTracker();
+        final RingBuffer[] inboxes = {inbox(), inbox()};
+        final Agent leader = allInOneAgent("replication-leader", new HashApplication(leaderState), input,
+                config -> config.plugin(replicationPlugin(LEADER_ID, inboxes)), leaderTracker);
+        final Agent follower = allInOneAgent("replication-follower", new HashApplication(followerState),
+                new AtomicLong(NULL_VALUE), config -> config.plugin(replicationPlugin(FOLLOWER_ID, inboxes)),
+                followerTracker);
+
+        //when
+        runSteadyState(input, new State[] {leaderState, followerState},
+                new AllocationTracker[] {leaderTracker, followerTracker}, leader, follower);
+
+        //then
+        assertEquals(leaderState.hash(), followerState.hash(), "followerState.hash");
+        assertNoAllocation(leaderTracker);
+        assertNoAllocation(followerTracker);
+    }
+
+    @Test
+    public void passthroughAndPublisherApps() throws Exception {
+        //given
+        final String name = "passthrough-publisher";
+        final AtomicLong input = new AtomicLong(NULL_VALUE);
+        final ModifiableState state = new DefaultState();
+        final AllocationTracker passthroughTracker = new AllocationTracker();
+        final AllocationTracker publisherTracker = new AllocationTracker();
+        delete(name);
+        final PassthroughAppConfigurator passthroughConfig = PassthroughAppConfig.configure()
+                .input(HashPassthroughApplication.SOURCE_ID, HashApplication.inputPoller(input))
+                .eventStore(chronicleStore(name, "evt"))
+                .plugin(passthroughTracker)
+                .populateDefaults(new HashPassthroughApplication());
+        final PublisherAppConfigurator publisherConfig = PublisherAppConfig.configure()
+                .eventStore(chronicleStore(name, "evt"))
+                .baseStateProvider(SingleEventBaseState.PROVIDER)
+                .plugin(publisherTracker)
+                .populateDefaults(new PublisherWithState(state));
+
+        //when
+        runSteadyState(input, new State[] {state},
+                new AllocationTracker[] {passthroughTracker, publisherTracker},
+                passthroughConfig.createAgent(), publisherConfig.createAgent());
+
+        //then
+        assertNoAllocation(passthroughTracker);
+        assertNoAllocation(publisherTracker);
+    }
+
+    @Test
+    public void passthroughAndFeedbackApps() throws Exception {
+        //given
+        final String name = "passthrough-feedback";
+        final AtomicLong input = new AtomicLong(NULL_VALUE);
+        final ModifiableState state = new DefaultState();
+        final AllocationTracker passthroughTracker = new AllocationTracker();
+        final AllocationTracker feedbackTracker = new AllocationTracker();
+        delete(name);
+        final File ipcFile = new File(folder(name), "ipc.map");
+        final MessageSender sender = Ipc.newSender(ipcFile, 1 << 20, ipcConfig()
+                .newFileCreateParentDirs(true)
+                .newFileDeleteIfPresent(true));
+        final MessageReceiver receiver = Ipc.openReceiver(ipcFile, ipcConfig());
+        final PassthroughAppConfigurator passthroughConfig = PassthroughAppConfig.configure();
+        passthroughConfig
+                .input(new CommandMessageInput(receiver, passthroughConfig.exceptionHandler()))
+                .eventStore(chronicleStore(name, "evt"))
+                .plugin(passthroughTracker)
+                .populateDefaults(new HashPassthroughApplication());
+        final FeedbackAppConfigurator feedbackConfig = FeedbackAppConfig.configure()
+                .processorSourceId(HashFeedbackApplication.PROCESSOR_SOURCE_ID)
+                .commandSender(sender)
+                .eventStore(chronicleStore(name, "evt"))
+                .input(HashFeedbackApplication.INPUT_SOURCE_ID, HashFeedbackApplication.inflightAwareInputPoller(input))
+                .plugin(feedbackTracker)
+                .populateDefaults(new HashFeedbackApplication(state, input));
+
+        //when
+        runSteadyState(input, new State[] {state},
+                new AllocationTracker[] {passthroughTracker, feedbackTracker},
+                passthroughConfig.createAgent(), feedbackConfig.createAgent());
+
+        //then
+        assertNoAllocation(passthroughTracker);
+        assertNoAllocation(feedbackTracker);
+    }
+
+    private static void runSteadyState(final AtomicLong input,
+                                       final State[] states,
+                                       final AllocationTracker[] trackers,
+                                       final Agent... agents) throws Exception {
+        for (final Agent agent : agents) {
+            agent.onStart();
+        }
+        try {
+            sendAll(0, WARMUP_MESSAGES, input, states, agents);
+            int start = WARMUP_MESSAGES;
+            for (int round = 0; round < MAX_MEASURED_ROUNDS; round++) {
+                for (final AllocationTracker tracker : trackers) {
+                    tracker.start();
+                }
+                sendAll(start, MEASURED_MESSAGES, input, states, agents);
+                for (int cycle = 0; cycle < IDLE_CYCLES; cycle++) {
+                    doWork(agents);
+                }
+                for (final AllocationTracker tracker : trackers) {
+                    tracker.stop();
+                }
+                if (allocatedBytes(trackers) == 0) {
+                    return;
+                }
+                start += MEASURED_MESSAGES;
+            }
+        } finally {
+            for (final Agent agent : agents) {
+                agent.onClose();
+            }
+        }
+    }
+
+    private static long allocatedBytes(final AllocationTracker[] trackers) {
+        long bytes = 0;
+        for (final AllocationTracker tracker : trackers) {
+            bytes += tracker.allocatedBytes();
+        }
+        return bytes;
+    }
+
+    private static void sendAll(final int start,
+                                final int count,
+                                final AtomicLong input,
+                                final State[] states,
+                                final Agent[] agents) throws Exception {
+        for (int i = start; i < start + count; i++) {
+            input.set(i);
+            int cycles = 0;
+            while (!allReached(states, i + 1)) {
+                if (++cycles > MAX_CYCLES_PER_MESSAGE) {
+                    throw new IllegalStateException("Message " + i + " not processed after " + cycles + " cycles");
+                }
+                doWork(agents);
+            }
+        }
+    }
+
+    private static boolean allReached(final State[] states, final long count) {
+        for (final State state : states) {
+            if (state.count() < count) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void doWork(final Agent[] agents) throws Exception {
+        for (final Agent agent : agents) {
+            agent.doWork();
+        }
+    }
+
+    private static void assertNoAllocation(final AllocationTracker tracker) {
+        assumeTrue(tracker.isAvailable(), "Thread allocation measurement not supported by JVM");
+        tracker.assertNoAllocation();
+    }
+
+    private static Agent allInOneAgent(final String name,
+                                       final AllInOneApp app,
+                                       final AtomicLong input,
+                                       final Consumer<? super AllInOneAppConfigurator> configurator,
+                                       final AllocationTracker tracker) {
+        delete(name);
+        final AllInOneAppConfigurator config = AllInOneAppConfig.configure()
+                .input(DEFAULT_SOURCE_ID, HashApplication.inputPoller(input))
+                .commandStore(chronicleStore(name, "cmd"))
+                .eventStore(chronicleStore(name, "evt"));
+        configurator.accept(config);
+        return config
+                .plugin(tracker)
+                .populateDefaults(app)
+                .createAgent();
+    }
+
+    private static File folder(final String name) {
+        return new File("build/chronicle/zero-allocation/" + name);
+    }
+
+    private static void delete(final String name) {
+        IoUtil.delete(folder(name), true);
+    }
+
+    private static MessageStore chronicleStore(final String name, final String queue) {
+        return new ChronicleMessageStore(ChronicleQueue.singleBuilder()
+                .path(new File(folder(name), queue + ".cq4"))
+                .wireType(WireType.BINARY_LIGHT)
+                .build());
+    }
+
+    private static IpcConfigurator ipcConfig() {
+        return IpcConfig.configure()
+                .senderCardinality(ONE)
+                .senderInitialBufferSize(1024)
+                .senderAllocationStrategy(AllocationStrategy.FIXED);
+    }
+
+    private static RingBuffer inbox() {
+        return new OneToOneRingBuffer(new UnsafeBuffer(ByteBuffer.allocateDirect(
+                (1 << 20) + RingBufferDescriptor.TRAILER_LENGTH)));
+    }
+
+    private static ReplicationPlugin replicationPlugin(final int serverId, final RingBuffer[] inboxes) {
+        final Connection connection = new RingBufferConnection(serverId, inboxes);
+        final ReplicationConfigurator config = ReplicationPlugin.configure()
+                .serverId(LEADER_ID, serverId == LEADER_ID)
+                .connection(LEADER_ID, connection)
+                .serverId(FOLLOWER_ID, serverId == FOLLOWER_ID)
+                .connection(FOLLOWER_ID, connection);
+        return Plugins.replicationPlugin(config.enforceLeaderInput(enforceLeaderInput()));
+    }
+
+    private static EnforceLeaderInput enforceLeaderInput() {
+        final long[] sequence = {1};
+        return receiver -> {
+            if (receiver.leaderId() == LEADER_ID || receiver.serverId() != LEADER_ID) {
+                return 0;
+            }
+            receiver.enforceLeader(ENFORCE_LEADER_SOURCE, sequence[0]++, LEADER_ID);
+            return 1;
+        };
+    }
+
+    /**
+     * Replication connection exchanging messages through one ring buffer per server, message type IDs carry the
+     * sending server ID.
+     */
+    private static final class RingBufferConnection implements Connection, Connection.Poller, Connection.Publisher,
+            MessageHandler {
+        private final int serverId;
+        private final RingBuffer[] inboxes;
+        private Connection.Handler handler;
+
+        RingBufferConnection(final int serverId, final RingBuffer[] inboxes) {
+            this.serverId = serverId;
+            this.inboxes = inboxes;
+        }
+
+        @Override
+        public Poller poller() {
+            return this;
+        }
+
+        @Override
+        public Publisher publisher() {
+            return this;
+        }
+
+        @Override
+        public int poll(final Connection.Handler handler) {
+            this.handler = handler;
+            try {
+                return inboxes[serverId - 1].read(this);
+            } finally {
+                this.handler = null;
+            }
+        }
+
+        @Override
+        public void onMessage(final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length) {
+            handler.onMessage(msgTypeId, buffer, index, length);
+        }
+
+        @Override
+        public boolean publish(final int targetServerId, final DirectBuffer buffer, final int offset, final int length) {
+            return inboxes[targetServerId - 1].write(serverId, buffer, offset, length);
+        }
+    }
+
+    /**
+     * Starts a timer for every application command and counts signalled timers in the timer state.
+     */
+    private static final class TimerHashApplication extends HashApplication {
+        private final ModifiableState timerState;
+        private final TimerPlugin timerPlugin;
+
+        TimerHashApplication(final ModifiableState state,
+                             final ModifiableState timerState,
+                             final TimerPlugin timerPlugin) {
+            super(state);
+            this.timerState = timerState;
+            this.timerPlugin = timerPlugin;
+        }
+
+        @Override
+        public void onCommand(final Command command, final EventRouter router) {
+            super.onCommand(command, router);
+            if (command.isApplication()) {
+                try (final ControlContext timerControl = timerPlugin.controller()) {
+                    timerControl.startTimer(0);
+                }
+            }
+        }
+
+        @Override
+        public void onEvent(final Event event) {
+            super.onEvent(event);
+            if (event.payloadType() == TimerEvents.TIMER_SIGNALLED) {
+                timerState.update(event.sourceSequence());
+            }
+        }
+    }
+}
@@ -74,7 +74,10 @@ public class MulticastSource {
         }
         final MulticastSource ms = new MulticastSource(sourceIds.indexById(sourceId), valueSource, topology);
         final AgentRunner agentRunner = ms.agentRunner("source-" + sourceId, nValues);
-        return ElaraRunner.startOnThread(agentRunner);
+        //NOTE: not using ElaraRunner.startOnThread(..) here since the source closes itself when all values are sent,
+        //      possibly before the runner has been observed as started
+        AgentRunner.startOnThread(agentRunner);
+        return new ElaraRunner(agentRunner);
     }
 
     private AgentRunner agentRunner(final String roleName, final int n) {
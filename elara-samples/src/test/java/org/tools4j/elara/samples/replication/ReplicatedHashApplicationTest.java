@@ -25,6 +25,8 @@ package org.tools4j.elara.samples.replication;
 
 import net.openhft.chronicle.queue.ChronicleQueue;
 import net.openhft.chronicle.wire.WireType;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.status.CountersReader;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledOnOs;
 import org.junit.jupiter.api.condition.OS;
@@ -37,10 +39,12 @@ import org.tools4j.elara.input.Input;
 import org.tools4j.elara.logging.Logger.Level;
 import org.tools4j.elara.logging.OutputStreamLogger;
 import org.tools4j.elara.plugin.api.Plugins;
+import org.tools4j.elara.plugin.metrics.MetricsCounters;
 import org.tools4j.elara.plugin.replication.Connection;
 import org.tools4j.elara.plugin.replication.EnforceLeaderInput;
-import org.tools4j.elara.plugin.replication.ReplicationConfig;
 import org.tools4j.elara.plugin.replication.ReplicationConfigurator;
+import org.tools4j.elara.plugin.replication.ReplicationCounters;
+import org.tools4j.elara.plugin.replication.ReplicationMetrics;
 import org.tools4j.elara.plugin.replication.ReplicationPlugin;
 import org.tools4j.elara.run.Elara;
 import org.tools4j.elara.run.ElaraRunner;
@@ -56,13 +60,20 @@ import org.tools4j.elara.samples.network.ServerTopology;
 import org.tools4j.elara.samples.network.Transmitter;
 import org.tools4j.elara.samples.replication.NetworkConfig.LinkConfig;
 
+import java.io.File;
+import java.util.Random;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.tools4j.elara.plugin.replication.ReplicationState.NULL_SERVER;
 
 /**
  * Unit test running the {@link HashApplication} on multiple nodes and threads using the
@@ -72,6 +83,9 @@ public class ReplicatedHashApplicationTest {
 
     private static final int SOURCE_OFFSET = 1_000_000_000;
     private static final int ENFORCE_LEADER_SOURCE = 2 * SOURCE_OFFSET - 1;
+    private static final long ELECTION_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long CLOCK_STEP_NANOS = ELECTION_TIMEOUT_NANOS / 50;
+    private static final int MAX_CLOCK_STEPS = 1000;
 
     private final NetworkConfig networkConfig = NetworkConfig.RELIABLE;
     //private final NetworkConfig networkConfig = NetworkConfig.UNRELIABLE;
@@ -93,9 +107,16 @@ public class ReplicatedHashApplicationTest {
         final ServerTopology sourceTopology = sourceTopology(sources, serverIds, commandTransmitter);
         final ModifiableState[] appStates = appStates(servers);
         final EnforceLeaderInput enforceLeaderInput = enforceLeaderInput(serverIds);
+        final ReplicationPlugin[] plugins = new ReplicationPlugin[servers];
+        final File countersFile = new File("build/replication/server-" + serverIds.idByIndex(0) + "-counters.dat");
+        IoUtil.ensureDirectoryExists(countersFile.getParentFile(), "counters");
+        IoUtil.delete(new File("build/chronicle/replication"), true);
 
         //when
-        final ElaraRunner[] runners = startServers(appStates, serverIds, sourceIds, serverTopology, sourceTopology, enforceLeaderInput);
+        final ElaraRunner[] runners = startServers(appStates, serverIds, sourceIds, sourceTopology, "replication",
+                server -> plugins[server] = Plugins.replicationPlugin(
+                        replicationConfig(server, serverIds, serverTopology, enforceLeaderInput)
+                                .countersFile(server == 0 ? countersFile : null)));
         final ElaraRunner[] publishers = startSourcePublishers(commandsPerSource, sourceIds, sourceTopology);
 
         for (final ElaraRunner publisher : publishers) {
@@ -127,6 +148,177 @@ public class ReplicatedHashApplicationTest {
             assertEquals(refState.count(), state.count(), "appState[" + i + "].count");
             assertEquals(refState.hash(), state.hash(), "appState[" + i + "].hash");
         }
+        int leader = 0;
+        for (int i = 1; i < servers; i++) {
+            if (totalSentEvents(plugins[i], serverIds) > totalSentEvents(plugins[leader], serverIds)) {
+                leader = i;
+            }
+        }
+        final int leaderId = serverIds.idByIndex(leader);
+        final ReplicationMetrics leaderMetrics = plugins[leader].metrics();
+        System.out.println("leader-" + leaderId + ": " + leaderMetrics);
+        assertTrue(totalSentEvents(plugins[leader], serverIds) >= sources * commandsPerSource, "sentEvents");
+        for (int i = 0; i < servers; i++) {
+            if (i != leader) {
+                final int followerId = serverIds.idByIndex(i);
+                assertEquals(0, leaderMetrics.lagEvents(followerId), "lagEvents[" + followerId + "]");
+                assertEquals(leaderMetrics.nextEventStoreIndex(followerId) - 1,
+                        leaderMetrics.confirmedEventStoreIndex(followerId), "confirmedEventStoreIndex[" + followerId + "]");
+                assertTrue(leaderMetrics.sentBytes(followerId) > leaderMetrics.sentEvents(followerId),
+                        "sentBytes[" + followerId + "]");
+                assertTrue(leaderMetrics.heartbeatAgeNanos(followerId) >= 0, "heartbeatAgeNanos[" + followerId + "]");
+                assertTrue(plugins[i].metrics().heartbeatAgeNanos(leaderId) >= 0, "heartbeatAgeNanos[" + leaderId + "]");
+            }
+        }
+        final CountersReader countersReader = MetricsCounters.reader(countersFile);
+        final AtomicLong countersSentEvents = new AtomicLong();
+        countersReader.forEach((value, counterId, label) -> {
+            if (label.startsWith(ReplicationCounters.Counter.SENT_EVENTS.displayName())) {
+                countersSentEvents.addAndGet(value);
+            }
+        });
+        assertEquals(totalSentEvents(plugins[0], serverIds), countersSentEvents.get(), "countersSentEvents");
+    }
+
+    @Test
+    @DisabledOnOs(value = OS.WINDOWS, disabledReason = "Windows build currently fails on Github workflows")
+    public void electLeaderAndFailOver() throws Exception {
+        //given
+        final int servers = 3;
+        final int sources = 6;
+        final int nThreads = 5;
+        final int commandsPerSource = 100;
+        final int commandsBeforeFailover = (sources / 2) * commandsPerSource;
+        final IdMapping serverIds = DefaultIdMapping.enumerate(servers);
+        final IdMapping sourceIds = DefaultIdMapping.enumerate(SOURCE_OFFSET, sources);
+        final ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(nThreads);
+        final Transmitter appendTransmitter = transmitter(networkConfig.appendLink(), scheduledExecutorService);
+        final Transmitter commandTransmitter = transmitter(networkConfig.commandLink(), scheduledExecutorService);
+        final ServerTopology serverTopology = serverTopology(serverIds, appendTransmitter);
+        final ServerTopology sourceTopology = sourceTopology(sources, serverIds, commandTransmitter);
+        final ModifiableState[] appStates = appStates(servers);
+        final AtomicIntegerArray leaderIds = new AtomicIntegerArray(servers);
+        for (int i = 0; i < servers; i++) {
+            leaderIds.set(i, NULL_SERVER);
+        }
+        //election timers only advance when the test moves the clock forward
+        final AtomicLong clockTime = new AtomicLong(System.nanoTime());
+        IoUtil.delete(new File("build/chronicle/election"), true);
+        final File stateFolder = new File("build/replication/election");
+        IoUtil.delete(stateFolder, true);
+        IoUtil.ensureDirectoryExists(stateFolder, "state");
+
+        //when
+        final ElaraRunner[] runners = startServers(appStates, serverIds, sourceIds, sourceTopology, "election",
+                server -> Plugins.replicationPlugin(replicationConfig(server, serverIds, serverTopology, receiver -> 0)
+                        .autoElection(true)
+                        .stateFile(new File(stateFolder, "server-" + serverIds.idByIndex(server) + "-state.dat"))
+                        .electionTimeoutNanos(ELECTION_TIMEOUT_NANOS)
+                        .heartbeatIntervalNanos(ELECTION_TIMEOUT_NANOS / 10)
+                        .electionTimeoutRandom(new Random(server))
+                        .nanoClock(clockTime::get)
+                        .leaderListener((serverId, term, leaderId) -> leaderIds.set(server, leaderId))
+                ));
+        final int leaderId = awaitLeader(leaderIds, -1, NULL_SERVER, clockTime);
+        final int leader = serverIds.indexById(leaderId);
+        final ElaraRunner[] publishers = startSourcePublishers(0, sources / 2, commandsPerSource, sourceIds,
+                sourceTopology);
+        awaitCount(appStates, commandsBeforeFailover, 10000);
+        final long failoverStartTime = clockTime.get();
+        runners[leader].close();
+        runners[leader].join(1000);
+        final ElaraRunner[] failoverPublishers = startSourcePublishers(sources / 2, sources, commandsPerSource,
+                sourceIds, sourceTopology);
+        final int newLeaderId = awaitLeader(leaderIds, leader, leaderId, clockTime);
+        final long failoverNanos = clockTime.get() - failoverStartTime;
+        System.out.println("LEADER: " + leaderId + ", NEW LEADER: " + newLeaderId + ", FAILOVER: " +
+                TimeUnit.NANOSECONDS.toMillis(failoverNanos) + "ms");
+        for (final ElaraRunner publisher : publishers) {
+            publisher.join(10000);
+        }
+        for (final ElaraRunner publisher : failoverPublishers) {
+            publisher.join(10000);
+        }
+        final State[] survivorStates = new State[servers - 1];
+        for (int i = 0, j = 0; i < servers; i++) {
+            if (i != leader) {
+                survivorStates[j++] = appStates[i];
+            }
+        }
+        awaitCount(survivorStates, sources * commandsPerSource, 10000);
+
+        scheduledExecutorService.shutdown();
+        if (!scheduledExecutorService.awaitTermination(10, TimeUnit.SECONDS)) {
+            scheduledExecutorService.shutdownNow();
+        }
+        for (final ElaraRunner runner : runners) {
+            runner.close();
+            runner.join(1000);
+        }
+
+        //then
+        for (int i = 0; i < servers; i++) {
+            final State state = appStates[i];
+            System.out.println("server-" + serverIds.idByIndex(i) + ": count=" + state.count() + ", hash=" + state.hash());
+        }
+        assertNotEquals(NULL_SERVER, newLeaderId, "newLeaderId");
+        assertNotEquals(leaderId, newLeaderId, "newLeaderId");
+        //worst case is a split vote with a second election round, each round ends within 2 election timeouts
+        assertTrue(failoverNanos <= 4 * ELECTION_TIMEOUT_NANOS, "failover took " + failoverNanos + "ns");
+        assertEquals(commandsBeforeFailover, appStates[leader].count(), "appState[" + leader + "].count");
+        for (final State state : survivorStates) {
+            assertEquals(sources * commandsPerSource, state.count(), "survivorState.count");
+            assertEquals(survivorStates[0].hash(), state.hash(), "survivorState.hash");
+        }
+    }
+
+    /**
+     * Awaits agreement on a new leader and moves the clock forward in steps while waiting to let election timers
+     * expire;  the leader is usually elected in the step when the first election timer expires.
+     */
+    private static int awaitLeader(final AtomicIntegerArray leaderIds,
+                                   final int excludedServer,
+                                   final int previousLeaderId,
+                                   final AtomicLong clockTime) throws InterruptedException {
+        for (int step = 0; step < MAX_CLOCK_STEPS; step++) {
+            int leaderId = NULL_SERVER;
+            boolean agreed = true;
+            for (int i = 0; i < leaderIds.length() && agreed; i++) {
+                if (i != excludedServer) {
+                    final int id = leaderIds.get(i);
+                    agreed = id != previousLeaderId && (leaderId == NULL_SERVER || leaderId == id);
+                    leaderId = id;
+                }
+            }
+            if (agreed) {
+                return leaderId;
+            }
+            clockTime.addAndGet(CLOCK_STEP_NANOS);
+            Thread.sleep(5);
+        }
+        return NULL_SERVER;
+    }
+
+    private static long totalSentEvents(final ReplicationPlugin plugin, final IdMapping serverIds) {
+        long sentEvents = 0;
+        for (int i = 0; i < serverIds.count(); i++) {
+            final int serverId = serverIds.idByIndex(i);
+            if (serverId != plugin.config().serverId()) {
+                sentEvents += plugin.metrics().sentEvents(serverId);
+            }
+        }
+        return sentEvents;
+    }
+
+    private static void awaitCount(final State[] states,
+                                   final long count,
+                                   final long timeoutMillis) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (final State state : states) {
+            while (state.count() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        }
     }
 
     private Input[] inputs(final IdMapping sourceIds, final Buffer[] buffers) {
@@ -154,11 +346,19 @@ public class ReplicatedHashApplicationTest {
     private ElaraRunner[] startSourcePublishers(final int commandsPerSource,
                                                final IdMapping sourceIds,
                                                final ServerTopology sourceTopology) {
-        final int sources = sourceTopology.senders();
-        final ElaraRunner[] publishers = new ElaraRunner[sources];
-        for (int i = 0; i < sources; i++) {
+        return startSourcePublishers(0, sourceTopology.senders(), commandsPerSource, sourceIds, sourceTopology);
+    }
+
+    private ElaraRunner[] startSourcePublishers(final int fromSource,
+                                               final int toSource,
+                                               final int commandsPerSource,
+                                               final IdMapping sourceIds,
+                                               final ServerTopology sourceTopology) {
+        final ElaraRunner[] publishers = new ElaraRunner[toSource - fromSource];
+        for (int i = fromSource; i < toSource; i++) {
             final int sourceId = SOURCE_OFFSET + i;
-            publishers[i] = MulticastSource.startRandom(sourceId, sourceIds, commandsPerSource, sourceTopology);
+            publishers[i - fromSource] = MulticastSource.startRandom(sourceId, sourceIds, commandsPerSource,
+                    sourceTopology);
         }
         return publishers;
     }
@@ -212,27 +412,20 @@ public class ReplicatedHashApplicationTest {
     private ElaraRunner[] startServers(final ModifiableState[] appStates,
                                        final IdMapping serverIds,
                                        final IdMapping sourceIds,
-                                       final ServerTopology serverTopology,
                                        final ServerTopology sourceTopology,
-                                       final EnforceLeaderInput enforceLeaderInput) {
+                                       final String storeFolder,
+                                       final IntFunction<ReplicationPlugin> replicationPluginFactory) {
         final int servers = appStates.length;
         final ElaraRunner[] runners = new ElaraRunner[servers];
         for (int server = 0; server < servers; server++) {
             final Input[] inputs = inputs(sourceIds, sourceTopology.receiveBuffers(server));
-            final ReplicationPlugin replicationPlugin = replicationPlugin(server, serverIds, serverTopology, enforceLeaderInput);
-            runners[server] = startServer(server, serverIds, appStates[server], inputs, replicationPlugin);
+            final ReplicationPlugin replicationPlugin = replicationPluginFactory.apply(server);
+            runners[server] = startServer(server, serverIds, appStates[server], inputs, storeFolder, replicationPlugin);
         }
         return runners;
     }
 
-    private ReplicationPlugin replicationPlugin(final int server,
-                                                final IdMapping serverIds,
-                                                final ServerTopology serverTopology,
-                                                final EnforceLeaderInput enforceLeaderInput) {
-        return Plugins.replicationPlugin(replicationConfig(server, serverIds, serverTopology, enforceLeaderInput));
-    }
-
-    private ReplicationConfig replicationConfig(final int server,
+    private ReplicationConfigurator replicationConfig(final int server,
                                                 final IdMapping serverIds,
                                                 final ServerTopology serverTopology,
                                                 final EnforceLeaderInput enforceLeaderInput) {
@@ -260,14 +453,15 @@ public class ReplicatedHashApplicationTest {
                                     final IdMapping serverIds,
                                     final ModifiableState appState,
                                     final Input[] inputs,
+                                    final String storeFolder,
                                     final ReplicationPlugin replicationPlugin) {
         final int serverId = serverIds.idByIndex(server);
         final ChronicleQueue cq = ChronicleQueue.singleBuilder()
-                .path("build/chronicle/replication/server-" + serverId + "-cmd.cq4")
+                .path("build/chronicle/" + storeFolder + "/server-" + serverId + "-cmd.cq4")
                 .wireType(WireType.BINARY_LIGHT)
                 .build();
         final ChronicleQueue eq = ChronicleQueue.singleBuilder()
-                .path("build/chronicle/replication/server-" + serverId + "-evt.cq4")
+                .path("build/chronicle/" + storeFolder + "/server-" + serverId + "-evt.cq4")
                 .wireType(WireType.BINARY_LIGHT)
                 .build();
         return Elara.launch(AllInOneAppConfig.configure()
@@ -133,13 +133,20 @@ final class TcpServerEndpoint implements NioEndpoint {
 
     private int onSelectionKey(final SelectionKey key, final int registerOps) throws IOException {
         if (key.isAcceptable()) {
-            final SocketChannel socketChannel = serverSocketChannel.accept()
+            final SocketChannel accept = serverSocketChannel.accept();
+            if (accept == null) {
+                //already accepted via the other poller
+                return SelectionHandler.OK;
+            }
+            final SocketChannel socketChannel = accept
                     .setOption(StandardSocketOptions.SO_REUSEADDR, true)
                     .setOption(StandardSocketOptions.SO_KEEPALIVE, true);
 //                    .setOption(StandardSocketOptions.TCP_NODELAY, true);
             socketChannel.configureBlocking(false);
-            final SelectionKey channelKey = socketChannel.register(key.selector(), registerOps);
-            onAccept(serverSocketChannel, socketChannel, channelKey);
+            //register with both pollers so that we can send to and receive from the same client
+            final SelectionKey readKey = socketChannel.register(receiverPoller.selector(), SelectionKey.OP_READ);
+            final SelectionKey writeKey = socketChannel.register(senderPoller.selector(), SelectionKey.OP_WRITE);
+            onAccept(serverSocketChannel, socketChannel, registerOps == SelectionKey.OP_READ ? readKey : writeKey);
         }
         return SelectionHandler.OK;
     }